@@ -1,35 +1,68 @@
 package com.user.service;
 
+import com.user.service.dao.CountMode;
 import com.user.service.entities.User;
+import com.user.service.jfr.FlightRecording;
+import com.user.service.output.OutputFormat;
+import com.user.service.output.UserTableWriter;
 import com.user.service.service.UserService;
+import com.user.service.util.SessionFactoryProvider;
 
 import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 public class ApplicationRunner {
+    static final int PAGE_SIZE = 20;
+    // rows fetched per round trip when a whole large table is listed
+    static final int STREAM_PAGE_SIZE = 1000;
+
     private final Scanner scanner;
     private final PrintStream out;
     private final UserService userService;
+    private final UserTableWriter table;
+    private final boolean menu;
+    // started with --jfr= or from the menu; dumped on exit
+    private FlightRecording recording;
 
     public ApplicationRunner(Scanner scanner, PrintStream out, UserService userService) {
+        this(scanner, out, userService, OutputFormat.FIXED, true);
+    }
+
+    // without the menu only results are printed, and large listings stream without asking
+    public ApplicationRunner(Scanner scanner, PrintStream out, UserService userService,
+                             OutputFormat format, boolean menu) {
+        this(scanner, out, userService, format, menu, null);
+    }
+
+    public ApplicationRunner(Scanner scanner, PrintStream out, UserService userService,
+                             OutputFormat format, boolean menu, FlightRecording recording) {
         this.scanner = scanner;
         this.out = out;
         this.userService = userService;
+        this.table = UserTableWriter.to(out, format);
+        this.menu = menu;
+        this.recording = recording;
     }
 
     public void run() {
-        out.println("User Service (Hibernate + PostgreSQL)");
+        if (menu) {
+            out.println("User Service (Hibernate + PostgreSQL)");
+        }
         boolean running = true;
 
         while (running) {
-            out.println("\nChoose an operation:");
-            out.println("1. Create User");
-            out.println("2. Read All Users");
-            out.println("3. Read User by ID");
-            out.println("4. Update User");
-            out.println("5. Delete User");
-            out.println("6. Exit");
-            out.print("Enter choice: ");
+            if (menu) {
+                out.println("\nChoose an operation:");
+                out.println("1. Create User");
+                out.println("2. Read All Users");
+                out.println("3. Read User by ID");
+                out.println("4. Update User");
+                out.println("5. Delete User");
+                out.println("6. Exit");
+                out.println("7. " + (recording == null ? "Start" : "Dump") + " Flight Recording");
+            }
+            prompt("Enter choice: ");
 
             int choice = getIntInput();
             switch (choice) {
@@ -40,8 +73,11 @@ public class ApplicationRunner {
                 case 5 -> deleteUser();
                 case 6 -> {
                     running = false;
-                    out.println("Goodbye!");
+                    if (menu) {
+                        out.println("Goodbye!");
+                    }
                 }
+                case 7 -> flightRecording();
                 default -> out.println("Invalid choice. Try again.");
             }
         }
@@ -49,11 +85,11 @@ public class ApplicationRunner {
 
     private void createUser() {
         try {
-            out.print("Enter name: ");
+            prompt("Enter name: ");
             String name = scanner.nextLine().trim();
-            out.print("Enter email: ");
+            prompt("Enter email: ");
             String email = scanner.nextLine().trim();
-            out.print("Enter age: ");
+            prompt("Enter age: ");
             Integer age = getIntInput();
 
             User user = userService.createUser(name, email, age);
@@ -65,21 +101,81 @@ public class ApplicationRunner {
 
     private void readAllUsers() {
         try {
+            long estimate = userService.countUsers(CountMode.ESTIMATE);
+            if (estimate > PAGE_SIZE) {
+                if (menu) {
+                    out.println("About " + estimate + " users.");
+                    out.print("Show (a)ll or (p)age by page? ");
+                    if (scanner.nextLine().trim().equalsIgnoreCase("p")) {
+                        readUsersByPage();
+                        return;
+                    }
+                }
+                streamAllUsers();
+                return;
+            }
             var users = userService.getAllUsers();
             if (users.isEmpty()) {
                 out.println("No users found.");
             } else {
-                out.println("All users:");
-                users.forEach(out::println);
+                if (menu) {
+                    out.println("All users:");
+                }
+                table.begin();
+                users.forEach(table::write);
+                table.end();
             }
         } catch (Exception e) {
+            // rows already buffered still belong in front of the error
+            table.flush();
             out.println("Failed to read users: " + e.getMessage());
         }
     }
 
+    // rows are rendered page by page as they arrive, so memory stays flat however large the table
+    private void streamAllUsers() {
+        if (menu) {
+            out.println("All users:");
+        }
+        table.begin();
+        Long afterId = null;
+        while (true) {
+            var page = userService.getUsersPage(afterId, STREAM_PAGE_SIZE);
+            page.forEach(table::write);
+            if (page.size() < STREAM_PAGE_SIZE) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        table.end();
+    }
+
+    private void readUsersByPage() {
+        Long afterId = null;
+        table.begin();
+        while (true) {
+            var page = userService.getUsersPage(afterId, PAGE_SIZE);
+            page.forEach(table::write);
+            if (page.size() < PAGE_SIZE) {
+                table.end();
+                if (table.getRowCount() == 0) {
+                    out.println("No users found.");
+                }
+                return;
+            }
+            afterId = page.get(page.size() - 1).getId();
+            table.flush();
+            out.print("Shown " + table.getRowCount() + ". Enter for next page, q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                table.end();
+                return;
+            }
+        }
+    }
+
     private void readUserById() {
         try {
-            out.print("Enter user ID: ");
+            prompt("Enter user ID: ");
             Long id = getLongInput();
             var userOpt = userService.getUserById(id);
             if (userOpt.isPresent()) {
@@ -94,18 +190,18 @@ public class ApplicationRunner {
 
     private void updateUser() {
         try {
-            out.print("Enter user ID to update: ");
+            prompt("Enter user ID to update: ");
             Long id = getLongInput();
 
-            out.print("Enter new name (leave empty to skip): ");
+            prompt("Enter new name (leave empty to skip): ");
             String name = scanner.nextLine().trim();
             if (name.isEmpty()) name = null;
 
-            out.print("Enter new email (leave empty to skip): ");
+            prompt("Enter new email (leave empty to skip): ");
             String email = scanner.nextLine().trim();
             if (email.isEmpty()) email = null;
 
-            out.print("Enter new age (leave empty to skip): ");
+            prompt("Enter new age (leave empty to skip): ");
             String ageStr = scanner.nextLine().trim();
             Integer age = null;
             if (!ageStr.isEmpty()) {
@@ -121,7 +217,7 @@ public class ApplicationRunner {
 
     private void deleteUser() {
         try {
-            out.print("Enter user ID to delete: ");
+            prompt("Enter user ID to delete: ");
             Long id = getLongInput();
             userService.deleteUser(id);
             out.println("User with ID " + id + " deleted (if existed).");
@@ -130,6 +226,32 @@ public class ApplicationRunner {
         }
     }
 
+    // the first use starts a recording, later ones dump what it has captured so far
+    private void flightRecording() {
+        try {
+            if (recording == null) {
+                prompt("Enter file to record to: ");
+                recording = FlightRecording.start(Path.of(scanner.nextLine().trim()));
+                SessionFactoryProvider.registerShutdownHook(recording);
+                out.println("Flight recording started, written to " + recording.getDestination() + " on exit");
+                return;
+            }
+            prompt("Enter file to dump to (leave empty for " + recording.getDestination() + "): ");
+            String file = scanner.nextLine().trim();
+            Path path = file.isEmpty() ? recording.getDestination() : Path.of(file);
+            recording.dump(path);
+            out.println("Flight recording dumped to " + path);
+        } catch (Exception e) {
+            out.println("Failed to record: " + e.getMessage());
+        }
+    }
+
+    private void prompt(String text) {
+        if (menu) {
+            out.print(text);
+        }
+    }
+
     private int getIntInput() {
         while (true) {
             try {
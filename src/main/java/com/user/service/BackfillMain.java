@@ -0,0 +1,77 @@
+package com.user.service;
+
+import com.user.service.dao.BackfillJob;
+import com.user.service.dao.BackfillReport;
+import com.user.service.dao.BackfillThrottle;
+import com.user.service.dao.PgNotifyInvalidationPublisher;
+import com.user.service.dao.UserBackfill;
+import com.user.service.dao.UserChangeLog;
+import com.user.service.dao.UserOutbox;
+import com.user.service.util.SessionFactoryProvider;
+import org.hibernate.SessionFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// e.g. --job=normalize-emails --ranges=64 --parallelism=4 --chunk=500 --rate=5000 --max-lag=10
+// Running the same job again resumes it; --reset=true starts it over. With -Duser.outbox every
+// rewritten user also gets an UPDATED event for the services' outbox relay to deliver.
+public class BackfillMain {
+    private static final Map<String, BackfillJob> JOBS = Map.of(
+            "normalize-emails", BackfillJob.normalizeEmails());
+
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        BackfillJob job = JOBS.get(options.get("job"));
+        if (job == null) {
+            throw new IllegalArgumentException("job must be one of " + JOBS.keySet());
+        }
+
+        SessionFactory sessionFactory = SessionFactoryProvider.getInstance();
+        BackfillThrottle throttle = BackfillThrottle.NONE;
+        if (options.containsKey("rate")) {
+            throttle = BackfillThrottle.rowsPerSecond(Double.parseDouble(options.get("rate")));
+        }
+        if (options.containsKey("max-lag")) {
+            throttle = throttle.and(BackfillThrottle.replicaLag(() -> UserBackfill.replicaLag(sessionFactory),
+                    Duration.ofSeconds(Long.parseLong(options.get("max-lag"))), Duration.ofSeconds(1)));
+        }
+        UserChangeLog changeLog = UserChangeLog.NONE;
+        if (Boolean.getBoolean("user.outbox")) {
+            UserOutbox.migrate(sessionFactory);
+            changeLog = new UserOutbox();
+        }
+        UserBackfill backfill = new UserBackfill(sessionFactory,
+                Integer.parseInt(options.getOrDefault("parallelism", "4")),
+                Integer.parseInt(options.getOrDefault("chunk", String.valueOf(UserBackfill.DEFAULT_CHUNK_SIZE))),
+                throttle,
+                // running services drop the rewritten users from their caches
+                new PgNotifyInvalidationPublisher(PgNotifyInvalidationPublisher.DEFAULT_CHANNEL),
+                changeLog);
+        try {
+            backfill.migrate();
+            if (Boolean.parseBoolean(options.get("reset"))) {
+                backfill.reset(job.name());
+            }
+            // killing the process only rolls back the chunks in flight; the next run picks up there
+            BackfillReport report = backfill.run(job, Integer.parseInt(options.getOrDefault("ranges", "64")));
+            System.out.printf("%s: %d of %d ranges done, %d failed, %d rows scanned, %d updated, %d skipped, "
+                            + "%.0f rows/s%n",
+                    report.job(), report.completedRanges(), report.pendingRanges(), report.failedRanges(),
+                    report.rowsScanned(), report.rowsUpdated(), report.rowsSkipped(), report.rowsPerSecond());
+            if (!report.isComplete()) {
+                System.out.println("Run the same job again to resume it");
+            }
+        } finally {
+            SessionFactoryProvider.shutdown();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.user.service;
+
+import com.user.service.dao.InMemoryUserRepository;
+import com.user.service.dao.RetryPolicy;
+import com.user.service.dao.RetryingUserRepository;
+import com.user.service.dao.UserDAO;
+import com.user.service.dao.UserRepository;
+import com.user.service.jfr.FlightRecording;
+import com.user.service.loadtest.LoadGenerator;
+import com.user.service.loadtest.LoadGeneratorConfig;
+import com.user.service.loadtest.LoadReport;
+import com.user.service.service.AdmissionController;
+import com.user.service.service.UserService;
+import com.user.service.util.SessionFactoryProvider;
+
+// e.g. --threads=16 --duration=60 --seed=100000 --mix=5:80:10:5 --distribution=zipfian
+//      --arrival=open --rate=5000 --repository=memory --jfr=load.jfr
+public class LoadGeneratorMain {
+    public static void main(String[] args) throws InterruptedException {
+        LoadGeneratorConfig config = LoadGeneratorConfig.parse(args);
+        FlightRecording recording = FlightRecording.fromArgs(args);
+        if (recording != null) {
+            SessionFactoryProvider.registerShutdownHook(recording);
+        }
+        UserRepository userRepository = "memory".equalsIgnoreCase(config.repository())
+                ? new InMemoryUserRepository()
+                : new RetryingUserRepository(new UserDAO(), RetryPolicy.defaults());
+        AdmissionController admissionController = Boolean.parseBoolean(System.getProperty("user.admissionControl", "true"))
+                ? AdmissionController.withDefaults()
+                : AdmissionController.disabled();
+        UserService userService = new UserService(userRepository, null, admissionController);
+
+        try {
+            LoadGenerator generator = new LoadGenerator(userService, config);
+            generator.seed();
+            LoadReport report = generator.run();
+            report.print(System.out);
+        } finally {
+            SessionFactoryProvider.shutdown();
+        }
+    }
+}
@@ -1,17 +1,118 @@
 package com.user.service;
 
+import com.user.service.dao.CachingUserRepository;
+import com.user.service.dao.CircuitBreaker;
+import com.user.service.dao.CircuitBreakingUserRepository;
+import com.user.service.dao.IdempotencyKeys;
+import com.user.service.dao.InMemoryUserRepository;
+import com.user.service.dao.InvalidationListener;
+import com.user.service.dao.InvalidationPublisher;
+import com.user.service.dao.PgNotifyInvalidationPublisher;
+import com.user.service.dao.RetryPolicy;
+import com.user.service.dao.RetryingUserRepository;
+import com.user.service.dao.ShardedUserRepository;
+import com.user.service.dao.UserAuditDAO;
+import com.user.service.dao.UserCache;
+import com.user.service.dao.UserCacheSnapshotter;
+import com.user.service.dao.UserChangeLog;
+import com.user.service.dao.UserChangeSubscribers;
 import com.user.service.dao.UserDAO;
+import com.user.service.dao.UserOutbox;
+import com.user.service.dao.UserOutboxRelay;
+import com.user.service.dao.UserPartitionManager;
+import com.user.service.dao.UserSnapshotWarmer;
+import com.user.service.dao.UserRepository;
+import com.user.service.jfr.FlightRecording;
+import com.user.service.output.OutputFormat;
+import com.user.service.service.AdmissionController;
+import com.user.service.service.AuditDurability;
+import com.user.service.service.ServiceWarmer;
+import com.user.service.service.UserAuditor;
 import com.user.service.service.UserService;
+import com.user.service.service.WorkloadRecorder;
+import com.user.service.service.WriteBehindUserUpdater;
 import com.user.service.util.SessionFactoryProvider;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 public class Main {
+    private static final Logger logger = LogManager.getLogger(Main.class);
+
+    // set once -Duser.warmup is on; until its warm-up has finished the service is not ready
+    private static volatile ServiceWarmer warmer;
+
+    // for in-process health checks; without a warm-up the service is ready as soon as it runs
+    public static boolean isReady() {
+        ServiceWarmer current = warmer;
+        return current == null || current.isReady();
+    }
+
     public static void main(String[] args) {
-        UserDAO userDAO = new UserDAO();
-        UserService userService = new UserService(userDAO);
+        FlightRecording recording = FlightRecording.fromArgs(args);
+        if (recording != null) {
+            SessionFactoryProvider.registerShutdownHook(recording);
+        }
+        UserRepository userRepository = createRepository();
+        AdmissionController admissionController = Boolean.parseBoolean(System.getProperty("user.admissionControl", "true"))
+                ? AdmissionController.withDefaults()
+                : AdmissionController.disabled();
+        UserAuditor auditor = null;
+        String auditDurability = System.getProperty("user.audit");
+        if (auditDurability != null) {
+            UserAuditDAO auditDAO = new UserAuditDAO(SessionFactoryProvider.getInstance());
+            auditDAO.migrate();
+            auditor = UserAuditor.withDefaults(auditDAO, AuditDurability.valueOf(auditDurability.toUpperCase(Locale.ROOT)));
+            SessionFactoryProvider.registerShutdownHook(auditor);
+        }
+        WriteBehindUserUpdater writeBehindUpdater = null;
+        if (Boolean.getBoolean("user.writeBehind")) {
+            // closed before the auditor, whose hook was registered earlier
+            writeBehindUpdater = WriteBehindUserUpdater.withDefaults(userRepository, auditor);
+            SessionFactoryProvider.registerShutdownHook(writeBehindUpdater);
+        }
+        WorkloadRecorder workloadRecorder = null;
+        String workloadLog = System.getProperty("user.workloadLog");
+        if (workloadLog != null) {
+            // replay it with WorkloadReplayMain --log=<dir>
+            try {
+                workloadRecorder = WorkloadRecorder.open(Path.of(workloadLog),
+                        WorkloadRecorder.DEFAULT_SEGMENT_BYTES, WorkloadRecorder.DEFAULT_MAX_SEGMENTS);
+                SessionFactoryProvider.registerShutdownHook(workloadRecorder);
+            } catch (IOException e) {
+                logger.warn("Not recording the workload: cannot open {}", workloadLog, e);
+            }
+        }
+        UserService userService = new UserService(userRepository, writeBehindUpdater, admissionController, auditor,
+                workloadRecorder);
+        if (Boolean.getBoolean("user.warmup")) {
+            SessionFactory sessionFactory = "memory".equalsIgnoreCase(System.getProperty("user.repository"))
+                    ? null
+                    : SessionFactoryProvider.getInstance();
+            warmer = new ServiceWarmer(userRepository, sessionFactory,
+                    Integer.getInteger("user.warmup.connections", ServiceWarmer.DEFAULT_CONNECTIONS),
+                    ServiceWarmer.DEFAULT_QUERY_ROUNDS,
+                    Integer.getInteger("user.warmup.iterations", ServiceWarmer.DEFAULT_SERVICE_ITERATIONS),
+                    Duration.ofSeconds(Long.getLong("user.warmup.seconds",
+                            ServiceWarmer.DEFAULT_SERVICE_TIME.toSeconds())));
+            warmer.warmUp();
+        }
         ApplicationRunner runner = new ApplicationRunner(
                 new java.util.Scanner(System.in),
                 System.out,
-                userService
+                userService,
+                OutputFormat.fromArgs(args),
+                !Arrays.asList(args).contains("--no-menu"),
+                recording
         );
 
         try {
@@ -20,4 +121,97 @@ public class Main {
             SessionFactoryProvider.shutdown();
         }
     }
+
+    private static UserRepository createRepository() {
+        if ("memory".equalsIgnoreCase(System.getProperty("user.repository"))) {
+            return new InMemoryUserRepository();
+        }
+        SessionFactory sessionFactory = SessionFactoryProvider.getInstance();
+        String shardNames = System.getProperty("user.shards");
+        if (shardNames != null) {
+            return createShardedRepository(sessionFactory, shardNames);
+        }
+        if (Boolean.getBoolean("user.partitioned")) {
+            UserPartitionManager partitionManager = new UserPartitionManager(sessionFactory, 3);
+            partitionManager.migrate();
+            partitionManager.startMaintenance(Duration.ofDays(1));
+            SessionFactoryProvider.registerShutdownHook(partitionManager);
+        }
+        migrateIdempotencyKeys(sessionFactory);
+        UserChangeLog changeLog = UserChangeLog.NONE;
+        if (Boolean.getBoolean("user.outbox")) {
+            UserOutbox.migrate(sessionFactory);
+            changeLog = new UserOutbox();
+            // in-process consumers subscribe here; until then the events are only logged
+            UserChangeSubscribers subscribers = new UserChangeSubscribers();
+            subscribers.subscribe(event -> logger.info("User change {}", event));
+            UserOutboxRelay relay = new UserOutboxRelay(sessionFactory, subscribers,
+                    UserOutboxRelay.DEFAULT_BATCH_SIZE, Duration.ofMillis(200));
+            relay.start();
+            SessionFactoryProvider.registerShutdownHook(relay);
+        }
+        if (!Boolean.getBoolean("user.cache")) {
+            return withRetries(new UserDAO(sessionFactory, InvalidationPublisher.NONE, changeLog));
+        }
+        // every node publishes its writes and listens for the others' on the same channel
+        String channel = PgNotifyInvalidationPublisher.DEFAULT_CHANNEL;
+        UserCache cache = new UserCache(UserCache.DEFAULT_MAX_ENTRIES);
+        InvalidationListener listener = InvalidationListener.forSessionFactory(sessionFactory, channel, cache);
+        SessionFactoryProvider.registerShutdownHook(listener);
+        UserSnapshotWarmer warmer = null;
+        String snapshotFile = System.getProperty("user.cacheSnapshot");
+        if (snapshotFile != null) {
+            // the listener flushes the cache when it connects, which would throw warmed entries away
+            listener.awaitConnected(Duration.ofSeconds(5));
+            Path snapshotPath = Path.of(snapshotFile);
+            warmer = UserSnapshotWarmer.open(snapshotPath, sessionFactory);
+            SessionFactoryProvider.registerShutdownHook(new UserCacheSnapshotter(sessionFactory, cache, warmer,
+                    snapshotPath, Duration.ofMinutes(5)));
+        }
+        UserDAO userDAO = new UserDAO(sessionFactory, new PgNotifyInvalidationPublisher(channel), changeLog);
+        return new CachingUserRepository(withRetries(userDAO), cache, warmer);
+    }
+
+    // The default database becomes the directory; users live in -Duser.shard.<name>.url. The shards
+    // only carry the plain user schema, so the cache, the outbox and partitioning cannot be combined
+    // with them yet, and one circuit breaker covers all shards. No transaction spans the shards, so
+    // neither can auditing and warm-up, and requests with idempotency keys fail.
+    private static UserRepository createShardedRepository(SessionFactory sessionFactory, String shardNames) {
+        for (String flag : List.of("user.cache", "user.outbox", "user.partitioned", "user.warmup")) {
+            if (Boolean.getBoolean(flag)) {
+                throw new IllegalStateException("-D" + flag + " is not supported with -Duser.shards");
+            }
+        }
+        if (System.getProperty("user.audit") != null) {
+            throw new IllegalStateException("-Duser.audit is not supported with -Duser.shards");
+        }
+        migrateIdempotencyKeys(sessionFactory);
+        Map<String, SessionFactory> shards = new LinkedHashMap<>();
+        for (String name : shardNames.split(",")) {
+            shards.put(name.trim(), SessionFactoryProvider.getShard(name.trim()));
+        }
+        ShardedUserRepository.migrate(sessionFactory, shards);
+        ShardedUserRepository sharded = new ShardedUserRepository(sessionFactory, shards);
+        SessionFactoryProvider.registerShutdownHook(sharded);
+        return withRetries(sharded, "shards");
+    }
+
+    private static void migrateIdempotencyKeys(SessionFactory sessionFactory) {
+        IdempotencyKeys.migrate(sessionFactory);
+        SessionFactoryProvider.registerShutdownHook(IdempotencyKeys.schedulePurge(sessionFactory,
+                Duration.ofHours(Long.getLong("user.idempotencyRetentionHours", 24)),
+                Duration.ofMinutes(Long.getLong("user.idempotencyPurgeMinutes", 60))));
+    }
+
+    private static UserRepository withRetries(UserDAO userDAO) {
+        return withRetries(userDAO, "postgres");
+    }
+
+    private static UserRepository withRetries(UserRepository repository, String breakerName) {
+        if (Boolean.getBoolean("user.circuitBreaker")) {
+            // inside the retries, so an open circuit stops them too
+            repository = new CircuitBreakingUserRepository(repository, CircuitBreaker.withDefaults(breakerName));
+        }
+        return new RetryingUserRepository(repository, RetryPolicy.defaults());
+    }
 }
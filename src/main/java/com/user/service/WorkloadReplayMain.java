@@ -0,0 +1,65 @@
+package com.user.service;
+
+import com.user.service.dao.InMemoryUserRepository;
+import com.user.service.dao.RetryPolicy;
+import com.user.service.dao.RetryingUserRepository;
+import com.user.service.dao.UserDAO;
+import com.user.service.dao.UserRepository;
+import com.user.service.loadtest.WorkloadReplayReport;
+import com.user.service.loadtest.WorkloadReplayer;
+import com.user.service.service.AdmissionController;
+import com.user.service.service.UserService;
+import com.user.service.service.WorkloadLog;
+import com.user.service.service.WorkloadOperation;
+import com.user.service.service.WorkloadRecord;
+import com.user.service.util.SessionFactoryProvider;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Replays a log written with -Duser.workloadLog=<dir> against the configured database, e.g.
+//   --log=workload --speed=2 --save=before.hlog             on the old build
+//   --log=workload --speed=2 --baseline=before.hlog         on the new one
+// Without a baseline the replay is compared with the latencies the log recorded.
+public class WorkloadReplayMain {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        if (!options.containsKey("log")) {
+            throw new IllegalArgumentException("--log=<directory> is required");
+        }
+        List<WorkloadRecord> records = WorkloadLog.read(Path.of(options.get("log")));
+        double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+
+        UserRepository userRepository = "memory".equalsIgnoreCase(options.get("repository"))
+                ? new InMemoryUserRepository()
+                : new RetryingUserRepository(new UserDAO(), RetryPolicy.defaults());
+        // the recorded calls were admitted once already; shedding them again would skew the comparison
+        UserService userService = new UserService(userRepository, null, AdmissionController.disabled());
+        try {
+            WorkloadReplayer replayer = new WorkloadReplayer(userService, records, speed);
+            replayer.seed();
+            WorkloadReplayReport report = replayer.run();
+            String baseline = options.get("baseline");
+            Map<WorkloadOperation, Histogram> reference = baseline != null
+                    ? WorkloadReplayReport.load(Path.of(baseline))
+                    : WorkloadReplayer.recordedLatencies(records);
+            report.print(System.out, baseline != null ? baseline : "recorded", reference);
+            if (options.containsKey("save")) {
+                report.save(Path.of(options.get("save")));
+            }
+        } finally {
+            SessionFactoryProvider.shutdown();
+        }
+    }
+}
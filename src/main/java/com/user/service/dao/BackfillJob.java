@@ -0,0 +1,44 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+
+import java.util.Locale;
+import java.util.function.Predicate;
+
+// A change UserBackfill applies to every user. The name keys the checkpoints, so a job resumes
+// under the same name and starts over under a new one.
+public interface BackfillJob {
+
+    String name();
+
+    // changes the user in place; false when it is already in the wanted shape and needs no write
+    boolean apply(User user);
+
+    static BackfillJob of(String name, Predicate<User> change) {
+        if (name == null || name.isBlank() || change == null) {
+            throw new IllegalArgumentException("Job name and change cannot be empty");
+        }
+        return new BackfillJob() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public boolean apply(User user) {
+                return change.test(user);
+            }
+        };
+    }
+
+    static BackfillJob normalizeEmails() {
+        return of("normalize-emails", user -> {
+            String normalized = user.getEmail().trim().toLowerCase(Locale.ROOT);
+            if (normalized.equals(user.getEmail())) {
+                return false;
+            }
+            user.setEmail(normalized);
+            return true;
+        });
+    }
+}
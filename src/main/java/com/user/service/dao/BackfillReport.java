@@ -0,0 +1,25 @@
+package com.user.service.dao;
+
+import java.time.Duration;
+
+// what one UserBackfill.run did; ranges finished by earlier runs are not counted
+public record BackfillReport(
+        String job,
+        int pendingRanges,
+        int completedRanges,
+        int failedRanges,
+        long rowsScanned,
+        long rowsUpdated,
+        // rows the job changed but could not write because their new email belongs to another user
+        long rowsSkipped,
+        Duration elapsed
+) {
+
+    public boolean isComplete() {
+        return completedRanges == pendingRanges;
+    }
+
+    public double rowsPerSecond() {
+        return elapsed.isZero() ? 0 : rowsScanned * 1_000_000_000.0 / elapsed.toNanos();
+    }
+}
@@ -0,0 +1,30 @@
+package com.user.service.dao;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Paces UserBackfill workers. Called after each committed chunk, outside its transaction, so a
+// waiting worker holds no locks.
+@FunctionalInterface
+public interface BackfillThrottle {
+    BackfillThrottle NONE = rows -> {
+    };
+
+    void acquire(int rows) throws InterruptedException;
+
+    default BackfillThrottle and(BackfillThrottle other) {
+        return rows -> {
+            acquire(rows);
+            other.acquire(rows);
+        };
+    }
+
+    // shared by all workers, so the limit holds for the job as a whole
+    static BackfillThrottle rowsPerSecond(double rate) {
+        return new RowRateThrottle(rate, System::nanoTime);
+    }
+
+    static BackfillThrottle replicaLag(Supplier<Duration> lag, Duration maxLag, Duration pollInterval) {
+        return new ReplicaLagThrottle(lag, maxLag, pollInterval);
+    }
+}
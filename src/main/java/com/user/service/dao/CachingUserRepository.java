@@ -0,0 +1,290 @@
+package com.user.service.dao;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+// Serves findById from a UserCache. Local writes evict after the delegate commits; writes made by
+// other nodes arrive through InvalidationListener.
+public class CachingUserRepository implements UserRepository {
+    private final UserRepository delegate;
+    private final UserCache cache;
+    private final UserSnapshotWarmer snapshotWarmer;
+
+    public CachingUserRepository(UserRepository delegate, UserCache cache) {
+        this(delegate, cache, null);
+    }
+
+    public CachingUserRepository(UserRepository delegate, UserCache cache, UserSnapshotWarmer snapshotWarmer) {
+        if (delegate == null || cache == null) {
+            throw new IllegalArgumentException("Delegate repository and cache cannot be null");
+        }
+        this.delegate = delegate;
+        this.cache = cache;
+        this.snapshotWarmer = snapshotWarmer;
+    }
+
+    @Override
+    public void save(User user) {
+        delegate.save(user);
+    }
+
+    @Override
+    public User upsertByEmail(User user) {
+        User result = delegate.upsertByEmail(user);
+        cache.evict(result.getId());
+        return result;
+    }
+
+    @Override
+    public List<User> upsertAll(List<User> users) {
+        List<User> result = delegate.upsertAll(users);
+        cache.evictAll(idsOf(result));
+        return result;
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        Optional<User> cached = cache.get(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        if (snapshotWarmer != null && snapshotWarmer.warm(id, cache)) {
+            cached = cache.get(id);
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        long readEpoch = cache.currentEpoch();
+        Optional<User> loaded = delegate.findById(id);
+        loaded.ifPresent(user -> cache.put(user, readEpoch));
+        return loaded;
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<User> findByAgeBetween(int minAge, int maxAge) {
+        return delegate.findByAgeBetween(minAge, maxAge);
+    }
+
+    @Override
+    public List<User> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to) {
+        return delegate.findByCreatedAtBetween(from, to);
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public long count(CountMode mode, UserFilter filter) {
+        return delegate.count(mode, filter);
+    }
+
+    @Override
+    public void update(User user) {
+        try {
+            delegate.update(user);
+        } finally {
+            cache.evict(user.getId());
+        }
+    }
+
+    @Override
+    public Map<Long, User> applyPatches(Map<Long, UserPatch> patches) {
+        try {
+            return delegate.applyPatches(patches);
+        } finally {
+            cache.evictAll(patches.keySet());
+        }
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        try {
+            delegate.deleteById(id);
+        } finally {
+            cache.evict(id);
+        }
+    }
+
+    @Override
+    public void purgeCreatedBefore(YearMonth cutoff) {
+        try {
+            delegate.purgeCreatedBefore(cutoff);
+        } finally {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+        return delegate.findIdempotencyRecord(key);
+    }
+
+    @Override
+    public void saveIdempotencyRecord(IdempotencyRecord record) {
+        delegate.saveIdempotencyRecord(record);
+    }
+
+    // Reads inside a unit of work must see its own uncommitted writes, so they bypass the cache;
+    // ids written by the work are evicted once it has finished
+    @Override
+    public <T> T inTransaction(Function<UserRepository, T> work) {
+        Set<Long> written = ConcurrentHashMap.newKeySet();
+        AtomicBoolean purged = new AtomicBoolean();
+        try {
+            return delegate.inTransaction(tx -> work.apply(new WriteTrackingRepository(tx, written, purged)));
+        } finally {
+            if (purged.get()) {
+                cache.clear();
+            } else {
+                cache.evictAll(written);
+            }
+        }
+    }
+
+    @Override
+    public <T> T inReadOnlyTransaction(Function<UserRepository, T> work) {
+        return delegate.inReadOnlyTransaction(work);
+    }
+
+    private static List<Long> idsOf(List<User> users) {
+        List<Long> ids = new ArrayList<>(users.size());
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+
+    private static final class WriteTrackingRepository implements UserRepository {
+        private final UserRepository tx;
+        private final Set<Long> written;
+        private final AtomicBoolean purged;
+
+        private WriteTrackingRepository(UserRepository tx, Set<Long> written, AtomicBoolean purged) {
+            this.tx = tx;
+            this.written = written;
+            this.purged = purged;
+        }
+
+        @Override
+        public void save(User user) {
+            tx.save(user);
+        }
+
+        @Override
+        public User upsertByEmail(User user) {
+            User result = tx.upsertByEmail(user);
+            written.add(result.getId());
+            return result;
+        }
+
+        @Override
+        public List<User> upsertAll(List<User> users) {
+            List<User> result = tx.upsertAll(users);
+            written.addAll(idsOf(result));
+            return result;
+        }
+
+        @Override
+        public Optional<User> findById(Long id) {
+            return tx.findById(id);
+        }
+
+        @Override
+        public Optional<User> findByEmail(String email) {
+            return tx.findByEmail(email);
+        }
+
+        @Override
+        public List<User> findAll() {
+            return tx.findAll();
+        }
+
+        @Override
+        public List<User> findByAgeBetween(int minAge, int maxAge) {
+            return tx.findByAgeBetween(minAge, maxAge);
+        }
+
+        @Override
+        public List<User> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to) {
+            return tx.findByCreatedAtBetween(from, to);
+        }
+
+        @Override
+        public List<User> findPage(Long afterId, int limit) {
+            return tx.findPage(afterId, limit);
+        }
+
+        @Override
+        public long count(CountMode mode, UserFilter filter) {
+            return tx.count(mode, filter);
+        }
+
+        @Override
+        public void update(User user) {
+            written.add(user.getId());
+            tx.update(user);
+        }
+
+        @Override
+        public Map<Long, User> applyPatches(Map<Long, UserPatch> patches) {
+            written.addAll(patches.keySet());
+            return tx.applyPatches(patches);
+        }
+
+        @Override
+        public void deleteById(Long id) {
+            written.add(id);
+            tx.deleteById(id);
+        }
+
+        @Override
+        public void purgeCreatedBefore(YearMonth cutoff) {
+            purged.set(true);
+            tx.purgeCreatedBefore(cutoff);
+        }
+
+        @Override
+        public Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+            return tx.findIdempotencyRecord(key);
+        }
+
+        @Override
+        public void saveIdempotencyRecord(IdempotencyRecord record) {
+            tx.saveIdempotencyRecord(record);
+        }
+
+        @Override
+        public <T> T inTransaction(Function<UserRepository, T> work) {
+            return tx.inTransaction(inner -> work.apply(new WriteTrackingRepository(inner, written, purged)));
+        }
+
+        @Override
+        public <T> T inReadOnlyTransaction(Function<UserRepository, T> work) {
+            return tx.inReadOnlyTransaction(work);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.user.service.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+// Tracks the outcome of the last windowSize calls and opens once at least minimumCalls were seen
+// and either the failure rate or the slow-call rate reaches its threshold. While open every call
+// is refused; after openDuration the next caller moves it to half-open, where trialCalls calls go
+// through. A failed trial opens it again, trialCalls completed trials close it unless they were
+// mostly slow. Only outages count as failures: a constraint violation means the database works.
+// A cancelled statement, usually a caller's deadline, counts as a slow call whatever it took.
+public class CircuitBreaker {
+    private static final Logger logger = LogManager.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int trialCalls;
+    private final LongSupplier clock;
+    private final CircuitBreakerMetrics metrics = new CircuitBreakerMetrics();
+
+    // all guarded by this
+    private State state = State.CLOSED;
+    // bumped on every transition; a call's result only counts in the generation it was let in
+    private long generation;
+    private final byte[] window;
+    private int next;
+    private int recorded;
+    private int failed;
+    private int slow;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsCompleted;
+    private int slowTrials;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration slowCallDuration, double slowCallRateThreshold, Duration openDuration,
+                          int trialCalls) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, slowCallDuration, slowCallRateThreshold,
+                openDuration, trialCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                   Duration slowCallDuration, double slowCallRateThreshold, Duration openDuration,
+                   int trialCalls, LongSupplier clock) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize || trialCalls <= 0) {
+            throw new IllegalArgumentException("Window, minimum calls and trial calls must be positive, "
+                    + "minimum calls at most the window");
+        }
+        if (!(failureRateThreshold > 0 && failureRateThreshold <= 1)
+                || !(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1)) {
+            throw new IllegalArgumentException("Rate thresholds must be in (0, 1]");
+        }
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.trialCalls = trialCalls;
+        this.clock = clock;
+        this.window = new byte[windowSize];
+    }
+
+    public static CircuitBreaker withDefaults(String name) {
+        return new CircuitBreaker(name, 50, 10, 0.5, Duration.ofSeconds(2), 0.8, Duration.ofSeconds(5), 3);
+    }
+
+    public static boolean isOutage(Throwable failure) {
+        if (failure instanceof ConnectionFailureException) {
+            return true;
+        }
+        String sqlState = SqlStateTranslator.findSqlState(failure);
+        // 57P: server shutting down or starting up, 53: out of connections, memory or disk
+        return sqlState != null && (sqlState.startsWith("08") || sqlState.startsWith("57P") || sqlState.startsWith("53"));
+    }
+
+    private static boolean isTimeout(Throwable failure) {
+        return failure instanceof QueryTimeoutException || "57014".equals(SqlStateTranslator.findSqlState(failure));
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public CircuitBreakerMetrics getMetrics() {
+        return metrics;
+    }
+
+    long nanoTime() {
+        return clock.getAsLong();
+    }
+
+    // a permit to pass to onResult, or -1 if the call must not be made
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                metrics.recordRejected();
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= trialCalls) {
+                metrics.recordRejected();
+                return -1;
+            }
+            trialsStarted++;
+        }
+        return generation;
+    }
+
+    // failure is null for a call that returned
+    public synchronized void onResult(long permit, long durationNanos, Throwable failure) {
+        boolean outage = failure != null && isOutage(failure);
+        boolean slowCall = durationNanos >= slowCallNanos || failure != null && isTimeout(failure);
+        if (outage) {
+            metrics.recordFailure();
+        } else {
+            metrics.recordSuccess();
+        }
+        if (slowCall) {
+            metrics.recordSlowCall();
+        }
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (outage) {
+                transition(State.OPEN);
+                return;
+            }
+            trialsCompleted++;
+            if (slowCall) {
+                slowTrials++;
+            }
+            if (trialsCompleted >= trialCalls) {
+                transition((double) slowTrials / trialsCompleted >= slowCallRateThreshold ? State.OPEN : State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.CLOSED) {
+            record((byte) ((outage ? FAILED : 0) | (slowCall ? SLOW : 0)));
+            if (recorded >= minimumCalls && ((double) failed / recorded >= failureRateThreshold
+                    || (double) slow / recorded >= slowCallRateThreshold)) {
+                transition(State.OPEN);
+            }
+        }
+    }
+
+    private void record(byte outcome) {
+        if (recorded == windowSize) {
+            byte evicted = window[next];
+            failed -= evicted & FAILED;
+            slow -= (evicted & SLOW) >> 1;
+        } else {
+            recorded++;
+        }
+        window[next] = outcome;
+        failed += outcome & FAILED;
+        slow += (outcome & SLOW) >> 1;
+        next = (next + 1) % windowSize;
+    }
+
+    private void transition(State to) {
+        State from = state;
+        if (to == State.OPEN) {
+            logger.warn("Circuit {} opened ({} -> {}): {} of {} calls failed, {} slow",
+                    name, from, to, failed, recorded, slow);
+            openedAt = clock.getAsLong();
+        } else {
+            logger.info("Circuit {} {} -> {}", name, from, to);
+        }
+        state = to;
+        generation++;
+        next = 0;
+        recorded = 0;
+        failed = 0;
+        slow = 0;
+        trialsStarted = 0;
+        trialsCompleted = 0;
+        slowTrials = 0;
+        metrics.recordTransition(from, to);
+    }
+}
@@ -0,0 +1,66 @@
+package com.user.service.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class CircuitBreakerMetrics {
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder slowCalls = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Map<String, LongAdder> transitions = new ConcurrentHashMap<>();
+
+    void recordSuccess() {
+        successes.increment();
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    void recordSlowCall() {
+        slowCalls.increment();
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    void recordTransition(CircuitBreaker.State from, CircuitBreaker.State to) {
+        transitions.computeIfAbsent(from + "->" + to, k -> new LongAdder()).increment();
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getSlowCalls() {
+        return slowCalls.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getTransitions(CircuitBreaker.State from, CircuitBreaker.State to) {
+        LongAdder count = transitions.get(from + "->" + to);
+        return count != null ? count.sum() : 0;
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("successes", getSuccesses());
+        snapshot.put("failures", getFailures());
+        snapshot.put("slowCalls", getSlowCalls());
+        snapshot.put("rejected", getRejected());
+        new TreeMap<>(transitions).forEach((transition, count) -> snapshot.put("transitions." + transition, count.sum()));
+        return snapshot;
+    }
+}
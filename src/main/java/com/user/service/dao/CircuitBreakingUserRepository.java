@@ -0,0 +1,160 @@
+package com.user.service.dao;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Fails fast with CircuitOpenException while the breaker is open instead of letting every caller
+// wait out a connect timeout. Goes under RetryingUserRepository, so each attempt is one call here,
+// and under CachingUserRepository, so cached reads are still served during an outage.
+public class CircuitBreakingUserRepository implements UserRepository {
+    private final UserRepository delegate;
+    private final CircuitBreaker breaker;
+
+    public CircuitBreakingUserRepository(UserRepository delegate, CircuitBreaker breaker) {
+        if (delegate == null || breaker == null) {
+            throw new IllegalArgumentException("Delegate repository and circuit breaker cannot be null");
+        }
+        this.delegate = delegate;
+        this.breaker = breaker;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    @Override
+    public void save(User user) {
+        execute("save", () -> {
+            delegate.save(user);
+            return null;
+        });
+    }
+
+    @Override
+    public User upsertByEmail(User user) {
+        return execute("upsertByEmail", () -> delegate.upsertByEmail(user));
+    }
+
+    @Override
+    public List<User> upsertAll(List<User> users) {
+        return execute("upsertAll", () -> delegate.upsertAll(users));
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return execute("findById", () -> delegate.findById(id));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return execute("findByEmail", () -> delegate.findByEmail(email));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return execute("findAll", delegate::findAll);
+    }
+
+    @Override
+    public List<User> findByAgeBetween(int minAge, int maxAge) {
+        return execute("findByAgeBetween", () -> delegate.findByAgeBetween(minAge, maxAge));
+    }
+
+    @Override
+    public List<User> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to) {
+        return execute("findByCreatedAtBetween", () -> delegate.findByCreatedAtBetween(from, to));
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return execute("findPage", () -> delegate.findPage(afterId, limit));
+    }
+
+    @Override
+    public long count(CountMode mode, UserFilter filter) {
+        return execute("count", () -> delegate.count(mode, filter));
+    }
+
+    @Override
+    public void update(User user) {
+        execute("update", () -> {
+            delegate.update(user);
+            return null;
+        });
+    }
+
+    @Override
+    public Map<Long, User> applyPatches(Map<Long, UserPatch> patches) {
+        return execute("applyPatches", () -> delegate.applyPatches(patches));
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        execute("deleteById", () -> {
+            delegate.deleteById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void purgeCreatedBefore(YearMonth cutoff) {
+        execute("purgeCreatedBefore", () -> {
+            delegate.purgeCreatedBefore(cutoff);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+        return execute("findIdempotencyRecord", () -> delegate.findIdempotencyRecord(key));
+    }
+
+    @Override
+    public void saveIdempotencyRecord(IdempotencyRecord record) {
+        execute("saveIdempotencyRecord", () -> {
+            delegate.saveIdempotencyRecord(record);
+            return null;
+        });
+    }
+
+    // a unit of work holds one connection, so it is one call to the breaker; its length is mostly the
+    // caller's own code, so it counts towards failures but never as a slow call
+    @Override
+    public <T> T inTransaction(Function<UserRepository, T> work) {
+        return execute("inTransaction", false, () -> delegate.inTransaction(work));
+    }
+
+    @Override
+    public <T> T inReadOnlyTransaction(Function<UserRepository, T> work) {
+        return execute("inReadOnlyTransaction", false, () -> delegate.inReadOnlyTransaction(work));
+    }
+
+    private <T> T execute(String operation, Supplier<T> call) {
+        return execute(operation, true, call);
+    }
+
+    private <T> T execute(String operation, boolean timed, Supplier<T> call) {
+        long permit = breaker.tryAcquire();
+        if (permit < 0) {
+            throw new CircuitOpenException("Database circuit is open, " + operation + " not attempted");
+        }
+        long start = breaker.nanoTime();
+        try {
+            T result = call.get();
+            breaker.onResult(permit, timed ? breaker.nanoTime() - start : 0, null);
+            return result;
+        } catch (RuntimeException | Error e) {
+            breaker.onResult(permit, timed ? breaker.nanoTime() - start : 0, e);
+            throw e;
+        }
+    }
+}
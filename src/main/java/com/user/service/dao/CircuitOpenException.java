@@ -0,0 +1,10 @@
+package com.user.service.dao;
+
+// Thrown without touching the database while the circuit is open. Not transient: retrying right
+// away would only be rejected again.
+public class CircuitOpenException extends DataAccessException {
+
+    public CircuitOpenException(String message) {
+        super(message, null);
+    }
+}
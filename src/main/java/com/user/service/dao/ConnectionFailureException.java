@@ -0,0 +1,8 @@
+package com.user.service.dao;
+
+public class ConnectionFailureException extends TransientDataAccessException {
+
+    public ConnectionFailureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.user.service.dao;
+
+public enum CountMode {
+    EXACT,
+    // planner statistics: answers without touching the rows, off by whatever changed since the last ANALYZE
+    ESTIMATE
+}
@@ -0,0 +1,12 @@
+package com.user.service.dao;
+
+public class DataAccessException extends RuntimeException {
+
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public String getSqlState() {
+        return SqlStateTranslator.findSqlState(this);
+    }
+}
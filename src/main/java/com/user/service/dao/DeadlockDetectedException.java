@@ -0,0 +1,8 @@
+package com.user.service.dao;
+
+public class DeadlockDetectedException extends TransientDataAccessException {
+
+    public DeadlockDetectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,123 @@
+package com.user.service.dao;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Storage of idempotency keys for UserDAO. PostgreSQL only.
+public final class IdempotencyKeys {
+    private static final Logger logger = LogManager.getLogger(IdempotencyKeys.class);
+
+    static final SqlMigration CREATE_KEYS = new SqlMigration("V5__idempotency_keys");
+
+    private static final String SELECT_SQL = """
+            SELECT fingerprint, user_id, name, email, age, user_created_at
+            FROM idempotency_keys WHERE idempotency_key = ?""";
+    private static final String INSERT_SQL = """
+            INSERT INTO idempotency_keys (idempotency_key, fingerprint, user_id, name, email, age, user_created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?)""";
+
+    private IdempotencyKeys() {
+    }
+
+    public static void migrate(SessionFactory sessionFactory) {
+        try {
+            if (sessionFactory.fromTransaction(session -> session.doReturningWork(CREATE_KEYS::apply))) {
+                logger.info("Created idempotency key table");
+            }
+        } catch (Exception e) {
+            logger.error("Error creating idempotency key table", e);
+            throw SqlStateTranslator.translate("Failed to create idempotency key table", e);
+        }
+    }
+
+    // a retry after the retention is treated as a new request
+    public static int purgeOlderThan(SessionFactory sessionFactory, Duration retention) {
+        try {
+            int purged = sessionFactory.fromTransaction(session -> session.createNativeMutationQuery(
+                            "DELETE FROM idempotency_keys WHERE created_at < :cutoff")
+                    .setParameter("cutoff", LocalDateTime.now().minus(retention))
+                    .executeUpdate());
+            logger.info("Purged {} idempotency keys older than {}", purged, retention);
+            return purged;
+        } catch (Exception e) {
+            logger.error("Error purging idempotency keys", e);
+            throw SqlStateTranslator.translate("Failed to purge idempotency keys", e);
+        }
+    }
+
+    // purges now and then every interval until the returned handle is closed
+    public static AutoCloseable schedulePurge(SessionFactory sessionFactory, Duration retention, Duration interval) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-key-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                purgeOlderThan(sessionFactory, retention);
+            } catch (DataAccessException e) {
+                // logged above; the next run tries again
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        return () -> {
+            // let a running purge finish before the session factory closes under it
+            scheduler.shutdown();
+            try {
+                if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                    scheduler.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                scheduler.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    static Optional<IdempotencyRecord> find(Connection connection, String key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+            statement.setString(1, key);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                User user = new User();
+                user.setId(rs.getLong(2));
+                user.setName(rs.getString(3));
+                user.setEmail(rs.getString(4));
+                user.setAge(rs.getInt(5));
+                user.setCreatedAt(rs.getTimestamp(6).toLocalDateTime());
+                return Optional.of(new IdempotencyRecord(key, rs.getString(1), user));
+            }
+        }
+    }
+
+    // a second insert of the same key fails on the primary key, and blocks until the first commits
+    static void insert(Connection connection, IdempotencyRecord record) throws SQLException {
+        User user = record.result();
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            statement.setString(1, record.key());
+            statement.setString(2, record.fingerprint());
+            statement.setLong(3, user.getId());
+            statement.setString(4, user.getName());
+            statement.setString(5, user.getEmail());
+            statement.setInt(6, user.getAge());
+            statement.setTimestamp(7, Timestamp.valueOf(user.getCreatedAt()));
+            statement.executeUpdate();
+        }
+    }
+}
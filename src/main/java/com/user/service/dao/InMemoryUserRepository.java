@@ -0,0 +1,406 @@
+package com.user.service.dao;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+public class InMemoryUserRepository implements UserRepository {
+    private static final Logger logger = LogManager.getLogger(InMemoryUserRepository.class);
+
+    private final ConcurrentHashMap<Long, User> usersById = new ConcurrentHashMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final ConcurrentHashMap<String, IdempotencyRecord> idempotencyRecords = new ConcurrentHashMap<>();
+
+    // email, age and createdAt indexes are only modified together under the write lock,
+    // so a reader never sees an index entry that disagrees with usersById
+    private final StampedLock indexLock = new StampedLock();
+    private final Map<String, Long> emailIndex = new HashMap<>();
+    private final NavigableMap<Integer, TreeSet<Long>> ageIndex = new TreeMap<>();
+    private final NavigableMap<LocalDateTime, TreeSet<Long>> createdAtIndex = new TreeMap<>();
+
+    @Override
+    public void save(User user) {
+        try {
+            validateForWrite(user);
+            if (user.getId() != null) {
+                throw new IllegalStateException("User already has an ID: " + user.getId());
+            }
+            long stamp = indexLock.writeLock();
+            try {
+                if (emailIndex.containsKey(user.getEmail())) {
+                    throw duplicateEmail(user.getEmail());
+                }
+                long id = idSequence.incrementAndGet();
+                user.setId(id);
+                User stored = copyOf(user);
+                usersById.put(id, stored);
+                addToIndexes(stored);
+            } finally {
+                indexLock.unlockWrite(stamp);
+            }
+            logger.info("User saved: {}", user);
+        } catch (Exception e) {
+            logger.error("Error saving user", e);
+            throw new DataAccessException("Failed to save user", e);
+        }
+    }
+
+    @Override
+    public User upsertByEmail(User user) {
+        return upsertAll(List.of(user)).get(0);
+    }
+
+    @Override
+    public List<User> upsertAll(List<User> users) {
+        try {
+            users.forEach(InMemoryUserRepository::validateForWrite);
+            long stamp = indexLock.writeLock();
+            try {
+                for (User user : users) {
+                    Long existingId = emailIndex.get(user.getEmail());
+                    if (existingId == null) {
+                        long id = idSequence.incrementAndGet();
+                        user.setId(id);
+                        User stored = copyOf(user);
+                        usersById.put(id, stored);
+                        addToIndexes(stored);
+                    } else {
+                        // mirrors ON CONFLICT (email) DO UPDATE SET name, age
+                        User existing = usersById.get(existingId);
+                        User stored = copyOf(existing);
+                        stored.setName(user.getName());
+                        stored.setAge(user.getAge());
+                        replace(existing, stored);
+                        user.setId(existingId);
+                        user.setCreatedAt(existing.getCreatedAt());
+                    }
+                }
+            } finally {
+                indexLock.unlockWrite(stamp);
+            }
+            logger.info("Upserted {} users", users.size());
+            return users;
+        } catch (Exception e) {
+            logger.error("Error upserting users", e);
+            throw new DataAccessException("Failed to upsert users", e);
+        }
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        try {
+            if (id == null) {
+                throw new IllegalArgumentException("ID cannot be null");
+            }
+            User user = usersById.get(id);
+            logger.info("User found by ID {}: {}", id, user);
+            return Optional.ofNullable(user).map(InMemoryUserRepository::copyOf);
+        } catch (Exception e) {
+            logger.error("Error finding user by ID: {}", id, e);
+            throw new DataAccessException("Failed to find user by ID", e);
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        try {
+            Long id = lookupEmail(email);
+            User user = id == null ? null : usersById.get(id);
+            logger.info("User found by email {}: {}", email, user);
+            return Optional.ofNullable(user).map(InMemoryUserRepository::copyOf);
+        } catch (Exception e) {
+            logger.error("Error finding user by email: {}", email, e);
+            throw new DataAccessException("Failed to find user by email", e);
+        }
+    }
+
+    @Override
+    public List<User> findAll() {
+        List<User> users = new ArrayList<>(usersById.size());
+        usersById.values().forEach(user -> users.add(copyOf(user)));
+        logger.info("Retrieved {} users", users.size());
+        return users;
+    }
+
+    @Override
+    public List<User> findByAgeBetween(int minAge, int maxAge) {
+        List<User> users = new ArrayList<>();
+        long stamp = indexLock.readLock();
+        try {
+            ageIndex.subMap(minAge, true, maxAge, true).values()
+                    .forEach(ids -> collect(ids, users));
+        } finally {
+            indexLock.unlockRead(stamp);
+        }
+        logger.info("Retrieved {} users aged {}-{}", users.size(), minAge, maxAge);
+        return users;
+    }
+
+    @Override
+    public List<User> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to) {
+        List<User> users = new ArrayList<>();
+        long stamp = indexLock.readLock();
+        try {
+            createdAtIndex.subMap(from, true, to, false).values()
+                    .forEach(ids -> collect(ids, users));
+        } finally {
+            indexLock.unlockRead(stamp);
+        }
+        logger.info("Retrieved {} users created between {} and {}", users.size(), from, to);
+        return users;
+    }
+
+    @Override
+    public void update(User user) {
+        try {
+            validateForWrite(user);
+            long stamp = indexLock.writeLock();
+            try {
+                User existing = user.getId() == null ? null : usersById.get(user.getId());
+                if (existing == null) {
+                    // like UserDAO's merge: an unknown user is inserted under a new id, the argument keeps its own
+                    checkEmailAvailable(user.getEmail(), null, Map.of());
+                    User stored = copyOf(user);
+                    stored.setId(idSequence.incrementAndGet());
+                    usersById.put(stored.getId(), stored);
+                    addToIndexes(stored);
+                } else {
+                    checkEmailAvailable(user.getEmail(), user.getId(), Map.of());
+                    replace(existing, copyOf(user));
+                }
+            } finally {
+                indexLock.unlockWrite(stamp);
+            }
+            logger.info("User updated: {}", user);
+        } catch (Exception e) {
+            logger.error("Error updating user", e);
+            throw new DataAccessException("Failed to update user", e);
+        }
+    }
+
+    @Override
+    public Map<Long, User> applyPatches(Map<Long, UserPatch> patches) {
+        try {
+            Map<Long, User> updated = new LinkedHashMap<>();
+            long stamp = indexLock.writeLock();
+            try {
+                // validate the whole batch first so it is applied all-or-nothing, like one transaction
+                Map<String, Long> batchEmails = new HashMap<>();
+                for (Map.Entry<Long, UserPatch> entry : patches.entrySet()) {
+                    User existing = usersById.get(entry.getKey());
+                    if (existing == null) {
+                        continue;
+                    }
+                    User patched = copyOf(existing);
+                    entry.getValue().applyTo(patched);
+                    validateForWrite(patched);
+                    checkEmailAvailable(patched.getEmail(), patched.getId(), batchEmails);
+                    batchEmails.put(patched.getEmail(), patched.getId());
+                    updated.put(patched.getId(), patched);
+                }
+                updated.values().forEach(patched -> removeFromIndexes(usersById.get(patched.getId())));
+                updated.values().forEach(patched -> {
+                    usersById.put(patched.getId(), patched);
+                    addToIndexes(patched);
+                });
+            } finally {
+                indexLock.unlockWrite(stamp);
+            }
+            logger.info("Applied {} patches, {} users updated", patches.size(), updated.size());
+            Map<Long, User> result = new LinkedHashMap<>();
+            updated.forEach((id, user) -> result.put(id, copyOf(user)));
+            return result;
+        } catch (Exception e) {
+            logger.error("Error applying user patches", e);
+            throw new DataAccessException("Failed to apply user patches", e);
+        }
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        try {
+            if (id == null) {
+                throw new IllegalArgumentException("ID cannot be null");
+            }
+            long stamp = indexLock.writeLock();
+            try {
+                User removed = usersById.remove(id);
+                if (removed != null) {
+                    removeFromIndexes(removed);
+                    logger.info("User deleted: {}", removed);
+                } else {
+                    logger.warn("Attempt to delete non-existent user with ID: {}", id);
+                }
+            } finally {
+                indexLock.unlockWrite(stamp);
+            }
+        } catch (Exception e) {
+            logger.error("Error deleting user with ID: {}", id, e);
+            throw new DataAccessException("Failed to delete user", e);
+        }
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return usersById.values().stream()
+                .filter(user -> afterId == null || user.getId() > afterId)
+                .sorted(Comparator.comparing(User::getId))
+                .limit(limit)
+                .map(InMemoryUserRepository::copyOf)
+                .toList();
+    }
+
+    // both modes are exact: there are no statistics to consult
+    @Override
+    public long count(CountMode mode, UserFilter filter) {
+        if (filter.isEmpty()) {
+            return usersById.size();
+        }
+        return usersById.values().stream().filter(filter::matches).count();
+    }
+
+    @Override
+    public void purgeCreatedBefore(YearMonth cutoff) {
+        try {
+            long stamp = indexLock.writeLock();
+            try {
+                List<Long> expired = new ArrayList<>();
+                createdAtIndex.headMap(cutoff.atDay(1).atStartOfDay()).values().forEach(expired::addAll);
+                for (Long id : expired) {
+                    removeFromIndexes(usersById.remove(id));
+                }
+                logger.info("Purged {} users created before {}", expired.size(), cutoff);
+            } finally {
+                indexLock.unlockWrite(stamp);
+            }
+        } catch (Exception e) {
+            logger.error("Error purging users created before {}", cutoff, e);
+            throw new DataAccessException("Failed to purge users", e);
+        }
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+        IdempotencyRecord record = idempotencyRecords.get(key);
+        return record == null
+                ? Optional.empty()
+                : Optional.of(new IdempotencyRecord(key, record.fingerprint(), copyOf(record.result())));
+    }
+
+    @Override
+    public void saveIdempotencyRecord(IdempotencyRecord record) {
+        IdempotencyRecord stored = new IdempotencyRecord(record.key(), record.fingerprint(), copyOf(record.result()));
+        if (idempotencyRecords.putIfAbsent(record.key(), stored) != null) {
+            throw new DataAccessException("Failed to save idempotency key",
+                    new IllegalStateException("Duplicate idempotency key: " + record.key()));
+        }
+    }
+
+    private Long lookupEmail(String email) {
+        long stamp = indexLock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                Long id = emailIndex.get(email);
+                if (indexLock.validate(stamp)) {
+                    return id;
+                }
+            } catch (RuntimeException concurrentModification) {
+                // fall through to the pessimistic read below
+            }
+        }
+        stamp = indexLock.readLock();
+        try {
+            return emailIndex.get(email);
+        } finally {
+            indexLock.unlockRead(stamp);
+        }
+    }
+
+    private void checkEmailAvailable(String email, Long ownerId, Map<String, Long> pendingEmails) {
+        Long emailOwner = pendingEmails.containsKey(email) ? pendingEmails.get(email) : emailIndex.get(email);
+        if (emailOwner != null && !emailOwner.equals(ownerId)) {
+            throw duplicateEmail(email);
+        }
+    }
+
+    // with the SQLSTATE of PostgreSQL's unique violation, so callers can tell a taken email from other failures
+    private static DataAccessException duplicateEmail(String email) {
+        String message = "Duplicate email: " + email;
+        return new DataAccessException(message, new SQLException(message, "23505"));
+    }
+
+    private void replace(User existing, User stored) {
+        // created_at is not updatable in the Hibernate mapping either
+        stored.setCreatedAt(existing.getCreatedAt());
+        removeFromIndexes(existing);
+        usersById.put(stored.getId(), stored);
+        addToIndexes(stored);
+    }
+
+    private void collect(TreeSet<Long> ids, List<User> target) {
+        for (Long id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                target.add(copyOf(user));
+            }
+        }
+    }
+
+    private void addToIndexes(User user) {
+        emailIndex.put(user.getEmail(), user.getId());
+        ageIndex.computeIfAbsent(user.getAge(), k -> new TreeSet<>()).add(user.getId());
+        createdAtIndex.computeIfAbsent(user.getCreatedAt(), k -> new TreeSet<>()).add(user.getId());
+    }
+
+    private void removeFromIndexes(User user) {
+        emailIndex.remove(user.getEmail());
+        removeFromIndex(ageIndex, user.getAge(), user.getId());
+        removeFromIndex(createdAtIndex, user.getCreatedAt(), user.getId());
+    }
+
+    private static <K> void removeFromIndex(NavigableMap<K, TreeSet<Long>> index, K key, Long id) {
+        TreeSet<Long> ids = index.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static void validateForWrite(User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("User cannot be null");
+        }
+        if (user.getName() == null || user.getEmail() == null
+                || user.getAge() == null || user.getCreatedAt() == null) {
+            throw new IllegalArgumentException("User has null required fields: " + user);
+        }
+    }
+
+    static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setName(user.getName());
+        copy.setEmail(user.getEmail());
+        copy.setAge(user.getAge());
+        copy.setCreatedAt(user.getCreatedAt());
+        return copy;
+    }
+}
@@ -0,0 +1,250 @@
+package com.user.service.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps one dedicated connection LISTENing on the invalidation channel and evicts from the local
+// cache. NOTIFY is not replayed, so anything that may have been missed (lost connection, heartbeat
+// not echoed back) is treated as a gap and flushes the whole cache.
+public class InvalidationListener implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(InvalidationListener.class);
+
+    private static final String HEARTBEAT_PREFIX = "heartbeat:";
+    private static final long MAX_BACKOFF_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private final ConnectionFactory connectionFactory;
+    private final String channel;
+    private final UserCache cache;
+    private final long batchWindowNanos;
+    private final long heartbeatIntervalNanos;
+    private final long reconnectBackoffNanos;
+    private final Thread worker;
+    // every node on the channel sees every heartbeat, so only one carrying this id answers ours
+    private final String heartbeatId = UUID.randomUUID().toString();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    private volatile Connection connection;
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    public InvalidationListener(ConnectionFactory connectionFactory, String channel, UserCache cache,
+                                Duration batchWindow, Duration heartbeatInterval, Duration reconnectBackoff) {
+        if (connectionFactory == null || cache == null) {
+            throw new IllegalArgumentException("Connection factory and cache cannot be null");
+        }
+        if (channel == null || channel.isBlank()) {
+            throw new IllegalArgumentException("Channel cannot be empty");
+        }
+        this.connectionFactory = connectionFactory;
+        this.channel = channel;
+        this.cache = cache;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.heartbeatIntervalNanos = heartbeatInterval.toNanos();
+        this.reconnectBackoffNanos = reconnectBackoff.toNanos();
+        this.worker = new Thread(this::runWorker, "user-invalidation-listener");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public static InvalidationListener forSessionFactory(SessionFactory sessionFactory, String channel, UserCache cache) {
+        Map<String, Object> properties = sessionFactory.getProperties();
+        String url = (String) properties.get("hibernate.connection.url");
+        String username = (String) properties.get("hibernate.connection.username");
+        String password = (String) properties.get("hibernate.connection.password");
+        return new InvalidationListener(() -> DriverManager.getConnection(url, username, password), channel, cache,
+                Duration.ofMillis(20), Duration.ofSeconds(5), Duration.ofMillis(200));
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public boolean awaitConnected(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!connected && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return connected;
+    }
+
+    public long getReceivedCount() {
+        return received.get();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    public long getReconnectCount() {
+        return reconnects.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeQuietly(connection);
+        worker.interrupt();
+        try {
+            worker.join();
+            logger.info("Invalidation listener stopped");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while stopping invalidation listener");
+        }
+    }
+
+    private void runWorker() {
+        int failures = 0;
+        while (!closed) {
+            try (Connection listening = connectionFactory.connect()) {
+                connection = listening;
+                listen(listening);
+                failures = 0;
+                poll(listening);
+            } catch (SQLException | RuntimeException e) {
+                if (closed) {
+                    break;
+                }
+                logger.warn("Invalidation listener connection lost, reconnecting", e);
+            } finally {
+                connected = false;
+                connection = null;
+            }
+            if (!closed) {
+                reconnects.incrementAndGet();
+                backoff(++failures);
+            }
+        }
+    }
+
+    private void listen(Connection listening) throws SQLException {
+        try (Statement statement = listening.createStatement()) {
+            statement.execute("LISTEN \"" + channel.replace("\"", "\"\"") + "\"");
+        }
+        // invalidations published while nobody was listening are gone
+        flush("listening on " + channel);
+        connected = true;
+    }
+
+    private void poll(Connection listening) throws SQLException {
+        PGConnection pgConnection = listening.unwrap(PGConnection.class);
+        int pollMillis = (int) Math.max(1, Math.min(heartbeatIntervalNanos, Duration.ofMillis(500).toNanos()) / 1_000_000);
+        long heartbeatSeq = 0;
+        String pendingHeartbeat = null;
+        long heartbeatSentAt = System.nanoTime();
+        while (!closed) {
+            PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+            Set<Long> ids = new HashSet<>();
+            boolean gap = false;
+            boolean flushAll = false;
+            long batchEnd = System.nanoTime() + batchWindowNanos;
+            // keep draining for a short window so a burst of commits costs one eviction pass
+            while (notifications != null && notifications.length > 0) {
+                for (PGNotification notification : notifications) {
+                    String payload = notification.getParameter();
+                    if (payload.startsWith(HEARTBEAT_PREFIX)) {
+                        if (payload.equals(pendingHeartbeat)) {
+                            pendingHeartbeat = null;
+                        }
+                        continue;
+                    }
+                    received.incrementAndGet();
+                    try {
+                        InvalidationMessage message = InvalidationMessage.parse(payload);
+                        ids.addAll(message.ids());
+                        flushAll |= message.allIds();
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("Unreadable invalidation payload '{}'", payload);
+                        gap = true;
+                    }
+                }
+                long remaining = batchEnd - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                notifications = pgConnection.getNotifications((int) Math.max(1, remaining / 1_000_000));
+            }
+            if (gap) {
+                flush("unreadable invalidation");
+            } else if (flushAll) {
+                flush("bulk removal on another node");
+            } else if (!ids.isEmpty()) {
+                cache.evictAll(ids);
+                logger.debug("Evicted {} users from invalidations", ids.size());
+            }
+
+            long now = System.nanoTime();
+            if (now - heartbeatSentAt >= heartbeatIntervalNanos) {
+                if (pendingHeartbeat != null) {
+                    throw new SQLException("Heartbeat " + pendingHeartbeat + " not received within "
+                            + Duration.ofNanos(now - heartbeatSentAt).toMillis() + " ms");
+                }
+                pendingHeartbeat = HEARTBEAT_PREFIX + heartbeatId + ':' + (++heartbeatSeq);
+                sendHeartbeat(listening, pendingHeartbeat);
+                heartbeatSentAt = now;
+            }
+        }
+    }
+
+    private void sendHeartbeat(Connection listening, String payload) throws SQLException {
+        try (PreparedStatement statement = listening.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, channel);
+            statement.setString(2, payload);
+            statement.executeQuery().close();
+        }
+    }
+
+    private void flush(String reason) {
+        cache.clear();
+        flushes.incrementAndGet();
+        logger.info("User cache flushed: {}", reason);
+    }
+
+    private void backoff(int failures) {
+        long nanos = Math.min(MAX_BACKOFF_NANOS, reconnectBackoffNanos << Math.min(failures - 1, 16));
+        try {
+            Thread.sleep(Duration.ofNanos(nanos).toMillis());
+        } catch (InterruptedException e) {
+            // close() interrupts the worker; the loop re-checks closed
+        }
+    }
+
+    private static void closeQuietly(Connection toClose) {
+        if (toClose == null) {
+            return;
+        }
+        try {
+            toClose.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close listener connection", e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection connect() throws SQLException;
+    }
+}
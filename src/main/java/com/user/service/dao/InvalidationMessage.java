@@ -0,0 +1,53 @@
+package com.user.service.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// NOTIFY payload "<txid>:<id>,<id>,...": the writing transaction's id as version plus the changed rows,
+// or "<txid>:*" when every cached user may be affected
+public record InvalidationMessage(long version, List<Long> ids, boolean allIds) {
+    // PostgreSQL rejects payloads of 8000 bytes or more
+    static final int MAX_IDS_LENGTH = 7000;
+    static final String ALL_IDS = "*";
+
+    public static InvalidationMessage parse(String payload) {
+        int colon = payload.indexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Malformed invalidation payload: " + payload);
+        }
+        long version = Long.parseLong(payload.substring(0, colon));
+        String idList = payload.substring(colon + 1);
+        if (idList.equals(ALL_IDS)) {
+            return new InvalidationMessage(version, List.of(), true);
+        }
+        List<Long> ids = new ArrayList<>();
+        if (!idList.isEmpty()) {
+            for (String id : idList.split(",")) {
+                ids.add(Long.parseLong(id));
+            }
+        }
+        return new InvalidationMessage(version, ids, false);
+    }
+
+    // comma-separated id lists, each short enough to fit one payload
+    static List<String> encodeIds(Collection<Long> ids) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        for (Long id : ids) {
+            String text = id.toString();
+            if (chunk.length() > 0 && chunk.length() + 1 + text.length() > MAX_IDS_LENGTH) {
+                chunks.add(chunk.toString());
+                chunk.setLength(0);
+            }
+            if (chunk.length() > 0) {
+                chunk.append(',');
+            }
+            chunk.append(text);
+        }
+        if (chunk.length() > 0) {
+            chunks.add(chunk.toString());
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,18 @@
+package com.user.service.dao;
+
+import org.hibernate.Session;
+
+import java.util.Collection;
+
+// Called by UserDAO inside the writing transaction, so the message is delivered only if it commits
+@FunctionalInterface
+public interface InvalidationPublisher {
+    InvalidationPublisher NONE = (session, ids) -> {
+    };
+
+    void publish(Session session, Collection<Long> ids);
+
+    // for bulk removals whose ids are not known, such as dropped partitions
+    default void publishAll(Session session) {
+    }
+}
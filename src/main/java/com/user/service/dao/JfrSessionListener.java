@@ -0,0 +1,75 @@
+package com.user.service.dao;
+
+import com.user.service.jfr.SessionOpenEvent;
+import com.user.service.jfr.UserTransactionEvent;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+// Only attached while a recording has the events enabled, so sessions opened
+// without JFR go through the plain openSession() path.
+class JfrSessionListener implements SessionEventListener {
+    private final transient SessionOpenEvent event;
+    private long acquisitionStart;
+    private long acquisitionNanos;
+    private int statements;
+    private int batches;
+
+    private JfrSessionListener(SessionOpenEvent event) {
+        this.event = event;
+    }
+
+    static Session openSession(SessionFactory sessionFactory, String operation) {
+        SessionOpenEvent event = SessionOpenEvent.start(operation);
+        if (!event.isEnabled()) {
+            return sessionFactory.openSession();
+        }
+        return sessionFactory.withOptions()
+                .eventListeners(new JfrSessionListener(event))
+                .openSession();
+    }
+
+    static void track(Transaction transaction, String operation) {
+        UserTransactionEvent event = UserTransactionEvent.start(operation, UserTransactionEvent.LAYER_DATABASE);
+        if (event.isEnabled()) {
+            transaction.registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    event.completed(status == Status.STATUS_COMMITTED);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        acquisitionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        acquisitionNanos += System.nanoTime() - acquisitionStart;
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statements++;
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batches++;
+    }
+
+    @Override
+    public void end() {
+        event.closed(acquisitionNanos, statements, batches);
+    }
+}
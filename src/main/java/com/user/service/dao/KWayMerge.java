@@ -0,0 +1,46 @@
+package com.user.service.dao;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+// Merges sources that are each sorted by comparator into one sorted sequence, taking the next
+// element only when it is asked for, so a caller that stops after n elements has compared about
+// n log k of them. Ties go to the earlier source.
+final class KWayMerge<T> implements Iterator<T> {
+    private final PriorityQueue<Head<T>> heads;
+
+    KWayMerge(List<? extends Iterator<? extends T>> sources, Comparator<? super T> comparator) {
+        Comparator<Head<T>> byElement = Comparator.comparing(Head::element, comparator);
+        heads = new PriorityQueue<>(Math.max(1, sources.size()), byElement.thenComparingInt(Head::source));
+        for (int source = 0; source < sources.size(); source++) {
+            advance(sources.get(source), source);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        Head<T> head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        advance(head.rest(), head.source());
+        return head.element();
+    }
+
+    private void advance(Iterator<? extends T> rest, int source) {
+        if (rest.hasNext()) {
+            heads.add(new Head<>(rest.next(), rest, source));
+        }
+    }
+
+    private record Head<T>(T element, Iterator<? extends T> rest, int source) {
+    }
+}
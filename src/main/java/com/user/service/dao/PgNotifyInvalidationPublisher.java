@@ -0,0 +1,46 @@
+package com.user.service.dao;
+
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+public class PgNotifyInvalidationPublisher implements InvalidationPublisher {
+    public static final String DEFAULT_CHANNEL = "user_invalidation";
+
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, txid_current() || ':' || ?)";
+
+    private final String channel;
+
+    public PgNotifyInvalidationPublisher(String channel) {
+        if (channel == null || channel.isBlank()) {
+            throw new IllegalArgumentException("Channel cannot be empty");
+        }
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(Session session, Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            notify(session, InvalidationMessage.encodeIds(ids));
+        }
+    }
+
+    @Override
+    public void publishAll(Session session) {
+        notify(session, List.of(InvalidationMessage.ALL_IDS));
+    }
+
+    private void notify(Session session, List<String> idLists) {
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(NOTIFY_SQL)) {
+                for (String idList : idLists) {
+                    statement.setString(1, channel);
+                    statement.setString(2, idList);
+                    statement.executeQuery().close();
+                }
+            }
+        });
+    }
+}
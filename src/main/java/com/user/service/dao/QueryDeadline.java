@@ -0,0 +1,53 @@
+package com.user.service.dao;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public final class QueryDeadline {
+    private static final ThreadLocal<Long> deadlineNanos = new ThreadLocal<>();
+
+    private QueryDeadline() {
+    }
+
+    public static <T> T callWithin(Duration timeout, Supplier<T> call) {
+        Long outer = deadlineNanos.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        if (outer != null && outer - deadline < 0) {
+            deadline = outer;
+        }
+        deadlineNanos.set(deadline);
+        try {
+            return call.get();
+        } finally {
+            if (outer == null) {
+                deadlineNanos.remove();
+            } else {
+                deadlineNanos.set(outer);
+            }
+        }
+    }
+
+    public static boolean isActive() {
+        return deadlineNanos.get() != null;
+    }
+
+    // null without a deadline; lets work handed to another thread keep the caller's deadline
+    static Duration remaining() {
+        Long deadline = deadlineNanos.get();
+        return deadline != null ? Duration.ofNanos(deadline - System.nanoTime()) : null;
+    }
+
+    // JDBC query timeouts have one-second granularity; 0 means "no deadline"
+    public static int remainingTimeoutSeconds() {
+        Long deadline = deadlineNanos.get();
+        if (deadline == null) {
+            return 0;
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0L) {
+            throw new QueryTimeoutException("Operation deadline exceeded before reaching the database", null);
+        }
+        return (int) Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+}
@@ -0,0 +1,8 @@
+package com.user.service.dao;
+
+public class QueryTimeoutException extends DataAccessException {
+
+    public QueryTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,117 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.ReactiveSessionFactoryProvider;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReactiveUserDAO implements ReactiveUserRepository {
+    private static final Logger logger = LogManager.getLogger(ReactiveUserDAO.class);
+    private final Mutiny.SessionFactory sessionFactory;
+
+    public ReactiveUserDAO() {
+        this(ReactiveSessionFactoryProvider.getInstance());
+    }
+
+    public ReactiveUserDAO(Mutiny.SessionFactory sessionFactory) {
+        if (sessionFactory == null) {
+            throw new IllegalArgumentException("SessionFactory cannot be null");
+        }
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public Uni<User> save(User user) {
+        return sessionFactory.withTransaction(session -> session.persist(user))
+                .replaceWith(user)
+                .invoke(saved -> logger.info("User saved: {}", saved))
+                .onFailure().transform(e -> failure("Error saving user", "Failed to save user", e));
+    }
+
+    @Override
+    public Uni<Optional<User>> findById(Long id) {
+        return sessionFactory.withSession(session -> session.find(User.class, id))
+                .map(Optional::ofNullable)
+                .invoke(user -> logger.debug("User found by ID {}: {}", id, user))
+                .onFailure().transform(e -> failure("Error finding user by ID: " + id, "Failed to find user by ID", e));
+    }
+
+    @Override
+    public Uni<Optional<User>> findByEmail(String email) {
+        return sessionFactory.withSession(session -> session
+                        .createSelectionQuery("FROM User WHERE email = :email", User.class)
+                        .setParameter("email", email)
+                        .getSingleResultOrNull())
+                .map(Optional::ofNullable)
+                .onFailure().transform(e -> failure("Error finding user by email: " + email,
+                        "Failed to find user by email", e));
+    }
+
+    @Override
+    public Uni<List<User>> findAll() {
+        return sessionFactory.withSession(session -> session
+                        .createSelectionQuery("FROM User", User.class)
+                        .getResultList())
+                .invoke(users -> logger.info("Retrieved {} users", users.size()))
+                .onFailure().transform(e -> failure("Error fetching all users", "Failed to fetch users", e));
+    }
+
+    @Override
+    public Uni<User> update(User user) {
+        return sessionFactory.withTransaction(session -> session.merge(user))
+                .invoke(updated -> logger.info("User updated: {}", updated))
+                .onFailure().transform(e -> failure("Error updating user", "Failed to update user", e));
+    }
+
+    @Override
+    public Uni<Boolean> deleteById(Long id) {
+        return sessionFactory.withTransaction(session -> session.find(User.class, id)
+                        .chain(user -> {
+                            if (user == null) {
+                                logger.warn("Attempt to delete non-existent user with ID: {}", id);
+                                return Uni.createFrom().item(false);
+                            }
+                            return session.remove(user).replaceWith(true);
+                        }))
+                .onFailure().transform(e -> failure("Error deleting user with ID: " + id, "Failed to delete user", e));
+    }
+
+    @Override
+    public Multi<User> streamAll(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        // keyset paging: each page starts after the last id seen, so no OFFSET scans
+        return Multi.createBy().repeating()
+                .uni(() -> new AtomicLong(Long.MIN_VALUE), lastId -> fetchPageAfter(lastId.get(), pageSize)
+                        .invoke(page -> {
+                            if (!page.isEmpty()) {
+                                lastId.set(page.get(page.size() - 1).getId());
+                            }
+                        }))
+                .whilst(page -> page.size() == pageSize)
+                .onItem().disjoint();
+    }
+
+    private Uni<List<User>> fetchPageAfter(long lastId, int pageSize) {
+        return sessionFactory.withSession(session -> session
+                        .createSelectionQuery("FROM User WHERE id > :lastId ORDER BY id", User.class)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(pageSize)
+                        .getResultList())
+                .onFailure().transform(e -> failure("Error streaming users after ID: " + lastId,
+                        "Failed to stream users", e));
+    }
+
+    private static Throwable failure(String logMessage, String message, Throwable cause) {
+        logger.error(logMessage, cause);
+        return SqlStateTranslator.translate(message, cause);
+    }
+}
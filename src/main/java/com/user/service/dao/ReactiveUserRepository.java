@@ -0,0 +1,28 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+import java.util.List;
+import java.util.Optional;
+
+// Non-blocking counterpart of UserRepository; Multi is a java.util.concurrent.Flow publisher, and a Uni
+// becomes one through toMulti()
+public interface ReactiveUserRepository {
+
+    Uni<User> save(User user);
+
+    Uni<Optional<User>> findById(Long id);
+
+    Uni<Optional<User>> findByEmail(String email);
+
+    Uni<List<User>> findAll();
+
+    Uni<User> update(User user);
+
+    Uni<Boolean> deleteById(Long id);
+
+    // Pages are fetched only as downstream demand arrives, each in its own short session
+    Multi<User> streamAll(int pageSize);
+}
@@ -0,0 +1,54 @@
+package com.user.service.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+final class ReplicaLagThrottle implements BackfillThrottle {
+    private static final Logger logger = LogManager.getLogger(ReplicaLagThrottle.class);
+
+    private final Supplier<Duration> lag;
+    private final Duration maxLag;
+    private final long pollNanos;
+    private long checkedAt;
+    private boolean lagging;
+
+    ReplicaLagThrottle(Supplier<Duration> lag, Duration maxLag, Duration pollInterval) {
+        if (lag == null || maxLag == null || maxLag.isNegative() || pollInterval.isNegative() || pollInterval.isZero()) {
+            throw new IllegalArgumentException("Lag probe, max lag and a positive poll interval are required");
+        }
+        this.lag = lag;
+        this.maxLag = maxLag;
+        this.pollNanos = pollInterval.toNanos();
+        this.checkedAt = System.nanoTime() - pollNanos;
+    }
+
+    @Override
+    public void acquire(int rows) throws InterruptedException {
+        while (isLagging()) {
+            LockSupport.parkNanos(pollNanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    // one probe per poll interval however many workers ask
+    private synchronized boolean isLagging() {
+        long now = System.nanoTime();
+        if (now - checkedAt >= pollNanos) {
+            checkedAt = now;
+            Duration current = lag.get();
+            boolean wasLagging = lagging;
+            lagging = current.compareTo(maxLag) > 0;
+            if (lagging != wasLagging) {
+                logger.info(lagging ? "Backfill paused: replica lag {} over {}" : "Backfill resumed: replica lag {}",
+                        current, maxLag);
+            }
+        }
+        return lagging;
+    }
+}
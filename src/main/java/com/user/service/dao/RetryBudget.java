@@ -0,0 +1,40 @@
+package com.user.service.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RetryBudget {
+    private static final long SCALE = 1000L;
+
+    private final long depositPerCall;
+    private final long maxBalance;
+    private final AtomicLong balance;
+
+    public RetryBudget(double retryRatio, int maxRetryTokens) {
+        if (retryRatio < 0 || maxRetryTokens < 0) {
+            throw new IllegalArgumentException("Retry budget settings must not be negative");
+        }
+        this.depositPerCall = Math.round(retryRatio * SCALE);
+        this.maxBalance = maxRetryTokens * SCALE;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    public void onCall() {
+        balance.accumulateAndGet(depositPerCall, (current, deposit) -> Math.min(maxBalance, current + deposit));
+    }
+
+    public boolean tryAcquireRetry() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    public double availableRetries() {
+        return (double) balance.get() / SCALE;
+    }
+}
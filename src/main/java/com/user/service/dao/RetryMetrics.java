@@ -0,0 +1,72 @@
+package com.user.service.dao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RetryMetrics {
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder budgetRejected = new LongAdder();
+    private final Map<String, LongAdder> retriesByReason = new ConcurrentHashMap<>();
+
+    void recordCall() {
+        calls.increment();
+    }
+
+    void recordRetry(RuntimeException reason) {
+        retries.increment();
+        retriesByReason.computeIfAbsent(reason.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    void recordRecovered() {
+        recovered.increment();
+    }
+
+    void recordExhausted() {
+        exhausted.increment();
+    }
+
+    void recordBudgetRejected() {
+        budgetRejected.increment();
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getRecovered() {
+        return recovered.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    public long getBudgetRejected() {
+        return budgetRejected.sum();
+    }
+
+    public long getRetries(Class<? extends RuntimeException> reason) {
+        LongAdder adder = retriesByReason.get(reason.getSimpleName());
+        return adder == null ? 0L : adder.sum();
+    }
+
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        snapshot.put("calls", getCalls());
+        snapshot.put("retries", getRetries());
+        snapshot.put("recovered", getRecovered());
+        snapshot.put("exhausted", getExhausted());
+        snapshot.put("budgetRejected", getBudgetRejected());
+        retriesByReason.forEach((reason, count) -> snapshot.put("retries." + reason, count.sum()));
+        return snapshot;
+    }
+}
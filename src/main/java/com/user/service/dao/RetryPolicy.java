@@ -0,0 +1,51 @@
+package com.user.service.dao;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class RetryPolicy {
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final RetryBudget budget;
+
+    public RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, RetryBudget budget) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.budget = budget;
+    }
+
+    public static RetryPolicy defaults() {
+        return new RetryPolicy(4, Duration.ofMillis(20), Duration.ofSeconds(1), new RetryBudget(0.2, 20));
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    public boolean isRetryable(RuntimeException failure, boolean idempotent) {
+        if (!(failure instanceof TransientDataAccessException)) {
+            return false;
+        }
+        // a broken connection may hide a commit that already happened; only
+        // rolled-back failures are safe to replay for non-idempotent writes
+        return idempotent || !(failure instanceof ConnectionFailureException);
+    }
+
+    // "full jitter": uniform in [0, min(max, initial * 2^(attempt-1))]
+    public long backoffNanos(int attempt) {
+        long ceiling = initialBackoffNanos << Math.min(attempt - 1, 30);
+        if (ceiling <= 0L || ceiling > maxBackoffNanos) {
+            ceiling = maxBackoffNanos;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,192 @@
+package com.user.service.dao;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class RetryingUserRepository implements UserRepository {
+    private static final Logger logger = LogManager.getLogger(RetryingUserRepository.class);
+
+    private final UserRepository delegate;
+    private final RetryPolicy policy;
+    private final RetryMetrics metrics = new RetryMetrics();
+    private final Sleeper sleeper;
+
+    public RetryingUserRepository(UserRepository delegate, RetryPolicy policy) {
+        this(delegate, policy, LockSupport::parkNanos);
+    }
+
+    RetryingUserRepository(UserRepository delegate, RetryPolicy policy, Sleeper sleeper) {
+        if (delegate == null || policy == null) {
+            throw new IllegalArgumentException("Delegate repository and retry policy cannot be null");
+        }
+        this.delegate = delegate;
+        this.policy = policy;
+        this.sleeper = sleeper;
+    }
+
+    public RetryMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void save(User user) {
+        Long originalId = user.getId();
+        execute("save", false, () -> {
+            // a rolled-back IDENTITY insert may have left the generated id behind
+            user.setId(originalId);
+            delegate.save(user);
+            return null;
+        });
+    }
+
+    @Override
+    public User upsertByEmail(User user) {
+        return execute("upsertByEmail", true, () -> delegate.upsertByEmail(user));
+    }
+
+    @Override
+    public List<User> upsertAll(List<User> users) {
+        return execute("upsertAll", true, () -> delegate.upsertAll(users));
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return execute("findById", true, () -> delegate.findById(id));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return execute("findByEmail", true, () -> delegate.findByEmail(email));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return execute("findAll", true, delegate::findAll);
+    }
+
+    @Override
+    public List<User> findByAgeBetween(int minAge, int maxAge) {
+        return execute("findByAgeBetween", true, () -> delegate.findByAgeBetween(minAge, maxAge));
+    }
+
+    @Override
+    public List<User> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to) {
+        return execute("findByCreatedAtBetween", true, () -> delegate.findByCreatedAtBetween(from, to));
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return execute("findPage", true, () -> delegate.findPage(afterId, limit));
+    }
+
+    @Override
+    public long count(CountMode mode, UserFilter filter) {
+        return execute("count", true, () -> delegate.count(mode, filter));
+    }
+
+    @Override
+    public void update(User user) {
+        execute("update", true, () -> {
+            delegate.update(user);
+            return null;
+        });
+    }
+
+    @Override
+    public Map<Long, User> applyPatches(Map<Long, UserPatch> patches) {
+        return execute("applyPatches", true, () -> delegate.applyPatches(patches));
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        execute("deleteById", true, () -> {
+            delegate.deleteById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void purgeCreatedBefore(YearMonth cutoff) {
+        execute("purgeCreatedBefore", true, () -> {
+            delegate.purgeCreatedBefore(cutoff);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+        return execute("findIdempotencyRecord", true, () -> delegate.findIdempotencyRecord(key));
+    }
+
+    @Override
+    public void saveIdempotencyRecord(IdempotencyRecord record) {
+        execute("saveIdempotencyRecord", false, () -> {
+            delegate.saveIdempotencyRecord(record);
+            return null;
+        });
+    }
+
+    // A statement cannot be retried on its own inside a failed transaction, and the work may have
+    // side effects, so units of work go straight to the delegate
+    @Override
+    public <T> T inTransaction(Function<UserRepository, T> work) {
+        return delegate.inTransaction(work);
+    }
+
+    @Override
+    public <T> T inReadOnlyTransaction(Function<UserRepository, T> work) {
+        return delegate.inReadOnlyTransaction(work);
+    }
+
+    private <T> T execute(String operation, boolean idempotent, Supplier<T> call) {
+        metrics.recordCall();
+        policy.getBudget().onCall();
+        int attempt = 1;
+        while (true) {
+            try {
+                T result = call.get();
+                if (attempt > 1) {
+                    metrics.recordRecovered();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (!policy.isRetryable(e, idempotent)) {
+                    throw e;
+                }
+                if (attempt >= policy.getMaxAttempts()) {
+                    metrics.recordExhausted();
+                    logger.warn("{} failed after {} attempts", operation, attempt);
+                    throw e;
+                }
+                if (!policy.getBudget().tryAcquireRetry()) {
+                    metrics.recordBudgetRejected();
+                    logger.warn("{} not retried: retry budget exhausted", operation);
+                    throw e;
+                }
+                long backoff = policy.backoffNanos(attempt);
+                metrics.recordRetry(e);
+                logger.info("Retrying {} after {} (attempt {}, backoff {} ms)",
+                        operation, e.getClass().getSimpleName(), attempt + 1, backoff / 1_000_000);
+                sleeper.sleepNanos(backoff);
+                attempt++;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Sleeper {
+        void sleepNanos(long nanos);
+    }
+}
@@ -0,0 +1,38 @@
+package com.user.service.dao;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+final class RowRateThrottle implements BackfillThrottle {
+    private final double nanosPerRow;
+    private final LongSupplier clock;
+    private long nextFree;
+
+    RowRateThrottle(double rowsPerSecond, LongSupplier clock) {
+        if (!(rowsPerSecond > 0)) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.nanosPerRow = 1_000_000_000 / rowsPerSecond;
+        this.clock = clock;
+        this.nextFree = clock.getAsLong();
+    }
+
+    @Override
+    public void acquire(int rows) throws InterruptedException {
+        long deadline = reserve(rows);
+        for (long now = clock.getAsLong(); now < deadline; now = clock.getAsLong()) {
+            LockSupport.parkNanos(deadline - now);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    // the time until which the caller has to wait for rows it has already processed; time spent
+    // below the rate is not saved up, so an idle throttle allows no burst
+    synchronized long reserve(int rows) {
+        long deadline = nextFree + (long) (rows * nanosPerRow);
+        nextFree = Math.max(deadline, clock.getAsLong());
+        return deadline;
+    }
+}
@@ -0,0 +1,8 @@
+package com.user.service.dao;
+
+public class SerializationFailureException extends TransientDataAccessException {
+
+    public SerializationFailureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
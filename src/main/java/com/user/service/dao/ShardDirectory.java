@@ -0,0 +1,193 @@
+package com.user.service.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.ReturningWork;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// The directory database of ShardedUserRepository: the shard map, and the user every email
+// belongs to. A save claims the email here before its shard commits, so of two saves with the
+// same email on different shards only one gets through. PostgreSQL only.
+final class ShardDirectory {
+    private static final Logger logger = LogManager.getLogger(ShardDirectory.class);
+
+    static final SqlMigration CREATE_DIRECTORY = new SqlMigration("V8__user_shard_directory");
+    // a claim this old whose user never showed up on its shard was left by a save that died
+    // between claiming and committing
+    static final Duration ABANDONED_CLAIM_AGE = Duration.ofMinutes(1);
+
+    private static final String CLAIM_SQL = """
+            INSERT INTO user_email_directory (email, user_id, user_created_at) VALUES (?, ?, ?)
+            ON CONFLICT (email) DO NOTHING""";
+    private static final String TAKE_OVER_SQL = """
+            UPDATE user_email_directory SET user_id = ?, user_created_at = ?, claimed_at = now()
+            WHERE email = ? AND user_id = ? AND claimed_at < now() - make_interval(secs => ?)""";
+
+    private final SessionFactory sessionFactory;
+
+    ShardDirectory(SessionFactory sessionFactory) {
+        if (sessionFactory == null) {
+            throw new IllegalArgumentException("SessionFactory cannot be null");
+        }
+        this.sessionFactory = sessionFactory;
+    }
+
+    void migrate() {
+        if (work("Failed to create shard directory", CREATE_DIRECTORY::apply)) {
+            logger.info("Created shard directory");
+        }
+    }
+
+    // empty until the first start of a sharded deployment stores one
+    Optional<ShardMap> loadMap() {
+        return work("Failed to load shard map", connection -> {
+            String[] owners = new String[ShardMap.LOGICAL_SHARDS];
+            int rows = 0;
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT logical_shard, shard FROM user_shard_map");
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    owners[rs.getInt(1)] = rs.getString(2);
+                    rows++;
+                }
+            }
+            return rows == 0 ? Optional.empty() : Optional.of(new ShardMap(owners));
+        });
+    }
+
+    // stores map unless another node stored one first; returns the one stored
+    ShardMap storeMap(ShardMap map) {
+        work("Failed to store shard map", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO user_shard_map (logical_shard, shard) VALUES (?, ?) ON CONFLICT DO NOTHING")) {
+                for (int logicalShard = 0; logicalShard < ShardMap.LOGICAL_SHARDS; logicalShard++) {
+                    statement.setInt(1, logicalShard);
+                    statement.setString(2, map.ownerOf(logicalShard));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            return null;
+        });
+        return loadMap().orElseThrow();
+    }
+
+    void reassign(Collection<Integer> logicalShards, String shard) {
+        work("Failed to update shard map", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE user_shard_map SET shard = ? WHERE logical_shard = ANY (?)")) {
+                statement.setString(1, shard);
+                statement.setArray(2, connection.createArrayOf("int4", logicalShards.toArray()));
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    Optional<Long> find(String email) {
+        return Optional.ofNullable(findAll(List.of(email)).get(email));
+    }
+
+    Map<String, Long> findAll(Collection<String> emails) {
+        return work("Failed to look up emails", connection -> {
+            Map<String, Long> ids = new HashMap<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT email, user_id FROM user_email_directory WHERE email = ANY (?)")) {
+                statement.setArray(1, connection.createArrayOf("varchar", emails.toArray()));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        ids.put(rs.getString(1), rs.getLong(2));
+                    }
+                }
+            }
+            return ids;
+        });
+    }
+
+    // the user holding the email afterwards, which is userId if the claim went through
+    long claim(String email, long userId, LocalDateTime userCreatedAt) {
+        return work("Failed to claim email", connection -> {
+            try (PreparedStatement claim = connection.prepareStatement(CLAIM_SQL);
+                 PreparedStatement holder = connection.prepareStatement(
+                         "SELECT user_id FROM user_email_directory WHERE email = ?")) {
+                // the holder can release the email between the two statements
+                while (true) {
+                    claim.setString(1, email);
+                    claim.setLong(2, userId);
+                    claim.setObject(3, userCreatedAt);
+                    if (claim.executeUpdate() == 1) {
+                        return userId;
+                    }
+                    holder.setString(1, email);
+                    try (ResultSet rs = holder.executeQuery()) {
+                        if (rs.next()) {
+                            return rs.getLong(1);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    // false unless staleUserId still holds the email and claimed it long enough ago
+    boolean takeOver(String email, long staleUserId, long userId, LocalDateTime userCreatedAt) {
+        return work("Failed to claim email", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(TAKE_OVER_SQL)) {
+                statement.setLong(1, userId);
+                statement.setObject(2, userCreatedAt);
+                statement.setString(3, email);
+                statement.setLong(4, staleUserId);
+                statement.setLong(5, ABANDONED_CLAIM_AGE.toSeconds());
+                return statement.executeUpdate() == 1;
+            }
+        });
+    }
+
+    void release(String email, long userId) {
+        work("Failed to release email", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM user_email_directory WHERE email = ? AND user_id = ?")) {
+                statement.setString(1, email);
+                statement.setLong(2, userId);
+                statement.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    int purgeCreatedBefore(LocalDateTime cutoff) {
+        return work("Failed to purge emails", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "DELETE FROM user_email_directory WHERE user_created_at < ?")) {
+                statement.setObject(1, cutoff);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    // reported like the unique violation a single database raises for the same save
+    static DataAccessException duplicateEmail(String message, String email, long holder) {
+        return new DataAccessException(message, new SQLException(
+                "Email " + email + " already belongs to user " + holder, "23505"));
+    }
+
+    private <T> T work(String failure, ReturningWork<T> work) {
+        try {
+            return sessionFactory.fromTransaction(session -> session.doReturningWork(work));
+        } catch (Exception e) {
+            logger.error(failure, e);
+            throw SqlStateTranslator.translate(failure, e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.user.service.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Which shard database owns each of the logical shards encoded in user ids (see
+// V7__shard_user_ids.sql). Immutable; a split publishes a new map.
+final class ShardMap {
+    static final int LOGICAL_SHARDS = 1024;
+    private static final int SEQUENCE_BITS = 12;
+
+    private final String[] owners;
+
+    ShardMap(String[] owners) {
+        if (owners.length != LOGICAL_SHARDS) {
+            throw new IllegalArgumentException("Expected an owner for each of " + LOGICAL_SHARDS + " logical shards");
+        }
+        for (int logicalShard = 0; logicalShard < owners.length; logicalShard++) {
+            if (owners[logicalShard] == null) {
+                throw new IllegalArgumentException("Logical shard " + logicalShard + " has no owner");
+            }
+        }
+        this.owners = owners.clone();
+    }
+
+    // contiguous ranges of logical shards, in the order given
+    static ShardMap evenly(List<String> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        String[] owners = new String[LOGICAL_SHARDS];
+        for (int logicalShard = 0; logicalShard < LOGICAL_SHARDS; logicalShard++) {
+            owners[logicalShard] = shards.get(logicalShard * shards.size() / LOGICAL_SHARDS);
+        }
+        return new ShardMap(owners);
+    }
+
+    static int logicalShardOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & (LOGICAL_SHARDS - 1));
+    }
+
+    String shardOf(long id) {
+        return owners[logicalShardOf(id)];
+    }
+
+    String ownerOf(int logicalShard) {
+        return owners[logicalShard];
+    }
+
+    Set<String> shards() {
+        return new TreeSet<>(Arrays.asList(owners));
+    }
+
+    List<Integer> logicalShardsOf(String shard) {
+        List<Integer> logicalShards = new ArrayList<>();
+        for (int logicalShard = 0; logicalShard < LOGICAL_SHARDS; logicalShard++) {
+            if (owners[logicalShard].equals(shard)) {
+                logicalShards.add(logicalShard);
+            }
+        }
+        return logicalShards;
+    }
+
+    // the upper half of the logical shards the shard owns
+    List<Integer> upperHalfOf(String shard) {
+        List<Integer> logicalShards = logicalShardsOf(shard);
+        if (logicalShards.size() < 2) {
+            throw new IllegalArgumentException("Shard " + shard + " owns fewer than two logical shards");
+        }
+        return List.copyOf(logicalShards.subList(logicalShards.size() / 2, logicalShards.size()));
+    }
+
+    ShardMap reassign(Collection<Integer> logicalShards, String shard) {
+        String[] reassigned = owners.clone();
+        for (int logicalShard : logicalShards) {
+            reassigned[logicalShard] = shard;
+        }
+        return new ShardMap(reassigned);
+    }
+}
@@ -0,0 +1,285 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.ReturningWork;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+// Moves the upper half of one shard's logical shards to a new database while the repository keeps
+// serving. The source stops handing out ids in the moving logical shards and their rows are copied
+// over in id order. Then writes to the source are held off while the rows written since the copy
+// began are copied again and rows deleted since are removed, the map is switched and the moved rows
+// are deleted from the source; the hold lasts as long as those steps, reads go on throughout. Rows
+// written since are those whose xmin is not older than the source's snapshot xmin at the start.
+// Only writers in this process are held off, so other nodes must not write to the source during a
+// split. Needs the unpartitioned users table.
+public class ShardSplitter {
+    private static final Logger logger = LogManager.getLogger(ShardSplitter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String SELECT_SQL = """
+            SELECT id, name, email, age, created_at FROM users
+            WHERE id > ? AND (id >> 12) & 1023 = ANY (?)
+            ORDER BY id LIMIT ?""";
+    // xmin wraps around at 2^32, so it is compared to the start modulo that
+    private static final String SELECT_CHANGED_SQL = """
+            SELECT id, name, email, age, created_at FROM users
+            WHERE id > ? AND (id >> 12) & 1023 = ANY (?)
+              AND ((xmin::text::int8 - ?) % 4294967296 + 4294967296) % 4294967296 < 2147483648
+            ORDER BY id LIMIT ?""";
+    private static final String SELECT_IDS_SQL = """
+            SELECT id FROM users WHERE id > ? AND (id >> 12) & 1023 = ANY (?) ORDER BY id LIMIT ?""";
+    private static final String HORIZON_SQL = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::int8";
+    private static final String UPSERT_SQL = """
+            INSERT INTO users (id, name, email, age, created_at)
+            SELECT * FROM unnest(?::int8[], ?::varchar[], ?::varchar[], ?::int4[], ?::timestamp[])
+            ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, email = EXCLUDED.email, age = EXCLUDED.age
+            WHERE (users.name, users.email, users.age) IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.email, EXCLUDED.age)""";
+    // rows in the id range of a batch that the source no longer has
+    private static final String DELETE_MISSING_SQL = """
+            DELETE FROM users
+            WHERE id > ? AND id <= ? AND (id >> 12) & 1023 = ANY (?) AND id <> ALL (?)""";
+    private static final String DELETE_MOVED_SQL = "DELETE FROM users WHERE (id >> 12) & 1023 = ANY (?)";
+
+    private final ShardedUserRepository repository;
+    private final int batchSize;
+
+    public ShardSplitter(ShardedUserRepository repository) {
+        this(repository, DEFAULT_BATCH_SIZE);
+    }
+
+    public ShardSplitter(ShardedUserRepository repository, int batchSize) {
+        if (repository == null) {
+            throw new IllegalArgumentException("Repository cannot be null");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.repository = repository;
+        this.batchSize = batchSize;
+    }
+
+    // the target is an empty database under a name the repository does not know yet; returns the
+    // number of users moved
+    public int split(String source, String target, SessionFactory targetFactory) {
+        // one split at a time per repository, each working from the map the previous one published
+        synchronized (repository) {
+            ShardMap map = repository.getShardMap();
+            List<Integer> moving = map.upperHalfOf(source);
+            List<Integer> staying = new ArrayList<>(map.logicalShardsOf(source));
+            staying.removeAll(moving);
+            SessionFactory sourceFactory = repository.getSessionFactory(source);
+
+            ShardedUserRepository.migrateShard(targetFactory);
+            ShardedUserRepository.assignLogicalShards(targetFactory, List.of());
+            repository.addShard(target, targetFactory);
+            // new users of the source get ids outside the moving logical shards from here on
+            ShardedUserRepository.assignLogicalShards(sourceFactory, staying);
+            logger.info("Splitting logical shards {}-{} off shard {} to {}", moving.get(0),
+                    moving.get(moving.size() - 1), source, target);
+
+            // every transaction that commits from here on has an id at least this
+            long since = run(sourceFactory, "Failed to read the transaction horizon", ShardSplitter::horizon);
+            Copy copied = copy(sourceFactory, targetFactory, moving);
+            logger.info("Copied {} users to shard {} ({} removed again)", copied.written(), target, copied.deleted());
+
+            Lock freeze = repository.freezeLock(source);
+            freeze.lock();
+            long frozenAt = System.nanoTime();
+            int moved;
+            try {
+                Copy caughtUp = catchUp(sourceFactory, targetFactory, moving, since);
+                ShardedUserRepository.assignLogicalShards(targetFactory, moving);
+                repository.getDirectory().reassign(moving, target);
+                repository.publish(map.reassign(moving, target));
+                moved = deleteMoved(sourceFactory, moving);
+                logger.info("Caught up {} users written and {} deleted since the copy began, while shard {} "
+                        + "was frozen", caughtUp.written(), caughtUp.deleted(), source);
+            } finally {
+                freeze.unlock();
+            }
+            logger.info("Moved {} users from shard {} to {}; writes were held for {} ms", moved, source, target,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - frozenAt));
+            return moved;
+        }
+    }
+
+    // copies every row of the logical shards to the target, and deletes target rows the source no
+    // longer has
+    private Copy copy(SessionFactory source, SessionFactory target, List<Integer> logicalShards) {
+        Copy total = new Copy(0, 0);
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            long from = afterId;
+            List<User> batch = run(source, "Failed to read users to move",
+                    connection -> read(connection, from, logicalShards, null));
+            boolean last = batch.size() < batchSize;
+            long upTo = last ? Long.MAX_VALUE : batch.get(batch.size() - 1).getId();
+            Copy copy = run(target, "Failed to copy users", connection -> new Copy(upsert(connection, batch),
+                    deleteMissing(connection, ids(batch), from, upTo, logicalShards)));
+            total = new Copy(total.written() + copy.written(), total.deleted() + copy.deleted());
+            if (last) {
+                return total;
+            }
+            afterId = upTo;
+        }
+    }
+
+    // copies only the rows written since the horizon, then walks the ids alone to find the deleted
+    private Copy catchUp(SessionFactory source, SessionFactory target, List<Integer> logicalShards, long since) {
+        int written = 0;
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            long from = afterId;
+            List<User> batch = run(source, "Failed to read changed users",
+                    connection -> read(connection, from, logicalShards, since));
+            written += run(target, "Failed to copy changed users", connection -> upsert(connection, batch));
+            if (batch.size() < batchSize) {
+                break;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+        int deleted = 0;
+        afterId = Long.MIN_VALUE;
+        while (true) {
+            long from = afterId;
+            List<Long> ids = run(source, "Failed to read user ids",
+                    connection -> readIds(connection, from, logicalShards));
+            boolean last = ids.size() < batchSize;
+            long upTo = last ? Long.MAX_VALUE : ids.get(ids.size() - 1);
+            deleted += run(target, "Failed to remove deleted users",
+                    connection -> deleteMissing(connection, ids.toArray(), from, upTo, logicalShards));
+            if (last) {
+                return new Copy(written, deleted);
+            }
+            afterId = upTo;
+        }
+    }
+
+    private static long horizon(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(HORIZON_SQL);
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // with since, only the rows written by transactions not older than it
+    private List<User> read(Connection connection, long afterId, List<Integer> logicalShards, Long since)
+            throws SQLException {
+        String sql = since == null ? SELECT_SQL : SELECT_CHANGED_SQL;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            statement.setLong(index++, afterId);
+            statement.setArray(index++, connection.createArrayOf("int4", logicalShards.toArray()));
+            if (since != null) {
+                statement.setLong(index++, since & 0xFFFFFFFFL);
+            }
+            statement.setInt(index, batchSize);
+            List<User> users = new ArrayList<>(batchSize);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    User user = new User();
+                    user.setId(rs.getLong(1));
+                    user.setName(rs.getString(2));
+                    user.setEmail(rs.getString(3));
+                    user.setAge(rs.getInt(4));
+                    user.setCreatedAt(rs.getTimestamp(5).toLocalDateTime());
+                    users.add(user);
+                }
+            }
+            return users;
+        }
+    }
+
+    private List<Long> readIds(Connection connection, long afterId, List<Integer> logicalShards) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_IDS_SQL)) {
+            statement.setLong(1, afterId);
+            statement.setArray(2, connection.createArrayOf("int4", logicalShards.toArray()));
+            statement.setInt(3, batchSize);
+            List<Long> ids = new ArrayList<>(batchSize);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+            return ids;
+        }
+    }
+
+    // the number of rows inserted or actually changed
+    private static int upsert(Connection connection, List<User> users) throws SQLException {
+        int size = users.size();
+        if (size == 0) {
+            return 0;
+        }
+        Object[] names = new Object[size];
+        Object[] emails = new Object[size];
+        Object[] ages = new Object[size];
+        Object[] createdAts = new Object[size];
+        for (int i = 0; i < size; i++) {
+            User user = users.get(i);
+            names[i] = user.getName();
+            emails[i] = user.getEmail();
+            ages[i] = user.getAge();
+            createdAts[i] = Timestamp.valueOf(user.getCreatedAt());
+        }
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+            statement.setArray(1, connection.createArrayOf("int8", ids(users)));
+            statement.setArray(2, connection.createArrayOf("varchar", names));
+            statement.setArray(3, connection.createArrayOf("varchar", emails));
+            statement.setArray(4, connection.createArrayOf("int4", ages));
+            statement.setArray(5, connection.createArrayOf("timestamp", createdAts));
+            return statement.executeUpdate();
+        }
+    }
+
+    // target rows in (afterId, upTo] of the logical shards that are not among ids
+    private static int deleteMissing(Connection connection, Object[] ids, long afterId, long upTo,
+                                     List<Integer> logicalShards) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(DELETE_MISSING_SQL)) {
+            statement.setLong(1, afterId);
+            statement.setLong(2, upTo);
+            statement.setArray(3, connection.createArrayOf("int4", logicalShards.toArray()));
+            statement.setArray(4, connection.createArrayOf("int8", ids));
+            return statement.executeUpdate();
+        }
+    }
+
+    private static Object[] ids(List<User> users) {
+        return users.stream().map(User::getId).toArray();
+    }
+
+    private static int deleteMoved(SessionFactory source, List<Integer> logicalShards) {
+        return run(source, "Failed to delete moved users", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_MOVED_SQL)) {
+                statement.setArray(1, connection.createArrayOf("int4", logicalShards.toArray()));
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    private static <T> T run(SessionFactory sessionFactory, String failure, ReturningWork<T> work) {
+        try {
+            return sessionFactory.fromTransaction(session -> session.doReturningWork(work));
+        } catch (Exception e) {
+            logger.error(failure, e);
+            throw SqlStateTranslator.translate(failure, e);
+        }
+    }
+
+    private record Copy(int written, int deleted) {
+    }
+}
@@ -0,0 +1,591 @@
+package com.user.service.dao;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Spreads users over several shard databases, each with the schema of UserDAO plus
+// V7__shard_user_ids.sql. Every id carries one of 1024 logical shards, and the shard map in the
+// directory database says which shard owns it, so calls by id go to a single database. Emails are
+// unique across shards through the directory, which also answers findByEmail and keeps the
+// idempotency keys. Queries over ranges run on every shard at once and their sorted results are
+// merged.
+// A call is atomic on each shard it touches but not across shards. There is no unit of work that
+// spans the shards and the directory, so inTransaction and inReadOnlyTransaction refuse to run
+// rather than let their work commit piece by piece.
+public class ShardedUserRepository implements UserRepository, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ShardedUserRepository.class);
+
+    static final SqlMigration SHARD_USER_IDS = new SqlMigration("V7__shard_user_ids");
+    // how long a write waits for a split to let go of its shard before failing as transient
+    static final Duration FROZEN_WRITE_TIMEOUT = Duration.ofSeconds(5);
+    // the threads fanning queries out; once they and their queue are busy, callers query themselves
+    static final int QUERY_THREADS_PER_SHARD = 4;
+
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getId);
+    private static final Comparator<User> BY_AGE = Comparator.comparing(User::getAge).thenComparing(BY_ID);
+    private static final Comparator<User> BY_CREATED_AT =
+            Comparator.comparing(User::getCreatedAt).thenComparing(BY_ID);
+
+    private final ShardDirectory directory;
+    private final UserDAO directoryDAO;
+    private final Map<String, Shard> shards = new ConcurrentHashMap<>();
+    private final ExecutorService queries;
+    private volatile ShardMap shardMap;
+
+    public ShardedUserRepository(SessionFactory directoryFactory, Map<String, SessionFactory> shardFactories) {
+        if (directoryFactory == null || shardFactories == null || shardFactories.isEmpty()) {
+            throw new IllegalArgumentException("Directory and at least one shard are required");
+        }
+        this.directory = new ShardDirectory(directoryFactory);
+        this.directoryDAO = new UserDAO(directoryFactory);
+        shardFactories.forEach((name, sessionFactory) -> shards.put(name, new Shard(sessionFactory)));
+        this.shardMap = directory.loadMap()
+                .orElseThrow(() -> new IllegalStateException("No shard map stored; migrate the shards first"));
+        for (String owner : shardMap.shards()) {
+            if (!shards.containsKey(owner)) {
+                throw new IllegalStateException("The shard map assigns users to unknown shard " + owner);
+            }
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = QUERY_THREADS_PER_SHARD * shardFactories.size();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 16), runnable -> {
+                    Thread thread = new Thread(runnable, "user-shard-query-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        this.queries = pool;
+    }
+
+    // Applies the directory and shard migrations and, on the first start, stores a shard map that
+    // spreads the logical shards evenly over the shards in name order. Also hands each shard back
+    // the logical shards the map gives it, which a split that did not finish may have taken away.
+    public static void migrate(SessionFactory directoryFactory, Map<String, SessionFactory> shardFactories) {
+        ShardDirectory directory = new ShardDirectory(directoryFactory);
+        directory.migrate();
+        Map<String, SessionFactory> byName = new TreeMap<>(shardFactories);
+        ShardMap map = directory.loadMap()
+                .orElseGet(() -> directory.storeMap(ShardMap.evenly(new ArrayList<>(byName.keySet()))));
+        for (Map.Entry<String, SessionFactory> shard : byName.entrySet()) {
+            migrateShard(shard.getValue());
+            assignLogicalShards(shard.getValue(), map.logicalShardsOf(shard.getKey()));
+        }
+        logger.info("Migrated {} user shards", byName.size());
+    }
+
+    static void migrateShard(SessionFactory sessionFactory) {
+        try {
+            sessionFactory.inTransaction(session -> session.doReturningWork(SHARD_USER_IDS::apply));
+        } catch (Exception e) {
+            logger.error("Error migrating user shard", e);
+            throw SqlStateTranslator.translate("Failed to migrate user shard", e);
+        }
+    }
+
+    // the logical shards the database hands out new ids in
+    static void assignLogicalShards(SessionFactory sessionFactory, Collection<Integer> logicalShards) {
+        try {
+            sessionFactory.inTransaction(session -> session.doWork(connection -> {
+                Object[] assigned = logicalShards.toArray();
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "DELETE FROM user_shards WHERE logical_shard <> ALL (?)")) {
+                    statement.setArray(1, connection.createArrayOf("int4", assigned));
+                    statement.executeUpdate();
+                }
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO user_shards SELECT unnest(?::int4[]) ON CONFLICT DO NOTHING")) {
+                    statement.setArray(1, connection.createArrayOf("int4", assigned));
+                    statement.executeUpdate();
+                }
+            }));
+        } catch (Exception e) {
+            logger.error("Error assigning logical shards", e);
+            throw SqlStateTranslator.translate("Failed to assign logical shards", e);
+        }
+    }
+
+    @Override
+    public void save(User user) {
+        List<Claim> claims = new ArrayList<>();
+        try {
+            writing(map -> List.of(shardForNew(map, user.getEmail())), map -> shard(shardForNew(map, user.getEmail()))
+                    .dao.inTransaction(tx -> {
+                        // the insert runs right away and gives the id to claim the email for
+                        tx.save(user);
+                        claim("Failed to save user", user.getEmail(), user.getId(), user.getCreatedAt(), claims);
+                        return null;
+                    }));
+        } catch (RuntimeException e) {
+            release(claims);
+            logger.error("Error saving user", e);
+            throw SqlStateTranslator.translate("Failed to save user", e);
+        }
+    }
+
+    @Override
+    public User upsertByEmail(User user) {
+        return upsertAll(List.of(user)).get(0);
+    }
+
+    @Override
+    public List<User> upsertAll(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        List<String> emails = users.stream().map(User::getEmail).distinct().toList();
+        for (int attempt = 1; ; attempt++) {
+            Map<String, Long> known = directory.findAll(emails);
+            List<Claim> claims = new ArrayList<>();
+            try {
+                writing(map -> byTargetShard(map, users, known).keySet(), map -> {
+                    for (Map.Entry<String, List<User>> group : byTargetShard(map, users, known).entrySet()) {
+                        shard(group.getKey()).dao.inTransaction(tx -> {
+                            tx.upsertAll(group.getValue());
+                            Set<String> claimed = new HashSet<>();
+                            for (User user : group.getValue()) {
+                                // also when the known user is gone and the upsert inserted a new one
+                                if (!Objects.equals(known.get(user.getEmail()), user.getId())
+                                        && claimed.add(user.getEmail())) {
+                                    claim("Failed to upsert users", user.getEmail(), user.getId(),
+                                            user.getCreatedAt(), claims);
+                                }
+                            }
+                            return null;
+                        });
+                        // committed; no longer given back if a later shard fails
+                        claims.clear();
+                    }
+                    return null;
+                });
+                return users;
+            } catch (RuntimeException e) {
+                release(claims);
+                if (attempt == 1 && isDuplicateEmail(e)) {
+                    // another shard inserted one of the emails first; the directory now routes it there
+                    continue;
+                }
+                logger.error("Error upserting users", e);
+                throw SqlStateTranslator.translate("Failed to upsert users", e);
+            }
+        }
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return shard(shardMap.shardOf(id)).dao.findById(id);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        // a claim whose save has not committed yet points at no user, or at one with another email
+        return directory.find(email).flatMap(this::findById).filter(user -> email.equals(user.getEmail()));
+    }
+
+    @Override
+    public List<User> findAll() {
+        ShardMap map = shardMap;
+        List<User> users = new ArrayList<>();
+        for (List<User> owned : onEveryShard(map, (name, dao) -> owned(map, name, dao.findAll()))) {
+            users.addAll(owned);
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> findByAgeBetween(int minAge, int maxAge) {
+        return merged(dao -> dao.findByAgeBetween(minAge, maxAge), BY_AGE);
+    }
+
+    @Override
+    public List<User> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to) {
+        return merged(dao -> dao.findByCreatedAtBetween(from, to), BY_CREATED_AT);
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        ShardMap map = shardMap;
+        List<String> names = new ArrayList<>(map.shards());
+        List<List<User>> pages = onEveryShard(map, (name, dao) -> dao.findPage(afterId, limit));
+        // a full page says nothing about the ids after its last one, so the merged page ends there
+        // too; only copies a split has not removed yet can make it shorter than limit
+        long lastId = Long.MAX_VALUE;
+        List<Iterator<User>> owned = new ArrayList<>();
+        for (int i = 0; i < pages.size(); i++) {
+            List<User> page = pages.get(i);
+            if (!page.isEmpty() && page.size() >= limit) {
+                lastId = Math.min(lastId, page.get(page.size() - 1).getId());
+            }
+            owned.add(owned(map, names.get(i), page).iterator());
+        }
+        List<User> users = new ArrayList<>(limit);
+        KWayMerge<User> merge = new KWayMerge<>(owned, BY_ID);
+        while (users.size() < limit && merge.hasNext()) {
+            User user = merge.next();
+            if (user.getId() > lastId) {
+                break;
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    // while a split removes the rows it moved, they are counted on both shards
+    @Override
+    public long count(CountMode mode, UserFilter filter) {
+        return onEveryShard(shardMap, (name, dao) -> dao.count(mode, filter)).stream()
+                .mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public void update(User user) {
+        if (user.getId() == null || findById(user.getId()).isEmpty()) {
+            // like UserDAO's merge: an unknown user is inserted under a new id, the argument keeps its own
+            User inserted = new User(user.getName(), user.getEmail(), user.getAge());
+            inserted.setCreatedAt(user.getCreatedAt());
+            save(inserted);
+            return;
+        }
+        List<Claim> claims = new ArrayList<>();
+        try {
+            String previousEmail = writing(map -> List.of(map.shardOf(user.getId())), map ->
+                    shard(map.shardOf(user.getId())).dao.inTransaction(tx -> {
+                        User current = tx.findById(user.getId()).orElse(null);
+                        if (current == null || current.getEmail().equals(user.getEmail())) {
+                            tx.update(user);
+                            return null;
+                        }
+                        claim("Failed to update user", user.getEmail(), user.getId(), current.getCreatedAt(), claims);
+                        String email = current.getEmail();
+                        tx.update(user);
+                        return email;
+                    }));
+            if (previousEmail != null) {
+                release(List.of(new Claim(previousEmail, user.getId())));
+            }
+        } catch (RuntimeException e) {
+            release(claims);
+            logger.error("Error updating user", e);
+            throw SqlStateTranslator.translate("Failed to update user", e);
+        }
+    }
+
+    @Override
+    public Map<Long, User> applyPatches(Map<Long, UserPatch> patches) {
+        if (patches.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        List<Claim> claims = new ArrayList<>();
+        List<Claim> replaced = new ArrayList<>();
+        try {
+            Map<Long, User> updated = writing(map -> shardsOf(map, patches.keySet()), map -> {
+                Map<String, Map<Long, UserPatch>> byShard = new TreeMap<>();
+                patches.forEach((id, patch) -> byShard.computeIfAbsent(map.shardOf(id), k -> new LinkedHashMap<>())
+                        .put(id, patch));
+                return inUnits(new ArrayList<>(byShard.keySet()), 0, () -> {
+                    // claimed before any patch is applied, so a taken email leaves every shard untouched
+                    patches.forEach((id, patch) -> {
+                        if (patch.email() == null) {
+                            return;
+                        }
+                        User current = shard(map.shardOf(id)).dao.findById(id).orElse(null);
+                        if (current != null && !current.getEmail().equals(patch.email())) {
+                            claim("Failed to apply user patches", patch.email(), id, current.getCreatedAt(), claims);
+                            replaced.add(new Claim(current.getEmail(), id));
+                        }
+                    });
+                    Map<Long, User> patched = new LinkedHashMap<>();
+                    byShard.forEach((name, shardPatches) -> patched.putAll(shard(name).dao.applyPatches(shardPatches)));
+                    return patched;
+                });
+            });
+            release(replaced);
+            return updated;
+        } catch (RuntimeException e) {
+            release(claims);
+            logger.error("Error applying user patches", e);
+            throw SqlStateTranslator.translate("Failed to apply user patches", e);
+        }
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        try {
+            Optional<User> deleted = writing(map -> List.of(map.shardOf(id)), map ->
+                    shard(map.shardOf(id)).dao.inTransaction(tx -> {
+                        Optional<User> user = tx.findById(id);
+                        tx.deleteById(id);
+                        return user;
+                    }));
+            deleted.ifPresent(user -> release(List.of(new Claim(user.getEmail(), id))));
+        } catch (RuntimeException e) {
+            logger.error("Error deleting user with ID: {}", id, e);
+            throw SqlStateTranslator.translate("Failed to delete user", e);
+        }
+    }
+
+    @Override
+    public void purgeCreatedBefore(YearMonth cutoff) {
+        onEveryShard(shardMap, (name, dao) -> writing(map -> List.of(name), map -> {
+            dao.purgeCreatedBefore(cutoff);
+            return null;
+        }));
+        int released = directory.purgeCreatedBefore(cutoff.atDay(1).atStartOfDay());
+        logger.info("Released {} emails of users created before {}", released, cutoff);
+    }
+
+    @Override
+    public <T> T inTransaction(Function<UserRepository, T> work) {
+        throw new UnsupportedOperationException("A transaction cannot span user shards");
+    }
+
+    @Override
+    public <T> T inReadOnlyTransaction(Function<UserRepository, T> work) {
+        throw new UnsupportedOperationException("A transaction cannot span user shards");
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+        return directoryDAO.findIdempotencyRecord(key);
+    }
+
+    @Override
+    public void saveIdempotencyRecord(IdempotencyRecord record) {
+        directoryDAO.saveIdempotencyRecord(record);
+    }
+
+    @Override
+    public void close() {
+        queries.shutdownNow();
+    }
+
+    ShardMap getShardMap() {
+        return shardMap;
+    }
+
+    ShardDirectory getDirectory() {
+        return directory;
+    }
+
+    SessionFactory getSessionFactory(String name) {
+        return shard(name).sessionFactory;
+    }
+
+    // a shard that owns no logical shards until a split publishes a map giving it some
+    void addShard(String name, SessionFactory sessionFactory) {
+        if (shards.putIfAbsent(name, new Shard(sessionFactory)) != null) {
+            throw new IllegalStateException("Shard " + name + " already exists");
+        }
+    }
+
+    // held exclusively, keeps every write away from the shard until released
+    Lock freezeLock(String name) {
+        return shard(name).permits.writeLock();
+    }
+
+    // callers hold the freeze lock of every shard whose logical shards change owner
+    void publish(ShardMap map) {
+        this.shardMap = map;
+    }
+
+    private Shard shard(String name) {
+        Shard shard = shards.get(name);
+        if (shard == null) {
+            throw new IllegalStateException("Unknown shard " + name);
+        }
+        return shard;
+    }
+
+    // the same email always lands on the same shard, so a retried insert meets its first attempt
+    private static String shardForNew(ShardMap map, String email) {
+        List<String> names = new ArrayList<>(map.shards());
+        return names.get(Math.floorMod(Objects.hashCode(email), names.size()));
+    }
+
+    private static Set<String> shardsOf(ShardMap map, Collection<Long> ids) {
+        Set<String> names = new TreeSet<>();
+        for (Long id : ids) {
+            names.add(map.shardOf(id));
+        }
+        return names;
+    }
+
+    private static Map<String, List<User>> byTargetShard(ShardMap map, List<User> users, Map<String, Long> known) {
+        Map<String, List<User>> groups = new TreeMap<>();
+        for (User user : users) {
+            Long id = known.get(user.getEmail());
+            String name = id != null ? map.shardOf(id) : shardForNew(map, user.getEmail());
+            groups.computeIfAbsent(name, k -> new ArrayList<>()).add(user);
+        }
+        return groups;
+    }
+
+    // drops the rows a split copied away but has not deleted from its source yet
+    private static List<User> owned(ShardMap map, String name, List<User> users) {
+        return users.stream().filter(user -> map.shardOf(user.getId()).equals(name)).toList();
+    }
+
+    // UserRepository hands back whole lists, so every shard's result is read in full before the
+    // merge; merging only spares sorting them all again
+    private List<User> merged(Function<UserDAO, List<User>> query, Comparator<User> order) {
+        ShardMap map = shardMap;
+        List<Iterator<User>> sorted = new ArrayList<>();
+        for (List<User> owned : onEveryShard(map, (name, dao) -> owned(map, name, query.apply(dao)))) {
+            sorted.add(owned.iterator());
+        }
+        List<User> users = new ArrayList<>();
+        new KWayMerge<>(sorted, order).forEachRemaining(users::add);
+        return users;
+    }
+
+    // results in shard name order; the first failure is rethrown once every query has ended
+    private <T> List<T> onEveryShard(ShardMap map, BiFunction<String, UserDAO, T> query) {
+        Duration deadline = QueryDeadline.remaining();
+        List<Future<T>> futures = new ArrayList<>();
+        for (String name : map.shards()) {
+            UserDAO dao = shard(name).dao;
+            futures.add(queries.submit(() -> deadline != null
+                    ? QueryDeadline.callWithin(deadline, () -> query.apply(name, dao))
+                    : query.apply(name, dao)));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        RuntimeException failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = SqlStateTranslator.translate("Failed to query user shards", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new DataAccessException("Interrupted while querying user shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    // Runs work holding a write permit of each shard plan names under the map it was given. A split
+    // takes its source's permits away while it moves rows and swaps the map before handing them
+    // back, so when the map changed in between, the permits are returned and the plan is redone.
+    private <T> T writing(Function<ShardMap, Collection<String>> plan, Function<ShardMap, T> work) {
+        while (true) {
+            ShardMap map = shardMap;
+            List<Lock> held = new ArrayList<>();
+            try {
+                // always in name order, so two writers never wait on each other
+                for (String name : new TreeSet<>(plan.apply(map))) {
+                    Lock permit = shard(name).permits.readLock();
+                    acquire(permit, name);
+                    held.add(permit);
+                }
+                if (map == shardMap) {
+                    return work.apply(map);
+                }
+            } finally {
+                held.forEach(Lock::unlock);
+            }
+        }
+    }
+
+    private static void acquire(Lock permit, String name) {
+        try {
+            if (!permit.tryLock(FROZEN_WRITE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new TransientDataAccessException("Shard " + name + " is frozen by a split", null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessException("Interrupted while waiting for shard " + name, e);
+        }
+    }
+
+    // a unit of work on each shard, one inside the other, so nothing commits before the work has
+    // succeeded on all of them; the commits themselves still follow one another
+    private <T> T inUnits(List<String> names, int index, Supplier<T> work) {
+        if (index == names.size()) {
+            return work.get();
+        }
+        return shard(names.get(index)).dao.inTransaction(tx -> inUnits(names, index + 1, work));
+    }
+
+    private void claim(String failure, String email, long userId, LocalDateTime createdAt, List<Claim> claims) {
+        long holder = directory.claim(email, userId, createdAt);
+        if (holder != userId && (holds(holder, email) || !directory.takeOver(email, holder, userId, createdAt))) {
+            throw ShardDirectory.duplicateEmail(failure, email, holder);
+        }
+        claims.add(new Claim(email, userId));
+    }
+
+    private boolean holds(long userId, String email) {
+        return findById(userId).map(user -> user.getEmail().equals(email)).orElse(false);
+    }
+
+    // a claim left behind only blocks its email until it is old enough to be taken over
+    private void release(Collection<Claim> claims) {
+        for (Claim claim : claims) {
+            try {
+                directory.release(claim.email(), claim.userId());
+            } catch (DataAccessException e) {
+                logger.warn("Failed to release email {} of user {}", claim.email(), claim.userId(), e);
+            }
+        }
+    }
+
+    private static boolean isDuplicateEmail(RuntimeException e) {
+        return "23505".equals(SqlStateTranslator.findSqlState(e));
+    }
+
+    private record Claim(String email, long userId) {
+    }
+
+    private static final class Shard {
+        private final SessionFactory sessionFactory;
+        private final UserDAO dao;
+        private final ReadWriteLock permits = new ReentrantReadWriteLock();
+
+        private Shard(SessionFactory sessionFactory) {
+            this.sessionFactory = sessionFactory;
+            this.dao = new UserDAO(sessionFactory);
+        }
+    }
+}
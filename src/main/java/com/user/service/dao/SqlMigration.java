@@ -0,0 +1,69 @@
+package com.user.service.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// A versioned script under db/migration, applied at most once per database and recorded in
+// schema_migrations. Callers run it inside their transaction so a failed script leaves no trace.
+final class SqlMigration {
+    private static final String CREATE_HISTORY_SQL = """
+            CREATE TABLE IF NOT EXISTS schema_migrations (
+                version    varchar(100) PRIMARY KEY,
+                applied_at timestamp    NOT NULL DEFAULT now()
+            )""";
+
+    private final String version;
+
+    SqlMigration(String version) {
+        this.version = version;
+    }
+
+    String getVersion() {
+        return version;
+    }
+
+    // false if the database already had it
+    boolean apply(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            // concurrent starts of several nodes take turns; the lock ends with the transaction
+            statement.execute("SELECT pg_advisory_xact_lock(hashtext('schema_migrations'))");
+            statement.execute(CREATE_HISTORY_SQL);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT 1 FROM schema_migrations WHERE version = ?")) {
+            statement.setString(1, version);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    return false;
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(script());
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO schema_migrations (version) VALUES (?)")) {
+            statement.setString(1, version);
+            statement.executeUpdate();
+        }
+        return true;
+    }
+
+    private String script() throws SQLException {
+        String resource = "db/migration/" + version + ".sql";
+        try (InputStream in = SqlMigration.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new SQLException("Migration script " + resource + " not found");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Failed to read migration script " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.user.service.dao;
+
+import java.sql.SQLException;
+
+public final class SqlStateTranslator {
+
+    private SqlStateTranslator() {
+    }
+
+    public static DataAccessException translate(String message, Throwable cause) {
+        if (cause instanceof DataAccessException dataAccessException) {
+            return dataAccessException;
+        }
+        String sqlState = findSqlState(cause);
+        if (sqlState == null) {
+            return new DataAccessException(message, cause);
+        }
+        if (sqlState.equals("40001")) {
+            return new SerializationFailureException(message, cause);
+        }
+        if (sqlState.equals("40P01")) {
+            return new DeadlockDetectedException(message, cause);
+        }
+        if (sqlState.equals("57014")) {
+            return new QueryTimeoutException(message, cause);
+        }
+        if (sqlState.startsWith("08")) {
+            return new ConnectionFailureException(message, cause);
+        }
+        return new DataAccessException(message, cause);
+    }
+
+    static String findSqlState(Throwable throwable) {
+        for (Throwable current = throwable; current != null; current = current.getCause()) {
+            if (current instanceof SQLException sqlException) {
+                for (SQLException next = sqlException; next != null; next = next.getNextException()) {
+                    if (next.getSQLState() != null) {
+                        return next.getSQLState();
+                    }
+                }
+            }
+            if (current.getCause() == current) {
+                break;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,8 @@
+package com.user.service.dao;
+
+public class TransientDataAccessException extends DataAccessException {
+
+    public TransientDataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,129 @@
+package com.user.service.dao;
+
+import com.user.service.entities.UserAuditEntry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserAuditDAO {
+    private static final Logger logger = LogManager.getLogger(UserAuditDAO.class);
+
+    static final SqlMigration CREATE_AUDIT = new SqlMigration("V3__user_audit");
+
+    private static final String INSERT_SQL = """
+            INSERT INTO user_audit (user_id, action, fields, old_values, new_values, occurred_at)
+            VALUES (?, ?, ?, ?, ?, ?)""";
+    private static final String SELECT_SQL = """
+            SELECT user_id, action, fields, old_values, new_values, occurred_at
+            FROM user_audit
+            WHERE user_id = ? AND occurred_at >= ? AND occurred_at < ?
+            ORDER BY occurred_at, id""";
+
+    private final SessionFactory sessionFactory;
+
+    public UserAuditDAO(SessionFactory sessionFactory) {
+        if (sessionFactory == null) {
+            throw new IllegalArgumentException("SessionFactory cannot be null");
+        }
+        this.sessionFactory = sessionFactory;
+    }
+
+    public void migrate() {
+        try {
+            if (sessionFactory.fromTransaction(session -> session.doReturningWork(CREATE_AUDIT::apply))) {
+                logger.info("Created user audit table");
+            }
+        } catch (Exception e) {
+            logger.error("Error creating user audit table", e);
+            throw SqlStateTranslator.translate("Failed to create user audit table", e);
+        }
+    }
+
+    // one transaction and one JDBC batch for the whole list
+    public void insertAll(List<UserAuditEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            sessionFactory.inTransaction(session -> session.doWork(connection -> insertAll(connection, entries)));
+            logger.debug("Wrote {} audit entries", entries.size());
+        } catch (Exception e) {
+            logger.error("Error writing {} audit entries", entries.size(), e);
+            throw SqlStateTranslator.translate("Failed to write audit entries", e);
+        }
+    }
+
+    // half-open like findByCreatedAtBetween, oldest first
+    public List<UserAuditEntry> findByUser(long userId, LocalDateTime from, LocalDateTime to) {
+        try {
+            return sessionFactory.fromSession(session -> session.doReturningWork(connection -> {
+                List<UserAuditEntry> entries = new ArrayList<>();
+                try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+                    statement.setLong(1, userId);
+                    statement.setTimestamp(2, Timestamp.valueOf(from));
+                    statement.setTimestamp(3, Timestamp.valueOf(to));
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            entries.add(read(rs));
+                        }
+                    }
+                }
+                return entries;
+            }));
+        } catch (Exception e) {
+            logger.error("Error reading audit entries of user {}", userId, e);
+            throw SqlStateTranslator.translate("Failed to read audit entries", e);
+        }
+    }
+
+    private static void insertAll(Connection connection, List<UserAuditEntry> entries) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            for (UserAuditEntry entry : entries) {
+                int size = entry.changes().size();
+                String[] fields = new String[size];
+                String[] oldValues = new String[size];
+                String[] newValues = new String[size];
+                for (int i = 0; i < size; i++) {
+                    UserAuditEntry.FieldChange change = entry.changes().get(i);
+                    fields[i] = change.field();
+                    oldValues[i] = change.before();
+                    newValues[i] = change.after();
+                }
+                statement.setLong(1, entry.userId());
+                statement.setString(2, entry.action().name());
+                statement.setArray(3, connection.createArrayOf("text", fields));
+                statement.setArray(4, connection.createArrayOf("text", oldValues));
+                statement.setArray(5, connection.createArrayOf("text", newValues));
+                statement.setTimestamp(6, Timestamp.valueOf(entry.occurredAt()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static UserAuditEntry read(ResultSet rs) throws SQLException {
+        String[] fields = strings(rs.getArray(3));
+        String[] oldValues = strings(rs.getArray(4));
+        String[] newValues = strings(rs.getArray(5));
+        List<UserAuditEntry.FieldChange> changes = new ArrayList<>(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            changes.add(new UserAuditEntry.FieldChange(fields[i], oldValues[i], newValues[i]));
+        }
+        return new UserAuditEntry(rs.getLong(1), UserAuditEntry.Action.valueOf(rs.getString(2)), changes,
+                rs.getTimestamp(6).toLocalDateTime());
+    }
+
+    private static String[] strings(Array array) throws SQLException {
+        return (String[]) array.getArray();
+    }
+}
@@ -0,0 +1,390 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Applies a BackfillJob to every user without loading the table: the id space is split into
+// ranges once per job, workers take ranges in parallel and walk each in chunks. Every chunk is one
+// transaction that writes the changed rows as a JDBC batch together with the range's checkpoint,
+// so a crash or stop loses at most the chunk in flight and the next run resumes from there.
+// Each chunk records an UPDATED change event and publishes cache invalidations for the users it
+// changed, in its own transaction like the DAO does. A row whose new values collide with another
+// user's email is skipped and reported rather than failing its range.
+public class UserBackfill implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UserBackfill.class);
+
+    static final SqlMigration CREATE_CHECKPOINTS = new SqlMigration("V4__backfill_checkpoint");
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private static final String PLANNED_SQL = "SELECT count(*) FROM backfill_checkpoint WHERE job = ?";
+    private static final String INSERT_RANGE_SQL = """
+            INSERT INTO backfill_checkpoint (job, range_start, range_end, next_id) VALUES (?, ?, ?, ?)""";
+    private static final String PENDING_SQL = """
+            SELECT range_start FROM backfill_checkpoint
+            WHERE job = ? AND completed_at IS NULL ORDER BY range_start""";
+    private static final String LOCK_RANGE_SQL = """
+            SELECT next_id, range_end FROM backfill_checkpoint
+            WHERE job = ? AND range_start = ? AND completed_at IS NULL FOR UPDATE""";
+    private static final String SELECT_CHUNK_SQL = """
+            SELECT id, name, email, age, created_at FROM users
+            WHERE id >= ? AND id < ? ORDER BY id LIMIT ? FOR UPDATE""";
+    private static final String UPDATE_USER_SQL = "UPDATE users SET name = ?, email = ?, age = ? WHERE id = ?";
+    private static final String ADVANCE_SQL = """
+            UPDATE backfill_checkpoint
+            SET next_id = ?, rows_scanned = rows_scanned + ?, rows_updated = rows_updated + ?,
+                completed_at = CASE WHEN ? THEN now() END
+            WHERE job = ? AND range_start = ?""";
+    private static final String REPLICA_LAG_SQL = """
+            SELECT CAST(COALESCE(max(EXTRACT(EPOCH FROM replay_lag) * 1000), 0) AS bigint) FROM pg_stat_replication""";
+
+    private final SessionFactory sessionFactory;
+    private final int parallelism;
+    private final int chunkSize;
+    private final BackfillThrottle throttle;
+    private final InvalidationPublisher invalidationPublisher;
+    private final UserChangeLog changeLog;
+    private volatile boolean stopping;
+    private volatile ExecutorService workers;
+
+    public UserBackfill(SessionFactory sessionFactory, int parallelism, int chunkSize, BackfillThrottle throttle) {
+        this(sessionFactory, parallelism, chunkSize, throttle, InvalidationPublisher.NONE);
+    }
+
+    public UserBackfill(SessionFactory sessionFactory, int parallelism, int chunkSize, BackfillThrottle throttle,
+                        InvalidationPublisher invalidationPublisher) {
+        this(sessionFactory, parallelism, chunkSize, throttle, invalidationPublisher, UserChangeLog.NONE);
+    }
+
+    public UserBackfill(SessionFactory sessionFactory, int parallelism, int chunkSize, BackfillThrottle throttle,
+                        InvalidationPublisher invalidationPublisher, UserChangeLog changeLog) {
+        if (sessionFactory == null || invalidationPublisher == null || changeLog == null) {
+            throw new IllegalArgumentException(
+                    "SessionFactory, InvalidationPublisher and UserChangeLog cannot be null");
+        }
+        if (parallelism <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Parallelism and chunk size must be positive");
+        }
+        this.sessionFactory = sessionFactory;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.throttle = throttle != null ? throttle : BackfillThrottle.NONE;
+        this.invalidationPublisher = invalidationPublisher;
+        this.changeLog = changeLog;
+    }
+
+    public void migrate() {
+        try {
+            if (sessionFactory.fromTransaction(session -> session.doReturningWork(CREATE_CHECKPOINTS::apply))) {
+                logger.info("Created backfill checkpoint table");
+            }
+        } catch (Exception e) {
+            logger.error("Error creating backfill checkpoint table", e);
+            throw SqlStateTranslator.translate("Failed to create backfill checkpoint table", e);
+        }
+    }
+
+    // rangeCount only matters on the first run of a job; later runs keep the ranges they find
+    public BackfillReport run(BackfillJob job, int rangeCount) {
+        if (job == null || rangeCount <= 0) {
+            throw new IllegalArgumentException("Job cannot be null and range count must be positive");
+        }
+        long start = System.nanoTime();
+        List<Long> pending = plan(job.name(), rangeCount);
+        logger.info("Backfill {}: {} ranges pending, {} workers", job.name(), pending.size(), parallelism);
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        LongAdder scanned = new LongAdder();
+        LongAdder updated = new LongAdder();
+        LongAdder skipped = new LongAdder();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, pending.size())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "user-backfill-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        workers = pool;
+        for (long rangeStart : pending) {
+            pool.execute(() -> {
+                if (stopping) {
+                    return;
+                }
+                try {
+                    if (runRange(job, rangeStart, scanned, updated, skipped)) {
+                        completed.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    logger.error("Backfill {} failed in range starting at id {}", job.name(), rangeStart, e);
+                }
+            });
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            // the workers finish their chunk and leave the rest for the next run
+            stopping = true;
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        BackfillReport report = new BackfillReport(job.name(), pending.size(), completed.get(), failed.get(),
+                scanned.sum(), updated.sum(), skipped.sum(), Duration.ofNanos(System.nanoTime() - start));
+        logger.info("Backfill {}: {} of {} ranges done, {} failed, {} rows scanned, {} updated, {} skipped in {} ms",
+                job.name(), report.completedRanges(), report.pendingRanges(), report.failedRanges(),
+                report.rowsScanned(), report.rowsUpdated(), report.rowsSkipped(), report.elapsed().toMillis());
+        return report;
+    }
+
+    // forgets a job's progress so that the next run starts over
+    public void reset(String job) {
+        try {
+            sessionFactory.inTransaction(session -> session.createNativeMutationQuery(
+                    "DELETE FROM backfill_checkpoint WHERE job = :job").setParameter("job", job).executeUpdate());
+        } catch (Exception e) {
+            logger.error("Error resetting backfill {}", job, e);
+            throw SqlStateTranslator.translate("Failed to reset backfill", e);
+        }
+    }
+
+    // the largest replay lag among the standbys of this primary; zero without standbys
+    public static Duration replicaLag(SessionFactory sessionFactory) {
+        try {
+            return Duration.ofMillis(sessionFactory.fromSession(session -> session.createNativeQuery(
+                    REPLICA_LAG_SQL, Long.class).getSingleResult()));
+        } catch (Exception e) {
+            logger.error("Error reading replica lag", e);
+            throw SqlStateTranslator.translate("Failed to read replica lag", e);
+        }
+    }
+
+    // lets a running job stop after its current chunks
+    @Override
+    public void close() {
+        stopping = true;
+        ExecutorService pool = workers;
+        if (pool == null) {
+            return;
+        }
+        try {
+            pool.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Long> plan(String job, int rangeCount) {
+        try {
+            return sessionFactory.fromTransaction(session -> session.doReturningWork(
+                    connection -> plan(connection, job, rangeCount)));
+        } catch (Exception e) {
+            logger.error("Error planning backfill {}", job, e);
+            throw SqlStateTranslator.translate("Failed to plan backfill", e);
+        }
+    }
+
+    // rows inserted after planning are not covered: new writes are expected in the new shape already
+    private static List<Long> plan(Connection connection, String job, int rangeCount) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_xact_lock(hashtext(?))")) {
+            statement.setString(1, "backfill:" + job);
+            statement.execute();
+        }
+        if (queryLong(connection, PLANNED_SQL, job) == 0) {
+            try (PreparedStatement bounds = connection.prepareStatement("SELECT min(id), max(id) FROM users");
+                 ResultSet rs = bounds.executeQuery();
+                 PreparedStatement insert = connection.prepareStatement(INSERT_RANGE_SQL)) {
+                rs.next();
+                long min = rs.getLong(1);
+                if (!rs.wasNull()) {
+                    long end = rs.getLong(2) + 1;
+                    long step = Math.max(1, (end - min + rangeCount - 1) / rangeCount);
+                    for (long rangeStart = min; rangeStart < end; rangeStart += step) {
+                        insert.setString(1, job);
+                        insert.setLong(2, rangeStart);
+                        insert.setLong(3, Math.min(end, rangeStart + step));
+                        insert.setLong(4, rangeStart);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+            }
+        }
+        List<Long> pending = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(PENDING_SQL)) {
+            statement.setString(1, job);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    pending.add(rs.getLong(1));
+                }
+            }
+        }
+        return pending;
+    }
+
+    // false when stopped before the range was done
+    private boolean runRange(BackfillJob job, long rangeStart, LongAdder scanned, LongAdder updated,
+                             LongAdder skipped) throws InterruptedException {
+        while (!stopping) {
+            Chunk chunk = sessionFactory.fromTransaction(session -> {
+                Chunk processed = session.doReturningWork(connection -> processChunk(connection, job, rangeStart));
+                if (!processed.updatedIds().isEmpty()) {
+                    changeLog.record(session, UserChangeEvent.Type.UPDATED, processed.updatedIds());
+                    invalidationPublisher.publish(session, processed.updatedIds());
+                }
+                return processed;
+            });
+            scanned.add(chunk.scanned());
+            updated.add(chunk.updatedIds().size());
+            skipped.add(chunk.skipped());
+            if (chunk.done()) {
+                logger.debug("Backfill {} finished range starting at id {}", job.name(), rangeStart);
+                return true;
+            }
+            throttle.acquire(chunk.scanned());
+        }
+        return false;
+    }
+
+    private Chunk processChunk(Connection connection, BackfillJob job, long rangeStart) throws SQLException {
+        long nextId;
+        long rangeEnd;
+        // the row lock keeps a second runner of the same job off this range until we commit
+        try (PreparedStatement statement = connection.prepareStatement(LOCK_RANGE_SQL)) {
+            statement.setString(1, job.name());
+            statement.setLong(2, rangeStart);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return new Chunk(0, List.of(), 0, true);
+                }
+                nextId = rs.getLong(1);
+                rangeEnd = rs.getLong(2);
+            }
+        }
+
+        List<User> users = new ArrayList<>(chunkSize);
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_CHUNK_SQL)) {
+            statement.setLong(1, nextId);
+            statement.setLong(2, rangeEnd);
+            statement.setInt(3, chunkSize);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    User user = new User();
+                    user.setId(rs.getLong(1));
+                    user.setName(rs.getString(2));
+                    user.setEmail(rs.getString(3));
+                    user.setAge(rs.getInt(4));
+                    user.setCreatedAt(rs.getTimestamp(5).toLocalDateTime());
+                    users.add(user);
+                }
+            }
+        }
+
+        List<User> changed = new ArrayList<>();
+        for (User user : users) {
+            if (job.apply(user)) {
+                changed.add(user);
+            }
+        }
+        List<Long> updatedIds = write(connection, job, changed);
+
+        boolean done = users.size() < chunkSize;
+        try (PreparedStatement statement = connection.prepareStatement(ADVANCE_SQL)) {
+            statement.setLong(1, done ? rangeEnd : users.get(users.size() - 1).getId() + 1);
+            statement.setLong(2, users.size());
+            statement.setLong(3, updatedIds.size());
+            statement.setBoolean(4, done);
+            statement.setString(5, job.name());
+            statement.setLong(6, rangeStart);
+            statement.executeUpdate();
+        }
+        return new Chunk(users.size(), updatedIds, changed.size() - updatedIds.size(), done);
+    }
+
+    // one JDBC batch; if it hits a unique email, the rows are written one by one and the colliding
+    // ones skipped, so one collision does not fail the whole range on every rerun
+    private static List<Long> write(Connection connection, BackfillJob job, List<User> users) throws SQLException {
+        List<Long> updatedIds = new ArrayList<>(users.size());
+        if (users.isEmpty()) {
+            return updatedIds;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(UPDATE_USER_SQL)) {
+            Savepoint batch = connection.setSavepoint();
+            try {
+                for (User user : users) {
+                    bind(statement, user);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.releaseSavepoint(batch);
+                users.forEach(user -> updatedIds.add(user.getId()));
+                return updatedIds;
+            } catch (SQLException e) {
+                if (!isUniqueViolation(e)) {
+                    throw e;
+                }
+                connection.rollback(batch);
+                statement.clearBatch();
+            }
+            for (User user : users) {
+                Savepoint row = connection.setSavepoint();
+                try {
+                    bind(statement, user);
+                    statement.executeUpdate();
+                    connection.releaseSavepoint(row);
+                    updatedIds.add(user.getId());
+                } catch (SQLException e) {
+                    if (!isUniqueViolation(e)) {
+                        throw e;
+                    }
+                    connection.rollback(row);
+                    logger.warn("Backfill {} skipped user {}: email {} is taken by another user",
+                            job.name(), user.getId(), user.getEmail());
+                }
+            }
+        }
+        return updatedIds;
+    }
+
+    private static void bind(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getName());
+        statement.setString(2, user.getEmail());
+        statement.setInt(3, user.getAge());
+        statement.setLong(4, user.getId());
+    }
+
+    private static boolean isUniqueViolation(SQLException e) {
+        return "23505".equals(SqlStateTranslator.findSqlState(e));
+    }
+
+    private static long queryLong(Connection connection, String sql, String job) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, job);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private record Chunk(int scanned, List<Long> updatedIds, int skipped, boolean done) {
+    }
+}
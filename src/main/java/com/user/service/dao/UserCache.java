@@ -0,0 +1,100 @@
+package com.user.service.dao;
+
+import com.user.service.entities.CompactUser;
+import com.user.service.entities.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-local users by id, held as CompactUser rows and handed out as fresh User instances. Every
+// invalidation bumps the epoch, so a loader that read the database before an invalidation cannot
+// re-insert the value it replaced.
+public class UserCache {
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private final Map<Long, CompactUser> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final AtomicLong epoch = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public Optional<User> get(Long id) {
+        CompactUser cached = entries.get(id);
+        if (cached == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(cached.toUser());
+    }
+
+    public long currentEpoch() {
+        return epoch.get();
+    }
+
+    // readEpoch must be taken before the database read that produced the user
+    public void put(User user, long readEpoch) {
+        if (entries.size() >= maxEntries && !entries.containsKey(user.getId())) {
+            return;
+        }
+        entries.put(user.getId(), CompactUser.from(user));
+        if (epoch.get() != readEpoch) {
+            entries.remove(user.getId());
+        }
+    }
+
+    public void evict(Long id) {
+        epoch.incrementAndGet();
+        if (entries.remove(id) != null) {
+            evictions.increment();
+        }
+    }
+
+    public void evictAll(Iterable<Long> ids) {
+        epoch.incrementAndGet();
+        for (Long id : ids) {
+            if (entries.remove(id) != null) {
+                evictions.increment();
+            }
+        }
+    }
+
+    public void clear() {
+        epoch.incrementAndGet();
+        evictions.add(entries.size());
+        entries.clear();
+    }
+
+    public List<Long> ids() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
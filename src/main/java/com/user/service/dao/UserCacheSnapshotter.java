@@ -0,0 +1,83 @@
+package com.user.service.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Writes the ids currently in the cache, plus snapshot ids not yet warmed, to a UserSnapshotFile.
+// Rows are re-read from the database with their xmin instead of copied from the cache, so an
+// invalidation still in flight cannot pair old data with a new version.
+public class UserCacheSnapshotter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UserCacheSnapshotter.class);
+
+    private final SessionFactory sessionFactory;
+    private final UserCache cache;
+    private final UserSnapshotWarmer warmer;
+    private final Path path;
+    private final ScheduledExecutorService scheduler;
+
+    public UserCacheSnapshotter(SessionFactory sessionFactory, UserCache cache, UserSnapshotWarmer warmer,
+                                Path path, Duration interval) {
+        if (sessionFactory == null || cache == null || path == null) {
+            throw new IllegalArgumentException("SessionFactory, cache and path cannot be null");
+        }
+        this.sessionFactory = sessionFactory;
+        this.cache = cache;
+        this.warmer = warmer;
+        this.path = path;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-cache-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::writeQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized int writeSnapshot() {
+        Set<Long> ids = new LinkedHashSet<>(cache.ids());
+        if (warmer != null) {
+            ids.addAll(warmer.pendingIds());
+        }
+        try (Session session = sessionFactory.openSession()) {
+            List<UserSnapshotFile.Row> rows = session.doReturningWork(connection ->
+                    UserVersionQueries.rows(connection, ids));
+            UserSnapshotFile.write(path, rows);
+            logger.info("Wrote user snapshot {} with {} users", path, rows.size());
+            return rows.size();
+        } catch (Exception e) {
+            logger.error("Error writing user snapshot {}", path, e);
+            throw new DataAccessException("Failed to write user snapshot", e);
+        }
+    }
+
+    // final snapshot; registered with SessionFactoryProvider so it runs before the factory closes
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeSnapshot();
+    }
+
+    private void writeQuietly() {
+        try {
+            writeSnapshot();
+        } catch (DataAccessException e) {
+            // logged in writeSnapshot; the next run tries again
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+
+import java.time.LocalDateTime;
+
+// sequence orders events across users and lets a subscriber drop redeliveries; user is the
+// committed state, null for DELETED
+public record UserChangeEvent(long sequence, Type type, long userId, User user, LocalDateTime occurredAt) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+}
@@ -0,0 +1,15 @@
+package com.user.service.dao;
+
+import org.hibernate.Session;
+
+import java.util.Collection;
+
+// Called by UserDAO inside the writing transaction, so an event exists exactly when its change
+// committed
+@FunctionalInterface
+public interface UserChangeLog {
+    UserChangeLog NONE = (session, type, ids) -> {
+    };
+
+    void record(Session session, UserChangeEvent.Type type, Collection<Long> userIds);
+}
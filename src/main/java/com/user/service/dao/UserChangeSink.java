@@ -0,0 +1,11 @@
+package com.user.service.dao;
+
+import java.util.List;
+
+// Receives batches from UserOutboxRelay in outbox order. Throwing leaves the whole batch in the
+// outbox to be delivered again, so an event can arrive more than once, but never after a later
+// event for the same user.
+@FunctionalInterface
+public interface UserChangeSink {
+    void deliver(List<UserChangeEvent> events) throws Exception;
+}
@@ -0,0 +1,37 @@
+package com.user.service.dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Fans each batch out to in-process subscribers on the relay thread. A slow subscriber slows the
+// relay down rather than queueing events in memory; the backlog stays in the outbox table.
+public class UserChangeSubscribers implements UserChangeSink {
+    private final List<Consumer<UserChangeEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    public Subscription subscribe(Consumer<UserChangeEvent> subscriber) {
+        if (subscriber == null) {
+            throw new IllegalArgumentException("Subscriber cannot be null");
+        }
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public int size() {
+        return subscribers.size();
+    }
+
+    // a subscriber that throws fails the batch, and every subscriber sees it again on redelivery
+    @Override
+    public void deliver(List<UserChangeEvent> events) {
+        for (Consumer<UserChangeEvent> subscriber : subscribers) {
+            events.forEach(subscriber);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,116 @@
+package com.user.service.dao;
+
+import org.hibernate.jdbc.ReturningWork;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class UserCountWork implements ReturningWork<Long> {
+    // every leaf table holding users: the table itself, or its partitions
+    private static final String TABLE_STATS_SQL = """
+            SELECT c.reltuples, c.relpages, pg_relation_size(c.oid) / current_setting('block_size')::int
+            FROM pg_class c
+            WHERE c.relkind = 'r'
+              AND (c.oid = to_regclass('users')
+                   OR c.oid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = to_regclass('users')))""";
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*([0-9.]+)");
+
+    private final CountMode mode;
+    private final UserFilter filter;
+
+    UserCountWork(CountMode mode, UserFilter filter) {
+        this.mode = mode;
+        this.filter = filter;
+    }
+
+    @Override
+    public Long execute(Connection connection) throws SQLException {
+        boolean postgres = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        if (mode == CountMode.EXACT || !postgres) {
+            return query(connection, "SELECT count(*) FROM users", resultSet -> resultSet.getLong(1));
+        }
+        if (filter.isEmpty()) {
+            long fromStatistics = fromTableStatistics(connection);
+            if (fromStatistics >= 0) {
+                return fromStatistics;
+            }
+        }
+        // the planner's row estimate for the filtered scan, without running it
+        return query(connection, "EXPLAIN (FORMAT JSON) SELECT 1 FROM users", resultSet -> {
+            Matcher matcher = PLAN_ROWS.matcher(resultSet.getString(1));
+            if (!matcher.find()) {
+                throw new SQLException("No row estimate in plan");
+            }
+            return (long) Double.parseDouble(matcher.group(1));
+        });
+    }
+
+    // reltuples as of the last ANALYZE scaled to the current size, as the planner does; -1 if some
+    // table was never analyzed
+    private static long fromTableStatistics(Connection connection) throws SQLException {
+        double rows = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(TABLE_STATS_SQL)) {
+            while (rs.next()) {
+                double reltuples = rs.getDouble(1);
+                long relpages = rs.getLong(2);
+                long currentPages = rs.getLong(3);
+                if (currentPages == 0) {
+                    continue;
+                }
+                if (reltuples < 0 || relpages == 0) {
+                    return -1;
+                }
+                rows += reltuples / relpages * currentPages;
+            }
+        }
+        return Math.round(rows);
+    }
+
+    private long query(Connection connection, String select, RowReader reader) throws SQLException {
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(select);
+        String glue = " WHERE ";
+        if (filter.minAge() != null) {
+            sql.append(glue).append("age >= ?");
+            parameters.add(filter.minAge());
+            glue = " AND ";
+        }
+        if (filter.maxAge() != null) {
+            sql.append(glue).append("age <= ?");
+            parameters.add(filter.maxAge());
+            glue = " AND ";
+        }
+        if (filter.createdFrom() != null) {
+            sql.append(glue).append("created_at >= ?");
+            parameters.add(Timestamp.valueOf(filter.createdFrom()));
+            glue = " AND ";
+        }
+        if (filter.createdTo() != null) {
+            sql.append(glue).append("created_at < ?");
+            parameters.add(Timestamp.valueOf(filter.createdTo()));
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return reader.read(rs);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+        long read(ResultSet resultSet) throws SQLException;
+    }
+}
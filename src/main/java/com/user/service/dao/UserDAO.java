@@ -1,111 +1,544 @@
 package com.user.service.dao;
 
+import com.user.service.entities.IdempotencyRecord;
 import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import com.user.service.jfr.UserDaoOperationEvent;
 import com.user.service.util.SessionFactoryProvider;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
-public class UserDAO {
+public class UserDAO implements UserRepository {
     private static final Logger logger = LogManager.getLogger(UserDAO.class);
     private final SessionFactory sessionFactory;
+    private final InvalidationPublisher invalidationPublisher;
+    private final UserChangeLog changeLog;
+    private final ThreadLocal<UnitOfWork> currentUnit = new ThreadLocal<>();
+    private final AtomicReference<Boolean> partitionedUsers = new AtomicReference<>();
 
     public UserDAO() {
-        this.sessionFactory = SessionFactoryProvider.getInstance();
+        this(SessionFactoryProvider.getInstance(), InvalidationPublisher.NONE);
     }
 
     public UserDAO(SessionFactory sessionFactory) {
+        this(sessionFactory, InvalidationPublisher.NONE);
+    }
+
+    public UserDAO(SessionFactory sessionFactory, InvalidationPublisher invalidationPublisher) {
+        this(sessionFactory, invalidationPublisher, UserChangeLog.NONE);
+    }
+
+    public UserDAO(SessionFactory sessionFactory, InvalidationPublisher invalidationPublisher, UserChangeLog changeLog) {
         if (sessionFactory == null) {
             throw new IllegalArgumentException("SessionFactory cannot be null");
         }
         this.sessionFactory = sessionFactory;
+        this.invalidationPublisher = invalidationPublisher != null ? invalidationPublisher : InvalidationPublisher.NONE;
+        this.changeLog = changeLog != null ? changeLog : UserChangeLog.NONE;
     }
 
-    private Session openSession() {
-        return sessionFactory.openSession();
+    private SessionScope openSession(String operation) {
+        UnitOfWork unit = currentUnit.get();
+        if (unit != null) {
+            return new SessionScope(unit.session, unit);
+        }
+        return new SessionScope(JfrSessionListener.openSession(sessionFactory, operation), null);
+    }
+
+    @Override
+    public <T> T inTransaction(Function<UserRepository, T> work) {
+        return unitOfWork("inTransaction", false, work);
     }
 
+    @Override
+    public <T> T inReadOnlyTransaction(Function<UserRepository, T> work) {
+        return unitOfWork("inReadOnlyTransaction", true, work);
+    }
+
+    @Override
     public void save(User user) {
-        Transaction transaction = null;
-        try (Session session = openSession()) {
-            transaction = session.beginTransaction();
-            session.persist(user);
-            transaction.commit();
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("save");
+        try (SessionScope scope = openSession("save")) {
+            scope.write("save", session -> {
+                session.persist(user);
+                recordChange(session, UserChangeEvent.Type.CREATED, user);
+                return null;
+            });
             logger.info("User saved: {}", user);
+            event.succeeded(user.getId(), 1);
         } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
+            event.failed(user != null ? user.getId() : null, SqlStateTranslator.findSqlState(e));
             logger.error("Error saving user", e);
-            throw new RuntimeException("Failed to save user", e);
+            throw SqlStateTranslator.translate("Failed to save user", e);
         }
     }
 
+    @Override
+    public User upsertByEmail(User user) {
+        return upsertAll(List.of(user)).get(0);
+    }
+
+    @Override
+    public List<User> upsertAll(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("upsertAll");
+        try (SessionScope scope = openSession("upsertAll")) {
+            Map<String, LocalDateTime> createdAts = new HashMap<>();
+            Map<String, Long> ids = scope.write("upsertAll", session -> {
+                // plain JDBC bypasses the persistence context, so pending changes go out first
+                session.flush();
+                UserUpsertWork work = new UserUpsertWork(users, partitionedUsers);
+                Map<String, Long> upserted = session.doReturningWork(work);
+                createdAts.putAll(work.getCreatedAts());
+                if (scope.isJoined()) {
+                    refreshLoaded(session, upserted.values());
+                }
+                invalidationPublisher.publish(session, upserted.values());
+                Set<Long> updatedIds = new HashSet<>(upserted.values());
+                updatedIds.removeAll(work.getInsertedIds());
+                changeLog.record(session, UserChangeEvent.Type.CREATED, work.getInsertedIds());
+                changeLog.record(session, UserChangeEvent.Type.UPDATED, updatedIds);
+                return upserted;
+            });
+            for (User user : users) {
+                user.setId(ids.get(user.getEmail()));
+                user.setCreatedAt(createdAts.get(user.getEmail()));
+            }
+            logger.info("Upserted {} users", users.size());
+            event.succeeded(null, users.size());
+            return users;
+        } catch (Exception e) {
+            event.failed(null, SqlStateTranslator.findSqlState(e));
+            logger.error("Error upserting users", e);
+            throw SqlStateTranslator.translate("Failed to upsert users", e);
+        }
+    }
+
+    @Override
     public Optional<User> findById(Long id) {
-        try (Session session = openSession()) {
-            User user = session.get(User.class, id);
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("findById");
+        try (SessionScope scope = openSession("findById")) {
+            User user = scope.read("findById", s -> s.get(User.class, id));
             logger.info("User found by ID {}: {}", id, user);
+            event.succeeded(id, user != null ? 1 : 0);
             return Optional.ofNullable(user);
         } catch (Exception e) {
+            event.failed(id, SqlStateTranslator.findSqlState(e));
             logger.error("Error finding user by ID: {}", id, e);
-            throw new RuntimeException("Failed to find user by ID", e);
+            throw SqlStateTranslator.translate("Failed to find user by ID", e);
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("findByEmail");
+        try (SessionScope scope = openSession("findByEmail")) {
+            User user = scope.read("findByEmail", s -> s.createQuery("FROM User WHERE email = :email", User.class)
+                    .setParameter("email", email)
+                    .uniqueResult());
+            logger.info("User found by email {}: {}", email, user);
+            event.succeeded(user != null ? user.getId() : null, user != null ? 1 : 0);
+            return Optional.ofNullable(user);
+        } catch (Exception e) {
+            event.failed(null, SqlStateTranslator.findSqlState(e));
+            logger.error("Error finding user by email: {}", email, e);
+            throw SqlStateTranslator.translate("Failed to find user by email", e);
         }
     }
 
+    @Override
     public List<User> findAll() {
-        try (Session session = openSession()) {
-            List<User> users = session.createQuery("FROM User", User.class).list();
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("findAll");
+        try (SessionScope scope = openSession("findAll")) {
+            List<User> users = scope.read("findAll", s -> s.createQuery("FROM User", User.class).list());
             logger.info("Retrieved {} users", users.size());
+            event.succeeded(null, users.size());
             return users;
         } catch (Exception e) {
+            event.failed(null, SqlStateTranslator.findSqlState(e));
             logger.error("Error fetching all users", e);
-            throw new RuntimeException("Failed to fetch users", e);
+            throw SqlStateTranslator.translate("Failed to fetch users", e);
         }
     }
 
+    @Override
+    public List<User> findByAgeBetween(int minAge, int maxAge) {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("findByAgeBetween");
+        try (SessionScope scope = openSession("findByAgeBetween")) {
+            List<User> users = scope.read("findByAgeBetween", s -> s.createQuery(
+                            "FROM User WHERE age BETWEEN :minAge AND :maxAge ORDER BY age, id", User.class)
+                    .setParameter("minAge", minAge)
+                    .setParameter("maxAge", maxAge)
+                    .list());
+            logger.info("Retrieved {} users aged {}-{}", users.size(), minAge, maxAge);
+            event.succeeded(null, users.size());
+            return users;
+        } catch (Exception e) {
+            event.failed(null, SqlStateTranslator.findSqlState(e));
+            logger.error("Error fetching users by age range {}-{}", minAge, maxAge, e);
+            throw SqlStateTranslator.translate("Failed to fetch users by age", e);
+        }
+    }
+
+    @Override
+    public List<User> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to) {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("findByCreatedAtBetween");
+        try (SessionScope scope = openSession("findByCreatedAtBetween")) {
+            List<User> users = scope.read("findByCreatedAtBetween", s -> s.createQuery(
+                            "FROM User WHERE createdAt >= :from AND createdAt < :to ORDER BY createdAt, id", User.class)
+                    .setParameter("from", from)
+                    .setParameter("to", to)
+                    .list());
+            logger.info("Retrieved {} users created between {} and {}", users.size(), from, to);
+            event.succeeded(null, users.size());
+            return users;
+        } catch (Exception e) {
+            event.failed(null, SqlStateTranslator.findSqlState(e));
+            logger.error("Error fetching users created between {} and {}", from, to, e);
+            throw SqlStateTranslator.translate("Failed to fetch users by creation date", e);
+        }
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("findPage");
+        try (SessionScope scope = openSession("findPage")) {
+            List<User> users = scope.read("findPage", s -> s.createQuery(
+                            "FROM User WHERE id > :afterId ORDER BY id", User.class)
+                    .setParameter("afterId", afterId != null ? afterId : Long.MIN_VALUE)
+                    .setMaxResults(limit)
+                    .list());
+            logger.info("Retrieved page of {} users after ID {}", users.size(), afterId);
+            event.succeeded(null, users.size());
+            return users;
+        } catch (Exception e) {
+            event.failed(null, SqlStateTranslator.findSqlState(e));
+            logger.error("Error fetching page of users after ID {}", afterId, e);
+            throw SqlStateTranslator.translate("Failed to fetch page of users", e);
+        }
+    }
+
+    @Override
+    public long count(CountMode mode, UserFilter filter) {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("count");
+        try (SessionScope scope = openSession("count")) {
+            // plain SQL sees rows flushed by a joined unit of work as well
+            long count = scope.read("count", s -> s.doReturningWork(new UserCountWork(mode, filter)));
+            logger.info("Counted {} users ({}, {})", count, mode, filter);
+            event.succeeded(null, 0);
+            return count;
+        } catch (Exception e) {
+            event.failed(null, SqlStateTranslator.findSqlState(e));
+            logger.error("Error counting users", e);
+            throw SqlStateTranslator.translate("Failed to count users", e);
+        }
+    }
+
+    @Override
     public void update(User user) {
-        Transaction transaction = null;
-        try (Session session = openSession()) {
-            transaction = session.beginTransaction();
-            session.merge(user);
-            transaction.commit();
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("update");
+        try (SessionScope scope = openSession("update")) {
+            scope.write("update", session -> {
+                User merged = session.merge(user);
+                if (user.getId() != null) {
+                    invalidationPublisher.publish(session, List.of(user.getId()));
+                }
+                // merging an unsaved user inserts it
+                recordChange(session, user.getId() == null ? UserChangeEvent.Type.CREATED : UserChangeEvent.Type.UPDATED,
+                        merged);
+                return merged;
+            });
             logger.info("User updated: {}", user);
+            event.succeeded(user.getId(), 1);
         } catch (Exception e) {
-            if (transaction != null) {
-                transaction.rollback();
-            }
+            event.failed(user != null ? user.getId() : null, SqlStateTranslator.findSqlState(e));
             logger.error("Error updating user", e);
-            throw new RuntimeException("Failed to update user", e);
+            throw SqlStateTranslator.translate("Failed to update user", e);
+        }
+    }
+
+    @Override
+    public Map<Long, User> applyPatches(Map<Long, UserPatch> patches) {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("applyPatches");
+        try (SessionScope scope = openSession("applyPatches")) {
+            if (!scope.isJoined()) {
+                scope.session.setJdbcBatchSize(Math.max(1, patches.size()));
+            }
+            Map<Long, User> updated = scope.write("applyPatches", session -> {
+                Map<Long, User> patched = new LinkedHashMap<>();
+                List<User> loaded = session.byMultipleIds(User.class)
+                        .multiLoad(new ArrayList<>(patches.keySet()));
+                for (User user : loaded) {
+                    if (user != null) {
+                        patches.get(user.getId()).applyTo(user);
+                        patched.put(user.getId(), user);
+                    }
+                }
+                invalidationPublisher.publish(session, patched.keySet());
+                changeLog.record(session, UserChangeEvent.Type.UPDATED, patched.keySet());
+                return patched;
+            });
+            logger.info("Applied {} patches, {} users updated", patches.size(), updated.size());
+            event.succeeded(null, updated.size());
+            return updated;
+        } catch (Exception e) {
+            event.failed(null, SqlStateTranslator.findSqlState(e));
+            logger.error("Error applying user patches", e);
+            throw SqlStateTranslator.translate("Failed to apply user patches", e);
         }
     }
 
+    @Override
     public void deleteById(Long id) {
-        Transaction transaction = null;
-        try (Session session = openSession()) {
-            transaction = session.beginTransaction();
-            User user = session.get(User.class, id);
-            if (user != null) {
-                session.remove(user);
-                logger.info("User deleted: {}", user);
-            } else {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("deleteById");
+        try (SessionScope scope = openSession("deleteById")) {
+            boolean deleted = scope.write("deleteById", session -> {
+                User user = session.get(User.class, id);
+                if (user != null) {
+                    session.remove(user);
+                    invalidationPublisher.publish(session, List.of(id));
+                    changeLog.record(session, UserChangeEvent.Type.DELETED, List.of(id));
+                    logger.info("User deleted: {}", user);
+                    return true;
+                }
                 logger.warn("Attempt to delete non-existent user with ID: {}", id);
-            }
-            transaction.commit();
+                return false;
+            });
+            event.succeeded(id, deleted ? 1 : 0);
+        } catch (Exception e) {
+            event.failed(id, SqlStateTranslator.findSqlState(e));
+            logger.error("Error deleting user with ID: {}", id, e);
+            throw SqlStateTranslator.translate("Failed to delete user", e);
+        }
+    }
+
+    @Override
+    public void purgeCreatedBefore(YearMonth cutoff) {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("purgeCreatedBefore");
+        try (SessionScope scope = openSession("purgeCreatedBefore")) {
+            int dropped = scope.write("purgeCreatedBefore", session -> {
+                // the persistence context cannot know which loaded users the SQL removes
+                session.flush();
+                session.clear();
+                // retention is not a change to mirror downstream, and listing every purged id
+                // would cost what dropping partitions saves, so no events are recorded
+                int partitions = session.doReturningWork(new UserRetentionWork(cutoff));
+                invalidationPublisher.publishAll(session);
+                return partitions;
+            });
+            logger.info("Purged users created before {} ({} partitions dropped)", cutoff, dropped);
+            event.succeeded(null, dropped);
+        } catch (Exception e) {
+            event.failed(null, SqlStateTranslator.findSqlState(e));
+            logger.error("Error purging users created before {}", cutoff, e);
+            throw SqlStateTranslator.translate("Failed to purge users", e);
+        }
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("findIdempotencyRecord");
+        try (SessionScope scope = openSession("findIdempotencyRecord")) {
+            Optional<IdempotencyRecord> record = scope.read("findIdempotencyRecord",
+                    s -> s.doReturningWork(connection -> IdempotencyKeys.find(connection, key)));
+            logger.info("Idempotency key {} {}", key, record.isPresent() ? "found" : "not found");
+            event.succeeded(record.map(r -> r.result().getId()).orElse(null), record.isPresent() ? 1 : 0);
+            return record;
         } catch (Exception e) {
-            if (transaction != null) {
-                try {
-                    transaction.rollback();
-                } catch (Exception rollbackEx) {
-                    logger.warn("Failed to rollback transaction", rollbackEx);
+            event.failed(null, SqlStateTranslator.findSqlState(e));
+            logger.error("Error finding idempotency key {}", key, e);
+            throw SqlStateTranslator.translate("Failed to find idempotency key", e);
+        }
+    }
+
+    @Override
+    public void saveIdempotencyRecord(IdempotencyRecord record) {
+        UserDaoOperationEvent event = UserDaoOperationEvent.start("saveIdempotencyRecord");
+        try (SessionScope scope = openSession("saveIdempotencyRecord")) {
+            scope.write("saveIdempotencyRecord", session -> {
+                session.doWork(connection -> IdempotencyKeys.insert(connection, record));
+                return null;
+            });
+            logger.info("Idempotency key {} saved for user {}", record.key(), record.result().getId());
+            event.succeeded(record.result().getId(), 1);
+        } catch (Exception e) {
+            event.failed(record.result().getId(), SqlStateTranslator.findSqlState(e));
+            logger.error("Error saving idempotency key {}", record.key(), e);
+            throw SqlStateTranslator.translate("Failed to save idempotency key", e);
+        }
+    }
+
+    private <T> T unitOfWork(String operation, boolean readOnly, Function<UserRepository, T> work) {
+        UnitOfWork outer = currentUnit.get();
+        if (outer != null) {
+            return joinUnitOfWork(outer, readOnly, work);
+        }
+        Session session = JfrSessionListener.openSession(sessionFactory, operation);
+        try (session) {
+            if (readOnly) {
+                // no snapshots for dirty checking and nothing to flush at commit
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+            }
+            Transaction transaction = beginTransaction(session, operation);
+            currentUnit.set(new UnitOfWork(session, readOnly));
+            T result;
+            try {
+                result = work.apply(this);
+            } catch (RuntimeException e) {
+                rollback(transaction);
+                throw e;
+            } finally {
+                currentUnit.remove();
+            }
+            try {
+                transaction.commit();
+            } catch (RuntimeException e) {
+                rollback(transaction);
+                logger.error("Error committing unit of work", e);
+                throw SqlStateTranslator.translate("Failed to commit unit of work", e);
+            }
+            logger.info("Unit of work committed");
+            return result;
+        }
+    }
+
+    private <T> T joinUnitOfWork(UnitOfWork outer, boolean readOnly, Function<UserRepository, T> work) {
+        if (outer.readOnly && !readOnly) {
+            throw new IllegalStateException("Cannot start a read-write unit of work inside a read-only one");
+        }
+        if (!readOnly || outer.readOnly) {
+            return work.apply(this);
+        }
+        // entities first loaded by the nested read-only work are left out of the outer flush
+        boolean defaultReadOnly = outer.session.isDefaultReadOnly();
+        outer.readOnly = true;
+        outer.session.setDefaultReadOnly(true);
+        try {
+            return work.apply(this);
+        } finally {
+            outer.readOnly = false;
+            outer.session.setDefaultReadOnly(defaultReadOnly);
+        }
+    }
+
+    private void recordChange(Session session, UserChangeEvent.Type type, User user) {
+        if (changeLog != UserChangeLog.NONE) {
+            changeLog.record(session, type, List.of(user.getId()));
+        }
+    }
+
+    private static void refreshLoaded(Session session, Iterable<Long> ids) {
+        for (Long id : ids) {
+            // getReference hands back the managed instance if this session already loaded it
+            User managed = session.getReference(User.class, id);
+            if (Hibernate.isInitialized(managed)) {
+                session.refresh(managed);
+            }
+        }
+    }
+
+    private Transaction beginTransaction(Session session, String operation) {
+        int timeoutSeconds = QueryDeadline.remainingTimeoutSeconds();
+        if (timeoutSeconds > 0) {
+            // Hibernate turns the remaining transaction time into a JDBC query timeout per statement
+            session.getTransaction().setTimeout(timeoutSeconds);
+        }
+        Transaction transaction = session.beginTransaction();
+        JfrSessionListener.track(transaction, operation);
+        return transaction;
+    }
+
+    private void rollback(Transaction transaction) {
+        try {
+            transaction.rollback();
+        } catch (Exception rollbackEx) {
+            logger.warn("Failed to rollback transaction", rollbackEx);
+        }
+    }
+
+    private static final class UnitOfWork {
+        private final Session session;
+        private boolean readOnly;
+
+        private UnitOfWork(Session session, boolean readOnly) {
+            this.session = session;
+            this.readOnly = readOnly;
+        }
+    }
+
+    // Either owns a short-lived session and transaction, or joins the unit of work bound to this thread
+    private final class SessionScope implements AutoCloseable {
+        private final Session session;
+        private final UnitOfWork unit;
+
+        private SessionScope(Session session, UnitOfWork unit) {
+            this.session = session;
+            this.unit = unit;
+        }
+
+        boolean isJoined() {
+            return unit != null;
+        }
+
+        <T> T read(String operation, Function<Session, T> query) {
+            if (isJoined() || !QueryDeadline.isActive()) {
+                return query.apply(session);
+            }
+            Transaction transaction = beginTransaction(session, operation);
+            try {
+                T result = query.apply(session);
+                transaction.commit();
+                return result;
+            } catch (RuntimeException e) {
+                rollback(transaction);
+                throw e;
+            }
+        }
+
+        <T> T write(String operation, Function<Session, T> work) {
+            if (isJoined()) {
+                if (unit.readOnly) {
+                    throw new IllegalStateException("Cannot " + operation + " inside a read-only unit of work");
                 }
+                return work.apply(session);
+            }
+            Transaction transaction = beginTransaction(session, operation);
+            try {
+                T result = work.apply(session);
+                transaction.commit();
+                return result;
+            } catch (RuntimeException e) {
+                rollback(transaction);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!isJoined()) {
+                session.close();
             }
-            logger.error("Error deleting user with ID: {}", id, e);
-            throw new RuntimeException("Failed to delete user", e);
         }
     }
 }
@@ -0,0 +1,30 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+
+import java.time.LocalDateTime;
+
+// Conditions for counting users; a null bound is open. Creation dates are half-open like
+// findByCreatedAtBetween.
+public record UserFilter(Integer minAge, Integer maxAge, LocalDateTime createdFrom, LocalDateTime createdTo) {
+    public static final UserFilter NONE = new UserFilter(null, null, null, null);
+
+    public static UserFilter ageBetween(int minAge, int maxAge) {
+        return new UserFilter(minAge, maxAge, null, null);
+    }
+
+    public static UserFilter createdBetween(LocalDateTime from, LocalDateTime to) {
+        return new UserFilter(null, null, from, to);
+    }
+
+    public boolean isEmpty() {
+        return minAge == null && maxAge == null && createdFrom == null && createdTo == null;
+    }
+
+    boolean matches(User user) {
+        return (minAge == null || user.getAge() >= minAge)
+                && (maxAge == null || user.getAge() <= maxAge)
+                && (createdFrom == null || !user.getCreatedAt().isBefore(createdFrom))
+                && (createdTo == null || user.getCreatedAt().isBefore(createdTo));
+    }
+}
@@ -0,0 +1,53 @@
+package com.user.service.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+
+// Records changes as rows of user_outbox for UserOutboxRelay to deliver. PostgreSQL only.
+public class UserOutbox implements UserChangeLog {
+    private static final Logger logger = LogManager.getLogger(UserOutbox.class);
+
+    static final SqlMigration CREATE_OUTBOX = new SqlMigration("V2__user_outbox");
+
+    // the row as this transaction sees it, which is what commits with the event
+    private static final String RECORD_CURRENT_SQL = """
+            INSERT INTO user_outbox (user_id, event_type, name, email, age, user_created_at)
+            SELECT id, ?, name, email, age, created_at FROM users WHERE id = ANY(?) ORDER BY id""";
+    private static final String RECORD_DELETED_SQL = """
+            INSERT INTO user_outbox (user_id, event_type)
+            SELECT id, ? FROM unnest(?::int8[]) AS deleted (id) ORDER BY id""";
+
+    public static void migrate(SessionFactory sessionFactory) {
+        try {
+            if (sessionFactory.fromTransaction(session -> session.doReturningWork(CREATE_OUTBOX::apply))) {
+                logger.info("Created user outbox");
+            }
+        } catch (Exception e) {
+            logger.error("Error creating user outbox", e);
+            throw SqlStateTranslator.translate("Failed to create user outbox", e);
+        }
+    }
+
+    @Override
+    public void record(Session session, UserChangeEvent.Type type, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        // The change has to reach the table first: the row lock it takes is what keeps a concurrent
+        // writer of the same user from recording its event before this one commits
+        session.flush();
+        session.doWork(connection -> {
+            String sql = type == UserChangeEvent.Type.DELETED ? RECORD_DELETED_SQL : RECORD_CURRENT_SQL;
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, type.name());
+                statement.setArray(2, connection.createArrayOf("int8", userIds.toArray()));
+                statement.executeUpdate();
+            }
+        });
+    }
+}
@@ -0,0 +1,186 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Moves user_outbox rows to a sink in batches: read in id order, deliver, delete, all in one
+// transaction. A failed delivery or commit leaves the rows for the next round (at-least-once).
+// Relays on several nodes take turns per batch, which keeps the per-user order.
+public class UserOutboxRelay implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UserOutboxRelay.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final String SELECT_SQL = """
+            SELECT id, event_type, user_id, name, email, age, user_created_at, occurred_at
+            FROM user_outbox ORDER BY id LIMIT ?""";
+    private static final String DELETE_SQL = "DELETE FROM user_outbox WHERE id = ANY(?)";
+
+    private final SessionFactory sessionFactory;
+    private final UserChangeSink sink;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile boolean running;
+    private Thread thread;
+
+    public UserOutboxRelay(SessionFactory sessionFactory, UserChangeSink sink, int batchSize, Duration pollInterval) {
+        if (sessionFactory == null || sink == null) {
+            throw new IllegalArgumentException("SessionFactory and sink cannot be null");
+        }
+        if (batchSize <= 0 || pollInterval.isNegative() || pollInterval.isZero()) {
+            throw new IllegalArgumentException("Batch size and poll interval must be positive");
+        }
+        this.sessionFactory = sessionFactory;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "user-outbox-relay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // 0 when the outbox is empty or another relay holds the turn
+    public int relayBatch() {
+        try {
+            int count = sessionFactory.fromTransaction(session -> session.doReturningWork(this::relayBatch));
+            delivered.add(count);
+            return count;
+        } catch (Exception e) {
+            failures.increment();
+            logger.error("Error relaying user change events", e);
+            throw SqlStateTranslator.translate("Failed to relay user change events", e);
+        }
+    }
+
+    public long backlog() {
+        try {
+            return sessionFactory.fromSession(session -> session.createNativeQuery(
+                    "SELECT count(*) FROM user_outbox", Long.class).getSingleResult());
+        } catch (Exception e) {
+            logger.error("Error counting user change events", e);
+            throw SqlStateTranslator.translate("Failed to count user change events", e);
+        }
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            current = thread;
+            thread = null;
+        }
+        if (current == null) {
+            return;
+        }
+        running = false;
+        current.interrupt();
+        try {
+            current.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Outbox relay stopped after {} events, {} failed batches", getDeliveredCount(), getFailureCount());
+    }
+
+    private void run() {
+        long backoff = 0;
+        while (running) {
+            long wait;
+            try {
+                // a full batch means more are waiting
+                wait = relayBatch() < batchSize ? pollInterval.toNanos() : 0;
+                backoff = 0;
+            } catch (RuntimeException e) {
+                backoff = Math.min(MAX_BACKOFF_NANOS, Math.max(pollInterval.toNanos(), backoff * 2));
+                wait = backoff;
+            }
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+    }
+
+    private int relayBatch(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_try_advisory_xact_lock(hashtext('user_outbox'))")) {
+            rs.next();
+            if (!rs.getBoolean(1)) {
+                return 0;
+            }
+        }
+        List<UserChangeEvent> events = read(connection);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        try {
+            sink.deliver(events);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to deliver " + events.size() + " user change events", e);
+        }
+        // the ids just read rather than a range: a lower id may still be uncommitted
+        try (PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+            statement.setArray(1, connection.createArrayOf("int8",
+                    events.stream().map(UserChangeEvent::sequence).toArray()));
+            statement.executeUpdate();
+        }
+        return events.size();
+    }
+
+    private List<UserChangeEvent> read(Connection connection) throws SQLException {
+        List<UserChangeEvent> events = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_SQL)) {
+            statement.setInt(1, batchSize);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    UserChangeEvent.Type type = UserChangeEvent.Type.valueOf(rs.getString(2));
+                    long userId = rs.getLong(3);
+                    User user = null;
+                    if (type != UserChangeEvent.Type.DELETED) {
+                        user = new User();
+                        user.setId(userId);
+                        user.setName(rs.getString(4));
+                        user.setEmail(rs.getString(5));
+                        user.setAge(rs.getInt(6));
+                        user.setCreatedAt(rs.getTimestamp(7).toLocalDateTime());
+                    }
+                    Timestamp occurredAt = rs.getTimestamp(8);
+                    events.add(new UserChangeEvent(rs.getLong(1), type, userId, user, occurredAt.toLocalDateTime()));
+                }
+            }
+        }
+        return events;
+    }
+}
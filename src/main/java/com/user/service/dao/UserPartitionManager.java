@@ -0,0 +1,103 @@
+package com.user.service.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Opt-in monthly partitioning of users by created_at: applies the migration once, then keeps
+// monthsAhead empty partitions in front of now so inserts never land in the default partition.
+public class UserPartitionManager implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UserPartitionManager.class);
+
+    static final SqlMigration PARTITION_USERS = new SqlMigration("V1__partition_users_by_created_at");
+    static final SqlMigration INDEX_PARTITIONED_USERS =
+            new SqlMigration("V6__index_partitioned_users_by_age_and_created_at");
+
+    private final SessionFactory sessionFactory;
+    private final int monthsAhead;
+    private ScheduledExecutorService scheduler;
+
+    public UserPartitionManager(SessionFactory sessionFactory, int monthsAhead) {
+        if (sessionFactory == null) {
+            throw new IllegalArgumentException("SessionFactory cannot be null");
+        }
+        if (monthsAhead < 0) {
+            throw new IllegalArgumentException("Months ahead cannot be negative");
+        }
+        this.sessionFactory = sessionFactory;
+        this.monthsAhead = monthsAhead;
+    }
+
+    public boolean migrate() {
+        try {
+            boolean applied = sessionFactory.fromTransaction(session -> session.doReturningWork(connection -> {
+                boolean partitioned = PARTITION_USERS.apply(connection);
+                // also for tables partitioned before the indexes were added
+                INDEX_PARTITIONED_USERS.apply(connection);
+                return partitioned;
+            }));
+            logger.info(applied ? "Partitioned users by created_at month" : "Users already partitioned");
+            return applied;
+        } catch (Exception e) {
+            logger.error("Error partitioning users", e);
+            throw SqlStateTranslator.translate("Failed to partition users", e);
+        }
+    }
+
+    public int ensureFuturePartitions() {
+        try {
+            int created = sessionFactory.fromTransaction(session -> session.doReturningWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT users_ensure_partitions(?, ?)")) {
+                    statement.setObject(1, LocalDate.now());
+                    statement.setInt(2, monthsAhead);
+                    try (ResultSet rs = statement.executeQuery()) {
+                        rs.next();
+                        return rs.getInt(1);
+                    }
+                }
+            }));
+            if (created > 0) {
+                logger.info("Created {} user partitions", created);
+            }
+            return created;
+        } catch (Exception e) {
+            logger.error("Error creating user partitions", e);
+            throw SqlStateTranslator.translate("Failed to create user partitions", e);
+        }
+    }
+
+    public synchronized void startMaintenance(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                ensureFuturePartitions();
+            } catch (DataAccessException e) {
+                // logged above; the next run tries again
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.user.service.dao;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+public interface UserRepository {
+
+    void save(User user);
+
+    User upsertByEmail(User user);
+
+    List<User> upsertAll(List<User> users);
+
+    Optional<User> findById(Long id);
+
+    Optional<User> findByEmail(String email);
+
+    List<User> findAll();
+
+    List<User> findByAgeBetween(int minAge, int maxAge);
+
+    List<User> findByCreatedAtBetween(LocalDateTime from, LocalDateTime to);
+
+    // up to limit users with an id above afterId (null for the first page), ordered by id
+    List<User> findPage(Long afterId, int limit);
+
+    long count(CountMode mode, UserFilter filter);
+
+    void update(User user);
+
+    Map<Long, User> applyPatches(Map<Long, UserPatch> patches);
+
+    void deleteById(Long id);
+
+    // Removes every user created before the first day of cutoff
+    void purgeCreatedBefore(YearMonth cutoff);
+
+    Optional<IdempotencyRecord> findIdempotencyRecord(String key);
+
+    // Fails if the key is already stored; inside a unit of work it commits or rolls back with it
+    void saveIdempotencyRecord(IdempotencyRecord record);
+
+    // Runs work against one session and transaction; calls made on the passed repository join it,
+    // and entities it returns stay managed until the work finishes. Implementations without
+    // transactions just run the work against themselves.
+    default <T> T inTransaction(Function<UserRepository, T> work) {
+        return work.apply(this);
+    }
+
+    default <T> T inReadOnlyTransaction(Function<UserRepository, T> work) {
+        return work.apply(this);
+    }
+}
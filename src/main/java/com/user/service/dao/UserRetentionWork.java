@@ -0,0 +1,74 @@
+package com.user.service.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.jdbc.ReturningWork;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+// Removes users created before the cutoff month. On a partitioned table whole monthly partitions are
+// detached and dropped, which costs the same whatever their size and leaves no dead tuples behind;
+// only their user_emails entries and the default partition are deleted row by row. A plain table
+// falls back to a DELETE. Returns the number of partitions dropped.
+class UserRetentionWork implements ReturningWork<Integer> {
+    private static final Logger logger = LogManager.getLogger(UserRetentionWork.class);
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'users'::regclass AND c.relname ~ '^users_p[0-9]{6}$'
+            ORDER BY c.relname""";
+
+    private final YearMonth cutoff;
+
+    UserRetentionWork(YearMonth cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    @Override
+    public Integer execute(Connection connection) throws SQLException {
+        Timestamp cutoffStart = Timestamp.valueOf(cutoff.atDay(1).atStartOfDay());
+        if (!UserUpsertWork.isPartitioned(connection)) {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM users WHERE created_at < ?")) {
+                statement.setTimestamp(1, cutoffStart);
+                logger.warn("users is not partitioned: deleted {} rows one by one", statement.executeUpdate());
+            }
+            return 0;
+        }
+
+        List<String> expired = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(PARTITIONS_SQL)) {
+            while (rs.next()) {
+                String partition = rs.getString(1);
+                if (YearMonth.parse(partition.substring("users_p".length()), PARTITION_MONTH).isBefore(cutoff)) {
+                    expired.add(partition);
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String partition : expired) {
+                // DROP fires no row triggers, so release the emails first
+                statement.executeUpdate("DELETE FROM user_emails e USING " + partition + " p"
+                        + " WHERE e.email = p.email AND e.user_id = p.id");
+                statement.execute("ALTER TABLE users DETACH PARTITION " + partition);
+                statement.execute("DROP TABLE " + partition);
+            }
+        }
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM users_default WHERE created_at < ?")) {
+            statement.setTimestamp(1, cutoffStart);
+            statement.executeUpdate();
+        }
+        return expired.size();
+    }
+}
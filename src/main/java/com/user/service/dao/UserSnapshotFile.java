@@ -0,0 +1,177 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Memory-mapped snapshot of cached users. Layout:
+//   header  magic, format version, row count, 4 bytes padding
+//   index   row count x (long id, long record offset), sorted by id for binary search
+//   records long xmin, int age, long createdAt epoch second, int createdAt nano,
+//           int name length, int email length, UTF-8 name and email
+public final class UserSnapshotFile {
+    private static final int MAGIC = 0x5553_4E50;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int RECORD_FIXED_SIZE = 32;
+
+    private final ByteBuffer buffer;
+    private final int size;
+
+    private UserSnapshotFile(ByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    // xmin is the PostgreSQL transaction id that wrote the row version the user was read from
+    public record Row(User user, long xmin) {
+    }
+
+    public static void write(Path path, List<Row> rows) throws IOException {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(row -> row.user().getId()));
+        List<byte[]> names = new ArrayList<>(sorted.size());
+        List<byte[]> emails = new ArrayList<>(sorted.size());
+        long fileSize = HEADER_SIZE + (long) INDEX_ENTRY_SIZE * sorted.size();
+        for (Row row : sorted) {
+            byte[] name = row.user().getName().getBytes(StandardCharsets.UTF_8);
+            byte[] email = row.user().getEmail().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            emails.add(email);
+            fileSize += RECORD_FIXED_SIZE + name.length + email.length;
+        }
+
+        // written next to the target and moved over it, so readers never map a half-written file
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+                out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(sorted.size()).putInt(0);
+                long recordOffset = HEADER_SIZE + (long) INDEX_ENTRY_SIZE * sorted.size();
+                for (int i = 0; i < sorted.size(); i++) {
+                    out.putLong(sorted.get(i).user().getId()).putLong(recordOffset);
+                    recordOffset += RECORD_FIXED_SIZE + names.get(i).length + emails.get(i).length;
+                }
+                for (int i = 0; i < sorted.size(); i++) {
+                    User user = sorted.get(i).user();
+                    LocalDateTime createdAt = user.getCreatedAt();
+                    out.putLong(sorted.get(i).xmin())
+                            .putInt(user.getAge())
+                            .putLong(createdAt.toEpochSecond(ZoneOffset.UTC))
+                            .putInt(createdAt.getNano())
+                            .putInt(names.get(i).length)
+                            .putInt(emails.get(i).length)
+                            .put(names.get(i))
+                            .put(emails.get(i));
+                }
+                out.force();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public static UserSnapshotFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Snapshot " + path + " is truncated");
+            }
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Snapshot " + path + " has an unknown format");
+            }
+            int size = buffer.getInt(8);
+            if (size < 0 || HEADER_SIZE + (long) INDEX_ENTRY_SIZE * size > fileSize) {
+                throw new IOException("Snapshot " + path + " is truncated");
+            }
+            checkRecords(path, buffer, size, fileSize);
+            return new UserSnapshotFile(buffer, size);
+        }
+    }
+
+    // every record has to lie inside the file, so rowAt never reads past it
+    private static void checkRecords(Path path, ByteBuffer buffer, int size, long fileSize) throws IOException {
+        long recordsStart = HEADER_SIZE + (long) INDEX_ENTRY_SIZE * size;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot " + path + " is too large");
+        }
+        for (int i = 0; i < size; i++) {
+            long offset = buffer.getLong(HEADER_SIZE + INDEX_ENTRY_SIZE * i + 8);
+            if (offset < recordsStart || offset > fileSize - RECORD_FIXED_SIZE) {
+                throw new IOException("Snapshot " + path + " has a damaged record at index " + i);
+            }
+            int nameLength = buffer.getInt((int) offset + 24);
+            int emailLength = buffer.getInt((int) offset + 28);
+            if (nameLength < 0 || emailLength < 0
+                    || offset + RECORD_FIXED_SIZE + nameLength + emailLength > fileSize) {
+                throw new IOException("Snapshot " + path + " has a damaged record at index " + i);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long idAt(int index) {
+        return buffer.getLong(HEADER_SIZE + INDEX_ENTRY_SIZE * index);
+    }
+
+    // position of id in the index, or -1
+    public int indexOf(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = idAt(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public Row rowAt(int index) {
+        int offset = (int) buffer.getLong(HEADER_SIZE + INDEX_ENTRY_SIZE * index + 8);
+        long xmin = buffer.getLong(offset);
+        int age = buffer.getInt(offset + 8);
+        long createdAtSecond = buffer.getLong(offset + 12);
+        int createdAtNano = buffer.getInt(offset + 20);
+        int nameLength = buffer.getInt(offset + 24);
+        int emailLength = buffer.getInt(offset + 28);
+        User user = new User();
+        user.setId(idAt(index));
+        user.setAge(age);
+        user.setCreatedAt(LocalDateTime.ofEpochSecond(createdAtSecond, createdAtNano, ZoneOffset.UTC));
+        user.setName(readString(offset + RECORD_FIXED_SIZE, nameLength));
+        user.setEmail(readString(offset + RECORD_FIXED_SIZE + nameLength, emailLength));
+        return new Row(user, xmin);
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
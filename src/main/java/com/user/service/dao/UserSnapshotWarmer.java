@@ -0,0 +1,125 @@
+package com.user.service.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Serves a snapshot written by the previous run. Nothing is trusted up front: the first miss on an id
+// checks the xmin of its whole index block in one query and moves the rows that are still current
+// into the cache, so warm-up costs one query per block instead of one per user.
+public class UserSnapshotWarmer {
+    private static final Logger logger = LogManager.getLogger(UserSnapshotWarmer.class);
+
+    static final int BLOCK_SIZE = 256;
+
+    private static final int PENDING = 0;
+    private static final int CLAIMED = 1;
+    private static final int DONE = 2;
+
+    private final UserSnapshotFile snapshot;
+    private final SessionFactory sessionFactory;
+    private final AtomicIntegerArray blocks;
+    private final LongAdder validated = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+
+    public UserSnapshotWarmer(UserSnapshotFile snapshot, SessionFactory sessionFactory) {
+        if (snapshot == null || sessionFactory == null) {
+            throw new IllegalArgumentException("Snapshot and SessionFactory cannot be null");
+        }
+        this.snapshot = snapshot;
+        this.sessionFactory = sessionFactory;
+        this.blocks = new AtomicIntegerArray((snapshot.size() + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+
+    // null when there is no usable snapshot; a damaged file only costs the warm start
+    public static UserSnapshotWarmer open(Path path, SessionFactory sessionFactory) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            UserSnapshotFile snapshot = UserSnapshotFile.open(path);
+            logger.info("Mapped user snapshot {} with {} users", path, snapshot.size());
+            return new UserSnapshotWarmer(snapshot, sessionFactory);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable user snapshot {}", path, e);
+            return null;
+        }
+    }
+
+    // true if this call moved the block holding id into the cache
+    public boolean warm(Long id, UserCache cache) {
+        int index = snapshot.indexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        int block = index / BLOCK_SIZE;
+        // concurrent misses in the same block go to the database rather than wait
+        if (!blocks.compareAndSet(block, PENDING, CLAIMED)) {
+            return false;
+        }
+        int from = block * BLOCK_SIZE;
+        int to = Math.min(snapshot.size(), from + BLOCK_SIZE);
+        List<Long> ids = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            ids.add(snapshot.idAt(i));
+        }
+        long readEpoch = cache.currentEpoch();
+        Map<Long, Long> versions;
+        try (Session session = sessionFactory.openSession()) {
+            versions = session.doReturningWork(connection -> UserVersionQueries.versions(connection, ids));
+        } catch (RuntimeException e) {
+            blocks.set(block, PENDING);
+            logger.warn("Failed to revalidate snapshot block {}", block, e);
+            return false;
+        }
+        try {
+            for (int i = from; i < to; i++) {
+                UserSnapshotFile.Row row = snapshot.rowAt(i);
+                Long current = versions.get(row.user().getId());
+                if (current != null && current == row.xmin()) {
+                    cache.put(row.user(), readEpoch);
+                    validated.increment();
+                } else {
+                    stale.increment();
+                }
+            }
+        } catch (RuntimeException e) {
+            // a row that cannot be decoded leaves the rest of the block to the database
+            logger.warn("Skipping damaged snapshot block {}", block, e);
+        }
+        blocks.set(block, DONE);
+        return true;
+    }
+
+    // snapshot ids nobody has asked for yet; carried into the next snapshot so a short run does not lose them
+    public List<Long> pendingIds() {
+        List<Long> ids = new ArrayList<>();
+        for (int block = 0; block < blocks.length(); block++) {
+            if (blocks.get(block) != DONE) {
+                int to = Math.min(snapshot.size(), (block + 1) * BLOCK_SIZE);
+                for (int i = block * BLOCK_SIZE; i < to; i++) {
+                    ids.add(snapshot.idAt(i));
+                }
+            }
+        }
+        return ids;
+    }
+
+    public long getValidatedCount() {
+        return validated.sum();
+    }
+
+    public long getStaleCount() {
+        return stale.sum();
+    }
+}
@@ -0,0 +1,183 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import org.hibernate.jdbc.ReturningWork;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+class UserUpsertWork implements ReturningWork<Map<String, Long>> {
+    static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private static final String ON_CONFLICT_SQL = """
+            INSERT INTO users (name, email, age, created_at)
+            SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::int4[], ?::timestamp[])
+            ON CONFLICT (email) DO UPDATE SET name = EXCLUDED.name, age = EXCLUDED.age
+            RETURNING id, email, xmax = 0, created_at""";
+
+    private static final String MERGE_SQL = """
+            MERGE INTO users u
+            USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS INTEGER), CAST(? AS TIMESTAMP)))
+                AS src (name, email, age, created_at)
+            ON u.email = src.email
+            WHEN MATCHED THEN UPDATE SET name = src.name, age = src.age
+            WHEN NOT MATCHED THEN INSERT (name, email, age, created_at)
+                VALUES (src.name, src.email, src.age, src.created_at)""";
+
+    // a partitioned users table has no unique index on email for ON CONFLICT to use; user_emails
+    // holds the uniqueness instead and routes the update to the existing row
+    private static final String PARTITIONED_SQL = """
+            WITH input (name, email, age, created_at) AS (
+                SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::int4[], ?::timestamp[])
+            ), updated AS (
+                UPDATE users u SET name = i.name, age = i.age
+                FROM input i JOIN user_emails e ON e.email = i.email
+                WHERE u.id = e.user_id
+                RETURNING u.id, u.email, u.created_at
+            ), inserted AS (
+                INSERT INTO users (name, email, age, created_at)
+                SELECT i.name, i.email, i.age, i.created_at FROM input i
+                WHERE NOT EXISTS (SELECT 1 FROM user_emails e WHERE e.email = i.email)
+                RETURNING id, email, created_at
+            )
+            SELECT id, email, false, created_at FROM updated
+            UNION ALL SELECT id, email, true, created_at FROM inserted""";
+
+    private final List<User> users;
+    private final AtomicReference<Boolean> partitioned;
+    private final Set<Long> insertedIds = new HashSet<>();
+    private final Map<String, LocalDateTime> createdAts = new HashMap<>();
+
+    UserUpsertWork(List<User> users) {
+        this(users, new AtomicReference<>());
+    }
+
+    // partitioned caches the table layout across calls; null until first checked
+    UserUpsertWork(List<User> users, AtomicReference<Boolean> partitioned) {
+        this.users = users;
+        this.partitioned = partitioned;
+    }
+
+    // ids of rows the statement inserted rather than updated; only PostgreSQL reports them
+    Set<Long> getInsertedIds() {
+        return insertedIds;
+    }
+
+    // created_at as stored, by email: an update keeps the one the row was inserted with
+    Map<String, LocalDateTime> getCreatedAts() {
+        return createdAts;
+    }
+
+    static boolean isPartitioned(Connection connection) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(null, null, "users", new String[]{"PARTITIONED TABLE"})) {
+            return rs != null && rs.next();
+        }
+    }
+
+    @Override
+    public Map<String, Long> execute(Connection connection) throws SQLException {
+        // one row per email: ON CONFLICT cannot touch the same row twice in a statement
+        Map<String, User> byEmail = new LinkedHashMap<>();
+        users.forEach(user -> byEmail.put(user.getEmail(), user));
+        List<User> distinct = new ArrayList<>(byEmail.values());
+
+        boolean onConflict = "PostgreSQL".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+        Boolean partitionedTable = partitioned.get();
+        if (partitionedTable == null) {
+            partitionedTable = onConflict && isPartitioned(connection);
+            partitioned.set(partitionedTable);
+        }
+        String unnestSql = partitionedTable ? PARTITIONED_SQL : ON_CONFLICT_SQL;
+        Map<String, Long> ids = new HashMap<>();
+        for (int from = 0; from < distinct.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<User> chunk = distinct.subList(from, Math.min(distinct.size(), from + MAX_ROWS_PER_STATEMENT));
+            if (onConflict) {
+                insertUnnest(connection, unnestSql, chunk, ids, insertedIds, createdAts);
+            } else {
+                merge(connection, chunk, ids, createdAts);
+            }
+        }
+        return ids;
+    }
+
+    private static void insertUnnest(Connection connection, String sql, List<User> chunk, Map<String, Long> ids,
+                                     Set<Long> insertedIds, Map<String, LocalDateTime> createdAts)
+            throws SQLException {
+        int size = chunk.size();
+        String[] names = new String[size];
+        String[] emails = new String[size];
+        Integer[] ages = new Integer[size];
+        Timestamp[] createdAtValues = new Timestamp[size];
+        for (int i = 0; i < size; i++) {
+            User user = chunk.get(i);
+            names[i] = user.getName();
+            emails[i] = user.getEmail();
+            ages[i] = user.getAge();
+            createdAtValues[i] = Timestamp.valueOf(user.getCreatedAt());
+        }
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            Array nameArray = connection.createArrayOf("varchar", names);
+            Array emailArray = connection.createArrayOf("varchar", emails);
+            Array ageArray = connection.createArrayOf("int4", ages);
+            Array createdAtArray = connection.createArrayOf("timestamp", createdAtValues);
+            statement.setArray(1, nameArray);
+            statement.setArray(2, emailArray);
+            statement.setArray(3, ageArray);
+            statement.setArray(4, createdAtArray);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(rs.getString(2), rs.getLong(1));
+                    createdAts.put(rs.getString(2), rs.getTimestamp(4).toLocalDateTime());
+                    // an inserted row has no deleting or locking transaction yet
+                    if (rs.getBoolean(3)) {
+                        insertedIds.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void merge(Connection connection, List<User> chunk, Map<String, Long> ids,
+                              Map<String, LocalDateTime> createdAts) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(MERGE_SQL)) {
+            for (User user : chunk) {
+                statement.setString(1, user.getName());
+                statement.setString(2, user.getEmail());
+                statement.setInt(3, user.getAge());
+                statement.setTimestamp(4, Timestamp.valueOf(user.getCreatedAt()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        // MERGE has no portable RETURNING clause, so read the ids back in one query
+        StringBuilder sql = new StringBuilder("SELECT id, email, created_at FROM users WHERE email IN (");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < chunk.size(); i++) {
+                statement.setString(i + 1, chunk.get(i).getEmail());
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(rs.getString(2), rs.getLong(1));
+                    createdAts.put(rs.getString(2), rs.getTimestamp(3).toLocalDateTime());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// xmin changes with every committed UPDATE of a row, so it serves as the row version the users
+// table does not have
+final class UserVersionQueries {
+    static final int MAX_IDS_PER_STATEMENT = 1000;
+
+    private static final String VERSIONS_SQL = "SELECT id, xmin::text::bigint FROM users WHERE id = ANY(?)";
+    private static final String ROWS_SQL =
+            "SELECT id, name, email, age, created_at, xmin::text::bigint FROM users WHERE id = ANY(?)";
+
+    private UserVersionQueries() {
+    }
+
+    static Map<Long, Long> versions(Connection connection, Collection<Long> ids) throws SQLException {
+        Map<Long, Long> versions = new HashMap<>();
+        for (List<Long> chunk : chunks(ids)) {
+            try (PreparedStatement statement = connection.prepareStatement(VERSIONS_SQL)) {
+                statement.setArray(1, idArray(connection, chunk));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        versions.put(rs.getLong(1), rs.getLong(2));
+                    }
+                }
+            }
+        }
+        return versions;
+    }
+
+    static List<UserSnapshotFile.Row> rows(Connection connection, Collection<Long> ids) throws SQLException {
+        List<UserSnapshotFile.Row> rows = new ArrayList<>(ids.size());
+        for (List<Long> chunk : chunks(ids)) {
+            try (PreparedStatement statement = connection.prepareStatement(ROWS_SQL)) {
+                statement.setArray(1, idArray(connection, chunk));
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        User user = new User();
+                        user.setId(rs.getLong(1));
+                        user.setName(rs.getString(2));
+                        user.setEmail(rs.getString(3));
+                        user.setAge(rs.getInt(4));
+                        user.setCreatedAt(rs.getTimestamp(5).toLocalDateTime());
+                        rows.add(new UserSnapshotFile.Row(user, rs.getLong(6)));
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static Array idArray(Connection connection, List<Long> ids) throws SQLException {
+        return connection.createArrayOf("int8", ids.toArray());
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += MAX_IDS_PER_STATEMENT) {
+            chunks.add(all.subList(from, Math.min(all.size(), from + MAX_IDS_PER_STATEMENT)));
+        }
+        return chunks;
+    }
+}
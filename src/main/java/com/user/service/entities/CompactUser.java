@@ -0,0 +1,102 @@
+package com.user.service.entities;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Read-only row for caches and bulk paths: primitives instead of boxes, createdAt as epoch seconds
+// plus nanos instead of LocalDateTime/LocalDate/LocalTime, and name and email sharing one byte array,
+// Latin-1 when every character fits and UTF-8 otherwise.
+public final class CompactUser {
+    private static final byte LATIN1 = 0;
+    private static final byte UTF8 = 1;
+
+    private final long id;
+    private final int age;
+    private final long createdAtSecond;
+    private final int createdAtNano;
+    private final int nameLength;
+    private final byte coder;
+    private final byte[] text;
+
+    private CompactUser(long id, int age, long createdAtSecond, int createdAtNano,
+                        int nameLength, byte coder, byte[] text) {
+        this.id = id;
+        this.age = age;
+        this.createdAtSecond = createdAtSecond;
+        this.createdAtNano = createdAtNano;
+        this.nameLength = nameLength;
+        this.coder = coder;
+        this.text = text;
+    }
+
+    public static CompactUser from(User user) {
+        if (user.getId() == null || user.getAge() == null || user.getCreatedAt() == null
+                || user.getName() == null || user.getEmail() == null) {
+            throw new IllegalArgumentException("Only persisted users can be compacted: " + user);
+        }
+        String name = user.getName();
+        String email = user.getEmail();
+        byte coder = isLatin1(name) && isLatin1(email) ? LATIN1 : UTF8;
+        Charset charset = charset(coder);
+        byte[] nameBytes = name.getBytes(charset);
+        byte[] emailBytes = email.getBytes(charset);
+        byte[] text = Arrays.copyOf(nameBytes, nameBytes.length + emailBytes.length);
+        System.arraycopy(emailBytes, 0, text, nameBytes.length, emailBytes.length);
+        LocalDateTime createdAt = user.getCreatedAt();
+        return new CompactUser(user.getId(), user.getAge(), createdAt.toEpochSecond(ZoneOffset.UTC),
+                createdAt.getNano(), nameBytes.length, coder, text);
+    }
+
+    public User toUser() {
+        // the no-arg constructor skips the LocalDateTime.now() the public one would throw away
+        User user = new User();
+        user.setId(id);
+        user.setName(getName());
+        user.setEmail(getEmail());
+        user.setAge(age);
+        user.setCreatedAt(getCreatedAt());
+        return user;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return LocalDateTime.ofEpochSecond(createdAtSecond, createdAtNano, ZoneOffset.UTC);
+    }
+
+    public String getName() {
+        return new String(text, 0, nameLength, charset(coder));
+    }
+
+    public String getEmail() {
+        return new String(text, nameLength, text.length - nameLength, charset(coder));
+    }
+
+    private static Charset charset(byte coder) {
+        return coder == LATIN1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactUser{" + "id=" + id + ", name='" + getName() + '\'' + ", email='" + getEmail() + '\''
+                + ", age=" + age + ", createdAt=" + getCreatedAt() + '}';
+    }
+}
@@ -0,0 +1,6 @@
+package com.user.service.entities;
+
+// What a request carrying an idempotency key produced. The fingerprint identifies the request, so
+// that a key reused for a different request can be told apart from a retry.
+public record IdempotencyRecord(String key, String fingerprint, User result) {
+}
@@ -1,11 +1,17 @@
 package com.user.service.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+// the range queries of UserDAO; UserDAOQueryPlanTest fails when one of them stops using its index
+@Table(name = "users", indexes = {
+        @Index(name = "users_age_idx", columnList = "age"),
+        @Index(name = "users_created_at_idx", columnList = "created_at")
+})
+@DynamicUpdate
 public class User {
 
     @Id
@@ -0,0 +1,45 @@
+package com.user.service.entities;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// One audited change of one user: the fields that differ, with their values before and after as
+// text. occurredAt is when the change was made, not when the entry reached the database.
+public record UserAuditEntry(long userId, Action action, List<FieldChange> changes, LocalDateTime occurredAt) {
+
+    public enum Action {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    public record FieldChange(String field, String before, String after) {
+    }
+
+    public UserAuditEntry {
+        changes = List.copyOf(changes);
+    }
+
+    // before is null for CREATE and after is null for DELETE
+    public static UserAuditEntry of(Action action, User before, User after, LocalDateTime occurredAt) {
+        User subject = after != null ? after : before;
+        List<FieldChange> changes = new ArrayList<>(3);
+        addChange(changes, "name", before != null ? before.getName() : null, after != null ? after.getName() : null);
+        addChange(changes, "email", before != null ? before.getEmail() : null, after != null ? after.getEmail() : null);
+        addChange(changes, "age", before != null ? before.getAge() : null, after != null ? after.getAge() : null);
+        return new UserAuditEntry(subject.getId(), action, changes, occurredAt);
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    private static void addChange(List<FieldChange> changes, String field, Object before, Object after) {
+        if (!Objects.equals(before, after)) {
+            changes.add(new FieldChange(field, before != null ? before.toString() : null,
+                    after != null ? after.toString() : null));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.user.service.entities;
+
+public record UserPatch(String name, String email, Integer age) {
+
+    public UserPatch mergeWith(UserPatch newer) {
+        return new UserPatch(
+                newer.name != null ? newer.name : name,
+                newer.email != null ? newer.email : email,
+                newer.age != null ? newer.age : age
+        );
+    }
+
+    public void applyTo(User user) {
+        if (name != null) {
+            user.setName(name);
+        }
+        if (email != null) {
+            user.setEmail(email);
+        }
+        if (age != null) {
+            user.setAge(age);
+        }
+    }
+}
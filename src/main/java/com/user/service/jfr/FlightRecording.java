@@ -0,0 +1,76 @@
+package com.user.service.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+public class FlightRecording implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(FlightRecording.class);
+    static final String PROFILE = "/user-service.jfc";
+
+    private final Recording recording;
+    private final Path destination;
+
+    private FlightRecording(Recording recording, Path destination) {
+        this.recording = recording;
+        this.destination = destination;
+    }
+
+    public static FlightRecording start(Path destination) {
+        try (InputStream in = FlightRecording.class.getResourceAsStream(PROFILE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing JFR profile " + PROFILE);
+            }
+            Configuration configuration = Configuration.create(new InputStreamReader(in, StandardCharsets.UTF_8));
+            Recording recording = new Recording(configuration);
+            recording.setName("user-service");
+            recording.setToDisk(true);
+            recording.start();
+            logger.info("Flight recording started, will be written to {}", destination);
+            return new FlightRecording(recording, destination);
+        } catch (Exception e) {
+            logger.error("Error starting flight recording", e);
+            throw new RuntimeException("Failed to start flight recording", e);
+        }
+    }
+
+    // e.g. `java ... Main --jfr=user-service.jfr`; the file is written when the recording is closed,
+    // and from the menu on demand
+    public static FlightRecording fromArgs(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--jfr=")) {
+                return start(Path.of(arg.substring("--jfr=".length())));
+            }
+        }
+        return null;
+    }
+
+    public void dump(Path path) {
+        try {
+            recording.dump(path);
+            logger.info("Flight recording dumped to {}", path);
+        } catch (Exception e) {
+            logger.error("Error dumping flight recording to {}", path, e);
+            throw new RuntimeException("Failed to dump flight recording", e);
+        }
+    }
+
+    public Path getDestination() {
+        return destination;
+    }
+
+    @Override
+    public void close() {
+        try {
+            dump(destination);
+        } finally {
+            recording.close();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.user.service.jfr;
+
+final class Outcome {
+    static final String SUCCESS = "success";
+    static final String FAILURE = "failure";
+    static final String COMMITTED = "committed";
+    static final String ROLLED_BACK = "rolled back";
+
+    private Outcome() {
+    }
+}
@@ -0,0 +1,46 @@
+package com.user.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.user.service.SessionOpen")
+@Label("Hibernate Session Open")
+@Category({"User Service", "Database"})
+@Description("Lifetime of a Hibernate session, with time spent waiting for a JDBC connection")
+@StackTrace(false)
+public class SessionOpenEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Connection Acquisition")
+    @Timespan(Timespan.NANOSECONDS)
+    private long connectionAcquisition;
+
+    @Label("Statements")
+    private int statements;
+
+    @Label("Batches")
+    private int batches;
+
+    public static SessionOpenEvent start(String operation) {
+        SessionOpenEvent event = new SessionOpenEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    public void closed(long connectionAcquisitionNanos, int statements, int batches) {
+        end();
+        if (shouldCommit()) {
+            this.connectionAcquisition = connectionAcquisitionNanos;
+            this.statements = statements;
+            this.batches = batches;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.user.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.user.service.UserDaoOperation")
+@Label("User DAO Operation")
+@Category({"User Service", "Database"})
+@Description("One UserDAO call against the database")
+@StackTrace(false)
+public class UserDaoOperationEvent extends jdk.jfr.Event {
+    public static final long NO_ENTITY = -1;
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Entity Id")
+    private long entityId = NO_ENTITY;
+
+    @Label("Row Count")
+    private int rowCount;
+
+    @Label("Outcome")
+    private String outcome;
+
+    @Label("SQL State")
+    private String sqlState;
+
+    public static UserDaoOperationEvent start(String operation) {
+        UserDaoOperationEvent event = new UserDaoOperationEvent();
+        event.operation = operation;
+        event.begin();
+        return event;
+    }
+
+    public void succeeded(Long entityId, int rowCount) {
+        end();
+        if (shouldCommit()) {
+            this.entityId = entityId != null ? entityId : NO_ENTITY;
+            this.rowCount = rowCount;
+            this.outcome = Outcome.SUCCESS;
+            commit();
+        }
+    }
+
+    public void failed(Long entityId, String sqlState) {
+        end();
+        if (shouldCommit()) {
+            this.entityId = entityId != null ? entityId : NO_ENTITY;
+            this.outcome = Outcome.FAILURE;
+            this.sqlState = sqlState;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.user.service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.user.service.UserTransaction")
+@Label("User Transaction")
+@Category({"User Service", "Transactions"})
+@Description("A database transaction opened by UserDAO, or a UserService call spanning repository work")
+@StackTrace(false)
+public class UserTransactionEvent extends jdk.jfr.Event {
+    public static final String LAYER_SERVICE = "service";
+    public static final String LAYER_DATABASE = "database";
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Layer")
+    private String layer;
+
+    @Label("Outcome")
+    private String outcome;
+
+    public static UserTransactionEvent start(String operation, String layer) {
+        UserTransactionEvent event = new UserTransactionEvent();
+        event.operation = operation;
+        event.layer = layer;
+        event.begin();
+        return event;
+    }
+
+    public void completed(boolean committed) {
+        end();
+        if (shouldCommit()) {
+            if (LAYER_DATABASE.equals(layer)) {
+                outcome = committed ? Outcome.COMMITTED : Outcome.ROLLED_BACK;
+            } else {
+                outcome = committed ? Outcome.SUCCESS : Outcome.FAILURE;
+            }
+            commit();
+        }
+    }
+}
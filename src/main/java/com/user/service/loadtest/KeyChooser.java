@@ -0,0 +1,19 @@
+package com.user.service.loadtest;
+
+import java.util.random.RandomGenerator;
+
+public interface KeyChooser {
+
+    int next(RandomGenerator random);
+
+    static KeyChooser uniform(int keyCount) {
+        if (keyCount <= 0) {
+            throw new IllegalArgumentException("Key count must be positive");
+        }
+        return random -> random.nextInt(keyCount);
+    }
+
+    static KeyChooser zipfian(int keyCount, double theta) {
+        return new ZipfianKeyChooser(keyCount, theta);
+    }
+}
@@ -0,0 +1,198 @@
+package com.user.service.loadtest;
+
+import com.user.service.entities.User;
+import com.user.service.service.UserService;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class LoadGenerator {
+    private static final Logger logger = LogManager.getLogger(LoadGenerator.class);
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final long MAX_TRACKED_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final UserService userService;
+    private final LoadGeneratorConfig config;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final ConcurrentLinkedQueue<Long> createdIds = new ConcurrentLinkedQueue<>();
+    private long[] seededIds;
+
+    public LoadGenerator(UserService userService, LoadGeneratorConfig config) {
+        if (userService == null || config == null) {
+            throw new IllegalArgumentException("UserService and config cannot be null");
+        }
+        this.userService = userService;
+        this.config = config;
+    }
+
+    static Histogram newHistogram() {
+        return new Histogram(MAX_TRACKED_LATENCY_NANOS, 3);
+    }
+
+    public void seed() {
+        seededIds = new long[config.seedUsers()];
+        for (int from = 0; from < seededIds.length; from += SEED_BATCH_SIZE) {
+            int to = Math.min(seededIds.length, from + SEED_BATCH_SIZE);
+            List<User> batch = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                batch.add(new User("Load User " + i, seedEmail(i), 18 + i % 60));
+            }
+            // upsert keeps reruns with the same run id idempotent
+            List<User> saved = userService.createOrUpdateUsers(batch);
+            for (int i = from; i < to; i++) {
+                seededIds[i] = saved.get(i - from).getId();
+            }
+        }
+        logger.info("Seeded {} users for load run {}", seededIds.length, runId);
+    }
+
+    public LoadReport run() throws InterruptedException {
+        if (seededIds == null) {
+            seed();
+        }
+        KeyChooser keyChooser = config.keyChooser();
+        long durationNanos = config.duration().toNanos();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) * config.threads() / config.targetRate());
+        CountDownLatch done = new CountDownLatch(config.threads());
+        List<Worker> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < config.threads(); t++) {
+            // stagger open-loop schedules so the threads do not fire in lockstep
+            Worker worker = new Worker(new SplittableRandom(t * 0x9E3779B97F4A7C15L + runId.hashCode()), keyChooser,
+                    start + t * intervalNanos / config.threads(), start + durationNanos, intervalNanos, done);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "load-generator-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        LoadReport report = new LoadReport(Duration.ofNanos(System.nanoTime() - start), config.openLoop());
+        for (Worker worker : workers) {
+            for (OperationType type : OperationType.values()) {
+                report.merge(type, worker.latencies.get(type), worker.completed.get(type)[0],
+                        worker.errors.get(type)[0]);
+            }
+        }
+        return report;
+    }
+
+    private String seedEmail(int index) {
+        return "load-" + runId + "-" + index + "@example.com";
+    }
+
+    private final class Worker implements Runnable {
+        private final Map<OperationType, Histogram> latencies = new EnumMap<>(OperationType.class);
+        private final Map<OperationType, long[]> completed = new EnumMap<>(OperationType.class);
+        private final Map<OperationType, long[]> errors = new EnumMap<>(OperationType.class);
+        private final SplittableRandom random;
+        private final KeyChooser keyChooser;
+        private final long firstStart;
+        private final long end;
+        private final long intervalNanos;
+        private final CountDownLatch done;
+        private int created;
+
+        private Worker(SplittableRandom random, KeyChooser keyChooser, long firstStart, long end,
+                       long intervalNanos, CountDownLatch done) {
+            this.random = random;
+            this.keyChooser = keyChooser;
+            this.firstStart = firstStart;
+            this.end = end;
+            this.intervalNanos = intervalNanos;
+            this.done = done;
+            for (OperationType type : OperationType.values()) {
+                latencies.put(type, newHistogram());
+                completed.put(type, new long[1]);
+                errors.put(type, new long[1]);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                long intendedStart = firstStart;
+                while (true) {
+                    long now = System.nanoTime();
+                    if (config.openLoop()) {
+                        if (intendedStart - end >= 0) {
+                            break;
+                        }
+                        while (intendedStart - now > 0) {
+                            LockSupport.parkNanos(intendedStart - now);
+                            now = System.nanoTime();
+                        }
+                    } else {
+                        if (now - end >= 0) {
+                            break;
+                        }
+                        intendedStart = now;
+                    }
+                    OperationType type = config.mix().next(random);
+                    try {
+                        type = execute(type);
+                        record(type, System.nanoTime() - intendedStart);
+                    } catch (RuntimeException e) {
+                        errors.get(type)[0]++;
+                        logger.debug("Load operation {} failed", type, e);
+                    }
+                    // a late operation does not push the schedule back: the queueing delay it
+                    // causes is charged to the following operations instead of being omitted
+                    intendedStart += intervalNanos;
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private OperationType execute(OperationType type) {
+            switch (type) {
+                case READ -> userService.getUserById(seededId());
+                case UPDATE -> {
+                    int index = keyChooser.next(random);
+                    userService.updateUser(seededIds[index], "Load User " + index + " v" + random.nextInt(1000),
+                            null, 18 + random.nextInt(60));
+                }
+                case DELETE -> {
+                    Long id = createdIds.poll();
+                    if (id == null) {
+                        // nothing of ours left to delete; keep the offered load by creating instead
+                        return execute(OperationType.CREATE);
+                    }
+                    userService.deleteUser(id);
+                }
+                case CREATE -> {
+                    String email = "load-" + runId + "-" + Thread.currentThread().getName() + "-" + created++ + "@example.com";
+                    createdIds.add(userService.createUser("Load Created", email, 18 + random.nextInt(60)).getId());
+                }
+            }
+            return type;
+        }
+
+        private long seededId() {
+            return seededIds[keyChooser.next(random)];
+        }
+
+        private void record(OperationType type, long latencyNanos) {
+            completed.get(type)[0]++;
+            long latency = Math.min(latencyNanos, MAX_TRACKED_LATENCY_NANOS);
+            if (config.openLoop()) {
+                latencies.get(type).recordValue(latency);
+            } else {
+                // a closed loop sends nothing while it waits, so the calls a stall held back are
+                // added as if they had been sent at the interval --rate gives each thread
+                latencies.get(type).recordValueWithExpectedInterval(latency, intervalNanos);
+            }
+        }
+    }
+}
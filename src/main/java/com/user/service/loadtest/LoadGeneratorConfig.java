@@ -0,0 +1,58 @@
+package com.user.service.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+public record LoadGeneratorConfig(
+        int threads,
+        Duration duration,
+        int seedUsers,
+        OperationMix mix,
+        String distribution,
+        double zipfTheta,
+        boolean openLoop,
+        double targetRate,
+        String repository
+) {
+
+    public static LoadGeneratorConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String arrival = options.getOrDefault("arrival", "closed");
+        if (!arrival.equals("closed") && !arrival.equals("open")) {
+            throw new IllegalArgumentException("arrival must be 'closed' or 'open'");
+        }
+        String distribution = options.getOrDefault("distribution", "uniform");
+        if (!distribution.equals("uniform") && !distribution.equals("zipfian")) {
+            throw new IllegalArgumentException("distribution must be 'uniform' or 'zipfian'");
+        }
+        LoadGeneratorConfig config = new LoadGeneratorConfig(
+                Integer.parseInt(options.getOrDefault("threads", "8")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30"))),
+                Integer.parseInt(options.getOrDefault("seed", "10000")),
+                OperationMix.parse(options.getOrDefault("mix", "5:80:10:5")),
+                distribution,
+                Double.parseDouble(options.getOrDefault("theta", "0.99")),
+                arrival.equals("open"),
+                Double.parseDouble(options.getOrDefault("rate", "1000")),
+                options.getOrDefault("repository", "db")
+        );
+        if (config.threads <= 0 || config.seedUsers <= 0 || config.targetRate <= 0) {
+            throw new IllegalArgumentException("threads, seed and rate must be positive");
+        }
+        return config;
+    }
+
+    public KeyChooser keyChooser() {
+        return distribution.equals("zipfian")
+                ? KeyChooser.zipfian(seedUsers, zipfTheta)
+                : KeyChooser.uniform(seedUsers);
+    }
+}
@@ -0,0 +1,79 @@
+package com.user.service.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class LoadReport {
+    private final Map<OperationType, Histogram> latencies = new EnumMap<>(OperationType.class);
+    private final Map<OperationType, Long> completed = new EnumMap<>(OperationType.class);
+    private final Map<OperationType, Long> errors = new EnumMap<>(OperationType.class);
+    private final Duration elapsed;
+    private final boolean openLoop;
+
+    LoadReport(Duration elapsed, boolean openLoop) {
+        this.elapsed = elapsed;
+        this.openLoop = openLoop;
+        for (OperationType type : OperationType.values()) {
+            latencies.put(type, LoadGenerator.newHistogram());
+            completed.put(type, 0L);
+            errors.put(type, 0L);
+        }
+    }
+
+    // a closed-loop histogram also holds the calls its correction added, so completed calls are counted apart
+    void merge(OperationType type, Histogram histogram, long completedCount, long errorCount) {
+        latencies.get(type).add(histogram);
+        completed.merge(type, completedCount, Long::sum);
+        errors.merge(type, errorCount, Long::sum);
+    }
+
+    public Histogram getLatencies(OperationType type) {
+        return latencies.get(type);
+    }
+
+    public long getCompleted(OperationType type) {
+        return completed.get(type);
+    }
+
+    public long getErrors(OperationType type) {
+        return errors.get(type);
+    }
+
+    public long getTotalCount() {
+        return completed.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public double getThroughput() {
+        return getTotalCount() / Math.max(1e-9, elapsed.toNanos() / 1e9);
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Elapsed %.1f s, %d ops, %.1f ops/s, latency %s%n",
+                elapsed.toNanos() / 1e9, getTotalCount(), getThroughput(),
+                openLoop
+                        ? "measured from intended start (coordinated omission corrected)"
+                        : "back-filled at the --rate interval (coordinated omission corrected)");
+        out.printf("%-7s %10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "op", "count", "ops/s", "errors", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (OperationType type : OperationType.values()) {
+            Histogram h = latencies.get(type);
+            long count = completed.get(type);
+            if (count == 0 && errors.get(type) == 0) {
+                continue;
+            }
+            out.printf("%-7s %10d %10.1f %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    type, count, count / (elapsed.toNanos() / 1e9), errors.get(type),
+                    micros(h.getValueAtPercentile(50)), micros(h.getValueAtPercentile(90)),
+                    micros(h.getValueAtPercentile(99)), micros(h.getValueAtPercentile(99.9)),
+                    micros(h.getMaxValue()));
+        }
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
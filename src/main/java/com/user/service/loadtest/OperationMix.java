@@ -0,0 +1,50 @@
+package com.user.service.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+public class OperationMix {
+    private final OperationType[] types = OperationType.values();
+    private final int[] cumulativeWeights = new int[types.length];
+    private final int totalWeight;
+
+    public OperationMix(Map<OperationType, Integer> weights) {
+        int total = 0;
+        for (int i = 0; i < types.length; i++) {
+            int weight = weights.getOrDefault(types[i], 0);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Operation weight cannot be negative: " + types[i]);
+            }
+            total += weight;
+            cumulativeWeights[i] = total;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("At least one operation needs a positive weight");
+        }
+        this.totalWeight = total;
+    }
+
+    // "create:read:update:delete", e.g. "5:80:10:5"
+    public static OperationMix parse(String spec) {
+        String[] parts = spec.split(":");
+        if (parts.length != OperationType.values().length) {
+            throw new IllegalArgumentException("Mix must look like create:read:update:delete, got " + spec);
+        }
+        Map<OperationType, Integer> weights = new EnumMap<>(OperationType.class);
+        for (int i = 0; i < parts.length; i++) {
+            weights.put(OperationType.values()[i], Integer.parseInt(parts[i].trim()));
+        }
+        return new OperationMix(weights);
+    }
+
+    public OperationType next(RandomGenerator random) {
+        int roll = random.nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return types[i];
+            }
+        }
+        return types[types.length - 1];
+    }
+}
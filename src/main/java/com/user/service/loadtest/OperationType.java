@@ -0,0 +1,5 @@
+package com.user.service.loadtest;
+
+public enum OperationType {
+    CREATE, READ, UPDATE, DELETE
+}
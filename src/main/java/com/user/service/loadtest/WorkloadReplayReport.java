@@ -0,0 +1,112 @@
+package com.user.service.loadtest;
+
+import com.user.service.service.WorkloadOperation;
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Replayed latencies next to a reference: the latencies the log recorded, or those of a replay
+// saved from another build, which ran against the same local database and so compares fairly.
+public class WorkloadReplayReport {
+    private final Map<WorkloadOperation, Histogram> replayed = new EnumMap<>(WorkloadOperation.class);
+    private final Map<WorkloadOperation, Long> errors = new EnumMap<>(WorkloadOperation.class);
+    private final Duration elapsed;
+    private final double speed;
+
+    WorkloadReplayReport(Duration elapsed, double speed) {
+        this.elapsed = elapsed;
+        this.speed = speed;
+        for (WorkloadOperation operation : WorkloadOperation.values()) {
+            replayed.put(operation, LoadGenerator.newHistogram());
+            errors.put(operation, 0L);
+        }
+    }
+
+    void merge(WorkloadOperation operation, Histogram histogram, long errorCount) {
+        replayed.get(operation).add(histogram);
+        errors.merge(operation, errorCount, Long::sum);
+    }
+
+    public Histogram getLatencies(WorkloadOperation operation) {
+        return replayed.get(operation);
+    }
+
+    public long getErrors(WorkloadOperation operation) {
+        return errors.get(operation);
+    }
+
+    public long getTotalCount() {
+        return replayed.values().stream().mapToLong(Histogram::getTotalCount).sum();
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    // one tagged histogram per operation in the HdrHistogram log format
+    public void save(Path path) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(path))) {
+            HistogramLogWriter writer = new HistogramLogWriter(out);
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            for (Map.Entry<WorkloadOperation, Histogram> entry : replayed.entrySet()) {
+                Histogram histogram = entry.getValue().copy();
+                histogram.setTag(entry.getKey().name());
+                writer.outputIntervalHistogram(histogram);
+            }
+        }
+    }
+
+    public static Map<WorkloadOperation, Histogram> load(Path path) throws IOException {
+        Map<WorkloadOperation, Histogram> histograms = new EnumMap<>(WorkloadOperation.class);
+        try (HistogramLogReader reader = new HistogramLogReader(path.toFile())) {
+            EncodableHistogram histogram;
+            while ((histogram = reader.nextIntervalHistogram()) != null) {
+                if (histogram instanceof Histogram latencies && histogram.getTag() != null) {
+                    histograms.put(WorkloadOperation.valueOf(histogram.getTag()), latencies);
+                }
+            }
+        }
+        return histograms;
+    }
+
+    public void print(PrintStream out, String referenceName, Map<WorkloadOperation, Histogram> reference) {
+        out.printf("Replayed %d calls at %.1fx in %.1f s; latency from intended start, reference: %s%n",
+                getTotalCount(), speed, elapsed.toNanos() / 1e9, referenceName);
+        out.printf("%-21s %8s %7s %10s %10s %10s %10s %10s %10s %8s%n", "op", "count", "errors",
+                "ref p50", "p50 us", "ref p99", "p99 us", "ref p99.9", "p99.9 us", "p99 diff");
+        for (WorkloadOperation operation : WorkloadOperation.values()) {
+            Histogram h = replayed.get(operation);
+            Histogram r = reference.getOrDefault(operation, LoadGenerator.newHistogram());
+            if (h.getTotalCount() == 0 && errors.get(operation) == 0 && r.getTotalCount() == 0) {
+                continue;
+            }
+            out.printf("%-21s %8d %7d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %7s%n",
+                    operation, h.getTotalCount(), errors.get(operation),
+                    micros(r.getValueAtPercentile(50)), micros(h.getValueAtPercentile(50)),
+                    micros(r.getValueAtPercentile(99)), micros(h.getValueAtPercentile(99)),
+                    micros(r.getValueAtPercentile(99.9)), micros(h.getValueAtPercentile(99.9)),
+                    change(r.getValueAtPercentile(99), h.getValueAtPercentile(99)));
+        }
+    }
+
+    private static String change(long reference, long value) {
+        if (reference == 0) {
+            return "-";
+        }
+        return String.format("%+.0f%%", 100.0 * (value - reference) / reference);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
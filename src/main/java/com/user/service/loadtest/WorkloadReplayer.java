@@ -0,0 +1,214 @@
+package com.user.service.loadtest;
+
+import com.user.service.dao.CountMode;
+import com.user.service.entities.User;
+import com.user.service.service.UserService;
+import com.user.service.service.WorkloadOperation;
+import com.user.service.service.WorkloadRecord;
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Re-executes a recorded workload. Each recorded thread gets a replay thread, and every call is
+// started at its recorded offset divided by speed, so concurrency and inter-arrival times match
+// the original. Latency is measured from that intended start, like an open-loop load run.
+// Recorded ids belong to another database: users the log reads without creating are seeded
+// first, users it creates are mapped to the ids the replay creates, and emails get a run suffix
+// so the same log can be replayed again against the same database.
+public class WorkloadReplayer {
+    private static final Logger logger = LogManager.getLogger(WorkloadReplayer.class);
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final long MAX_TRACKED_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final UserService userService;
+    private final List<WorkloadRecord> records;
+    private final double speed;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Long, Long> localIds = new ConcurrentHashMap<>();
+
+    public WorkloadReplayer(UserService userService, List<WorkloadRecord> records, double speed) {
+        if (userService == null || records == null) {
+            throw new IllegalArgumentException("UserService and records cannot be null");
+        }
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed must be positive");
+        }
+        this.userService = userService;
+        this.records = records;
+        this.speed = speed;
+    }
+
+    // users the log refers to but never creates
+    public int seed() {
+        Set<Long> created = new LinkedHashSet<>();
+        Set<Long> referenced = new LinkedHashSet<>();
+        for (WorkloadRecord record : records) {
+            if (record.id() == null) {
+                continue;
+            }
+            switch (record.operation()) {
+                case CREATE_USER, CREATE_OR_UPDATE_USER -> created.add(record.id());
+                case GET_USER_BY_ID, UPDATE_USER, DELETE_USER -> {
+                    if (!created.contains(record.id())) {
+                        referenced.add(record.id());
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        List<Long> ids = new ArrayList<>(referenced);
+        for (int from = 0; from < ids.size(); from += SEED_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + SEED_BATCH_SIZE));
+            List<User> users = new ArrayList<>(batch.size());
+            for (Long id : batch) {
+                users.add(new User("Replay User " + id, "replay-" + runId + "-" + id + "@example.com", 30));
+            }
+            List<User> saved = userService.createOrUpdateUsers(users);
+            for (int i = 0; i < batch.size(); i++) {
+                localIds.put(batch.get(i), saved.get(i).getId());
+            }
+        }
+        logger.info("Seeded {} users referenced by the workload for replay run {}", ids.size(), runId);
+        return ids.size();
+    }
+
+    public WorkloadReplayReport run() throws InterruptedException {
+        // a thread id is only unique within the run that recorded it
+        Map<Caller, List<WorkloadRecord>> byThread = new LinkedHashMap<>();
+        for (WorkloadRecord record : records) {
+            byThread.computeIfAbsent(new Caller(record.run(), record.threadId()), k -> new ArrayList<>()).add(record);
+        }
+        CountDownLatch done = new CountDownLatch(byThread.size());
+        List<Worker> workers = new ArrayList<>();
+        // offsets count from the first recorded call, not from when recording started
+        long firstOffset = records.isEmpty() ? 0 : records.get(0).startNanos();
+        long start = System.nanoTime();
+        int index = 0;
+        for (List<WorkloadRecord> calls : byThread.values()) {
+            Worker worker = new Worker(calls, start, firstOffset, done);
+            workers.add(worker);
+            Thread thread = new Thread(worker, "workload-replay-" + index++);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        WorkloadReplayReport report = new WorkloadReplayReport(Duration.ofNanos(System.nanoTime() - start), speed);
+        for (Worker worker : workers) {
+            for (WorkloadOperation operation : WorkloadOperation.values()) {
+                report.merge(operation, worker.latencies.get(operation), worker.errors.get(operation)[0]);
+            }
+        }
+        return report;
+    }
+
+    // the latencies the log itself recorded
+    public static Map<WorkloadOperation, Histogram> recordedLatencies(List<WorkloadRecord> records) {
+        Map<WorkloadOperation, Histogram> latencies = new EnumMap<>(WorkloadOperation.class);
+        for (WorkloadRecord record : records) {
+            latencies.computeIfAbsent(record.operation(), k -> LoadGenerator.newHistogram())
+                    .recordValue(Math.min(record.latencyNanos(), MAX_TRACKED_LATENCY_NANOS));
+        }
+        return latencies;
+    }
+
+    private void execute(WorkloadRecord record) {
+        switch (record.operation()) {
+            case CREATE_USER -> mapCreated(record,
+                    userService.createUser(record.name(), rewrite(record.email()), record.age()));
+            case CREATE_OR_UPDATE_USER -> mapCreated(record,
+                    userService.createOrUpdateUser(record.name(), rewrite(record.email()), record.age()));
+            case GET_USER_BY_ID -> userService.getUserById(localId(record.id()));
+            case GET_ALL_USERS -> userService.getAllUsers();
+            case GET_USERS_PAGE -> userService.getUsersPage(
+                    record.id() != null ? localIds.getOrDefault(record.id(), record.id()) : null, record.age());
+            case COUNT_USERS -> userService.countUsers(CountMode.values()[record.age()]);
+            case UPDATE_USER -> userService.updateUser(localId(record.id()), record.name(), rewrite(record.email()),
+                    record.age());
+            case DELETE_USER -> userService.deleteUser(localId(record.id()));
+        }
+    }
+
+    private void mapCreated(WorkloadRecord record, User user) {
+        if (record.id() != null) {
+            localIds.put(record.id(), user.getId());
+        }
+    }
+
+    private Long localId(Long recordedId) {
+        Long id = localIds.get(recordedId);
+        if (id == null) {
+            // at more than 1x a read can overtake the create it depended on
+            throw new IllegalStateException("User " + recordedId + " has not been created by the replay yet");
+        }
+        return id;
+    }
+
+    private String rewrite(String email) {
+        if (email == null) {
+            return null;
+        }
+        int at = email.lastIndexOf('@');
+        return at < 0 ? email : email.substring(0, at) + "+" + runId + email.substring(at);
+    }
+
+    private record Caller(int run, long threadId) {
+    }
+
+    private final class Worker implements Runnable {
+        private final Map<WorkloadOperation, Histogram> latencies = new EnumMap<>(WorkloadOperation.class);
+        private final Map<WorkloadOperation, long[]> errors = new EnumMap<>(WorkloadOperation.class);
+        private final List<WorkloadRecord> calls;
+        private final long start;
+        private final long firstOffset;
+        private final CountDownLatch done;
+
+        private Worker(List<WorkloadRecord> calls, long start, long firstOffset, CountDownLatch done) {
+            this.calls = calls;
+            this.start = start;
+            this.firstOffset = firstOffset;
+            this.done = done;
+            for (WorkloadOperation operation : WorkloadOperation.values()) {
+                latencies.put(operation, LoadGenerator.newHistogram());
+                errors.put(operation, new long[1]);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (WorkloadRecord record : calls) {
+                    long intendedStart = start + (long) ((record.startNanos() - firstOffset) / speed);
+                    long now = System.nanoTime();
+                    while (intendedStart - now > 0) {
+                        LockSupport.parkNanos(intendedStart - now);
+                        now = System.nanoTime();
+                    }
+                    try {
+                        execute(record);
+                        latencies.get(record.operation()).recordValue(
+                                Math.min(System.nanoTime() - intendedStart, MAX_TRACKED_LATENCY_NANOS));
+                    } catch (RuntimeException e) {
+                        errors.get(record.operation())[0]++;
+                        logger.debug("Replayed {} failed", record.operation(), e);
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+}
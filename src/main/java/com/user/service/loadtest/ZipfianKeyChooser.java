@@ -0,0 +1,50 @@
+package com.user.service.loadtest;
+
+import java.util.random.RandomGenerator;
+
+// Gray et al., "Quickly Generating Billion-Record Synthetic Databases" (the YCSB generator):
+// index 0 is the hottest key, and theta close to 1 concentrates traffic on a few keys
+class ZipfianKeyChooser implements KeyChooser {
+    private final int keyCount;
+    private final double theta;
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+
+    ZipfianKeyChooser(int keyCount, double theta) {
+        if (keyCount <= 0) {
+            throw new IllegalArgumentException("Key count must be positive");
+        }
+        if (theta <= 0.0 || theta >= 1.0) {
+            throw new IllegalArgumentException("Zipfian theta must be between 0 and 1");
+        }
+        this.keyCount = keyCount;
+        this.theta = theta;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetaN = zeta(keyCount, theta);
+        double zeta2 = zeta(2, theta);
+        this.eta = (1.0 - Math.pow(2.0 / keyCount, 1.0 - theta)) / (1.0 - zeta2 / zetaN);
+    }
+
+    @Override
+    public int next(RandomGenerator random) {
+        double u = random.nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, keyCount - 1);
+        }
+        long key = (long) (keyCount * Math.pow(eta * u - eta + 1.0, alpha));
+        return (int) Math.min(key, keyCount - 1L);
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0.0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
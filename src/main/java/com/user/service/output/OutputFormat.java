@@ -0,0 +1,21 @@
+package com.user.service.output;
+
+import java.util.Locale;
+
+public enum OutputFormat {
+    // aligned columns for reading on a terminal
+    FIXED,
+    // one row per line, tab separated, with COPY-style backslash escapes
+    TSV,
+    // a single JSON array, one object per line
+    JSON;
+
+    public static OutputFormat fromArgs(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--format=")) {
+                return valueOf(arg.substring("--format=".length()).toUpperCase(Locale.ROOT));
+            }
+        }
+        return FIXED;
+    }
+}
@@ -0,0 +1,402 @@
+package com.user.service.output;
+
+import com.user.service.entities.User;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+
+// Encodes users straight into one reusable buffer and hands it to the channel only when full, so
+// a listing costs a write per buffer instead of a String and a locked, flushed println per row.
+// Not thread-safe.
+public class UserTableWriter implements Flushable {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    static final int ID_WIDTH = 10;
+    static final int NAME_WIDTH = 20;
+    static final int EMAIL_WIDTH = 30;
+    static final int AGE_WIDTH = 4;
+
+    // room for the widest single encoding step: a surrogate pair, or a padded number
+    private static final int MIN_BUFFER_SIZE = 64;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final WritableByteChannel channel;
+    private final OutputFormat format;
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+    private int position;
+    private long rows;
+
+    public UserTableWriter(WritableByteChannel channel, OutputFormat format) {
+        this(channel, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    public UserTableWriter(WritableByteChannel channel, OutputFormat format, int bufferSize) {
+        if (channel == null || format == null) {
+            throw new IllegalArgumentException("Channel and format cannot be null");
+        }
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Buffer size must be at least " + MIN_BUFFER_SIZE);
+        }
+        this.channel = channel;
+        this.format = format;
+        this.bytes = new byte[bufferSize];
+        this.buffer = ByteBuffer.wrap(bytes);
+    }
+
+    public static UserTableWriter to(OutputStream out, OutputFormat format) {
+        return new UserTableWriter(new StreamChannel(out), format);
+    }
+
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    public long getRowCount() {
+        return rows;
+    }
+
+    public void begin() {
+        rows = 0;
+        switch (format) {
+            case FIXED -> {
+                putPadded("ID", ID_WIDTH, true);
+                put(' ');
+                putPadded("NAME", NAME_WIDTH, false);
+                put(' ');
+                putPadded("EMAIL", EMAIL_WIDTH, false);
+                put(' ');
+                putPadded("AGE", AGE_WIDTH, true);
+                putAscii(" CREATED_AT\n");
+            }
+            case TSV -> putAscii("id\tname\temail\tage\tcreated_at\n");
+            case JSON -> put('[');
+        }
+    }
+
+    public void write(User user) {
+        switch (format) {
+            case FIXED -> {
+                putNumber(user.getId(), ID_WIDTH);
+                put(' ');
+                putFixedText(user.getName(), NAME_WIDTH);
+                put(' ');
+                putFixedText(user.getEmail(), EMAIL_WIDTH);
+                put(' ');
+                putNumber(user.getAge(), AGE_WIDTH);
+                put(' ');
+                putDateTime(user.getCreatedAt());
+                put('\n');
+            }
+            case TSV -> {
+                putNumber(user.getId(), 0);
+                put('\t');
+                putTsvText(user.getName());
+                put('\t');
+                putTsvText(user.getEmail());
+                put('\t');
+                putNumber(user.getAge(), 0);
+                put('\t');
+                putDateTime(user.getCreatedAt());
+                put('\n');
+            }
+            case JSON -> {
+                putAscii(rows == 0 ? "\n{\"id\":" : ",\n{\"id\":");
+                putNumber(user.getId(), 0);
+                putAscii(",\"name\":");
+                putJsonText(user.getName());
+                putAscii(",\"email\":");
+                putJsonText(user.getEmail());
+                putAscii(",\"age\":");
+                putNumber(user.getAge(), 0);
+                putAscii(",\"createdAt\":");
+                if (user.getCreatedAt() == null) {
+                    putAscii("null");
+                } else {
+                    put('"');
+                    putDateTime(user.getCreatedAt());
+                    put('"');
+                }
+                put('}');
+            }
+        }
+        rows++;
+    }
+
+    public void end() {
+        if (format == OutputFormat.JSON) {
+            putAscii(rows == 0 ? "]\n" : "\n]\n");
+        }
+        flush();
+    }
+
+    @Override
+    public void flush() {
+        buffer.limit(position).position(0);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write users", e);
+        } finally {
+            buffer.clear();
+            position = 0;
+        }
+    }
+
+    private void ensure(int length) {
+        if (bytes.length - position < length) {
+            flush();
+        }
+    }
+
+    private void put(char ascii) {
+        ensure(1);
+        bytes[position++] = (byte) ascii;
+    }
+
+    private void putAscii(String ascii) {
+        int length = ascii.length();
+        ensure(length);
+        for (int i = 0; i < length; i++) {
+            bytes[position + i] = (byte) ascii.charAt(i);
+        }
+        position += length;
+    }
+
+    // right-aligned to width; a null number is left blank
+    private void putNumber(Number number, int width) {
+        ensure(Math.max(width, digits.length + 1));
+        if (number == null) {
+            pad(width);
+            return;
+        }
+        long value = number.longValue();
+        boolean negative = value < 0;
+        int length = 0;
+        do {
+            // negative remainders keep Long.MIN_VALUE in range
+            digits[length++] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        pad(width - length - (negative ? 1 : 0));
+        if (negative) {
+            bytes[position++] = '-';
+        }
+        while (length > 0) {
+            bytes[position++] = digits[--length];
+        }
+    }
+
+    private void pad(int count) {
+        for (int i = 0; i < count; i++) {
+            bytes[position++] = ' ';
+        }
+    }
+
+    private void putTwoDigits(int value) {
+        bytes[position++] = (byte) ('0' + value / 10);
+        bytes[position++] = (byte) ('0' + value % 10);
+    }
+
+    // ISO-8601 yyyy-MM-ddTHH:mm:ss, always with seconds, plus six fraction digits for the microseconds
+    // the column stores unless they are zero; unlike LocalDateTime.toString, which drops zero seconds
+    // and picks 3, 6 or 9 fraction digits
+    private void putDateTime(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return;
+        }
+        ensure(26);
+        int year = dateTime.getYear();
+        putTwoDigits(year / 100 % 100);
+        putTwoDigits(year % 100);
+        bytes[position++] = '-';
+        putTwoDigits(dateTime.getMonthValue());
+        bytes[position++] = '-';
+        putTwoDigits(dateTime.getDayOfMonth());
+        bytes[position++] = 'T';
+        putTwoDigits(dateTime.getHour());
+        bytes[position++] = ':';
+        putTwoDigits(dateTime.getMinute());
+        bytes[position++] = ':';
+        putTwoDigits(dateTime.getSecond());
+        int micros = dateTime.getNano() / 1000;
+        if (micros != 0) {
+            bytes[position++] = '.';
+            putTwoDigits(micros / 10000);
+            putTwoDigits(micros / 100 % 100);
+            putTwoDigits(micros % 100);
+        }
+    }
+
+    private void putPadded(String text, int width, boolean right) {
+        ensure(Math.max(width, text.length()));
+        if (right) {
+            pad(width - text.length());
+        }
+        putAscii(text);
+        if (!right) {
+            pad(width - text.length());
+        }
+    }
+
+    // cut or padded to width characters; a cut value ends in '~' so it is not mistaken for the whole
+    private void putFixedText(String text, int width) {
+        if (text == null) {
+            ensure(width);
+            pad(width);
+            return;
+        }
+        int length = text.length();
+        if (length > width || hasSurrogate(text)) {
+            length = text.codePointCount(0, text.length());
+        }
+        if (length > width) {
+            putUtf8(text, 0, text.offsetByCodePoints(0, width - 1));
+            put('~');
+            return;
+        }
+        putUtf8(text, 0, text.length());
+        ensure(width - length);
+        pad(width - length);
+    }
+
+    private static boolean hasSurrogate(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isSurrogate(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void putTsvText(String text) {
+        if (text == null) {
+            putAscii("\\N");
+            return;
+        }
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char escape = switch (c) {
+                case '\t' -> 't';
+                case '\n' -> 'n';
+                case '\r' -> 'r';
+                case '\\' -> '\\';
+                default -> 0;
+            };
+            if (escape != 0) {
+                putUtf8(text, start, i);
+                ensure(2);
+                bytes[position++] = '\\';
+                bytes[position++] = (byte) escape;
+                start = i + 1;
+            }
+        }
+        putUtf8(text, start, text.length());
+    }
+
+    private void putJsonText(String text) {
+        if (text == null) {
+            putAscii("null");
+            return;
+        }
+        put('"');
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                putUtf8(text, start, i);
+                ensure(6);
+                bytes[position++] = '\\';
+                switch (c) {
+                    case '"', '\\' -> bytes[position++] = (byte) c;
+                    case '\n' -> bytes[position++] = 'n';
+                    case '\r' -> bytes[position++] = 'r';
+                    case '\t' -> bytes[position++] = 't';
+                    default -> {
+                        bytes[position++] = 'u';
+                        bytes[position++] = '0';
+                        bytes[position++] = '0';
+                        bytes[position++] = HEX[c >> 4];
+                        bytes[position++] = HEX[c & 0xF];
+                    }
+                }
+                start = i + 1;
+            }
+        }
+        putUtf8(text, start, text.length());
+        put('"');
+    }
+
+    private void putUtf8(String text, int from, int to) {
+        int i = from;
+        while (i < to) {
+            // reserve for the worst case once per run instead of once per character
+            // plus one byte for a surrogate pair that starts on the last reserved character
+            int end = Math.min(to, i + (bytes.length - position - 1) / 3);
+            if (end == i) {
+                flush();
+                continue;
+            }
+            for (; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    bytes[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[position++] = (byte) (0xC0 | c >> 6);
+                    bytes[position++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+                    bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    // unpaired half of a surrogate pair, replaced as String.getBytes does
+                    bytes[position++] = '?';
+                } else {
+                    bytes[position++] = (byte) (0xE0 | c >> 12);
+                    bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[position++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+    }
+
+    // Channels.newChannel would copy through an 8 KiB transfer array; a heap buffer can be handed
+    // to the stream whole
+    private static final class StreamChannel implements WritableByteChannel {
+        private final OutputStream out;
+
+        StreamChannel(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int length = source.remaining();
+            out.write(source.array(), source.arrayOffset() + source.position(), length);
+            out.flush();
+            source.position(source.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        // the stream belongs to the caller
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.user.service.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// AIMD limiter in the spirit of Netflix concurrency-limits: grow by one while calls
+// succeed under the latency target, shrink multiplicatively on timeouts or slow calls
+public class AdaptiveConcurrencyLimiter {
+    private static final Logger logger = LogManager.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyTargetNanos;
+    private final long maxQueueWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private final LongAdder rejected = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, Duration latencyTarget, Duration maxQueueWait) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (backoffRatio <= 0.0 || backoffRatio >= 1.0) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1");
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+    }
+
+    public Permit acquire() {
+        lock.lock();
+        try {
+            long remaining = maxQueueWaitNanos;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0L) {
+                    rejected.increment();
+                    throw new OverloadedException("Service overloaded: " + name + " concurrency limit "
+                            + (int) limit + " reached");
+                }
+                remaining = permitAvailable.awaitNanos(remaining);
+            }
+            inFlight++;
+            return new Permit(System.nanoTime());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            throw new OverloadedException("Interrupted while waiting for " + name + " permit");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private void release(Outcome outcome, long latencyNanos) {
+        lock.lock();
+        try {
+            int previous = (int) limit;
+            boolean saturated = inFlight * 2 >= limit;
+            inFlight--;
+            if (outcome == Outcome.DROPPED || (outcome == Outcome.SUCCESS && latencyNanos > latencyTargetNanos)) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (outcome == Outcome.SUCCESS && saturated) {
+                limit = Math.min(maxLimit, limit + 1.0);
+            }
+            if ((int) limit != previous) {
+                logger.debug("{} concurrency limit {} -> {}", name, previous, (int) limit);
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private enum Outcome { SUCCESS, DROPPED, IGNORED }
+
+    public final class Permit {
+        private final long startNanos;
+        private boolean released;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        public void onSuccess() {
+            complete(Outcome.SUCCESS);
+        }
+
+        public void onDropped() {
+            complete(Outcome.DROPPED);
+        }
+
+        public void onIgnore() {
+            complete(Outcome.IGNORED);
+        }
+
+        private void complete(Outcome outcome) {
+            if (released) {
+                return;
+            }
+            released = true;
+            release(outcome, System.nanoTime() - startNanos);
+        }
+    }
+}
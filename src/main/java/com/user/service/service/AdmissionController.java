@@ -0,0 +1,76 @@
+package com.user.service.service;
+
+import com.user.service.dao.QueryDeadline;
+import com.user.service.dao.QueryTimeoutException;
+import com.user.service.dao.TransientDataAccessException;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+public class AdmissionController {
+    private final AdaptiveConcurrencyLimiter readLimiter;
+    private final AdaptiveConcurrencyLimiter writeLimiter;
+    private final Duration readTimeout;
+    private final Duration writeTimeout;
+
+    public AdmissionController(AdaptiveConcurrencyLimiter readLimiter, Duration readTimeout,
+                               AdaptiveConcurrencyLimiter writeLimiter, Duration writeTimeout) {
+        this.readLimiter = readLimiter;
+        this.readTimeout = readTimeout;
+        this.writeLimiter = writeLimiter;
+        this.writeTimeout = writeTimeout;
+    }
+
+    public static AdmissionController withDefaults() {
+        return new AdmissionController(
+                new AdaptiveConcurrencyLimiter("read", 16, 2, 200, 0.9, Duration.ofMillis(250), Duration.ofMillis(100)),
+                Duration.ofSeconds(2),
+                new AdaptiveConcurrencyLimiter("write", 8, 1, 100, 0.9, Duration.ofMillis(500), Duration.ofMillis(200)),
+                Duration.ofSeconds(5));
+    }
+
+    public static AdmissionController disabled() {
+        return new AdmissionController(null, null, null, null);
+    }
+
+    public <T> T read(Supplier<T> call) {
+        return execute(readLimiter, readTimeout, call);
+    }
+
+    public <T> T write(Supplier<T> call) {
+        return execute(writeLimiter, writeTimeout, call);
+    }
+
+    public void write(Runnable call) {
+        write(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    public AdaptiveConcurrencyLimiter getReadLimiter() {
+        return readLimiter;
+    }
+
+    public AdaptiveConcurrencyLimiter getWriteLimiter() {
+        return writeLimiter;
+    }
+
+    private static <T> T execute(AdaptiveConcurrencyLimiter limiter, Duration timeout, Supplier<T> call) {
+        if (limiter == null) {
+            return call.get();
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+        try {
+            T result = QueryDeadline.callWithin(timeout, call);
+            permit.onSuccess();
+            return result;
+        } catch (QueryTimeoutException | TransientDataAccessException e) {
+            permit.onDropped();
+            throw e;
+        } catch (RuntimeException e) {
+            permit.onIgnore();
+            throw e;
+        }
+    }
+}
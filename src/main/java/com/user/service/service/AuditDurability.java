@@ -0,0 +1,14 @@
+package com.user.service.service;
+
+// An entry is written after the change it audits has committed, never in the same transaction. Under
+// SYNC and GROUP_COMMIT a failed write makes the audited call throw IllegalStateException although the
+// user change is already committed; the caller must not take it for a rolled-back change.
+public enum AuditDurability {
+    // the entry is committed before the audited call returns, in its own transaction
+    SYNC,
+    // the call returns once the entry is queued; a crash loses what is still queued
+    ASYNC,
+    // the call waits for the batch holding its entry to commit, sharing that commit with every
+    // call that queued meanwhile
+    GROUP_COMMIT
+}
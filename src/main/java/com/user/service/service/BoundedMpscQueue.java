@@ -0,0 +1,86 @@
+package com.user.service.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Array ring buffer for many producers and one consumer, without locks (Vyukov's bounded queue).
+// Each slot carries a sequence number: a producer may fill slot i at ticket t once its sequence
+// equals t, and publishes the element by advancing it to t + 1; the consumer frees the slot for
+// the next lap by advancing it to t + capacity.
+final class BoundedMpscQueue<E> {
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // read and written by the consumer only
+    private long head;
+
+    BoundedMpscQueue(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        size = Math.max(size, 1);
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    // false when full
+    boolean offer(E element) {
+        long ticket = tail.get();
+        while (true) {
+            int index = (int) ticket & mask;
+            long difference = sequences.get(index) - ticket;
+            if (difference == 0) {
+                if (tail.compareAndSet(ticket, ticket + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.set(index, ticket + 1);
+                    return true;
+                }
+                ticket = tail.get();
+            } else if (difference < 0) {
+                // the consumer has not freed this slot from the previous lap
+                return false;
+            } else {
+                ticket = tail.get();
+            }
+        }
+    }
+
+    E poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    int drainTo(List<E> target, int max) {
+        int drained = 0;
+        E element;
+        while (drained < max && (element = poll()) != null) {
+            target.add(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    // only a snapshot while producers are active
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+}
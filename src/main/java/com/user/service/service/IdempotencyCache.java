@@ -0,0 +1,46 @@
+package com.user.service.service;
+
+import com.user.service.entities.CompactUser;
+import com.user.service.entities.IdempotencyRecord;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// The most recent idempotency keys and their results, so that a quick retry is answered without a
+// database read. Results are held as CompactUser rows and handed out as fresh User instances.
+public class IdempotencyCache {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final Map<String, Entry> entries;
+
+    public IdempotencyCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized Optional<IdempotencyRecord> get(String key) {
+        Entry entry = entries.get(key);
+        return entry == null
+                ? Optional.empty()
+                : Optional.of(new IdempotencyRecord(key, entry.fingerprint(), entry.result().toUser()));
+    }
+
+    public synchronized void put(IdempotencyRecord record) {
+        entries.put(record.key(), new Entry(record.fingerprint(), CompactUser.from(record.result())));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Entry(String fingerprint, CompactUser result) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.user.service.service;
+
+public class OverloadedException extends RuntimeException {
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,186 @@
+package com.user.service.service;
+
+import com.user.service.dao.CountMode;
+import com.user.service.dao.UserFilter;
+import com.user.service.dao.UserRepository;
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import com.user.service.util.SessionFactoryProvider;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Pays the first-request costs before the service takes traffic: opens the pool's connections,
+// runs every repository query shape so Hibernate has parsed and cached them and the driver has
+// prepared them, and loops the UserService paths over the same repository until they are
+// JIT-compiled or the time budget runs out, so the compiled call sites see the receivers real
+// traffic will. Reads ask for users nobody has. Writes run only in the first few rounds, in
+// transactions that are rolled back, so no data is left behind and few ids are spent.
+public class ServiceWarmer {
+    private static final Logger logger = LogManager.getLogger(ServiceWarmer.class);
+
+    public static final int DEFAULT_CONNECTIONS = 10;
+    public static final int DEFAULT_QUERY_ROUNDS = 20;
+    // above the C2 compile threshold of the hot service methods
+    public static final int DEFAULT_SERVICE_ITERATIONS = 20_000;
+    public static final Duration DEFAULT_SERVICE_TIME = Duration.ofSeconds(5);
+    // each one a round trip per statement and an id used up, even rolled back
+    public static final int WRITE_ROUNDS = 3;
+
+    private static final int READ_SHAPES = 8;
+    private static final int WRITE_SHAPES = 5;
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final UserRepository repository;
+    private final SessionFactory sessionFactory;
+    private final int connections;
+    private final int queryRounds;
+    private final int serviceIterations;
+    private final long serviceNanos;
+    private volatile boolean ready;
+
+    // sessionFactory may be null when the repository is not database-backed
+    public ServiceWarmer(UserRepository repository, SessionFactory sessionFactory, int connections,
+                         int queryRounds, int serviceIterations) {
+        this(repository, sessionFactory, connections, queryRounds, serviceIterations, DEFAULT_SERVICE_TIME);
+    }
+
+    public ServiceWarmer(UserRepository repository, SessionFactory sessionFactory, int connections,
+                         int queryRounds, int serviceIterations, Duration serviceTime) {
+        if (repository == null) {
+            throw new IllegalArgumentException("Repository cannot be null");
+        }
+        if (connections < 0 || queryRounds < 0 || serviceIterations < 0 || serviceTime.isNegative()) {
+            throw new IllegalArgumentException("Warm-up sizes cannot be negative");
+        }
+        this.repository = repository;
+        this.sessionFactory = sessionFactory;
+        this.connections = connections;
+        this.queryRounds = queryRounds;
+        this.serviceIterations = serviceIterations;
+        this.serviceNanos = serviceTime.toNanos();
+    }
+
+    public static ServiceWarmer withDefaults(UserRepository repository, SessionFactory sessionFactory) {
+        return new ServiceWarmer(repository, sessionFactory, DEFAULT_CONNECTIONS, DEFAULT_QUERY_ROUNDS,
+                DEFAULT_SERVICE_ITERATIONS);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Report warmUp() {
+        long start = System.nanoTime();
+        int opened = sessionFactory != null && connections > 0
+                ? SessionFactoryProvider.prefillConnections(sessionFactory, connections)
+                : 0;
+        long connectionsDone = System.nanoTime();
+
+        int queries = 0;
+        for (int round = 0; round < queryRounds; round++) {
+            queries += runQueryShapes(round);
+        }
+        long queriesDone = System.nanoTime();
+
+        int serviceCalls = runServicePaths();
+        long end = System.nanoTime();
+
+        Report report = new Report(opened, queries, serviceCalls, Duration.ofNanos(connectionsDone - start),
+                Duration.ofNanos(queriesDone - connectionsDone), Duration.ofNanos(end - queriesDone));
+        ready = true;
+        logger.info("Service ready after {} ms: {} connections in {} ms, {} queries in {} ms, {} service calls in {} ms",
+                report.total().toMillis(), opened, report.connectionTime().toMillis(), queries,
+                report.queryTime().toMillis(), serviceCalls, report.serviceTime().toMillis());
+        return report;
+    }
+
+    // ids and emails no user has, so the reads come back empty
+    private int runQueryShapes(int round) {
+        repository.findById(-1L);
+        repository.findByEmail("warmup@warmup.invalid");
+        repository.findByAgeBetween(-2, -1);
+        repository.findByCreatedAtBetween(EPOCH, EPOCH.plusSeconds(1));
+        repository.findPage(Long.MAX_VALUE - 1, 1);
+        repository.count(CountMode.EXACT, UserFilter.ageBetween(-2, -1));
+        repository.count(CountMode.ESTIMATE, UserFilter.NONE);
+        repository.inReadOnlyTransaction(tx -> tx.findById(-1L));
+        if (round >= WRITE_ROUNDS) {
+            return READ_SHAPES;
+        }
+        try {
+            repository.inTransaction(tx -> {
+                User user = new User("Warmup", "warmup-" + round + "-" + System.nanoTime() + "@warmup.invalid", 1);
+                tx.save(user);
+                user.setAge(2);
+                tx.update(user);
+                tx.applyPatches(Map.of(user.getId(), new UserPatch(null, null, 3)));
+                tx.upsertAll(List.of(user));
+                tx.deleteById(user.getId());
+                throw new RollbackWarmup();
+            });
+        } catch (RollbackWarmup expected) {
+            // the writes were rolled back as intended
+        }
+        return READ_SHAPES + WRITE_SHAPES;
+    }
+
+    private int runServicePaths() {
+        UserService service = new UserService(repository, null, AdmissionController.withDefaults());
+        int calls = 0;
+        for (int i = 0; i < Math.min(WRITE_ROUNDS, serviceIterations); i++) {
+            int round = i;
+            try {
+                service.inTransaction(tx -> {
+                    User user = tx.createUser("Warmup", "warmup" + round + "-" + System.nanoTime()
+                            + "@warmup.invalid", 30);
+                    tx.getUserById(user.getId());
+                    tx.updateUser(user.getId(), "Warmed", user.getEmail(), 31);
+                    tx.deleteUser(user.getId());
+                    throw new RollbackWarmup();
+                });
+            } catch (RollbackWarmup expected) {
+                // the writes were rolled back as intended
+            }
+            calls += 4;
+        }
+        // the loop that gets compiled only reads, and stops at the deadline whatever the count
+        long deadline = System.nanoTime() + serviceNanos;
+        for (int i = 0; i < serviceIterations && System.nanoTime() - deadline < 0; i++) {
+            service.getUserById(-1L);
+            service.getUsersPage(Long.MAX_VALUE - 1, 1);
+            try {
+                service.createUser("Warmup", "not-an-email", 30);
+            } catch (IllegalArgumentException expected) {
+                // validation failures are a hot path too
+            }
+            calls += 3;
+        }
+        return calls;
+    }
+
+    public record Report(
+            int connections,
+            int queries,
+            int serviceCalls,
+            Duration connectionTime,
+            Duration queryTime,
+            Duration serviceTime
+    ) {
+
+        public Duration total() {
+            return connectionTime.plus(queryTime).plus(serviceTime);
+        }
+    }
+
+    private static final class RollbackWarmup extends RuntimeException {
+        RollbackWarmup() {
+            super("Warm-up transaction rolled back", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.user.service.service;
+
+import com.user.service.dao.UserAuditDAO;
+import com.user.service.entities.UserAuditEntry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Persists audit entries off the request path: callers put entries on a lock-free queue and one
+// writer thread inserts whatever has queued up as a single batch. When the queue is full the caller
+// writes its entry itself, so entries are never dropped for lack of room.
+public class UserAuditor implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(UserAuditor.class);
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+
+    private final UserAuditDAO auditDAO;
+    private final AuditDurability durability;
+    private final int maxBatchSize;
+    private final long idleParkNanos;
+    private final BoundedMpscQueue<Pending> queue;
+    private final Thread writer;
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private volatile boolean writerParked;
+    private volatile boolean closed;
+
+    public UserAuditor(UserAuditDAO auditDAO, AuditDurability durability, int capacity, int maxBatchSize,
+                       Duration idleInterval) {
+        if (auditDAO == null || durability == null) {
+            throw new IllegalArgumentException("Audit DAO and durability cannot be null");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.auditDAO = auditDAO;
+        this.durability = durability;
+        this.maxBatchSize = maxBatchSize;
+        this.idleParkNanos = idleInterval.toNanos();
+        this.queue = new BoundedMpscQueue<>(capacity);
+        if (durability == AuditDurability.SYNC) {
+            this.writer = null;
+        } else {
+            this.writer = new Thread(this::runWriter, "user-audit-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+    }
+
+    public static UserAuditor withDefaults(UserAuditDAO auditDAO, AuditDurability durability) {
+        return new UserAuditor(auditDAO, durability, 16_384, 500, Duration.ofMillis(100));
+    }
+
+    public AuditDurability getDurability() {
+        return durability;
+    }
+
+    public void record(UserAuditEntry entry) {
+        if (entry.isEmpty()) {
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("User auditor is closed");
+        }
+        recorded.increment();
+        if (durability == AuditDurability.SYNC) {
+            writeNow(entry);
+            return;
+        }
+        Pending pending = new Pending(entry,
+                durability == AuditDurability.GROUP_COMMIT ? new CompletableFuture<>() : null);
+        if (!queue.offer(pending)) {
+            overflowed.increment();
+            writeNow(entry);
+            return;
+        }
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        if (pending.committed != null) {
+            awaitCommit(pending.committed);
+        }
+    }
+
+    public List<UserAuditEntry> findByUser(long userId, LocalDateTime from, LocalDateTime to) {
+        return auditDAO.findByUser(userId, from, to);
+    }
+
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    // entries written by their caller because the queue was full
+    public long getOverflowCount() {
+        return overflowed.sum();
+    }
+
+    public long getLostCount() {
+        return lost.sum();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (writer == null) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+            // a caller that passed the closed check just before close may have queued after the
+            // writer's last look; with the writer gone this thread is the only consumer
+            List<Pending> rest = new ArrayList<>();
+            queue.drainTo(rest, Integer.MAX_VALUE);
+            if (!rest.isEmpty()) {
+                write(rest);
+            }
+            logger.info("User auditor drained and stopped: {} entries in {} batches, {} lost",
+                    getWrittenCount(), getBatchCount(), getLostCount());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while draining user auditor");
+        }
+    }
+
+    private void writeNow(UserAuditEntry entry) {
+        auditDAO.insertAll(List.of(entry));
+        written.increment();
+        batches.increment();
+    }
+
+    private static void awaitCommit(CompletableFuture<Void> committed) {
+        try {
+            committed.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to write audit entry", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for audit entry to commit", e);
+        }
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            queue.drainTo(batch, maxBatchSize);
+            if (batch.isEmpty()) {
+                if (closed) {
+                    return;
+                }
+                // re-checked after announcing the park, so an offer that missed the flag is seen
+                writerParked = true;
+                if (queue.isEmpty() && !closed) {
+                    LockSupport.parkNanos(this, idleParkNanos);
+                }
+                writerParked = false;
+                continue;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<UserAuditEntry> entries = new ArrayList<>(batch.size());
+        batch.forEach(pending -> entries.add(pending.entry));
+        RuntimeException failure = null;
+        for (int attempt = 1; attempt <= MAX_WRITE_ATTEMPTS; attempt++) {
+            try {
+                auditDAO.insertAll(entries);
+                written.add(entries.size());
+                batches.increment();
+                batch.forEach(pending -> complete(pending, null));
+                return;
+            } catch (RuntimeException e) {
+                failure = e;
+                if (attempt < MAX_WRITE_ATTEMPTS) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L << (attempt - 1)));
+                }
+            }
+        }
+        lost.add(entries.size());
+        logger.error("Dropped {} audit entries after {} attempts: {}", entries.size(), MAX_WRITE_ATTEMPTS, entries, failure);
+        for (Pending pending : batch) {
+            complete(pending, failure);
+        }
+    }
+
+    private static void complete(Pending pending, Throwable failure) {
+        if (pending.committed == null) {
+            return;
+        }
+        if (failure == null) {
+            pending.committed.complete(null);
+        } else {
+            pending.committed.completeExceptionally(failure);
+        }
+    }
+
+    private record Pending(UserAuditEntry entry, CompletableFuture<Void> committed) {
+    }
+}
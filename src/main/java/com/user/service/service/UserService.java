@@ -1,40 +1,202 @@
 package com.user.service.service;
 
-import com.user.service.dao.UserDAO;
+import com.user.service.dao.CountMode;
+import com.user.service.dao.DataAccessException;
+import com.user.service.dao.UserFilter;
+import com.user.service.dao.UserRepository;
+import com.user.service.entities.IdempotencyRecord;
 import com.user.service.entities.User;
+import com.user.service.entities.UserAuditEntry;
+import com.user.service.entities.UserPatch;
+import com.user.service.jfr.UserTransactionEvent;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class UserService {
-    private final UserDAO userDAO;
+    private final UserRepository userRepository;
+    private final WriteBehindUserUpdater writeBehindUpdater;
+    private final AdmissionController admissionController;
+    private final UserAuditor auditor;
+    // entries of a unit of work, handed to the auditor only once it commits
+    private final List<UserAuditEntry> deferredAudit;
+    // null for a service bound to a unit of work, whose keys are not known to commit yet
+    private final IdempotencyCache idempotencyCache;
+    // null unless recording; a unit of work runs a lambda no log can replay, so neither it nor the
+    // calls inside it are recorded
+    private final WorkloadRecorder recorder;
 
-    public UserService(UserDAO userDAO) {
-        this.userDAO = userDAO;
+    public UserService(UserRepository userRepository) {
+        this(userRepository, null);
+    }
+
+    public UserService(UserRepository userRepository, WriteBehindUserUpdater writeBehindUpdater) {
+        this(userRepository, writeBehindUpdater, null);
+    }
+
+    public UserService(UserRepository userRepository, WriteBehindUserUpdater writeBehindUpdater,
+                       AdmissionController admissionController) {
+        this(userRepository, writeBehindUpdater, admissionController, null);
+    }
+
+    public UserService(UserRepository userRepository, WriteBehindUserUpdater writeBehindUpdater,
+                       AdmissionController admissionController, UserAuditor auditor) {
+        this(userRepository, writeBehindUpdater, admissionController, auditor, null);
+    }
+
+    public UserService(UserRepository userRepository, WriteBehindUserUpdater writeBehindUpdater,
+                       AdmissionController admissionController, UserAuditor auditor, WorkloadRecorder recorder) {
+        this.userRepository = userRepository;
+        this.writeBehindUpdater = writeBehindUpdater;
+        this.admissionController = admissionController != null ? admissionController : AdmissionController.disabled();
+        this.auditor = auditor;
+        this.deferredAudit = null;
+        this.idempotencyCache = new IdempotencyCache(IdempotencyCache.DEFAULT_MAX_ENTRIES);
+        this.recorder = recorder;
+    }
+
+    private UserService(List<UserAuditEntry> deferredAudit, UserRepository transactionRepository) {
+        this.userRepository = transactionRepository;
+        this.writeBehindUpdater = null;
+        this.admissionController = AdmissionController.disabled();
+        this.auditor = null;
+        this.deferredAudit = deferredAudit;
+        this.idempotencyCache = null;
+        this.recorder = null;
     }
 
     public User createUser(String name, String email, Integer age) {
         validateUserInput(name, email, age);
         User user = new User(name, email, age);
-        userDAO.save(user);
-        return user;
+        return recorded(WorkloadOperation.CREATE_USER, null, name, email, age, () -> traced("createUser", () -> {
+            admissionController.write(() -> userRepository.save(user));
+            audit(UserAuditEntry.Action.CREATE, null, user);
+            return user;
+        }));
+    }
+
+    // A retry carrying the same key returns what the first request produced and writes nothing.
+    // The key is stored in the transaction that creates the user, so one exists exactly when the
+    // other does. A null key behaves like createUser(name, email, age).
+    public User createUser(String name, String email, Integer age, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createUser(name, email, age);
+        }
+        validateUserInput(name, email, age);
+        return recorded(WorkloadOperation.CREATE_USER, null, name, email, age,
+                () -> idempotent(idempotencyKey, fingerprint("createUser", null, name, email, age),
+                        tx -> tx.createUser(name, email, age)));
+    }
+
+    public User createOrUpdateUser(String name, String email, Integer age) {
+        validateUserInput(name, email, age);
+        return recorded(WorkloadOperation.CREATE_OR_UPDATE_USER, null, name, email, age, () -> traced(
+                "createOrUpdateUser", () -> admissionController.write(() -> isAudited()
+                        ? auditedUpsert(List.of(new User(name, email, age))).get(0)
+                        : userRepository.upsertByEmail(new User(name, email, age)))));
+    }
+
+    public List<User> createOrUpdateUsers(List<User> users) {
+        users.forEach(user -> validateUserInput(user.getName(), user.getEmail(), user.getAge()));
+        return traced("createOrUpdateUsers", () -> admissionController.write(
+                () -> isAudited() ? auditedUpsert(users) : userRepository.upsertAll(users)));
+    }
+
+    // the users an upsert overwrites are read in its transaction, so each entry shows what it replaced
+    private List<User> auditedUpsert(List<User> users) {
+        List<User> before = new ArrayList<>(users.size());
+        List<User> after = userRepository.inTransaction(tx -> {
+            before.clear();
+            for (User user : users) {
+                before.add(tx.findByEmail(user.getEmail()).map(UserService::snapshot).orElse(null));
+            }
+            return tx.upsertAll(users);
+        });
+        for (int i = 0; i < after.size(); i++) {
+            User replaced = before.get(i);
+            audit(replaced == null ? UserAuditEntry.Action.CREATE : UserAuditEntry.Action.UPDATE, replaced, after.get(i));
+        }
+        return after;
     }
 
     public Optional<User> getUserById(Long id) {
-        return userDAO.findById(id);
+        return recorded(WorkloadOperation.GET_USER_BY_ID, id, null, null, null,
+                () -> traced("getUserById", () -> admissionController.read(() -> userRepository.findById(id))));
     }
 
     public List<User> getAllUsers() {
-        return userDAO.findAll();
+        return recorded(WorkloadOperation.GET_ALL_USERS, null, null, null, null,
+                () -> traced("getAllUsers", () -> admissionController.read(userRepository::findAll)));
+    }
+
+    public long countUsers(CountMode mode) {
+        return countUsers(mode, UserFilter.NONE);
+    }
+
+    public long countUsers(CountMode mode, UserFilter filter) {
+        if (mode == null || filter == null) {
+            throw new IllegalArgumentException("Count mode and filter are required");
+        }
+        Supplier<Long> count = () -> traced("countUsers",
+                () -> admissionController.read(() -> userRepository.count(mode, filter)));
+        // the log has no room for filter bounds, so only unfiltered counts are recorded
+        return filter.isEmpty()
+                ? recorded(WorkloadOperation.COUNT_USERS, null, null, null, mode.ordinal(), count)
+                : count.get();
+    }
+
+    // keyset paging: pass the last id of the previous page, or null for the first one
+    public List<User> getUsersPage(Long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return recorded(WorkloadOperation.GET_USERS_PAGE, afterId, null, null, limit, () -> traced("getUsersPage",
+                () -> admissionController.read(() -> userRepository.findPage(afterId, limit))));
     }
 
     public User updateUser(Long id, String name, String email, Integer age) {
-        Optional<User> existingOpt = userDAO.findById(id);
+        return recorded(WorkloadOperation.UPDATE_USER, id, name, email, age, () -> traced("updateUser",
+                () -> admissionController.write(() -> applyUpdate(id, name, email, age))));
+    }
+
+    public User updateUser(Long id, String name, String email, Integer age, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return updateUser(id, name, email, age);
+        }
+        return recorded(WorkloadOperation.UPDATE_USER, id, name, email, age,
+                () -> idempotent(idempotencyKey, fingerprint("updateUser", id, name, email, age),
+                        tx -> tx.updateUser(id, name, email, age)));
+    }
+
+    private User applyUpdate(Long id, String name, String email, Integer age) {
+        if (!isAudited()) {
+            return applyUpdate(userRepository, id, name, email, age).after();
+        }
+        // the values being replaced are read in the transaction that replaces them
+        Change change = userRepository.inTransaction(tx -> applyUpdate(tx, id, name, email, age));
+        audit(UserAuditEntry.Action.UPDATE, change.before(), change.after());
+        return change.after();
+    }
+
+    private static Change applyUpdate(UserRepository repository, Long id, String name, String email, Integer age) {
+        Optional<User> existingOpt = repository.findById(id);
         if (existingOpt.isEmpty()) {
             throw new RuntimeException("User not found with ID: " + id);
         }
 
         User user = existingOpt.get();
+        User before = snapshot(user);
 
         if (name != null && !name.trim().isEmpty()) {
             user.setName(name);
@@ -49,12 +211,235 @@ public class UserService {
             user.setAge(age);
         }
 
-        userDAO.update(user);
-        return user;
+        repository.update(user);
+        return new Change(before, user);
+    }
+
+    public CompletableFuture<User> updateUserAsync(Long id, String name, String email, Integer age) {
+        if (writeBehindUpdater == null) {
+            try {
+                return CompletableFuture.completedFuture(updateUser(id, name, email, age));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return recordedAsync(WorkloadOperation.UPDATE_USER, id, name, email, age, () -> {
+            if (age != null && age < 0) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Age cannot be negative"));
+            }
+            UserPatch patch = new UserPatch(
+                    name != null && !name.trim().isEmpty() ? name : null,
+                    email != null && !email.trim().isEmpty() ? email : null,
+                    age
+            );
+            return writeBehindUpdater.submit(id, patch);
+        });
     }
 
     public void deleteUser(Long id) {
-        userDAO.deleteById(id);
+        recorded(WorkloadOperation.DELETE_USER, id, null, null, null, () -> traced("deleteUser", () -> {
+            admissionController.write(() -> {
+                if (!isAudited()) {
+                    userRepository.deleteById(id);
+                    return;
+                }
+                // the values being deleted are read in the transaction that deletes them
+                User before = userRepository.inTransaction(tx -> {
+                    User deleted = tx.findById(id).map(UserService::snapshot).orElse(null);
+                    tx.deleteById(id);
+                    return deleted;
+                });
+                if (before != null) {
+                    audit(UserAuditEntry.Action.DELETE, before, null);
+                }
+            });
+            return null;
+        }));
+    }
+
+    // partitioned storage drops whole months, so the cutoff is a month rather than an instant
+    public void purgeUsersCreatedBefore(YearMonth cutoff) {
+        if (cutoff == null || cutoff.isAfter(YearMonth.now())) {
+            throw new IllegalArgumentException("Retention cutoff must not be in the future");
+        }
+        traced("purgeUsersCreatedBefore", () -> {
+            admissionController.write(() -> userRepository.purgeCreatedBefore(cutoff));
+            return null;
+        });
+    }
+
+    // tx is a UserService bound to one session and transaction, e.g.
+    // userService.inTransaction(tx -> { tx.createUser(...); tx.updateUser(...); return null; })
+    public <T> T inTransaction(Function<UserService, T> work) {
+        List<UserAuditEntry> audited = isAudited() ? new ArrayList<>() : null;
+        T result = traced("inTransaction", () -> admissionController.write(
+                () -> userRepository.inTransaction(tx -> work.apply(new UserService(audited, tx)))));
+        if (audited != null) {
+            audited.forEach(this::audit);
+        }
+        return result;
+    }
+
+    public <T> T inReadOnlyTransaction(Function<UserService, T> work) {
+        return traced("inReadOnlyTransaction", () -> admissionController.read(
+                () -> userRepository.inReadOnlyTransaction(tx -> work.apply(new UserService(null, tx)))));
+    }
+
+    // half-open range, oldest first
+    public List<UserAuditEntry> getAuditTrail(Long userId, LocalDateTime from, LocalDateTime to) {
+        if (auditor == null) {
+            throw new IllegalStateException("Auditing is not enabled");
+        }
+        if (userId == null || from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("User ID and a non-empty time range are required");
+        }
+        return traced("getAuditTrail", () -> admissionController.read(() -> auditor.findByUser(userId, from, to)));
+    }
+
+    private User idempotent(String key, String fingerprint, Function<UserService, User> request) {
+        if (key.isBlank() || key.length() > 255) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to 255 characters");
+        }
+        Optional<IdempotencyRecord> previous = findIdempotencyRecord(key);
+        if (previous.isPresent()) {
+            return replay(previous.get(), fingerprint);
+        }
+        User result;
+        try {
+            result = inTransaction(tx -> {
+                User user = request.apply(tx);
+                tx.userRepository.saveIdempotencyRecord(new IdempotencyRecord(key, fingerprint, user));
+                return user;
+            });
+        } catch (DataAccessException e) {
+            // A concurrent request with the same key committed first and made this one fail on the
+            // key or the email; its result is the answer. Inside an outer unit of work the failed
+            // transaction cannot be read from, so the failure stands.
+            Optional<IdempotencyRecord> winner = idempotencyCache != null
+                    ? findIdempotencyRecord(key)
+                    : Optional.empty();
+            if (winner.isEmpty()) {
+                throw e;
+            }
+            return replay(winner.get(), fingerprint);
+        }
+        if (idempotencyCache != null) {
+            idempotencyCache.put(new IdempotencyRecord(key, fingerprint, result));
+        }
+        return result;
+    }
+
+    private Optional<IdempotencyRecord> findIdempotencyRecord(String key) {
+        if (idempotencyCache != null) {
+            Optional<IdempotencyRecord> cached = idempotencyCache.get(key);
+            if (cached.isPresent()) {
+                return cached;
+            }
+        }
+        Optional<IdempotencyRecord> stored = traced("findIdempotencyRecord",
+                () -> admissionController.read(() -> userRepository.findIdempotencyRecord(key)));
+        if (idempotencyCache != null) {
+            stored.ifPresent(idempotencyCache::put);
+        }
+        return stored;
+    }
+
+    private static User replay(IdempotencyRecord record, String fingerprint) {
+        if (!record.fingerprint().equals(fingerprint)) {
+            throw new IllegalArgumentException("Idempotency key " + record.key() + " was used for a different request");
+        }
+        return record.result();
+    }
+
+    // emails are compared case-insensitively, so a retry that only changes their case still matches
+    private static String fingerprint(String operation, Long id, String name, String email, Integer age) {
+        String request = String.join("\0", operation, String.valueOf(id), String.valueOf(name),
+                email != null ? email.toLowerCase(Locale.ROOT) : "null", String.valueOf(age));
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private boolean isAudited() {
+        return auditor != null || deferredAudit != null;
+    }
+
+    private void audit(UserAuditEntry.Action action, User before, User after) {
+        if (isAudited()) {
+            audit(UserAuditEntry.of(action, before, after, LocalDateTime.now()));
+        }
+    }
+
+    private void audit(UserAuditEntry entry) {
+        if (deferredAudit != null) {
+            deferredAudit.add(entry);
+        } else if (auditor != null) {
+            auditor.record(entry);
+        }
+    }
+
+    static User snapshot(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setName(user.getName());
+        copy.setEmail(user.getEmail());
+        copy.setAge(user.getAge());
+        copy.setCreatedAt(user.getCreatedAt());
+        return copy;
+    }
+
+    private <T> T recorded(WorkloadOperation operation, Long id, String name, String email, Integer age,
+                           Supplier<T> call) {
+        if (recorder == null) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        T result = null;
+        boolean succeeded = false;
+        try {
+            result = call.get();
+            succeeded = true;
+            return result;
+        } finally {
+            // a create keeps the id it produced, so replayed calls on that user can be mapped to it
+            Long recordedId = id == null && result instanceof User user ? user.getId() : id;
+            recorder.record(operation, recordedId, name, email, age, start, System.nanoTime() - start, succeeded);
+        }
+    }
+
+    // a write-behind update completes on the flusher thread, so it is recorded when its future completes,
+    // under the thread that submitted it; the latency includes the wait for the batch
+    private <T> CompletableFuture<T> recordedAsync(WorkloadOperation operation, Long id, String name, String email,
+                                                   Integer age, Supplier<CompletableFuture<T>> call) {
+        if (recorder == null) {
+            return call.get();
+        }
+        long threadId = Thread.currentThread().getId();
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            recorder.record(operation, threadId, id, name, email, age, start, System.nanoTime() - start, false);
+            throw e;
+        }
+        return future.whenComplete((result, failure) -> recorder.record(operation, threadId, id, name, email, age,
+                start, System.nanoTime() - start, failure == null));
+    }
+
+    private <T> T traced(String operation, Supplier<T> call) {
+        UserTransactionEvent event = UserTransactionEvent.start(operation, UserTransactionEvent.LAYER_SERVICE);
+        boolean succeeded = false;
+        try {
+            T result = call.get();
+            succeeded = true;
+            return result;
+        } finally {
+            event.completed(succeeded);
+        }
     }
 
     private void validateUserInput(String name, String email, Integer age) {
@@ -68,4 +453,7 @@ public class UserService {
             throw new IllegalArgumentException("Age must be a non-negative number");
         }
     }
-}
\ No newline at end of file
+
+    private record Change(User before, User after) {
+    }
+}
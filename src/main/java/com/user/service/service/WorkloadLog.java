@@ -0,0 +1,142 @@
+package com.user.service.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Segments written by WorkloadRecorder, named workload-<sequence>.bin. Layout:
+//   header  magic, format version, segment sequence, int id of the recorder run,
+//           long epoch milli the recording started at
+//   records int record length, byte operation, byte flags, long thread id, long start nanos,
+//           long latency nanos, then present arguments only: long id, int age,
+//           int name length, UTF-8 name, int email length, UTF-8 email
+// A zero length ends a segment that was not closed cleanly.
+public final class WorkloadLog {
+    static final int MAGIC = 0x574B_4C47;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int RECORD_FIXED_SIZE = 30;
+
+    static final int SUCCEEDED = 1;
+    static final int HAS_ID = 2;
+    static final int HAS_AGE = 4;
+    static final int HAS_NAME = 8;
+    static final int HAS_EMAIL = 16;
+
+    private static final String PREFIX = "workload-";
+    private static final String SUFFIX = ".bin";
+
+    private WorkloadLog() {
+    }
+
+    static Path segment(Path directory, int sequence) {
+        return directory.resolve(String.format("%s%06d%s", PREFIX, sequence, SUFFIX));
+    }
+
+    static int sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // oldest first
+    public static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.matches(PREFIX + "\\d+" + SUFFIX.replace(".", "\\."));
+                    })
+                    .sorted(Comparator.comparingInt(WorkloadLog::sequenceOf))
+                    .toList();
+        }
+    }
+
+    // Every record in the directory ordered by start time. Segments of an earlier run of the
+    // recorder are placed by their wall-clock start, so their offsets stay comparable.
+    public static List<WorkloadRecord> read(Path directory) throws IOException {
+        List<WorkloadRecord> records = new ArrayList<>();
+        long firstEpochMilli = -1;
+        long lastEpochMilli = -1;
+        int lastRunId = 0;
+        int run = -1;
+        for (Path segment : segments(directory)) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                if (channel.size() < HEADER_SIZE) {
+                    throw new IOException("Workload segment " + segment + " is truncated");
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                    throw new IOException("Workload segment " + segment + " has an unknown format");
+                }
+                long epochMilli = buffer.getLong(16);
+                if (firstEpochMilli < 0) {
+                    firstEpochMilli = epochMilli;
+                }
+                // every segment of one recorder run carries its id and the epoch milli it started at
+                int runId = buffer.getInt(12);
+                if (run < 0 || epochMilli != lastEpochMilli || runId != lastRunId) {
+                    run++;
+                    lastEpochMilli = epochMilli;
+                    lastRunId = runId;
+                }
+                readSegment(buffer, run, (epochMilli - firstEpochMilli) * 1_000_000, records);
+            }
+        }
+        records.sort(Comparator.comparingLong(WorkloadRecord::startNanos));
+        return records;
+    }
+
+    private static void readSegment(ByteBuffer buffer, int run, long offsetNanos, List<WorkloadRecord> records) {
+        int position = HEADER_SIZE;
+        while (position + RECORD_FIXED_SIZE <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            int flags = buffer.get(position + 5);
+            int cursor = position + RECORD_FIXED_SIZE;
+            Long id = null;
+            Integer age = null;
+            String name = null;
+            String email = null;
+            if ((flags & HAS_ID) != 0) {
+                id = buffer.getLong(cursor);
+                cursor += 8;
+            }
+            if ((flags & HAS_AGE) != 0) {
+                age = buffer.getInt(cursor);
+                cursor += 4;
+            }
+            if ((flags & HAS_NAME) != 0) {
+                name = readString(buffer, cursor);
+                cursor += 4 + buffer.getInt(cursor);
+            }
+            if ((flags & HAS_EMAIL) != 0) {
+                email = readString(buffer, cursor);
+            }
+            records.add(new WorkloadRecord(
+                    WorkloadOperation.values()[buffer.get(position + 4)],
+                    run,
+                    buffer.getLong(position + 6),
+                    offsetNanos + buffer.getLong(position + 14),
+                    buffer.getLong(position + 22),
+                    (flags & SUCCEEDED) != 0,
+                    id, name, email, age));
+            position += length;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, int offset) {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
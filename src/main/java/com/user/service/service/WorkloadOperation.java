@@ -0,0 +1,6 @@
+package com.user.service.service;
+
+public enum WorkloadOperation {
+    CREATE_USER, CREATE_OR_UPDATE_USER, GET_USER_BY_ID, GET_ALL_USERS, GET_USERS_PAGE, COUNT_USERS, UPDATE_USER,
+    DELETE_USER
+}
@@ -0,0 +1,9 @@
+package com.user.service.service;
+
+// One recorded UserService call. run numbers the recorder runs in a directory, oldest first, so
+// thread ids reused by a later JVM are told apart. startNanos counts from the start of the recording. Unused
+// arguments are null; id is the created user's id for creates, the page cursor for
+// GET_USERS_PAGE, whose limit is in age, and COUNT_USERS keeps the CountMode ordinal in age.
+public record WorkloadRecord(WorkloadOperation operation, int run, long threadId, long startNanos, long latencyNanos,
+                             boolean succeeded, Long id, String name, String email, Integer age) {
+}
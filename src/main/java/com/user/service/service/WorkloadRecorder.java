@@ -0,0 +1,176 @@
+package com.user.service.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Appends every UserService call to memory-mapped segments in the WorkloadLog format, so a real
+// traffic mix can be replayed offline. A record is a handful of absolute puts into the mapping
+// under a short lock; the page cache writes it out, nothing is forced. A full segment is truncated to its records
+// and the next one mapped; only the newest maxSegments are kept. Recording never fails a call:
+// an I/O error turns the recorder off.
+public class WorkloadRecorder implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(WorkloadRecorder.class);
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private final long startNanos = System.nanoTime();
+    private final long startEpochMilli = System.currentTimeMillis();
+    // two runs can start in the same millisecond
+    private final int runId = ThreadLocalRandom.current().nextInt();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // guarded by this
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int sequence;
+    private int position;
+    private boolean closed;
+
+    private WorkloadRecorder(Path directory, long segmentBytes, int maxSegments, int lastSequence) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.sequence = lastSequence;
+    }
+
+    // continues after segments already in the directory
+    public static WorkloadRecorder open(Path directory, long segmentBytes, int maxSegments) throws IOException {
+        if (segmentBytes < 4096 || segmentBytes > Integer.MAX_VALUE || maxSegments <= 0) {
+            throw new IllegalArgumentException("Segments must be 4 KiB to 2 GiB and at least one must be kept");
+        }
+        Files.createDirectories(directory);
+        List<Path> existing = WorkloadLog.segments(directory);
+        int lastSequence = existing.isEmpty() ? 0 : WorkloadLog.sequenceOf(existing.get(existing.size() - 1));
+        WorkloadRecorder recorder = new WorkloadRecorder(directory, segmentBytes, maxSegments, lastSequence);
+        synchronized (recorder) {
+            recorder.nextSegment();
+        }
+        return recorder;
+    }
+
+    public long getRecorded() {
+        return recorded.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void record(WorkloadOperation operation, Long id, String name, String email, Integer age,
+                       long startNanos, long latencyNanos, boolean succeeded) {
+        record(operation, Thread.currentThread().getId(), id, name, email, age, startNanos, latencyNanos, succeeded);
+    }
+
+    // for a call that completes on another thread than the one that made it
+    public void record(WorkloadOperation operation, long threadId, Long id, String name, String email, Integer age,
+                       long startNanos, long latencyNanos, boolean succeeded) {
+        byte[] nameBytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] emailBytes = email != null ? email.getBytes(StandardCharsets.UTF_8) : null;
+        int flags = (succeeded ? WorkloadLog.SUCCEEDED : 0)
+                | (id != null ? WorkloadLog.HAS_ID : 0)
+                | (age != null ? WorkloadLog.HAS_AGE : 0)
+                | (nameBytes != null ? WorkloadLog.HAS_NAME : 0)
+                | (emailBytes != null ? WorkloadLog.HAS_EMAIL : 0);
+        long length = WorkloadLog.RECORD_FIXED_SIZE
+                + (id != null ? 8 : 0)
+                + (age != null ? 4 : 0)
+                + (nameBytes != null ? 4L + nameBytes.length : 0)
+                + (emailBytes != null ? 4L + emailBytes.length : 0);
+        if (length > segmentBytes - WorkloadLog.HEADER_SIZE) {
+            dropped.increment();
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                dropped.increment();
+                return;
+            }
+            // the 4 bytes after the last record stay zero, so a reader knows where it ends
+            if (position + length + 4 > segmentBytes) {
+                try {
+                    closeSegment();
+                    nextSegment();
+                } catch (IOException e) {
+                    logger.error("Failed to rotate workload log in {}, recording stopped", directory, e);
+                    closed = true;
+                    dropped.increment();
+                    return;
+                }
+            }
+            int at = position;
+            buffer.put(at + 4, (byte) operation.ordinal())
+                    .put(at + 5, (byte) flags)
+                    .putLong(at + 6, threadId)
+                    .putLong(at + 14, startNanos - this.startNanos)
+                    .putLong(at + 22, latencyNanos);
+            int cursor = at + WorkloadLog.RECORD_FIXED_SIZE;
+            if (id != null) {
+                buffer.putLong(cursor, id);
+                cursor += 8;
+            }
+            if (age != null) {
+                buffer.putInt(cursor, age);
+                cursor += 4;
+            }
+            if (nameBytes != null) {
+                buffer.putInt(cursor, nameBytes.length).put(cursor + 4, nameBytes);
+                cursor += 4 + nameBytes.length;
+            }
+            if (emailBytes != null) {
+                buffer.putInt(cursor, emailBytes.length).put(cursor + 4, emailBytes);
+            }
+            // the length goes in last: a record is only visible once it is complete
+            buffer.putInt(at, (int) length);
+            position += (int) length;
+        }
+        recorded.increment();
+    }
+
+    private void nextSegment() throws IOException {
+        sequence++;
+        Path path = WorkloadLog.segment(directory, sequence);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        buffer.putInt(0, WorkloadLog.MAGIC)
+                .putInt(4, WorkloadLog.FORMAT_VERSION)
+                .putInt(8, sequence)
+                .putInt(12, runId)
+                .putLong(16, startEpochMilli);
+        position = WorkloadLog.HEADER_SIZE;
+        Files.deleteIfExists(WorkloadLog.segment(directory, sequence - maxSegments));
+    }
+
+    private void closeSegment() throws IOException {
+        // keeps the zero length that marks the end
+        channel.truncate(Math.min(segmentBytes, position + 4L));
+        channel.close();
+        buffer = null;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeSegment();
+        logger.info("Workload log in {} closed: {} calls recorded, {} dropped", directory, getRecorded(), getDropped());
+    }
+}
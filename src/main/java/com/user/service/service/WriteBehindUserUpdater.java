@@ -0,0 +1,268 @@
+package com.user.service.service;
+
+import com.user.service.dao.DataAccessException;
+import com.user.service.dao.UserRepository;
+import com.user.service.entities.User;
+import com.user.service.entities.UserAuditEntry;
+import com.user.service.entities.UserPatch;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class WriteBehindUserUpdater implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(WriteBehindUserUpdater.class);
+
+    private final UserRepository userRepository;
+    // null unless auditing; patches are audited once they are applied
+    private final UserAuditor auditor;
+    private final int maxPendingUsers;
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushRequested = lock.newCondition();
+    private final Map<Long, PendingUpdate> pending = new LinkedHashMap<>();
+    private final Thread worker;
+    private boolean closed;
+
+    public WriteBehindUserUpdater(UserRepository userRepository, int maxPendingUsers, int maxBatchSize,
+                                  Duration flushInterval, Duration offerTimeout) {
+        this(userRepository, null, maxPendingUsers, maxBatchSize, flushInterval, offerTimeout);
+    }
+
+    public WriteBehindUserUpdater(UserRepository userRepository, UserAuditor auditor, int maxPendingUsers,
+                                  int maxBatchSize, Duration flushInterval, Duration offerTimeout) {
+        if (userRepository == null) {
+            throw new IllegalArgumentException("UserRepository cannot be null");
+        }
+        if (maxPendingUsers <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Queue and batch sizes must be positive");
+        }
+        this.userRepository = userRepository;
+        this.auditor = auditor;
+        this.maxPendingUsers = maxPendingUsers;
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.worker = new Thread(this::runWorker, "user-write-behind");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public CompletableFuture<User> submit(Long id, UserPatch patch) {
+        CompletableFuture<User> result = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Write-behind updater is closed");
+            }
+            PendingUpdate existing = pending.get(id);
+            if (existing != null) {
+                existing.patch = existing.patch.mergeWith(patch);
+                existing.waiters.add(result);
+                return result;
+            }
+            long remaining = offerTimeoutNanos;
+            while (pending.size() >= maxPendingUsers) {
+                if (remaining <= 0L) {
+                    throw new RejectedExecutionException("Write-behind queue is full (" + maxPendingUsers + " users pending)");
+                }
+                flushRequested.signal();
+                remaining = notFull.awaitNanos(remaining);
+                if (closed) {
+                    throw new IllegalStateException("Write-behind updater is closed");
+                }
+            }
+            pending.put(id, new PendingUpdate(patch, result));
+            if (pending.size() >= maxBatchSize) {
+                flushRequested.signal();
+            }
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for write-behind queue", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushRequested.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            worker.join();
+            logger.info("Write-behind updater drained and stopped");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while draining write-behind updater");
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            Map<Long, PendingUpdate> batch = nextBatch();
+            if (batch == null) {
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    private Map<Long, PendingUpdate> nextBatch() {
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            while (!closed && pending.size() < maxBatchSize) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0L) {
+                    if (!pending.isEmpty()) {
+                        break;
+                    }
+                    deadline = System.nanoTime() + flushIntervalNanos;
+                    remaining = flushIntervalNanos;
+                }
+                flushRequested.awaitNanos(remaining);
+            }
+            if (closed && pending.isEmpty()) {
+                return null;
+            }
+            Map<Long, PendingUpdate> batch = new LinkedHashMap<>();
+            Iterator<Map.Entry<Long, PendingUpdate>> it = pending.entrySet().iterator();
+            while (it.hasNext() && batch.size() < maxBatchSize) {
+                Map.Entry<Long, PendingUpdate> entry = it.next();
+                batch.put(entry.getKey(), entry.getValue());
+                it.remove();
+            }
+            notFull.signalAll();
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Write-behind worker interrupted");
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush(Map<Long, PendingUpdate> batch) {
+        Map<Long, UserPatch> patches = new LinkedHashMap<>();
+        batch.forEach((id, update) -> patches.put(id, update.patch));
+        Map<Long, User> before = new HashMap<>();
+        Map<Long, User> updated;
+        try {
+            updated = auditor == null ? userRepository.applyPatches(patches) : applyAudited(patches, before);
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                logger.error("Write-behind update of user {} failed", batch.keySet().iterator().next(), e);
+                batch.values().forEach(update -> update.fail(e));
+                return;
+            }
+            if (!isRowFailure(e)) {
+                // an outage or a conflict would fail each patch alike, and the repository has already retried
+                logger.error("Write-behind flush of {} users failed", batch.size(), e);
+                batch.values().forEach(update -> update.fail(e));
+                return;
+            }
+            // the batch was rolled back as a whole; applied one by one, only the bad patches fail
+            logger.warn("Write-behind flush of {} users failed, applying them one by one", batch.size(), e);
+            batch.forEach((id, update) -> {
+                Map<Long, PendingUpdate> single = new LinkedHashMap<>();
+                single.put(id, update);
+                flush(single);
+            });
+            return;
+        }
+        LocalDateTime appliedAt = LocalDateTime.now();
+        batch.forEach((id, update) -> {
+            User user = updated.get(id);
+            if (user == null) {
+                update.fail(new RuntimeException("User not found with ID: " + id));
+                return;
+            }
+            try {
+                if (auditor != null) {
+                    auditor.record(UserAuditEntry.of(UserAuditEntry.Action.UPDATE, before.get(id), user, appliedAt));
+                }
+                update.waiters.forEach(waiter -> waiter.complete(user));
+            } catch (RuntimeException e) {
+                // the patch stays applied, as with a failed audit of a direct update
+                logger.error("Failed to audit write-behind update of user {}", id, e);
+                update.fail(e);
+            }
+        });
+        logger.info("Write-behind flushed {} users", batch.size());
+    }
+
+    // constraint and data errors belong to one row; the rest of the batch would go through on its own
+    private static boolean isRowFailure(Exception e) {
+        String sqlState = e instanceof DataAccessException dataAccessException ? dataAccessException.getSqlState() : null;
+        return sqlState != null && (sqlState.startsWith("23") || sqlState.startsWith("22"));
+    }
+
+    // the values a patch replaces are read in the transaction that applies it
+    private Map<Long, User> applyAudited(Map<Long, UserPatch> patches, Map<Long, User> before) {
+        return userRepository.inTransaction(tx -> {
+            before.clear();
+            for (Long id : patches.keySet()) {
+                tx.findById(id).ifPresent(user -> before.put(id, UserService.snapshot(user)));
+            }
+            return tx.applyPatches(patches);
+        });
+    }
+
+    public static WriteBehindUserUpdater withDefaults(UserRepository userRepository) {
+        return withDefaults(userRepository, null);
+    }
+
+    public static WriteBehindUserUpdater withDefaults(UserRepository userRepository, UserAuditor auditor) {
+        return new WriteBehindUserUpdater(userRepository, auditor, 10_000, 500,
+                Duration.ofMillis(50), Duration.ofSeconds(1));
+    }
+
+    private static final class PendingUpdate {
+        private UserPatch patch;
+        private final List<CompletableFuture<User>> waiters = new ArrayList<>(1);
+
+        private PendingUpdate(UserPatch patch, CompletableFuture<User> waiter) {
+            this.patch = patch;
+            this.waiters.add(waiter);
+        }
+
+        private void fail(Exception e) {
+            waiters.forEach(waiter -> waiter.completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.user.service.util;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.hibernate.reactive.provider.ReactiveServiceRegistryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+public class ReactiveSessionFactoryProvider {
+    private static final Logger logger = LogManager.getLogger(ReactiveSessionFactoryProvider.class);
+    private static volatile Mutiny.SessionFactory instance;
+
+    private ReactiveSessionFactoryProvider() {}
+
+    public static Mutiny.SessionFactory getInstance() {
+        if (instance == null) {
+            synchronized (ReactiveSessionFactoryProvider.class) {
+                if (instance == null) {
+                    try {
+                        Configuration config = new Configuration().configure();
+
+                        String url = System.getProperty("hibernate.connection.url");
+                        String username = System.getProperty("hibernate.connection.username");
+                        String password = System.getProperty("hibernate.connection.password");
+
+                        if (url != null) config.setProperty("hibernate.connection.url", url);
+                        if (username != null) config.setProperty("hibernate.connection.username", username);
+                        if (password != null) config.setProperty("hibernate.connection.password", password);
+
+                        instance = build(config);
+                        // closed together with the blocking SessionFactory
+                        SessionFactoryProvider.registerShutdownHook(instance::close);
+                        logger.info("Reactive SessionFactory initialized successfully");
+                    } catch (Exception e) {
+                        logger.error("Failed to initialize reactive SessionFactory", e);
+                        throw new RuntimeException("Failed to initialize reactive SessionFactory", e);
+                    }
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Same cfg.xml and mapping as the blocking factory; the Vert.x pool reads the JDBC URL,
+    // credentials and hibernate.connection.pool_size from it
+    public static Mutiny.SessionFactory build(Configuration config) {
+        return config.buildSessionFactory(new ReactiveServiceRegistryBuilder()
+                        // carries the <mapping> entries of the cfg.xml, which are not part of the properties
+                        .configure(config.getStandardServiceRegistryBuilder().getAggregatedCfgXml())
+                        .applySettings(config.getProperties())
+                        .build())
+                .unwrap(Mutiny.SessionFactory.class);
+    }
+}
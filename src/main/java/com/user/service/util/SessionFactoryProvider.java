@@ -2,12 +2,26 @@ package com.user.service.util;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class SessionFactoryProvider {
     private static final Logger logger = LogManager.getLogger(SessionFactoryProvider.class);
     private static SessionFactory instance;
+    private static final Deque<AutoCloseable> shutdownHooks = new ArrayDeque<>();
+    private static final Map<String, SessionFactory> shards = new ConcurrentHashMap<>();
 
     private SessionFactoryProvider() {}
 
@@ -25,6 +39,11 @@ public class SessionFactoryProvider {
                         if (url != null) config.setProperty("hibernate.connection.url", url);
                         if (username != null) config.setProperty("hibernate.connection.username", username);
                         if (password != null) config.setProperty("hibernate.connection.password", password);
+                        // a partitioned users table keeps email unique through user_emails; the mapping's
+                        // unique constraint cannot exist there
+                        if (Boolean.getBoolean("user.partitioned")) {
+                            config.setProperty("hibernate.schema_update.unique_constraint_strategy", "SKIP");
+                        }
 
                         instance = config.buildSessionFactory();
                         logger.info("SessionFactory initialized successfully");
@@ -38,10 +57,106 @@ public class SessionFactoryProvider {
         return instance;
     }
 
+    // One SessionFactory per shard database of ShardedUserRepository, configured like the default one
+    // but with -Duser.shard.<name>.url and optionally .username and .password
+    public static SessionFactory getShard(String name) {
+        return shards.computeIfAbsent(name, SessionFactoryProvider::buildShard);
+    }
+
+    // a shard built elsewhere, e.g. the target of a split; closed with the others on shutdown
+    public static void registerShard(String name, SessionFactory sessionFactory) {
+        if (shards.putIfAbsent(name, sessionFactory) != null) {
+            throw new IllegalStateException("Shard " + name + " is already registered");
+        }
+    }
+
+    public static Map<String, SessionFactory> getShards() {
+        return new TreeMap<>(shards);
+    }
+
+    private static SessionFactory buildShard(String name) {
+        String url = System.getProperty("user.shard." + name + ".url");
+        if (url == null) {
+            throw new IllegalStateException("No URL configured for shard " + name + " (-Duser.shard." + name + ".url)");
+        }
+        try {
+            Configuration config = new Configuration().configure();
+            config.setProperty("hibernate.connection.url", url);
+            String username = System.getProperty("user.shard." + name + ".username",
+                    System.getProperty("hibernate.connection.username"));
+            String password = System.getProperty("user.shard." + name + ".password",
+                    System.getProperty("hibernate.connection.password"));
+            if (username != null) config.setProperty("hibernate.connection.username", username);
+            if (password != null) config.setProperty("hibernate.connection.password", password);
+
+            SessionFactory sessionFactory = config.buildSessionFactory();
+            logger.info("SessionFactory for shard {} initialized successfully", name);
+            return sessionFactory;
+        } catch (Exception e) {
+            logger.error("Failed to initialize SessionFactory for shard {}", name, e);
+            throw new RuntimeException("Failed to initialize SessionFactory for shard " + name, e);
+        }
+    }
+
+    // holds count connections at once so that the pool opens them now rather than on first use;
+    // returns how many it got
+    public static int prefillConnections(SessionFactory sessionFactory, int count) {
+        ConnectionProvider provider = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(ConnectionProvider.class);
+        List<Connection> connections = new ArrayList<>(count);
+        try {
+            while (connections.size() < count) {
+                connections.add(provider.getConnection());
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Opened only {} of {} connections", connections.size(), count, e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    provider.closeConnection(connection);
+                } catch (SQLException | RuntimeException e) {
+                    logger.warn("Failed to return connection to the pool", e);
+                }
+            }
+        }
+        return connections.size();
+    }
+
+    public static void registerShutdownHook(AutoCloseable hook) {
+        synchronized (shutdownHooks) {
+            shutdownHooks.push(hook);
+        }
+    }
+
     public static void shutdown() {
+        runShutdownHooks();
         if (instance != null && !instance.isClosed()) {
             instance.close();
             logger.info("SessionFactory closed");
         }
+        for (Map.Entry<String, SessionFactory> shard : getShards().entrySet()) {
+            if (!shard.getValue().isClosed()) {
+                shard.getValue().close();
+                logger.info("SessionFactory for shard {} closed", shard.getKey());
+            }
+        }
+        shards.clear();
+    }
+
+    private static void runShutdownHooks() {
+        while (true) {
+            AutoCloseable hook;
+            synchronized (shutdownHooks) {
+                hook = shutdownHooks.poll();
+            }
+            if (hook == null) {
+                return;
+            }
+            try {
+                hook.close();
+            } catch (Exception e) {
+                logger.warn("Shutdown hook failed", e);
+            }
+        }
     }
 }
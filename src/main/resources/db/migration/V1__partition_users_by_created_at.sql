@@ -0,0 +1,80 @@
+-- Turns users into a table range-partitioned by month of created_at.
+-- A unique index on a partitioned table must contain the partition key, so email uniqueness moves
+-- to user_emails, kept in step by a row trigger. The primary key becomes (id, created_at); lookups
+-- by id still use its leading column in every partition. The age and created_at indexes of the
+-- old table are rebuilt once it is gone, since they keep their names until then.
+
+LOCK TABLE users IN ACCESS EXCLUSIVE MODE;
+ALTER TABLE users RENAME TO users_unpartitioned;
+
+CREATE SEQUENCE users_partitioned_id_seq AS bigint;
+SELECT setval('users_partitioned_id_seq', COALESCE((SELECT max(id) FROM users_unpartitioned), 0) + 1, false);
+
+CREATE TABLE users (
+    id         bigint       NOT NULL DEFAULT nextval('users_partitioned_id_seq'),
+    name       varchar(255) NOT NULL,
+    email      varchar(255) NOT NULL,
+    age        integer      NOT NULL,
+    created_at timestamp(6) NOT NULL,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+ALTER SEQUENCE users_partitioned_id_seq OWNED BY users.id;
+CREATE INDEX users_email_idx ON users (email);
+
+-- rows outside every monthly partition; retention trims it with a plain DELETE
+CREATE TABLE users_default PARTITION OF users DEFAULT;
+
+CREATE FUNCTION users_ensure_partitions(first_month date, months_ahead integer) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    month      date := date_trunc('month', first_month)::date;
+    last_month date := (date_trunc('month', now()) + make_interval(months => months_ahead))::date;
+    partition  text;
+    created    integer := 0;
+BEGIN
+    WHILE month <= last_month LOOP
+        partition := 'users_p' || to_char(month, 'YYYYMM');
+        IF to_regclass(partition) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF users FOR VALUES FROM (%L) TO (%L)',
+                           partition, month, (month + interval '1 month')::date);
+            created := created + 1;
+        END IF;
+        month := (month + interval '1 month')::date;
+    END LOOP;
+    RETURN created;
+END
+$$;
+
+SELECT users_ensure_partitions(COALESCE((SELECT min(created_at) FROM users_unpartitioned), now())::date, 3);
+
+INSERT INTO users (id, name, email, age, created_at)
+SELECT id, name, email, age, created_at FROM users_unpartitioned;
+
+CREATE TABLE user_emails (
+    email   varchar(255) PRIMARY KEY,
+    user_id bigint       NOT NULL
+);
+INSERT INTO user_emails (email, user_id) SELECT email, id FROM users_unpartitioned;
+
+CREATE FUNCTION users_sync_email() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM user_emails WHERE email = OLD.email AND user_id = OLD.id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO user_emails (email, user_id) VALUES (NEW.email, NEW.id);
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+CREATE TRIGGER users_sync_email_insert_delete AFTER INSERT OR DELETE ON users
+    FOR EACH ROW EXECUTE FUNCTION users_sync_email();
+CREATE TRIGGER users_sync_email_update AFTER UPDATE OF email ON users
+    FOR EACH ROW WHEN (OLD.email IS DISTINCT FROM NEW.email) EXECUTE FUNCTION users_sync_email();
+
+DROP TABLE users_unpartitioned;
+
+CREATE INDEX users_age_idx ON users (age);
+CREATE INDEX users_created_at_idx ON users (created_at);
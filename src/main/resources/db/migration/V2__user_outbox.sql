@@ -0,0 +1,14 @@
+-- Change events written by UserDAO in the same transaction as the change itself, and removed by
+-- the relay once delivered. Each row carries the user as it was committed, so delivery never has
+-- to read users again; name, email, age and user_created_at are null for deletions.
+
+CREATE TABLE user_outbox (
+    id              bigserial    PRIMARY KEY,
+    user_id         bigint       NOT NULL,
+    event_type      varchar(16)  NOT NULL,
+    name            varchar(255),
+    email           varchar(255),
+    age             integer,
+    user_created_at timestamp(6),
+    occurred_at     timestamp(6) NOT NULL DEFAULT now()
+);
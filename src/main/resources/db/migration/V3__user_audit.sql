@@ -0,0 +1,23 @@
+-- Audit history of user changes, one row per change with the changed fields as parallel arrays.
+-- Rows are only ever appended: a trigger rejects updates and deletes.
+
+CREATE TABLE user_audit (
+    id          bigserial    PRIMARY KEY,
+    user_id     bigint       NOT NULL,
+    action      varchar(8)   NOT NULL,
+    fields      text[]       NOT NULL,
+    old_values  text[]       NOT NULL,
+    new_values  text[]       NOT NULL,
+    occurred_at timestamp(6) NOT NULL
+);
+CREATE INDEX user_audit_user_time_idx ON user_audit (user_id, occurred_at);
+
+CREATE FUNCTION user_audit_append_only() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    RAISE EXCEPTION 'user_audit is append-only';
+END;
+$$;
+
+CREATE TRIGGER user_audit_append_only BEFORE UPDATE OR DELETE ON user_audit
+    FOR EACH ROW EXECUTE FUNCTION user_audit_append_only();
@@ -0,0 +1,13 @@
+-- Progress of UserBackfill jobs: the id space of users is split into ranges when a job first runs,
+-- and each range records the next id to process. A range is done once completed_at is set.
+
+CREATE TABLE backfill_checkpoint (
+    job          varchar(100) NOT NULL,
+    range_start  bigint       NOT NULL,
+    range_end    bigint       NOT NULL,
+    next_id      bigint       NOT NULL,
+    rows_scanned bigint       NOT NULL DEFAULT 0,
+    rows_updated bigint       NOT NULL DEFAULT 0,
+    completed_at timestamp(6),
+    PRIMARY KEY (job, range_start)
+);
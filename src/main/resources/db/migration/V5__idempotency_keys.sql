@@ -0,0 +1,14 @@
+-- Idempotency keys of createUser and updateUser requests, written in the same transaction as the
+-- change, with the user as the request returned it. Rows older than the retention are purged.
+
+CREATE TABLE idempotency_keys (
+    idempotency_key varchar(255) PRIMARY KEY,
+    fingerprint     char(64)     NOT NULL,
+    user_id         bigint       NOT NULL,
+    name            varchar(255) NOT NULL,
+    email           varchar(255) NOT NULL,
+    age             integer      NOT NULL,
+    user_created_at timestamp(6) NOT NULL,
+    created_at      timestamp(6) NOT NULL DEFAULT now()
+);
+CREATE INDEX idempotency_keys_created_at_idx ON idempotency_keys (created_at);
@@ -0,0 +1,6 @@
+-- The range queries on age and created_at need the same indexes as the unpartitioned table, where
+-- the entity mapping declares them. An index on the partitioned table cascades to every partition,
+-- including those users_ensure_partitions creates later.
+
+CREATE INDEX IF NOT EXISTS users_age_idx ON users (age);
+CREATE INDEX IF NOT EXISTS users_created_at_idx ON users (created_at);
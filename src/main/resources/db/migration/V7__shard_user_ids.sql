@@ -0,0 +1,31 @@
+-- Ids for a users table that is one shard of several. An id is the milliseconds since 2024-01-01
+-- (41 bits), a logical shard (10 bits) and a sequence (12 bits), so the id alone tells which
+-- database holds the row. A database hands out ids only in the logical shards listed in
+-- user_shards; ShardedUserRepository keeps that list in step with the shard map.
+
+CREATE SEQUENCE users_shard_id_seq AS bigint;
+
+CREATE TABLE user_shards (
+    logical_shard integer PRIMARY KEY CHECK (logical_shard BETWEEN 0 AND 1023)
+);
+
+CREATE FUNCTION users_next_id() RETURNS bigint
+LANGUAGE plpgsql AS $$
+DECLARE
+    seq    bigint := nextval('users_shard_id_seq');
+    shards integer[];
+BEGIN
+    SELECT array_agg(logical_shard ORDER BY logical_shard) INTO shards FROM user_shards;
+    IF shards IS NULL THEN
+        RAISE EXCEPTION 'No logical shard is assigned to this database';
+    END IF;
+    -- consecutive ids go round the logical shards, so each of them fills up alike; two ids can
+    -- only collide within the same millisecond, after 4096 rounds of the sequence
+    RETURN ((floor(extract(epoch FROM clock_timestamp()) * 1000)::bigint - 1704067200000) << 22)
+        | (shards[1 + seq % array_length(shards, 1)]::bigint << 12)
+        | ((seq / array_length(shards, 1)) & 4095);
+END
+$$;
+
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE users ALTER COLUMN id SET DEFAULT users_next_id();
@@ -0,0 +1,17 @@
+-- The shared part of a sharded deployment, kept in one directory database: which shard database
+-- owns each logical shard, and which user every email belongs to, so emails stay unique across
+-- shards and findByEmail needs a single lookup. user_created_at lets retention drop the entries of
+-- the users it purges without listing them.
+
+CREATE TABLE user_shard_map (
+    logical_shard integer      PRIMARY KEY CHECK (logical_shard BETWEEN 0 AND 1023),
+    shard         varchar(100) NOT NULL
+);
+
+CREATE TABLE user_email_directory (
+    email           varchar(255) PRIMARY KEY,
+    user_id         bigint       NOT NULL,
+    user_created_at timestamp(6) NOT NULL,
+    claimed_at      timestamp(6) NOT NULL DEFAULT now()
+);
+CREATE INDEX user_email_directory_user_created_at_idx ON user_email_directory (user_created_at);
@@ -1,20 +1,29 @@
 package com.user.service;
 
+import com.user.service.dao.CountMode;
 import com.user.service.entities.User;
+import com.user.service.jfr.FlightRecording;
+import com.user.service.output.OutputFormat;
 import com.user.service.service.UserService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -253,6 +262,110 @@ class ApplicationRunnerTest {
         assertThat(output).contains("Failed to read users: Query failed").contains("Goodbye!");
     }
 
+    @Test
+    void readAllUsers_shouldPageWhenEstimateExceedsPageSize() {
+        String input = "2\np\n\n6\n";
+        Scanner scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+        PrintStream printStream = new PrintStream(outContent);
+
+        List<User> firstPage = users(1, ApplicationRunner.PAGE_SIZE);
+        List<User> lastPage = users(ApplicationRunner.PAGE_SIZE + 1, 5);
+        when(userService.countUsers(CountMode.ESTIMATE)).thenReturn(25L);
+        when(userService.getUsersPage(null, ApplicationRunner.PAGE_SIZE)).thenReturn(firstPage);
+        when(userService.getUsersPage((long) ApplicationRunner.PAGE_SIZE, ApplicationRunner.PAGE_SIZE)).thenReturn(lastPage);
+
+        ApplicationRunner runner = new ApplicationRunner(scanner, printStream, userService);
+
+        runner.run();
+
+        String output = outContent.toString();
+        assertThat(output).contains("About 25 users.").contains("Shown 20.")
+                .contains("User1 ").contains("User25 ").contains("Goodbye!");
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    void readAllUsers_shouldStopPagingOnQuit() {
+        String input = "2\np\nq\n6\n";
+        Scanner scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+        PrintStream printStream = new PrintStream(outContent);
+
+        when(userService.countUsers(CountMode.ESTIMATE)).thenReturn(1000L);
+        when(userService.getUsersPage(null, ApplicationRunner.PAGE_SIZE)).thenReturn(users(1, ApplicationRunner.PAGE_SIZE));
+
+        ApplicationRunner runner = new ApplicationRunner(scanner, printStream, userService);
+
+        runner.run();
+
+        assertThat(outContent.toString()).contains("Shown 20.").contains("Goodbye!");
+        verify(userService, times(1)).getUsersPage(any(), anyInt());
+    }
+
+    @Test
+    void readAllUsers_shouldStreamEverythingWhenAllChosen() {
+        String input = "2\na\n6\n";
+        Scanner scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+        PrintStream printStream = new PrintStream(outContent);
+
+        int pageSize = ApplicationRunner.STREAM_PAGE_SIZE;
+        when(userService.countUsers(CountMode.ESTIMATE)).thenReturn(1500L);
+        when(userService.getUsersPage(null, pageSize)).thenReturn(users(1, pageSize));
+        when(userService.getUsersPage((long) pageSize, pageSize)).thenReturn(users(pageSize + 1, 500));
+
+        ApplicationRunner runner = new ApplicationRunner(scanner, printStream, userService);
+
+        runner.run();
+
+        String output = outContent.toString();
+        assertThat(output).contains("All users:").contains("User1 ").contains("User1500 ").contains("Goodbye!");
+        assertThat(output.lines().filter(line -> line.contains("@test.com"))).hasSize(1500);
+        verify(userService, never()).getAllUsers();
+    }
+
+    @Test
+    void run_shouldPrintOnlyResultsWithoutMenu() {
+        String input = "2\n6\n";
+        Scanner scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+        PrintStream printStream = new PrintStream(outContent);
+
+        when(userService.getAllUsers()).thenReturn(users(1, 2));
+
+        ApplicationRunner runner = new ApplicationRunner(scanner, printStream, userService, OutputFormat.TSV, false);
+
+        runner.run();
+
+        assertThat(outContent.toString()).isEqualTo("id\tname\temail\tage\tcreated_at\n"
+                + "1\tUser1\tu1@test.com\t20\t2024-01-02T03:04:05\n"
+                + "2\tUser2\tu2@test.com\t20\t2024-01-02T03:04:05\n");
+    }
+
+    @Test
+    void run_shouldStreamLargeListingsWithoutAskingWhenMenuIsOff() {
+        String input = "2\n6\n";
+        Scanner scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+        PrintStream printStream = new PrintStream(outContent);
+
+        when(userService.countUsers(CountMode.ESTIMATE)).thenReturn(25L);
+        when(userService.getUsersPage(null, ApplicationRunner.STREAM_PAGE_SIZE)).thenReturn(users(1, 25));
+
+        ApplicationRunner runner = new ApplicationRunner(scanner, printStream, userService, OutputFormat.JSON, false);
+
+        runner.run();
+
+        String output = outContent.toString();
+        assertThat(output).startsWith("[\n{\"id\":1,").endsWith("}\n]\n").doesNotContain("Show (a)ll");
+        assertThat(output.lines()).hasSize(27);
+    }
+
+    private static List<User> users(long firstId, int count) {
+        return LongStream.range(firstId, firstId + count).mapToObj(id -> {
+            User user = new User("User" + id, "u" + id + "@test.com", 20);
+            user.setId(id);
+            user.setCreatedAt(LocalDateTime.of(2024, 1, 2, 3, 4, 5));
+            return user;
+        }).toList();
+    }
+
     @Test
     void readUserById_shouldPrintFoundUser() {
         String input = "3\n1\n6\n";
@@ -376,4 +489,23 @@ class ApplicationRunnerTest {
         String output = outContent.toString();
         assertThat(output).contains("Failed to delete user: Delete failed").contains("Goodbye!");
     }
+
+    @Test
+    void run_shouldDumpTheFlightRecordingOnDemand(@TempDir Path tempDir) {
+        Path dump = tempDir.resolve("now.jfr");
+        String input = "7\n" + dump + "\n6\n";
+        Scanner scanner = new Scanner(new ByteArrayInputStream(input.getBytes()));
+        PrintStream printStream = new PrintStream(outContent);
+
+        try (FlightRecording recording = FlightRecording.start(tempDir.resolve("exit.jfr"))) {
+            ApplicationRunner runner = new ApplicationRunner(scanner, printStream, userService,
+                    OutputFormat.FIXED, true, recording);
+
+            runner.run();
+        }
+
+        assertThat(outContent.toString()).contains("7. Dump Flight Recording")
+                .contains("Flight recording dumped to " + dump);
+        assertThat(Files.exists(dump)).isTrue();
+    }
 }
@@ -0,0 +1,112 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingUserRepositoryTest extends UserRepositoryContractTest {
+
+    @Override
+    protected UserRepository createRepository() {
+        return new CachingUserRepository(new InMemoryUserRepository(), new UserCache(100));
+    }
+
+    @Test
+    void findById_shouldServeRepeatedReadsFromCache() {
+        UserRepository delegate = mock(UserRepository.class);
+        when(delegate.findById(1L)).thenReturn(Optional.of(user(1L, "Alice")));
+        UserCache cache = new UserCache(100);
+        CachingUserRepository repository = new CachingUserRepository(delegate, cache);
+
+        repository.findById(1L);
+        User second = repository.findById(1L).orElseThrow();
+
+        verify(delegate, times(1)).findById(1L);
+        assertThat(second.getName()).isEqualTo("Alice");
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void update_shouldEvictEvenWhenDelegateFails() {
+        UserRepository delegate = mock(UserRepository.class);
+        User alice = user(1L, "Alice");
+        when(delegate.findById(1L)).thenReturn(Optional.of(alice));
+        doThrow(new DataAccessException("Failed to update user", null)).when(delegate).update(any());
+        UserCache cache = new UserCache(100);
+        CachingUserRepository repository = new CachingUserRepository(delegate, cache);
+        repository.findById(1L);
+
+        assertThatThrownBy(() -> repository.update(alice)).hasMessage("Failed to update user");
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void put_shouldDropValueReadBeforeAnInvalidation() {
+        UserCache cache = new UserCache(100);
+        long readEpoch = cache.currentEpoch();
+
+        cache.evict(1L);
+        cache.put(user(1L, "Stale"), readEpoch);
+
+        assertThat(cache.get(1L)).isEmpty();
+    }
+
+    @Test
+    void put_shouldNotGrowPastMaxEntries() {
+        UserCache cache = new UserCache(1);
+
+        cache.put(user(1L, "Alice"), cache.currentEpoch());
+        cache.put(user(2L, "Bob"), cache.currentEpoch());
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get(1L)).isPresent();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void inTransaction_shouldBypassCacheAndEvictWrittenIds() {
+        UserRepository delegate = mock(UserRepository.class);
+        UserRepository tx = mock(UserRepository.class);
+        when(delegate.inTransaction(any())).thenAnswer(invocation ->
+                invocation.<Function<UserRepository, Object>>getArgument(0).apply(tx));
+        when(tx.findById(1L)).thenReturn(Optional.of(user(1L, "Alice")));
+        UserCache cache = new UserCache(100);
+        cache.put(user(1L, "Cached"), cache.currentEpoch());
+        cache.put(user(2L, "Bob"), cache.currentEpoch());
+        cache.put(user(3L, "Carol"), cache.currentEpoch());
+        CachingUserRepository repository = new CachingUserRepository(delegate, cache);
+
+        String seen = repository.inTransaction(work -> {
+            User alice = work.findById(1L).orElseThrow();
+            work.update(alice);
+            work.applyPatches(Map.of(2L, new UserPatch("Robert", null, null)));
+            return alice.getName();
+        });
+
+        assertThat(seen).isEqualTo("Alice");
+        assertThat(cache.get(1L)).isEmpty();
+        assertThat(cache.get(2L)).isEmpty();
+        assertThat(cache.get(3L)).isPresent();
+    }
+
+    private static User user(Long id, String name) {
+        User user = new User(name, name.toLowerCase() + "@test.com", 30);
+        user.setId(id);
+        return user;
+    }
+}
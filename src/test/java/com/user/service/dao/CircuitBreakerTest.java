@@ -0,0 +1,187 @@
+package com.user.service.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    private AtomicLong clock;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        // window 10, at least 4 calls, opens at 50% failures or 50% calls over 100 ms, 2 trials
+        breaker = new CircuitBreaker("test", 10, 4, 0.5, Duration.ofMillis(100), 0.5, Duration.ofSeconds(5), 2,
+                clock::get);
+    }
+
+    @Test
+    void shouldOpenOnceFailureRateReachesThresholdAfterMinimumCalls() {
+        call(null);
+        call(outage());
+        call(outage());
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        call(null);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNegative();
+        assertThat(breaker.getMetrics().getRejected()).isEqualTo(1);
+        assertThat(breaker.getMetrics().getTransitions(CircuitBreaker.State.CLOSED, CircuitBreaker.State.OPEN))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldOpenOnSlowCallRate() {
+        for (int i = 0; i < 4; i++) {
+            long permit = breaker.tryAcquire();
+            breaker.onResult(permit, (i % 2 == 0 ? 150 : 10) * MILLIS, null);
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.getMetrics().getSlowCalls()).isEqualTo(2);
+        assertThat(breaker.getMetrics().getFailures()).isZero();
+    }
+
+    @Test
+    void shouldNotCountALongUnitOfWorkAsASlowCall() {
+        CircuitBreakingUserRepository repository = new CircuitBreakingUserRepository(new InMemoryUserRepository(),
+                breaker);
+
+        for (int i = 0; i < 4; i++) {
+            repository.inTransaction(tx -> clock.addAndGet(500 * MILLIS));
+            repository.inReadOnlyTransaction(tx -> clock.addAndGet(500 * MILLIS));
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getMetrics().getSlowCalls()).isZero();
+    }
+
+    @Test
+    void shouldNotCountErrorsFromAWorkingDatabase() {
+        for (int i = 0; i < 10; i++) {
+            call(new DataAccessException("Failed to save user",
+                    new SQLException("duplicate key value violates unique constraint", "23505")));
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getMetrics().getSuccesses()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldCountCancelledStatementsAsSlowCallsNotFailures() {
+        call(new QueryTimeoutException("Operation deadline exceeded before reaching the database", null));
+        call(new QueryTimeoutException("Failed to find user by ID",
+                new SQLException("canceling statement due to user request", "57014")));
+        call(null);
+        assertThat(breaker.getMetrics().getFailures()).isZero();
+        assertThat(breaker.getMetrics().getSlowCalls()).isEqualTo(2);
+
+        call(null);
+
+        // 2 of 4 calls slow, though each was cancelled after a millisecond
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void shouldJudgeOnlyTheLastWindowOfCalls() {
+        for (int i = 0; i < 6; i++) {
+            call(null);
+        }
+        for (int i = 0; i < 4; i++) {
+            call(outage());
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        // evicts the oldest success: 5 of the last 10 failed, though only 5 of all 11
+        call(outage());
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void shouldLetLimitedTrialsThroughWhenHalfOpenAndCloseWhenTheySucceed() {
+        tripOpen();
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(first).isNotNegative();
+        assertThat(second).isNotNegative();
+        assertThat(breaker.tryAcquire()).isNegative();
+
+        breaker.onResult(first, MILLIS, null);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onResult(second, MILLIS, null);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getMetrics().snapshot())
+                .containsEntry("transitions.CLOSED->OPEN", 1L)
+                .containsEntry("transitions.OPEN->HALF_OPEN", 1L)
+                .containsEntry("transitions.HALF_OPEN->CLOSED", 1L);
+    }
+
+    @Test
+    void shouldReopenWhenATrialFails() {
+        tripOpen();
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+
+        call(outage());
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNegative();
+        assertThat(breaker.getMetrics().getTransitions(CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.OPEN))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldIgnoreResultsOfCallsLetInBeforeTheLastTransition() {
+        long stale = breaker.tryAcquire();
+        tripOpen();
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        long trial = breaker.tryAcquire();
+
+        breaker.onResult(stale, MILLIS, outage());
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        breaker.onResult(trial, MILLIS, null);
+        call(null);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void constructor_shouldRejectMinimumCallsLargerThanTheWindow() {
+        assertThatThrownBy(() -> new CircuitBreaker("test", 5, 6, 0.5, Duration.ofMillis(100), 0.5,
+                Duration.ofSeconds(5), 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            call(outage());
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private void call(RuntimeException failure) {
+        long permit = breaker.tryAcquire();
+        assertThat(permit).isNotNegative();
+        breaker.onResult(permit, MILLIS, failure);
+    }
+
+    private static RuntimeException outage() {
+        return new ConnectionFailureException("Failed to find user by ID",
+                new SQLException("Connection refused", "08001"));
+    }
+}
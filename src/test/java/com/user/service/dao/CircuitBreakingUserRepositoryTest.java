@@ -0,0 +1,138 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class CircuitBreakingUserRepositoryTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static SessionFactory sessionFactory;
+
+    private boolean stopped;
+
+    @BeforeAll
+    static void setUp() {
+        // short timeouts so a call against the stopped database fails in seconds rather than minutes
+        sessionFactory = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl() + "&connectTimeout=1&socketTimeout=2",
+                postgres.getUsername(), postgres.getPassword());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    @BeforeEach
+    void cleanUp() {
+        sessionFactory.inTransaction(session -> session.createMutationQuery("DELETE FROM User").executeUpdate());
+    }
+
+    @AfterEach
+    void restart() {
+        if (stopped) {
+            startDatabase();
+        }
+    }
+
+    @Test
+    void shouldFailFastWhileTheDatabaseIsDownAndCloseOnceItIsBack() {
+        CircuitBreaker breaker = new CircuitBreaker("postgres", 10, 2, 0.5, Duration.ofSeconds(10), 1.0,
+                Duration.ofSeconds(1), 1);
+        CircuitBreakingUserRepository repository = new CircuitBreakingUserRepository(new UserDAO(sessionFactory),
+                breaker);
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+
+        stopDatabase();
+        assertThatThrownBy(() -> repository.findById(user.getId())).isInstanceOf(DataAccessException.class);
+        assertThatThrownBy(() -> repository.findById(user.getId())).isInstanceOf(DataAccessException.class);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> repository.findById(user.getId())).isInstanceOf(CircuitOpenException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(100));
+
+        startDatabase();
+        awaitOpenDuration();
+        // the breaker has evicted nothing from the pool; a dead connection may fail the first trial
+        User found = null;
+        for (int attempt = 0; attempt < 10 && found == null; attempt++) {
+            try {
+                found = repository.findById(user.getId()).orElseThrow();
+            } catch (DataAccessException e) {
+                awaitOpenDuration();
+            }
+        }
+
+        assertThat(found).isNotNull();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getMetrics().getRejected()).isGreaterThanOrEqualTo(1);
+        assertThat(breaker.getMetrics().getTransitions(CircuitBreaker.State.CLOSED, CircuitBreaker.State.OPEN))
+                .isEqualTo(1);
+        assertThat(breaker.getMetrics().getTransitions(CircuitBreaker.State.HALF_OPEN, CircuitBreaker.State.CLOSED))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void cachingOverTheBreakerShouldServeCachedReadsDuringTheOutage() {
+        CircuitBreaker breaker = new CircuitBreaker("postgres", 10, 2, 0.5, Duration.ofSeconds(10), 1.0,
+                Duration.ofMinutes(1), 1);
+        CachingUserRepository repository = new CachingUserRepository(
+                new CircuitBreakingUserRepository(new UserDAO(sessionFactory), breaker), new UserCache(100));
+        User cached = new User("Alice", "alice@test.com", 30);
+        User uncached = new User("Bob", "bob@test.com", 40);
+        UserDAO userDAO = new UserDAO(sessionFactory);
+        userDAO.save(cached);
+        userDAO.save(uncached);
+        repository.findById(cached.getId());
+
+        stopDatabase();
+        assertThatThrownBy(repository::findAll).isInstanceOf(DataAccessException.class);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThat(repository.findById(cached.getId())).map(User::getName).contains("Alice");
+        assertThatThrownBy(() -> repository.findById(uncached.getId())).isInstanceOf(CircuitOpenException.class);
+    }
+
+    // pausing keeps the mapped port, so the same JDBC URL works once the container runs again
+    private void stopDatabase() {
+        DockerClientFactory.instance().client().pauseContainerCmd(postgres.getContainerId()).exec();
+        stopped = true;
+    }
+
+    private void startDatabase() {
+        DockerClientFactory.instance().client().unpauseContainerCmd(postgres.getContainerId()).exec();
+        stopped = false;
+    }
+
+    private static void awaitOpenDuration() {
+        try {
+            Thread.sleep(1100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
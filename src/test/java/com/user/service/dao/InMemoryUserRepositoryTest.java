@@ -0,0 +1,62 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryUserRepositoryTest extends UserRepositoryContractTest {
+
+    @Override
+    protected UserRepository createRepository() {
+        return new InMemoryUserRepository();
+    }
+
+    @Test
+    void save_shouldRejectUserWithExistingId() {
+        User user = new User("Alice", "alice@test.com", 30);
+        user.setId(42L);
+
+        assertThatThrownBy(() -> repository.save(user))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to save user");
+    }
+
+    @Test
+    void concurrentSaves_shouldKeepEmailUniqueAndIdsDistinct() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String email = "user" + (i % 100) + "@test.com";
+                results.add(executor.submit(() -> {
+                    try {
+                        repository.save(new User("User", email, 30));
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }));
+            }
+            long saved = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS)) {
+                    saved++;
+                }
+            }
+
+            assertThat(saved).isEqualTo(100);
+            assertThat(repository.findAll()).extracting(User::getId).doesNotHaveDuplicates().hasSize(100);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two service instances, each with its own SessionFactory, cache and listener, sharing one database
+@Testcontainers(disabledWithoutDocker = true)
+class InvalidationListenerTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final String CHANNEL = "user_invalidation_test";
+
+    private static SessionFactory sessionFactoryA;
+    private static SessionFactory sessionFactoryB;
+
+    private UserCache cacheA;
+    private UserCache cacheB;
+    private InvalidationListener listenerA;
+    private InvalidationListener listenerB;
+    private UserRepository nodeA;
+    private UserRepository nodeB;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactoryA = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        sessionFactoryB = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        for (SessionFactory sessionFactory : new SessionFactory[]{sessionFactoryB, sessionFactoryA}) {
+            if (sessionFactory != null && !sessionFactory.isClosed()) {
+                sessionFactory.close();
+            }
+        }
+    }
+
+    @BeforeEach
+    void startNodes() {
+        sessionFactoryA.inTransaction(session ->
+                session.createMutationQuery("DELETE FROM User").executeUpdate());
+        cacheA = new UserCache(100);
+        cacheB = new UserCache(100);
+        listenerA = listener("node-a", cacheA);
+        listenerB = listener("node-b", cacheB);
+        PgNotifyInvalidationPublisher publisher = new PgNotifyInvalidationPublisher(CHANNEL);
+        nodeA = new CachingUserRepository(new UserDAO(sessionFactoryA, publisher), cacheA);
+        nodeB = new CachingUserRepository(new UserDAO(sessionFactoryB, publisher), cacheB);
+        awaitUntil(() -> listenerA.isConnected() && listenerB.isConnected());
+    }
+
+    @AfterEach
+    void stopNodes() {
+        listenerA.close();
+        listenerB.close();
+    }
+
+    @Test
+    void update_shouldEvictUserCachedByTheOtherNode() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        nodeA.save(alice);
+        assertThat(nodeB.findById(alice.getId()).orElseThrow().getName()).isEqualTo("Alice");
+        assertThat(cacheB.size()).isEqualTo(1);
+
+        User changed = nodeA.findById(alice.getId()).orElseThrow();
+        changed.setName("Alicia");
+        nodeA.update(changed);
+
+        awaitUntil(() -> cacheB.size() == 0);
+        assertThat(nodeB.findById(alice.getId()).orElseThrow().getName()).isEqualTo("Alicia");
+        assertThat(listenerB.getReceivedCount()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void deleteAndPatches_shouldEvictOnTheOtherNode() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        User bob = new User("Bob", "bob@test.com", 40);
+        nodeA.save(alice);
+        nodeA.save(bob);
+        nodeB.findById(alice.getId());
+        nodeB.findById(bob.getId());
+
+        nodeA.deleteById(alice.getId());
+        nodeA.applyPatches(Map.of(bob.getId(), new UserPatch(null, null, 41)));
+
+        awaitUntil(() -> cacheB.size() == 0);
+        assertThat(nodeB.findById(alice.getId())).isEmpty();
+        assertThat(nodeB.findById(bob.getId()).orElseThrow().getAge()).isEqualTo(41);
+    }
+
+    @Test
+    void rolledBackWrite_shouldNotNotify() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        nodeA.save(alice);
+        nodeB.findById(alice.getId());
+        long receivedBefore = listenerB.getReceivedCount();
+
+        try {
+            nodeA.inTransaction(tx -> {
+                User changed = tx.findById(alice.getId()).orElseThrow();
+                changed.setAge(31);
+                tx.update(changed);
+                throw new IllegalStateException("abort");
+            });
+        } catch (IllegalStateException expected) {
+            // rolled back
+        }
+        nodeA.update(nodeA.findById(alice.getId()).orElseThrow());
+
+        awaitUntil(() -> listenerB.getReceivedCount() > receivedBefore);
+        assertThat(listenerB.getReceivedCount()).isEqualTo(receivedBefore + 1);
+    }
+
+    @Test
+    void lostListenerConnection_shouldReconnectAndFlushCache() throws SQLException {
+        User alice = new User("Alice", "alice@test.com", 30);
+        nodeA.save(alice);
+        nodeB.findById(alice.getId());
+        long flushesBefore = listenerB.getFlushCount();
+
+        try (Connection admin = DriverManager.getConnection(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+             Statement statement = admin.createStatement()) {
+            statement.execute("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE application_name = 'node-b'");
+        }
+
+        awaitUntil(() -> listenerB.getReconnectCount() >= 1 && listenerB.isConnected());
+        assertThat(listenerB.getFlushCount()).isGreaterThan(flushesBefore);
+        assertThat(cacheB.size()).isZero();
+
+        User changed = nodeA.findById(alice.getId()).orElseThrow();
+        nodeB.findById(alice.getId());
+        changed.setAge(31);
+        nodeA.update(changed);
+        awaitUntil(() -> cacheB.size() == 0);
+        assertThat(nodeB.findById(alice.getId()).orElseThrow().getAge()).isEqualTo(31);
+    }
+
+    private static InvalidationListener listener(String applicationName, UserCache cache) {
+        String url = postgres.getJdbcUrl() + (postgres.getJdbcUrl().contains("?") ? "&" : "?")
+                + "ApplicationName=" + applicationName;
+        return new InvalidationListener(
+                () -> DriverManager.getConnection(url, postgres.getUsername(), postgres.getPassword()),
+                CHANNEL, cache, Duration.ofMillis(10), Duration.ofMillis(500), Duration.ofMillis(50));
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10 s").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
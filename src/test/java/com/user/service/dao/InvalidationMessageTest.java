@@ -0,0 +1,50 @@
+package com.user.service.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvalidationMessageTest {
+
+    @Test
+    void parse_shouldReadVersionAndIds() {
+        InvalidationMessage message = InvalidationMessage.parse("7741:1,22,333");
+
+        assertThat(message.version()).isEqualTo(7741L);
+        assertThat(message.ids()).containsExactly(1L, 22L, 333L);
+    }
+
+    @Test
+    void parse_shouldRecognizeAllIdsMarker() {
+        InvalidationMessage message = InvalidationMessage.parse("12:*");
+
+        assertThat(message.allIds()).isTrue();
+        assertThat(message.ids()).isEmpty();
+    }
+
+    @Test
+    void parse_shouldRejectPayloadWithoutVersion() {
+        assertThatThrownBy(() -> InvalidationMessage.parse("1,2,3"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void encodeIds_shouldSplitLongListsIntoPayloadSizedChunks() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1_000_000_000L; id < 1_000_002_000L; id++) {
+            ids.add(id);
+        }
+
+        List<String> chunks = InvalidationMessage.encodeIds(ids);
+
+        assertThat(chunks).hasSizeGreaterThan(1)
+                .allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(InvalidationMessage.MAX_IDS_LENGTH));
+        List<Long> decoded = new ArrayList<>();
+        chunks.forEach(chunk -> decoded.addAll(InvalidationMessage.parse("1:" + chunk).ids()));
+        assertThat(decoded).isEqualTo(ids);
+    }
+}
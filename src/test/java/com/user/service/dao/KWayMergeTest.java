@@ -0,0 +1,80 @@
+package com.user.service.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KWayMergeTest {
+
+    @Test
+    void merge_shouldInterleaveSortedSourcesIntoOneOrder() {
+        KWayMerge<Integer> merge = new KWayMerge<>(List.of(
+                List.of(1, 4, 9).iterator(),
+                List.<Integer>of().iterator(),
+                List.of(2, 3, 10, 11).iterator(),
+                List.of(5).iterator()), Comparator.naturalOrder());
+
+        List<Integer> merged = new ArrayList<>();
+        merge.forEachRemaining(merged::add);
+
+        assertThat(merged).containsExactly(1, 2, 3, 4, 5, 9, 10, 11);
+        assertThatThrownBy(merge::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void merge_shouldBreakTiesBySourceOrder() {
+        record Entry(int key, String source) {
+        }
+        KWayMerge<Entry> merge = new KWayMerge<>(List.of(
+                List.of(new Entry(1, "b"), new Entry(2, "b")).iterator(),
+                List.of(new Entry(1, "a"), new Entry(2, "a")).iterator()), Comparator.comparingInt(Entry::key));
+
+        List<String> sources = new ArrayList<>();
+        merge.forEachRemaining(entry -> sources.add(entry.source()));
+
+        assertThat(sources).containsExactly("b", "a", "b", "a");
+    }
+
+    @Test
+    void merge_shouldOnlyPullWhatTheCallerTakes() {
+        AtomicInteger pulled = new AtomicInteger();
+        List<Iterator<Integer>> sources = new ArrayList<>();
+        for (int source = 0; source < 3; source++) {
+            int offset = source;
+            sources.add(new Iterator<>() {
+                private int next = offset;
+
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public Integer next() {
+                    pulled.incrementAndGet();
+                    int value = next;
+                    next += 3;
+                    return value;
+                }
+            });
+        }
+        KWayMerge<Integer> merge = new KWayMerge<>(sources, Comparator.naturalOrder());
+
+        List<Integer> first = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            first.add(merge.next());
+        }
+
+        assertThat(first).containsExactly(0, 1, 2, 3, 4);
+        // one head per source plus one per element taken
+        assertThat(pulled).hasValue(8);
+    }
+}
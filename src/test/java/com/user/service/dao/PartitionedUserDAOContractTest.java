@@ -0,0 +1,125 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The repository contract again, on users after the monthly partitioning migration
+@Testcontainers(disabledWithoutDocker = true)
+class PartitionedUserDAOContractTest extends UserRepositoryContractTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static SessionFactory sessionFactory;
+    private static User migratedUser;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        IdempotencyKeys.migrate(sessionFactory);
+        migratedUser = new User("Before", "before@test.com", 50);
+        migratedUser.setCreatedAt(LocalDateTime.now().minusMonths(5));
+        new UserDAO(sessionFactory).save(migratedUser);
+
+        UserPartitionManager partitionManager = new UserPartitionManager(sessionFactory, 3);
+        assertThat(partitionManager.migrate()).isTrue();
+        assertThat(partitionManager.migrate()).isFalse();
+        assertThat(new UserDAO(sessionFactory).findById(migratedUser.getId()))
+                .map(User::getEmail).contains("before@test.com");
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    @Override
+    protected UserRepository createRepository() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            session.createNativeMutationQuery("DELETE FROM idempotency_keys").executeUpdate();
+        });
+        return new UserDAO(sessionFactory);
+    }
+
+    @Test
+    void save_shouldContinueIdsOfMigratedRows() {
+        User next = new User("After", "after@test.com", 20);
+
+        repository.save(next);
+
+        assertThat(next.getId()).isGreaterThan(migratedUser.getId());
+    }
+
+    @Test
+    void ensureFuturePartitions_shouldCreateMissingMonthsOnly() {
+        UserPartitionManager partitionManager = new UserPartitionManager(sessionFactory, 6);
+
+        assertThat(partitionManager.ensureFuturePartitions()).isEqualTo(3);
+        assertThat(partitionManager.ensureFuturePartitions()).isZero();
+        assertThat(partitionExists(YearMonth.now().plusMonths(6))).isTrue();
+    }
+
+    @Test
+    void findByCreatedAtBetween_shouldScanOnlyMatchingPartitions() {
+        YearMonth month = YearMonth.now();
+        String plan = sessionFactory.fromSession(session -> String.join("\n", session.createNativeQuery(
+                        "EXPLAIN SELECT * FROM users WHERE created_at >= :from AND created_at < :to", String.class)
+                .setParameter("from", month.atDay(1).atStartOfDay())
+                .setParameter("to", month.plusMonths(1).atDay(1).atStartOfDay())
+                .list()));
+
+        assertThat(plan).contains(partitionName(month)).doesNotContain(partitionName(month.minusMonths(1)))
+                .doesNotContain("users_default");
+    }
+
+    @Test
+    void purgeCreatedBefore_shouldDropWholeExpiredPartitions() {
+        YearMonth old = YearMonth.now().minusMonths(5);
+        repository.save(userCreatedAt("expired@test.com", old.atDay(10).atStartOfDay()));
+        repository.save(userCreatedAt("current@test.com", LocalDateTime.now()));
+
+        repository.purgeCreatedBefore(YearMonth.now().minusMonths(1));
+
+        assertThat(partitionExists(old)).isFalse();
+        assertThat(partitionExists(YearMonth.now())).isTrue();
+        assertThat(repository.findAll()).extracting(User::getEmail).containsExactly("current@test.com");
+        repository.upsertAll(List.of(new User("Expired again", "expired@test.com", 30)));
+        assertThat(repository.findAll()).hasSize(2);
+    }
+
+    private static boolean partitionExists(YearMonth month) {
+        return sessionFactory.fromSession(session -> session.createNativeQuery(
+                        "SELECT to_regclass(:name) IS NOT NULL", Boolean.class)
+                .setParameter("name", partitionName(month))
+                .uniqueResult());
+    }
+
+    private static String partitionName(YearMonth month) {
+        return String.format("users_p%04d%02d", month.getYear(), month.getMonthValue());
+    }
+
+    private static User userCreatedAt(String email, LocalDateTime createdAt) {
+        User user = new User("User", email, 30);
+        user.setCreatedAt(createdAt);
+        return user;
+    }
+}
@@ -0,0 +1,117 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class ReactiveUserDAOTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static Mutiny.SessionFactory sessionFactory;
+    private ReactiveUserDAO userDAO;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.createReactive(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), true);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && sessionFactory.isOpen()) {
+            sessionFactory.close();
+        }
+    }
+
+    @BeforeEach
+    void cleanDatabase() {
+        sessionFactory.withTransaction(session -> session.createMutationQuery("DELETE FROM User").executeUpdate())
+                .await().indefinitely();
+        userDAO = new ReactiveUserDAO(sessionFactory);
+    }
+
+    @Test
+    void save_shouldAssignIdAndMakeUserFindable() {
+        User user = userDAO.save(new User("Alice", "alice@test.com", 30)).await().indefinitely();
+
+        assertThat(user.getId()).isNotNull();
+        assertThat(userDAO.findById(user.getId()).await().indefinitely())
+                .map(User::getEmail).contains("alice@test.com");
+        assertThat(userDAO.findByEmail("alice@test.com").await().indefinitely())
+                .map(User::getId).contains(user.getId());
+    }
+
+    @Test
+    void save_shouldTranslateDuplicateEmail() {
+        userDAO.save(new User("Alice", "dup@test.com", 30)).await().indefinitely();
+
+        assertThatThrownBy(() -> userDAO.save(new User("Bob", "dup@test.com", 40)).await().indefinitely())
+                .isInstanceOf(DataAccessException.class)
+                .hasMessage("Failed to save user");
+    }
+
+    @Test
+    void update_shouldPersistChanges() {
+        User user = userDAO.save(new User("Alice", "alice@test.com", 30)).await().indefinitely();
+        user.setName("Alicia");
+
+        userDAO.update(user).await().indefinitely();
+
+        assertThat(userDAO.findById(user.getId()).await().indefinitely())
+                .map(User::getName).contains("Alicia");
+    }
+
+    @Test
+    void deleteById_shouldReportWhetherUserExisted() {
+        User user = userDAO.save(new User("Alice", "alice@test.com", 30)).await().indefinitely();
+
+        assertThat(userDAO.deleteById(user.getId()).await().indefinitely()).isTrue();
+        assertThat(userDAO.deleteById(user.getId()).await().indefinitely()).isFalse();
+        assertThat(userDAO.findAll().await().indefinitely()).isEmpty();
+    }
+
+    @Test
+    void streamAll_shouldEmitEveryUserInIdOrderAcrossPages() {
+        List<Long> ids = new ArrayList<>();
+        IntStream.range(0, 25).forEach(i -> ids.add(
+                userDAO.save(new User("U" + i, "u" + i + "@test.com", 20)).await().indefinitely().getId()));
+
+        List<User> streamed = userDAO.streamAll(10).collect().asList().await().indefinitely();
+
+        assertThat(streamed).extracting(User::getId).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void streamAll_shouldOnlyFetchWhatIsRequested() {
+        IntStream.range(0, 25).forEach(i ->
+                userDAO.save(new User("U" + i, "u" + i + "@test.com", 20)).await().indefinitely());
+
+        AssertSubscriber<User> subscriber = userDAO.streamAll(10)
+                .subscribe().withSubscriber(AssertSubscriber.create(3));
+
+        subscriber.awaitItems(3).assertNotTerminated();
+        assertThat(subscriber.getItems()).hasSize(3);
+        subscriber.request(100).awaitCompletion();
+        assertThat(subscriber.getItems()).hasSize(25);
+    }
+}
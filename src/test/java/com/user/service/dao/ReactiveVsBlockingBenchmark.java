@@ -0,0 +1,106 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import io.smallrye.mutiny.Uni;
+import org.hibernate.SessionFactory;
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// One operation = `concurrency` findById requests submitted at once and completed. Both sides get a
+// pool of bench.poolSize connections; the blocking side parks one thread per in-flight query (the
+// built-in Hibernate pool fails rather than queues beyond that), the reactive side queues requests
+// on the Vert.x event loop. Needs a UTF8 PostgreSQL database whose users table may be dropped:
+//   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+//       -Dexec.args="-cp %classpath org.openjdk.jmh.Main ReactiveVsBlockingBenchmark -prof gc"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReactiveVsBlockingBenchmark {
+    private static final int SEED_USERS = 10_000;
+
+    @Param({"1000", "4000"})
+    int concurrency;
+
+    private SessionFactory sessionFactory;
+    private Mutiny.SessionFactory reactiveSessionFactory;
+    private UserDAO blockingDAO;
+    private ReactiveUserDAO reactiveDAO;
+    private ExecutorService executor;
+    private long[] ids;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup
+    public void setUp() {
+        String url = System.getProperty("bench.jdbcUrl", "jdbc:postgresql://localhost:5432/user_bench");
+        String user = System.getProperty("bench.user", "postgres");
+        String password = System.getProperty("bench.password", "admin");
+        int poolSize = Integer.getInteger("bench.poolSize", 32);
+        System.setProperty("hibernate.connection.pool_size", Integer.toString(poolSize));
+        sessionFactory = SessionFactoryProviderForTest.create(url, user, password);
+        reactiveSessionFactory = SessionFactoryProviderForTest.createReactive(url, user, password, false);
+        blockingDAO = new UserDAO(sessionFactory);
+        reactiveDAO = new ReactiveUserDAO(reactiveSessionFactory);
+
+        List<User> users = new ArrayList<>(SEED_USERS);
+        for (int i = 0; i < SEED_USERS; i++) {
+            users.add(new User("Bench " + i, "bench-" + i + "@example.com", 20 + i % 50));
+        }
+        ids = blockingDAO.upsertAll(users).stream().mapToLong(User::getId).toArray();
+        executor = Executors.newFixedThreadPool(poolSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        reactiveSessionFactory.close();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public int blockingFindById() {
+        List<CompletableFuture<Optional<User>>> futures = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            long id = nextId();
+            futures.add(CompletableFuture.supplyAsync(() -> blockingDAO.findById(id), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        return futures.size();
+    }
+
+    @Benchmark
+    public int reactiveFindById() {
+        List<Uni<Optional<User>>> requests = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            requests.add(reactiveDAO.findById(nextId()));
+        }
+        return Uni.join().all(requests).andFailFast().await().indefinitely().size();
+    }
+
+    private long nextId() {
+        return ids[random.nextInt(ids.length)];
+    }
+}
@@ -0,0 +1,107 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class RetryingUserRepositoryFaultInjectionTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        // nextval() is not rolled back, so the sequence counts attempts across aborted transactions
+        sessionFactory.inTransaction(session -> session.doWork(connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute("CREATE SEQUENCE injected_faults");
+                statement.execute("CREATE TABLE injected_fault_config (fault_count int, fault_state text)");
+                statement.execute("INSERT INTO injected_fault_config VALUES (0, '40001')");
+                statement.execute("""
+                        CREATE FUNCTION inject_fault() RETURNS trigger AS $$
+                        DECLARE
+                            config record;
+                        BEGIN
+                            SELECT * INTO config FROM injected_fault_config;
+                            IF nextval('injected_faults') <= config.fault_count THEN
+                                RAISE EXCEPTION 'injected fault' USING ERRCODE = config.fault_state;
+                            END IF;
+                            RETURN NEW;
+                        END $$ LANGUAGE plpgsql""");
+                statement.execute("CREATE TRIGGER users_fault BEFORE UPDATE ON users "
+                        + "FOR EACH ROW EXECUTE FUNCTION inject_fault()");
+            }
+        }));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    @BeforeEach
+    void resetFaults() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            session.createNativeQuery("SELECT setval('injected_faults', 1, false)", Long.class).getSingleResult();
+        });
+    }
+
+    @Test
+    void update_shouldSucceedAfterInjectedSerializationFailures() {
+        RetryingUserRepository repository = repositoryWithFaults(2, "40001");
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+
+        user.setAge(31);
+        repository.update(user);
+
+        assertThat(repository.findById(user.getId()).orElseThrow().getAge()).isEqualTo(31);
+        assertThat(repository.getMetrics().getRetries(SerializationFailureException.class)).isEqualTo(2);
+        assertThat(repository.getMetrics().getRecovered()).isEqualTo(1);
+    }
+
+    @Test
+    void update_shouldSurfaceTypedDeadlockWhenAttemptsRunOut() {
+        RetryingUserRepository repository = repositoryWithFaults(10, "40P01");
+        User user = new User("Bob", "bob@test.com", 40);
+        repository.save(user);
+
+        user.setAge(41);
+        assertThatThrownBy(() -> repository.update(user)).isInstanceOf(DeadlockDetectedException.class);
+
+        assertThat(repository.getMetrics().getExhausted()).isEqualTo(1);
+        assertThat(repository.findById(user.getId()).orElseThrow().getAge()).isEqualTo(40);
+    }
+
+    private static RetryingUserRepository repositoryWithFaults(int faultCount, String sqlState) {
+        sessionFactory.inTransaction(session -> session
+                .createNativeMutationQuery("UPDATE injected_fault_config SET fault_count = :count, fault_state = :state")
+                .setParameter("count", faultCount)
+                .setParameter("state", sqlState)
+                .executeUpdate());
+        RetryPolicy policy = new RetryPolicy(4, Duration.ofMillis(1), Duration.ofMillis(10), new RetryBudget(0.1, 10));
+        return new RetryingUserRepository(new UserDAO(sessionFactory), policy);
+    }
+}
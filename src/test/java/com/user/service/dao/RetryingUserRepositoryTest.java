@@ -0,0 +1,138 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RetryingUserRepositoryTest {
+
+    private UserRepository delegate;
+    private List<Long> sleeps;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(UserRepository.class);
+        sleeps = new ArrayList<>();
+    }
+
+    @Test
+    void findById_shouldRetryTransientFailuresUntilSuccess() {
+        User user = new User("Alice", "alice@test.com", 30);
+        when(delegate.findById(1L))
+                .thenThrow(serialization())
+                .thenThrow(new ConnectionFailureException("Failed to find user by ID", null))
+                .thenReturn(Optional.of(user));
+        RetryingUserRepository repository = repository(4, new RetryBudget(0.1, 10));
+
+        assertThat(repository.findById(1L)).containsSame(user);
+
+        assertThat(sleeps).hasSize(2);
+        assertThat(repository.getMetrics().getRetries()).isEqualTo(2);
+        assertThat(repository.getMetrics().getRetries(SerializationFailureException.class)).isEqualTo(1);
+        assertThat(repository.getMetrics().getRetries(ConnectionFailureException.class)).isEqualTo(1);
+        assertThat(repository.getMetrics().getRecovered()).isEqualTo(1);
+    }
+
+    @Test
+    void update_shouldGiveUpAfterMaxAttempts() {
+        User user = new User("Alice", "alice@test.com", 30);
+        doThrow(deadlock()).when(delegate).update(user);
+        RetryingUserRepository repository = repository(3, new RetryBudget(0.1, 10));
+
+        assertThatThrownBy(() -> repository.update(user)).isInstanceOf(DeadlockDetectedException.class);
+
+        verify(delegate, times(3)).update(user);
+        assertThat(repository.getMetrics().getExhausted()).isEqualTo(1);
+    }
+
+    @Test
+    void save_shouldNotRetryConnectionFailureBecauseInsertIsNotIdempotent() {
+        User user = new User("Alice", "alice@test.com", 30);
+        doThrow(new ConnectionFailureException("Failed to save user", null)).when(delegate).save(user);
+        RetryingUserRepository repository = repository(4, new RetryBudget(0.1, 10));
+
+        assertThatThrownBy(() -> repository.save(user)).isInstanceOf(ConnectionFailureException.class);
+
+        verify(delegate, times(1)).save(user);
+    }
+
+    @Test
+    void save_shouldRetrySerializationFailureAndResetGeneratedId() {
+        User user = new User("Alice", "alice@test.com", 30);
+        List<Long> idsSeenByDelegate = new ArrayList<>();
+        org.mockito.Mockito.doAnswer(invocation -> {
+            idsSeenByDelegate.add(user.getId());
+            user.setId(99L);
+            if (idsSeenByDelegate.size() == 1) {
+                throw serialization();
+            }
+            return null;
+        }).when(delegate).save(user);
+        RetryingUserRepository repository = repository(4, new RetryBudget(0.1, 10));
+
+        repository.save(user);
+
+        assertThat(idsSeenByDelegate).containsExactly(null, null);
+    }
+
+    @Test
+    void findAll_shouldNotRetryNonTransientFailures() {
+        when(delegate.findAll()).thenThrow(new DataAccessException("Failed to fetch users", null));
+        RetryingUserRepository repository = repository(4, new RetryBudget(0.1, 10));
+
+        assertThatThrownBy(repository::findAll).hasMessage("Failed to fetch users");
+
+        verify(delegate, times(1)).findAll();
+        assertThat(sleeps).isEmpty();
+    }
+
+    @Test
+    void retryBudget_shouldStopRetryStormsOnceExhausted() {
+        when(delegate.findById(any())).thenThrow(serialization());
+        RetryingUserRepository repository = repository(10, new RetryBudget(0.0, 2));
+
+        assertThatThrownBy(() -> repository.findById(1L)).isInstanceOf(SerializationFailureException.class);
+        assertThatThrownBy(() -> repository.findById(2L)).isInstanceOf(SerializationFailureException.class);
+
+        verify(delegate, times(4)).findById(any());
+        assertThat(repository.getMetrics().getBudgetRejected()).isEqualTo(2);
+        assertThat(repository.getMetrics().snapshot()).containsEntry("retries", 2L);
+    }
+
+    @Test
+    void backoff_shouldBeJitteredAndCapped() {
+        RetryPolicy policy = new RetryPolicy(10, Duration.ofMillis(10), Duration.ofMillis(50), new RetryBudget(0.1, 10));
+
+        for (int attempt = 1; attempt < 10; attempt++) {
+            long ceiling = Math.min(Duration.ofMillis(50).toNanos(), Duration.ofMillis(10).toNanos() << (attempt - 1));
+            assertThat(policy.backoffNanos(attempt)).isBetween(0L, ceiling);
+        }
+    }
+
+    private RetryingUserRepository repository(int maxAttempts, RetryBudget budget) {
+        RetryPolicy policy = new RetryPolicy(maxAttempts, Duration.ofMillis(10), Duration.ofSeconds(1), budget);
+        return new RetryingUserRepository(delegate, policy, sleeps::add);
+    }
+
+    private static SerializationFailureException serialization() {
+        return new SerializationFailureException("Failed", null);
+    }
+
+    private static DeadlockDetectedException deadlock() {
+        return new DeadlockDetectedException("Failed to update user", null);
+    }
+}
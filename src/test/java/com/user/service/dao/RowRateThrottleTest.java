@@ -0,0 +1,45 @@
+package com.user.service.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RowRateThrottleTest {
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void reserve_shouldSpreadRowsAtTheConfiguredRate() {
+        RowRateThrottle throttle = new RowRateThrottle(1000, now::get);
+
+        // 500 rows at 1000 rows/s take half a second, queued behind each other
+        assertThat(throttle.reserve(500)).isEqualTo(1_500_000_000L);
+        assertThat(throttle.reserve(500)).isEqualTo(2_000_000_000L);
+    }
+
+    @Test
+    void reserve_shouldNotWaitWhenProcessingIsSlowerThanTheRate() {
+        RowRateThrottle throttle = new RowRateThrottle(1000, now::get);
+
+        now.addAndGet(2_000_000_000L);
+
+        assertThat(throttle.reserve(500)).isLessThan(now.get());
+    }
+
+    @Test
+    void reserve_shouldNotSaveUpIdleTimeForABurst() {
+        RowRateThrottle throttle = new RowRateThrottle(1000, now::get);
+        throttle.reserve(100);
+        now.addAndGet(10_000_000_000L);
+        throttle.reserve(100);
+
+        assertThat(throttle.reserve(500)).isEqualTo(now.get() + 500_000_000L);
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveRate() {
+        assertThatThrownBy(() -> new RowRateThrottle(0, now::get)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
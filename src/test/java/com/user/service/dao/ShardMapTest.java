@@ -0,0 +1,67 @@
+package com.user.service.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardMapTest {
+
+    @Test
+    void evenly_shouldGiveEachShardAContiguousRange() {
+        ShardMap map = ShardMap.evenly(List.of("a", "b", "c"));
+
+        assertThat(map.shards()).containsExactly("a", "b", "c");
+        assertThat(map.logicalShardsOf("a")).hasSize(342).startsWith(0).endsWith(341);
+        assertThat(map.logicalShardsOf("b")).hasSize(341).startsWith(342).endsWith(682);
+        assertThat(map.logicalShardsOf("c")).hasSize(341).startsWith(683).endsWith(1023);
+    }
+
+    @Test
+    void shardOf_shouldReadTheLogicalShardBitsOfTheId() {
+        ShardMap map = ShardMap.evenly(List.of("a", "b"));
+        // same millisecond and sequence, logical shards 5 and 700
+        long base = 123_456L << 22 | 17;
+
+        assertThat(ShardMap.logicalShardOf(base | 5L << 12)).isEqualTo(5);
+        assertThat(map.shardOf(base | 5L << 12)).isEqualTo("a");
+        assertThat(map.shardOf(base | 700L << 12)).isEqualTo("b");
+        assertThat(map.shardOf(Long.MAX_VALUE)).isEqualTo("b");
+    }
+
+    @Test
+    void upperHalfOf_shouldSplitOffTheHigherLogicalShards() {
+        ShardMap map = ShardMap.evenly(List.of("a", "b"));
+
+        List<Integer> moving = map.upperHalfOf("a");
+        ShardMap split = map.reassign(moving, "c");
+
+        assertThat(moving).containsExactlyElementsOf(IntStream.range(256, 512).boxed().toList());
+        assertThat(split.logicalShardsOf("a")).hasSize(256).endsWith(255);
+        assertThat(split.logicalShardsOf("c")).containsExactlyElementsOf(moving);
+        assertThat(split.logicalShardsOf("b")).isEqualTo(map.logicalShardsOf("b"));
+        assertThat(map.ownerOf(300)).isEqualTo("a");
+    }
+
+    @Test
+    void upperHalfOf_shouldRejectAShardWithASingleLogicalShard() {
+        String[] owners = new String[ShardMap.LOGICAL_SHARDS];
+        Arrays.fill(owners, "a");
+        owners[7] = "b";
+
+        assertThatThrownBy(() -> new ShardMap(owners).upperHalfOf("b"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void constructor_shouldRejectLogicalShardsWithoutOwner() {
+        String[] owners = new String[ShardMap.LOGICAL_SHARDS];
+
+        assertThatThrownBy(() -> new ShardMap(owners)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ShardMap.evenly(List.of())).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,150 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class ShardSplitterTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final int SEEDED = 600;
+
+    private static SessionFactory directoryFactory;
+    private static SessionFactory sourceFactory;
+    private static SessionFactory targetFactory;
+    private static ShardedUserRepository sharded;
+
+    @BeforeAll
+    static void setUp() {
+        directoryFactory = createFactory("split_directory");
+        sourceFactory = createFactory("split_shard_a");
+        targetFactory = createFactory("split_shard_b");
+        ShardedUserRepository.migrate(directoryFactory, Map.of("a", sourceFactory));
+        sharded = new ShardedUserRepository(directoryFactory, Map.of("a", sourceFactory));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sharded != null) {
+            sharded.close();
+        }
+        for (SessionFactory sessionFactory : new SessionFactory[]{directoryFactory, sourceFactory, targetFactory}) {
+            if (sessionFactory != null && !sessionFactory.isClosed()) {
+                sessionFactory.close();
+            }
+        }
+    }
+
+    @Test
+    void split_shouldMoveHalfTheLogicalShardsWhileWritesGoOn() throws Exception {
+        List<User> seeded = new ArrayList<>();
+        for (int i = 0; i < SEEDED; i++) {
+            seeded.add(new User("Seeded " + i, "seeded" + i + "@test.com", 20));
+        }
+        sharded.upsertAll(seeded);
+        // writes go through the retries the service uses, which wait out the freeze
+        UserRepository writer = new RetryingUserRepository(sharded, RetryPolicy.defaults());
+        Map<Long, Integer> expectedAges = new ConcurrentHashMap<>();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger created = new AtomicInteger();
+        Thread writes = new Thread(() -> {
+            for (int i = 0; !stop.get(); i++) {
+                try {
+                    User written = new User("Written " + i, "written" + i + "@test.com", 30);
+                    writer.save(written);
+                    // some go again, so the split has deletes to catch up on as well
+                    if (i % 5 == 0) {
+                        writer.deleteById(written.getId());
+                    } else {
+                        created.incrementAndGet();
+                    }
+                    User user = writer.findById(seeded.get(i % SEEDED).getId()).orElseThrow();
+                    user.setAge(21 + i % 50);
+                    writer.update(user);
+                    expectedAges.put(user.getId(), user.getAge());
+                } catch (RuntimeException e) {
+                    failures.add(e);
+                }
+            }
+        });
+        writes.start();
+
+        int moved;
+        try {
+            Thread.sleep(200);
+            moved = new ShardSplitter(sharded, 50).split("a", "b", targetFactory);
+            Thread.sleep(200);
+        } finally {
+            stop.set(true);
+            writes.join();
+        }
+
+        assertThat(failures).isEmpty();
+        ShardMap map = sharded.getShardMap();
+        assertThat(map.logicalShardsOf("a")).hasSize(512).endsWith(511);
+        assertThat(map.logicalShardsOf("b")).hasSize(512).startsWith(512);
+        assertThat(logicalShards(sourceFactory)).allMatch(logicalShard -> logicalShard < 512);
+        assertThat(logicalShards(targetFactory)).allMatch(logicalShard -> logicalShard >= 512);
+        assertThat(moved).isPositive();
+        List<User> all = sharded.findAll();
+        assertThat(all).hasSize(SEEDED + created.get()).extracting(User::getId).doesNotHaveDuplicates();
+        expectedAges.forEach((id, age) ->
+                assertThat(sharded.findById(id)).as("user %d", id).map(User::getAge).contains(age));
+        assertThat(sharded.findByEmail("seeded7@test.com")).isPresent();
+        // new users go to both shards now, and a restart picks up the stored map
+        List<User> after = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            User user = new User("After " + i, "after" + i + "@test.com", 40);
+            sharded.save(user);
+            after.add(user);
+        }
+        assertThat(after).extracting(user -> map.shardOf(user.getId())).contains("a", "b");
+        try (ShardedUserRepository restarted = new ShardedUserRepository(directoryFactory,
+                Map.of("a", sourceFactory, "b", targetFactory))) {
+            assertThat(restarted.findByEmail("after3@test.com")).isPresent();
+            assertThat(restarted.count(CountMode.EXACT, UserFilter.NONE)).isEqualTo(all.size() + after.size());
+        }
+    }
+
+    @Test
+    void constructor_shouldRefuseAMapNamingAnUnconfiguredShard() {
+        assertThatThrownBy(() -> new ShardedUserRepository(directoryFactory, Map.of("x", sourceFactory)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // the logical shard of every row
+    private static List<Integer> logicalShards(SessionFactory sessionFactory) {
+        return sessionFactory.fromSession(session -> session.createNativeQuery(
+                "SELECT CAST((id >> 12) & 1023 AS int) FROM users", Integer.class).list());
+    }
+
+    private static SessionFactory createFactory(String database) {
+        String url = SessionFactoryProviderForTest.createDatabase(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), database);
+        return SessionFactoryProviderForTest.create(url, postgres.getUsername(), postgres.getPassword());
+    }
+}
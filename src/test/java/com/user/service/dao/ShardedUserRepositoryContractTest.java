@@ -0,0 +1,207 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// The repository contract again, on users spread over two shard databases of one server
+@Testcontainers(disabledWithoutDocker = true)
+class ShardedUserRepositoryContractTest extends UserRepositoryContractTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static SessionFactory directoryFactory;
+    private static final Map<String, SessionFactory> shardFactories = new TreeMap<>();
+    private static ShardedUserRepository sharded;
+
+    @BeforeAll
+    static void setUp() {
+        directoryFactory = createFactory("user_directory");
+        shardFactories.put("a", createFactory("user_shard_a"));
+        shardFactories.put("b", createFactory("user_shard_b"));
+        IdempotencyKeys.migrate(directoryFactory);
+        ShardedUserRepository.migrate(directoryFactory, shardFactories);
+        // a second start finds everything in place
+        ShardedUserRepository.migrate(directoryFactory, shardFactories);
+        sharded = new ShardedUserRepository(directoryFactory, shardFactories);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sharded != null) {
+            sharded.close();
+        }
+        for (SessionFactory sessionFactory : shardFactories.values()) {
+            sessionFactory.close();
+        }
+        if (directoryFactory != null && !directoryFactory.isClosed()) {
+            directoryFactory.close();
+        }
+    }
+
+    @Override
+    protected UserRepository createRepository() {
+        for (SessionFactory sessionFactory : shardFactories.values()) {
+            sessionFactory.inTransaction(session -> session.createMutationQuery("DELETE FROM User").executeUpdate());
+        }
+        directoryFactory.inTransaction(session -> {
+            session.createNativeMutationQuery("DELETE FROM user_email_directory").executeUpdate();
+            session.createNativeMutationQuery("DELETE FROM idempotency_keys").executeUpdate();
+        });
+        return sharded;
+    }
+
+    @Test
+    void save_shouldStoreEachUserOnTheShardItsIdNames() {
+        List<User> users = saveUsers(40);
+
+        ShardMap map = sharded.getShardMap();
+        for (User user : users) {
+            String shard = map.shardOf(user.getId());
+            assertThat(rowExists(shard, user.getId())).as("user %d on shard %s", user.getId(), shard).isTrue();
+            assertThat(rowExists(shard.equals("a") ? "b" : "a", user.getId())).isFalse();
+        }
+        assertThat(users).extracting(user -> map.shardOf(user.getId())).contains("a", "b");
+    }
+
+    @Test
+    void update_shouldRejectAnEmailTakenOnAnotherShard() {
+        List<User> users = saveUsers(20);
+        Map<String, List<User>> byShard = users.stream()
+                .collect(Collectors.groupingBy(user -> sharded.getShardMap().shardOf(user.getId())));
+        User onA = byShard.get("a").get(0);
+        User onB = byShard.get("b").get(0);
+
+        User changed = repository.findById(onB.getId()).orElseThrow();
+        changed.setEmail(onA.getEmail());
+
+        assertThatThrownBy(() -> repository.update(changed))
+                .isInstanceOf(DataAccessException.class)
+                .hasMessage("Failed to update user")
+                .satisfies(e -> assertThat(((DataAccessException) e).getSqlState()).isEqualTo("23505"));
+        assertThat(repository.findByEmail(onA.getEmail())).map(User::getId).contains(onA.getId());
+        assertThat(repository.findById(onB.getId()).orElseThrow().getEmail()).isEqualTo(onB.getEmail());
+    }
+
+    @Test
+    void update_shouldMoveTheEmailInTheDirectory() {
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+
+        User changed = repository.findById(user.getId()).orElseThrow();
+        changed.setEmail("alicia@test.com");
+        repository.update(changed);
+        repository.save(new User("Another Alice", "alice@test.com", 20));
+
+        assertThat(repository.findByEmail("alicia@test.com")).map(User::getId).contains(user.getId());
+        assertThat(repository.findByEmail("alice@test.com")).map(User::getName).contains("Another Alice");
+    }
+
+    @Test
+    void findPage_shouldWalkAllShardsInIdOrder() {
+        List<User> users = saveUsers(30);
+
+        List<Long> walked = new ArrayList<>();
+        Long afterId = null;
+        for (List<User> page = repository.findPage(null, 7); !page.isEmpty();
+             page = repository.findPage(afterId, 7)) {
+            assertThat(page.size()).isLessThanOrEqualTo(7);
+            page.forEach(user -> walked.add(user.getId()));
+            afterId = page.get(page.size() - 1).getId();
+        }
+
+        assertThat(walked).isSorted().containsExactlyInAnyOrderElementsOf(users.stream().map(User::getId).toList());
+    }
+
+    @Test
+    void save_shouldTakeOverOnlyAClaimAbandonedLongAgo() {
+        claimWithoutUser("abandoned@test.com", LocalDateTime.now().minusMinutes(5));
+        claimWithoutUser("pending@test.com", LocalDateTime.now());
+
+        User user = new User("Alice", "abandoned@test.com", 30);
+        repository.save(user);
+
+        assertThat(repository.findByEmail("abandoned@test.com")).map(User::getId).contains(user.getId());
+        assertThatThrownBy(() -> repository.save(new User("Bob", "pending@test.com", 40)))
+                .isInstanceOf(DataAccessException.class)
+                .hasMessage("Failed to save user");
+        assertThat(repository.findAll()).hasSize(1);
+    }
+
+    // no unit of work spans the shards, so none is pretended
+    @Override
+    @Test
+    void inTransaction_shouldApplyEveryCallAndReturnWorkResult() {
+        assertThatThrownBy(() -> repository.inTransaction(tx -> {
+            tx.save(new User("Alice", "alice@test.com", 30));
+            return null;
+        })).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(repository.findAll()).isEmpty();
+    }
+
+    @Override
+    @Test
+    void inReadOnlyTransaction_shouldSeeCommittedData() {
+        assertThatThrownBy(() -> repository.inReadOnlyTransaction(tx -> tx.findAll().size()))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void count_shouldAddUpAllShards() {
+        saveUsers(25);
+
+        assertThat(repository.count(CountMode.EXACT, UserFilter.NONE)).isEqualTo(25);
+        assertThat(repository.findAll()).hasSize(25).extracting(User::getId).doesNotHaveDuplicates();
+    }
+
+    private List<User> saveUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User("U" + i, "u" + i + "@test.com", 20 + i % 50);
+            repository.save(user);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static boolean rowExists(String shard, long id) {
+        return shardFactories.get(shard).fromSession(session -> session.createNativeQuery(
+                        "SELECT count(*) FROM users WHERE id = :id", Long.class)
+                .setParameter("id", id)
+                .uniqueResult()) == 1;
+    }
+
+    private static void claimWithoutUser(String email, LocalDateTime claimedAt) {
+        directoryFactory.inTransaction(session -> session.createNativeMutationQuery("""
+                        INSERT INTO user_email_directory (email, user_id, user_created_at, claimed_at)
+                        VALUES (:email, 42, :claimedAt, :claimedAt)""")
+                .setParameter("email", email)
+                .setParameter("claimedAt", claimedAt)
+                .executeUpdate());
+    }
+
+    private static SessionFactory createFactory(String database) {
+        String url = SessionFactoryProviderForTest.createDatabase(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), database);
+        return SessionFactoryProviderForTest.create(url, postgres.getUsername(), postgres.getPassword());
+    }
+}
@@ -0,0 +1,67 @@
+package com.user.service.dao;
+
+import org.junit.jupiter.api.Test;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlStateTranslatorTest {
+
+    @Test
+    void translate_shouldMapSerializationFailure() {
+        DataAccessException e = SqlStateTranslator.translate("Failed to update user",
+                wrapped(new PSQLException("could not serialize access", PSQLState.SERIALIZATION_FAILURE)));
+
+        assertThat(e).isInstanceOf(SerializationFailureException.class).hasMessage("Failed to update user");
+        assertThat(e.getSqlState()).isEqualTo("40001");
+    }
+
+    @Test
+    void translate_shouldMapDeadlock() {
+        DataAccessException e = SqlStateTranslator.translate("Failed to delete user",
+                wrapped(new PSQLException("deadlock detected", PSQLState.DEADLOCK_DETECTED)));
+
+        assertThat(e).isInstanceOf(DeadlockDetectedException.class);
+    }
+
+    @Test
+    void translate_shouldMapConnectionClass08() {
+        DataAccessException e = SqlStateTranslator.translate("Failed to find user by ID",
+                wrapped(new PSQLException("Connection refused", PSQLState.CONNECTION_UNABLE_TO_CONNECT)));
+
+        assertThat(e).isInstanceOf(ConnectionFailureException.class);
+        assertThat(e.getSqlState()).startsWith("08");
+    }
+
+    @Test
+    void translate_shouldFindStateInChainedSqlException() {
+        SQLException batch = new SQLException("batch failed");
+        batch.setNextException(new SQLException("deadlock", "40P01"));
+
+        assertThat(SqlStateTranslator.translate("Failed", batch)).isInstanceOf(DeadlockDetectedException.class);
+    }
+
+    @Test
+    void translate_shouldKeepConstraintViolationsNonTransient() {
+        DataAccessException e = SqlStateTranslator.translate("Failed to save user",
+                wrapped(new PSQLException("duplicate key", PSQLState.UNIQUE_VIOLATION)));
+
+        assertThat(e).isExactlyInstanceOf(DataAccessException.class);
+        assertThat(e.getSqlState()).isEqualTo("23505");
+    }
+
+    @Test
+    void translate_shouldFallBackToGenericExceptionWithoutSqlState() {
+        DataAccessException e = SqlStateTranslator.translate("Failed to save user", new RuntimeException("boom"));
+
+        assertThat(e).isExactlyInstanceOf(DataAccessException.class).hasMessage("Failed to save user");
+        assertThat(e.getSqlState()).isNull();
+    }
+
+    private static RuntimeException wrapped(SQLException e) {
+        return new RuntimeException("could not execute statement", e);
+    }
+}
@@ -0,0 +1,104 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.entities.UserAuditEntry;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class UserAuditDAOTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private static SessionFactory sessionFactory;
+    private static UserAuditDAO auditDAO;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        auditDAO = new UserAuditDAO(sessionFactory);
+        auditDAO.migrate();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    @BeforeEach
+    void clean() {
+        // append-only: TRUNCATE is the only way to empty the table
+        sessionFactory.inTransaction(session ->
+                session.createNativeMutationQuery("TRUNCATE user_audit").executeUpdate());
+    }
+
+    @Test
+    void findByUser_shouldReturnTheUsersEntriesInRangeOldestFirst() {
+        User alice = user(1L, "Alice", 30);
+        User older = user(1L, "Alice", 31);
+        User bob = user(2L, "Bob", 40);
+        auditDAO.insertAll(List.of(
+                UserAuditEntry.of(UserAuditEntry.Action.UPDATE, alice, older, T0.plusHours(1)),
+                UserAuditEntry.of(UserAuditEntry.Action.CREATE, null, alice, T0),
+                UserAuditEntry.of(UserAuditEntry.Action.CREATE, null, bob, T0),
+                UserAuditEntry.of(UserAuditEntry.Action.DELETE, older, null, T0.plusDays(1))));
+
+        List<UserAuditEntry> trail = auditDAO.findByUser(1L, T0, T0.plusDays(1));
+
+        assertThat(trail).extracting(UserAuditEntry::action)
+                .containsExactly(UserAuditEntry.Action.CREATE, UserAuditEntry.Action.UPDATE);
+        assertThat(trail.get(0).changes()).containsExactly(
+                new UserAuditEntry.FieldChange("name", null, "Alice"),
+                new UserAuditEntry.FieldChange("email", null, "alice@test.com"),
+                new UserAuditEntry.FieldChange("age", null, "30"));
+        assertThat(trail.get(1).changes()).containsExactly(new UserAuditEntry.FieldChange("age", "30", "31"));
+        assertThat(trail.get(1).occurredAt()).isEqualTo(T0.plusHours(1));
+    }
+
+    @Test
+    void userAudit_shouldRejectUpdatesAndDeletes() {
+        auditDAO.insertAll(List.of(UserAuditEntry.of(UserAuditEntry.Action.CREATE, null, user(1L, "Alice", 30), T0)));
+
+        assertThatThrownBy(() -> sessionFactory.inTransaction(session ->
+                session.createNativeMutationQuery("UPDATE user_audit SET action = 'DELETE'").executeUpdate()))
+                .hasStackTraceContaining("append-only");
+        assertThatThrownBy(() -> sessionFactory.inTransaction(session ->
+                session.createNativeMutationQuery("DELETE FROM user_audit").executeUpdate()))
+                .hasStackTraceContaining("append-only");
+        assertThat(auditDAO.findByUser(1L, T0, T0.plusSeconds(1))).hasSize(1);
+    }
+
+    @Test
+    void migrate_shouldBeIdempotent() {
+        auditDAO.migrate();
+
+        assertThat(auditDAO.findByUser(1L, T0, T0.plusDays(1))).isEmpty();
+    }
+
+    private static User user(long id, String name, int age) {
+        User user = new User(name, name.toLowerCase() + "@test.com", age);
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,185 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class UserBackfillTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final int USERS = 1000;
+
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        new UserBackfill(sessionFactory, 1, 1, null).migrate();
+        UserOutbox.migrate(sessionFactory);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    @BeforeEach
+    void seed() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            session.createNativeMutationQuery("DELETE FROM backfill_checkpoint").executeUpdate();
+            session.createNativeMutationQuery("DELETE FROM user_outbox").executeUpdate();
+        });
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            // every third email needs normalizing
+            users.add(new User("User" + i, (i % 3 == 0 ? " User" + i + "@Test.COM" : "user" + i + "@test.com"), 30));
+        }
+        new UserDAO(sessionFactory).upsertAll(users);
+    }
+
+    @Test
+    void run_shouldApplyTheJobToEveryUserInParallelRanges() {
+        UserBackfill backfill = new UserBackfill(sessionFactory, 4, 50, null);
+
+        BackfillReport report = backfill.run(BackfillJob.normalizeEmails(), 8);
+
+        assertThat(report.isComplete()).isTrue();
+        assertThat(report.pendingRanges()).isEqualTo(8);
+        assertThat(report.rowsScanned()).isEqualTo(USERS);
+        assertThat(report.rowsUpdated()).isEqualTo((USERS + 2) / 3);
+        assertThat(unnormalizedEmails()).isZero();
+        assertThat(checkpointTotal("rows_updated")).isEqualTo((USERS + 2) / 3);
+    }
+
+    @Test
+    void run_shouldSkipAUserWhoseNormalizedEmailIsTakenAndInvalidateTheRest() {
+        new UserDAO(sessionFactory).upsertAll(List.of(
+                new User("Taken", "taken@test.com", 30), new User("Shouting", "TAKEN@test.com", 30)));
+        List<Long> invalidated = Collections.synchronizedList(new ArrayList<>());
+        UserBackfill backfill = new UserBackfill(sessionFactory, 4, 50, null,
+                (session, ids) -> invalidated.addAll(ids));
+
+        BackfillReport report = backfill.run(BackfillJob.normalizeEmails(), 8);
+
+        assertThat(report.isComplete()).isTrue();
+        assertThat(report.failedRanges()).isZero();
+        assertThat(report.rowsSkipped()).isEqualTo(1);
+        assertThat(report.rowsUpdated()).isEqualTo((USERS + 2) / 3);
+        assertThat(invalidated).hasSize((USERS + 2) / 3).doesNotHaveDuplicates();
+        assertThat(unnormalizedEmails()).isEqualTo(1);
+    }
+
+    @Test
+    void run_shouldRecordAnUpdatedEventForEveryRewrittenUser() {
+        UserBackfill backfill = new UserBackfill(sessionFactory, 4, 50, null, InvalidationPublisher.NONE,
+                new UserOutbox());
+
+        BackfillReport report = backfill.run(BackfillJob.normalizeEmails(), 8);
+
+        assertThat(report.rowsUpdated()).isEqualTo((USERS + 2) / 3);
+        List<Object[]> events = sessionFactory.fromSession(session -> session.createNativeQuery(
+                "SELECT user_id, event_type, email FROM user_outbox", Object[].class).getResultList());
+        assertThat(events).hasSize((USERS + 2) / 3);
+        assertThat(events).extracting(event -> event[0]).doesNotHaveDuplicates();
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event[1]).isEqualTo("UPDATED");
+            assertThat((String) event[2]).isEqualTo(((String) event[2]).trim().toLowerCase());
+        });
+    }
+
+    @Test
+    void run_shouldResumeWhereAFailedRunStopped() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        AtomicInteger applied = new AtomicInteger();
+        Long poisonId = sessionFactory.fromSession(session -> session.createQuery(
+                "SELECT max(id) FROM User", Long.class).getSingleResult());
+        BackfillJob job = BackfillJob.of("normalize-emails", user -> {
+            if (failing.get() && user.getId().equals(poisonId)) {
+                throw new IllegalStateException("poison row");
+            }
+            applied.incrementAndGet();
+            return BackfillJob.normalizeEmails().apply(user);
+        });
+        UserBackfill backfill = new UserBackfill(sessionFactory, 2, 50, null);
+
+        BackfillReport first = backfill.run(job, 4);
+        assertThat(first.failedRanges()).isEqualTo(1);
+        assertThat(first.completedRanges()).isEqualTo(3);
+        assertThat(unnormalizedEmails()).isPositive();
+
+        failing.set(false);
+        applied.set(0);
+        BackfillReport second = backfill.run(job, 4);
+
+        assertThat(second.isComplete()).isTrue();
+        assertThat(second.pendingRanges()).isEqualTo(1);
+        // only the chunk that failed and what followed it in that range are read again
+        assertThat(applied.get()).isLessThanOrEqualTo(50);
+        assertThat(unnormalizedEmails()).isZero();
+        assertThat(checkpointTotal("rows_scanned")).isEqualTo(USERS);
+        assertThat(backfill.run(job, 4).pendingRanges()).isZero();
+    }
+
+    @Test
+    void run_shouldStartOverAfterReset() {
+        UserBackfill backfill = new UserBackfill(sessionFactory, 2, 100, null);
+        backfill.run(BackfillJob.normalizeEmails(), 2);
+
+        backfill.reset("normalize-emails");
+        BackfillReport report = backfill.run(BackfillJob.normalizeEmails(), 2);
+
+        assertThat(report.rowsScanned()).isEqualTo(USERS);
+        assertThat(report.rowsUpdated()).isZero();
+    }
+
+    @Test
+    void run_shouldHoldToTheRowRate() {
+        UserBackfill backfill = new UserBackfill(sessionFactory, 4, 100, BackfillThrottle.rowsPerSecond(2000));
+
+        BackfillReport report = backfill.run(BackfillJob.normalizeEmails(), 4);
+
+        // the last chunk of each range is not paced
+        assertThat(report.elapsed()).isGreaterThanOrEqualTo(Duration.ofMillis(250));
+        assertThat(report.isComplete()).isTrue();
+    }
+
+    @Test
+    void replicaLag_shouldBeZeroWithoutStandbys() {
+        assertThat(UserBackfill.replicaLag(sessionFactory)).isEqualTo(Duration.ZERO);
+    }
+
+    private static long unnormalizedEmails() {
+        return sessionFactory.fromSession(session -> session.createNativeQuery(
+                "SELECT count(*) FROM users WHERE email <> lower(trim(email))", Long.class).getSingleResult());
+    }
+
+    private static long checkpointTotal(String column) {
+        return sessionFactory.fromSession(session -> session.createNativeQuery(
+                "SELECT CAST(sum(" + column + ") AS bigint) FROM backfill_checkpoint", Long.class).getSingleResult());
+    }
+}
@@ -0,0 +1,54 @@
+package com.user.service.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserChangeSubscribersTest {
+
+    private final UserChangeSubscribers subscribers = new UserChangeSubscribers();
+
+    @Test
+    void deliver_shouldHandEveryEventToEverySubscriberInOrder() {
+        List<Long> first = new ArrayList<>();
+        List<Long> second = new ArrayList<>();
+        subscribers.subscribe(event -> first.add(event.sequence()));
+        subscribers.subscribe(event -> second.add(event.sequence()));
+
+        subscribers.deliver(List.of(deleted(1), deleted(2), deleted(3)));
+
+        assertThat(first).containsExactly(1L, 2L, 3L);
+        assertThat(second).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void subscription_shouldStopDeliveryWhenClosed() {
+        List<Long> seen = new ArrayList<>();
+        UserChangeSubscribers.Subscription subscription = subscribers.subscribe(event -> seen.add(event.sequence()));
+
+        subscribers.deliver(List.of(deleted(1)));
+        subscription.close();
+        subscribers.deliver(List.of(deleted(2)));
+
+        assertThat(seen).containsExactly(1L);
+        assertThat(subscribers.size()).isZero();
+    }
+
+    @Test
+    void deliver_shouldFailTheBatchWhenASubscriberThrows() {
+        subscribers.subscribe(event -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThatThrownBy(() -> subscribers.deliver(List.of(deleted(1)))).hasMessage("boom");
+    }
+
+    private static UserChangeEvent deleted(long sequence) {
+        return new UserChangeEvent(sequence, UserChangeEvent.Type.DELETED, 7L, null, LocalDateTime.now());
+    }
+}
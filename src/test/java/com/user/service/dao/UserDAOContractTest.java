@@ -0,0 +1,124 @@
+package com.user.service.dao;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class UserDAOContractTest extends UserRepositoryContractTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        IdempotencyKeys.migrate(sessionFactory);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    @Override
+    protected UserRepository createRepository() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            session.createNativeMutationQuery("DELETE FROM idempotency_keys").executeUpdate();
+        });
+        return new UserDAO(sessionFactory);
+    }
+
+    @Test
+    void count_shouldEstimateFromPlannerStatistics() {
+        for (int i = 0; i < 200; i++) {
+            repository.save(new User("U" + i, "u" + i + "@test.com", i % 100));
+        }
+        sessionFactory.inTransaction(session -> session.createNativeMutationQuery("ANALYZE users").executeUpdate());
+
+        assertThat(repository.count(CountMode.ESTIMATE, UserFilter.NONE)).isEqualTo(200);
+        assertThat(repository.count(CountMode.ESTIMATE, UserFilter.ageBetween(0, 49))).isBetween(50L, 150L);
+        assertThat(repository.count(CountMode.EXACT, UserFilter.ageBetween(0, 49))).isEqualTo(100);
+    }
+
+    @Test
+    void saveIdempotencyRecord_shouldRollBackWithItsUnitOfWork() {
+        assertThatThrownBy(() -> repository.inTransaction(tx -> {
+            User user = new User("Alice", "alice@test.com", 30);
+            tx.save(user);
+            tx.saveIdempotencyRecord(new IdempotencyRecord("key-1", "a".repeat(64), user));
+            throw new IllegalStateException("request failed after the write");
+        })).hasMessage("request failed after the write");
+
+        assertThat(repository.findIdempotencyRecord("key-1")).isEmpty();
+        assertThat(repository.findAll()).isEmpty();
+    }
+
+    @Test
+    void inTransaction_shouldRollBackEveryCallWhenWorkFails() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        repository.save(alice);
+
+        assertThatThrownBy(() -> repository.inTransaction(tx -> {
+            tx.save(new User("Bob", "bob@test.com", 40));
+            tx.deleteById(alice.getId());
+            tx.save(new User("Duplicate", "bob@test.com", 41));
+            return null;
+        })).hasMessage("Failed to save user");
+
+        assertThat(repository.findAll()).extracting(User::getEmail).containsExactly("alice@test.com");
+    }
+
+    @Test
+    void inTransaction_shouldFlushUpdatesAndKeepLoadedEntitiesInLineWithUpserts() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        User bob = new User("Bob", "bob@test.com", 40);
+        repository.save(alice);
+        repository.save(bob);
+
+        String nameSeen = repository.inTransaction(tx -> {
+            User loaded = tx.findById(alice.getId()).orElseThrow();
+            loaded.setAge(31);
+            tx.update(loaded);
+            User other = tx.findById(bob.getId()).orElseThrow();
+            other.setAge(41);
+            tx.update(other);
+            tx.upsertAll(List.of(new User("Alicia", "alice@test.com", 32)));
+            return loaded.getName();
+        });
+
+        assertThat(nameSeen).isEqualTo("Alicia");
+        assertThat(repository.findById(alice.getId()).orElseThrow().getAge()).isEqualTo(32);
+        assertThat(repository.findById(bob.getId()).orElseThrow().getAge()).isEqualTo(41);
+    }
+
+    @Test
+    void inReadOnlyTransaction_shouldRejectWrites() {
+        assertThatThrownBy(() -> repository.inReadOnlyTransaction(tx -> {
+            tx.save(new User("Alice", "alice@test.com", 30));
+            return null;
+        })).hasMessage("Failed to save user");
+
+        assertThat(repository.findAll()).isEmpty();
+    }
+}
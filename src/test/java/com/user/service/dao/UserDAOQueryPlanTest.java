@@ -0,0 +1,315 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import com.user.service.util.SessionFactoryProviderForTest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs every statement UserDAO has Hibernate generate through EXPLAIN (ANALYZE, BUFFERS) against a
+// seeded table and fails when a plan stops using its index or touches more buffers or rows than
+// its budget. The statements are captured by a StatementInspector and explained with the values
+// each call bound, inside a transaction that is rolled back. SQL run through JDBC Work (upserts,
+// counts, retention, idempotency keys) does not pass the inspector and is not covered here.
+@Testcontainers(disabledWithoutDocker = true)
+class UserDAOQueryPlanTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static final int USERS = 200_000;
+    private static final LocalDateTime FIRST_CREATED = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final List<String> statements = new CopyOnWriteArrayList<>();
+    private static SessionFactory sessionFactory;
+    private static UserDAO userDAO;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), sql -> {
+                    statements.add(sql);
+                    return sql;
+                });
+        // one user every five minutes; ages spread evenly but in no relation to the physical order
+        sessionFactory.inTransaction(session -> session.doWork(connection -> {
+            try (var statement = connection.createStatement()) {
+                statement.execute("""
+                        INSERT INTO users (name, email, age, created_at)
+                        SELECT 'User ' || g, 'user' || g || '@test.com', 18 + (hashint4(g) & 2147483647) %% 80,
+                               timestamp '2024-01-01' + g * interval '5 minutes'
+                        FROM generate_series(1, %d) g""".formatted(USERS));
+                statement.execute("ANALYZE users");
+            }
+        }));
+        userDAO = new UserDAO(sessionFactory);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    void findById_shouldProbeThePrimaryKey() {
+        long id = USERS / 2;
+
+        Plan plan = explainOne(dao -> dao.findById(id), id);
+
+        plan.usesIndex("users_pkey").doesNotScanSequentially().readsAtMostBuffers(8).returnsRows(1);
+    }
+
+    @Test
+    void findByEmail_shouldProbeTheUniqueEmailIndex() {
+        String email = "user" + USERS / 2 + "@test.com";
+
+        Plan plan = explainOne(dao -> dao.findByEmail(email), email);
+
+        plan.hasIndexConditionOn("email").doesNotScanSequentially().readsAtMostBuffers(8).returnsRows(1);
+    }
+
+    @Test
+    void findByAgeBetween_shouldUseTheAgeIndex() {
+        // about one user in 80, scattered over most pages: the budget leaves no room for a full scan
+        Plan plan = explainOne(dao -> dao.findByAgeBetween(30, 30), 30, 30);
+
+        plan.usesIndex("users_age_idx").doesNotScanSequentially().readsAtMostBuffers(1_700).removesAtMostRows(0);
+    }
+
+    @Test
+    void findByCreatedAtBetween_shouldUseTheCreatedAtIndex() {
+        LocalDateTime from = FIRST_CREATED.plusMonths(6);
+        LocalDateTime to = from.plusDays(1);
+
+        Plan plan = explainOne(dao -> dao.findByCreatedAtBetween(from, to), from, to);
+
+        plan.usesIndex("users_created_at_idx").doesNotScanSequentially().readsAtMostBuffers(20).returnsRows(288);
+    }
+
+    @Test
+    void findPage_shouldWalkThePrimaryKeyAndStopAtTheLimit() {
+        Plan first = explainOne(dao -> dao.findPage(null, 50), Long.MIN_VALUE, 50);
+        Plan later = explainOne(dao -> dao.findPage((long) USERS - 1_000, 50), (long) USERS - 1_000, 50);
+
+        for (Plan plan : List.of(first, later)) {
+            plan.hasNode("Limit").usesIndex("users_pkey").doesNotScanSequentially()
+                    .readsAtMostBuffers(10).returnsRows(50);
+        }
+    }
+
+    @Test
+    void findAll_shouldBeTheOnlyQueryThatReadsTheWholeTable() {
+        Plan plan = explainOne(UserDAO::findAll);
+
+        plan.hasNode("Seq Scan").returnsRows(USERS);
+    }
+
+    @Test
+    void save_shouldInsertWithoutReadingTheTable() {
+        User user = new User("Plan", "plan-save@test.com", 30);
+
+        // the row is removed through plain JDBC before the insert is explained again
+        List<Plan> plans = explain(dao -> {
+            dao.save(user);
+            deleteQuietly(user.getId());
+        }, List.of(user.getAge(), user.getCreatedAt(), user.getEmail(), user.getName()));
+
+        // the heap page plus a descent into each of the four indexes
+        plans.get(0).hasNode("ModifyTable").doesNotScanSequentially().readsAtMostBuffers(25);
+    }
+
+    @Test
+    void update_shouldLoadAndWriteOneRowByPrimaryKey() {
+        User user = new User("Plan", "plan-update@test.com", 30);
+        userDAO.save(user);
+        user.setAge(31);
+
+        List<Plan> plans = explain(dao -> dao.update(user), List.of(user.getId()), List.of(31, user.getId()));
+        userDAO.deleteById(user.getId());
+
+        plans.get(0).usesIndex("users_pkey").readsAtMostBuffers(8).returnsRows(1);
+        plans.get(1).hasNode("ModifyTable").usesIndex("users_pkey").doesNotScanSequentially().readsAtMostBuffers(20);
+    }
+
+    @Test
+    void deleteById_shouldLoadAndDeleteOneRowByPrimaryKey() {
+        User user = new User("Plan", "plan-delete@test.com", 30);
+        userDAO.save(user);
+        // explained after the call deleted it for real, so against a copy put back through plain JDBC,
+        // which the inspector does not see
+        List<Plan> plans = explain(dao -> {
+            dao.deleteById(user.getId());
+            sessionFactory.inTransaction(session -> session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO users (id, name, email, age, created_at) VALUES (?, ?, ?, ?, ?)")) {
+                    statement.setLong(1, user.getId());
+                    statement.setString(2, user.getName());
+                    statement.setString(3, user.getEmail());
+                    statement.setInt(4, user.getAge());
+                    statement.setObject(5, user.getCreatedAt());
+                    statement.executeUpdate();
+                }
+            }));
+        }, List.of(user.getId()), List.of(user.getId()));
+        userDAO.deleteById(user.getId());
+
+        plans.get(0).usesIndex("users_pkey").readsAtMostBuffers(8).returnsRows(1);
+        plans.get(1).hasNode("ModifyTable").usesIndex("users_pkey").doesNotScanSequentially().readsAtMostBuffers(8);
+    }
+
+    @Test
+    void applyPatches_shouldLoadAllPatchedUsersInOneIndexProbe() {
+        Map<Long, UserPatch> patches = new LinkedHashMap<>();
+        patches.put(10L, new UserPatch(null, null, 40));
+        patches.put(20_000L, new UserPatch(null, null, 41));
+        patches.put(150_000L, new UserPatch(null, null, 42));
+
+        List<Plan> plans = explain(dao -> dao.applyPatches(patches),
+                List.of((Object) patches.keySet().toArray(Long[]::new)),
+                List.of(40, 10L), List.of(41, 20_000L), List.of(42, 150_000L));
+
+        // one descent of the primary key and one heap page per id, not a scan per id
+        plans.get(0).usesIndex("users_pkey").doesNotScanSequentially().readsAtMostBuffers(20).returnsRows(3);
+        for (Plan update : plans.subList(1, plans.size())) {
+            update.hasNode("ModifyTable").usesIndex("users_pkey").doesNotScanSequentially().readsAtMostBuffers(20);
+        }
+    }
+
+    private static void deleteQuietly(Long id) {
+        sessionFactory.inTransaction(session -> session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("DELETE FROM users WHERE id = ?")) {
+                statement.setLong(1, id);
+                statement.executeUpdate();
+            }
+        }));
+    }
+
+    private Plan explainOne(Consumer<UserDAO> call, Object... parameters) {
+        return explain(call, List.of(parameters)).get(0);
+    }
+
+    // Runs the call, then explains the statements it issued with the given parameters, one list per
+    // statement. A statement added to or dropped from the call fails the test until it is budgeted.
+    private List<Plan> explain(Consumer<UserDAO> call, List<?>... parameters) {
+        statements.clear();
+        call.accept(userDAO);
+        List<String> issued = List.copyOf(statements);
+        assertThat(issued).as("statements issued").hasSize(parameters.length);
+        return sessionFactory.fromSession(session -> session.doReturningWork(connection -> {
+            List<Plan> plans = new ArrayList<>();
+            try {
+                for (int i = 0; i < issued.size(); i++) {
+                    String sql = issued.get(i);
+                    try (PreparedStatement statement = connection.prepareStatement(
+                            "EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + sql)) {
+                        List<?> values = parameters[i];
+                        for (int p = 0; p < values.size(); p++) {
+                            Object value = values.get(p);
+                            if (value instanceof Long[] array) {
+                                statement.setArray(p + 1, connection.createArrayOf("bigint", array));
+                            } else {
+                                statement.setObject(p + 1, value);
+                            }
+                        }
+                        try (ResultSet rs = statement.executeQuery()) {
+                            rs.next();
+                            plans.add(new Plan(sql, new JsonArray(rs.getString(1)).getJsonObject(0).getJsonObject("Plan")));
+                        }
+                    }
+                }
+            } finally {
+                // ANALYZE executed the writes
+                connection.rollback();
+            }
+            return plans;
+        }));
+    }
+
+    private record Plan(String sql, JsonObject root) {
+
+        List<JsonObject> nodes() {
+            List<JsonObject> nodes = new ArrayList<>();
+            collect(root, nodes);
+            return nodes;
+        }
+
+        private static void collect(JsonObject node, List<JsonObject> nodes) {
+            nodes.add(node);
+            JsonArray children = node.getJsonArray("Plans");
+            if (children != null) {
+                for (int i = 0; i < children.size(); i++) {
+                    collect(children.getJsonObject(i), nodes);
+                }
+            }
+        }
+
+        Plan hasNode(String nodeType) {
+            assertThat(nodes()).as("node types of %s%n%s", sql, root.encodePrettily())
+                    .anyMatch(node -> nodeType.equals(node.getString("Node Type")));
+            return this;
+        }
+
+        Plan usesIndex(String index) {
+            assertThat(nodes()).as("indexes of %s%n%s", sql, root.encodePrettily())
+                    .anyMatch(node -> index.equals(node.getString("Index Name")));
+            return this;
+        }
+
+        Plan hasIndexConditionOn(String column) {
+            assertThat(nodes()).as("index conditions of %s%n%s", sql, root.encodePrettily())
+                    .anyMatch(node -> node.getString("Index Name") != null
+                            && node.getString("Index Cond", "").contains(column));
+            return this;
+        }
+
+        Plan doesNotScanSequentially() {
+            assertThat(nodes()).as("sequential scans of %s%n%s", sql, root.encodePrettily())
+                    .noneMatch(node -> "Seq Scan".equals(node.getString("Node Type")));
+            return this;
+        }
+
+        // the root's counts include those of every node below it
+        Plan readsAtMostBuffers(long budget) {
+            long buffers = root.getLong("Shared Hit Blocks", 0L) + root.getLong("Shared Read Blocks", 0L);
+            assertThat(buffers).as("shared buffers of %s%n%s", sql, root.encodePrettily()).isLessThanOrEqualTo(budget);
+            return this;
+        }
+
+        Plan removesAtMostRows(long budget) {
+            long removed = nodes().stream()
+                    .mapToLong(node -> node.getLong("Rows Removed by Filter", 0L)
+                            + node.getLong("Rows Removed by Index Recheck", 0L))
+                    .sum();
+            assertThat(removed).as("rows filtered out by %s%n%s", sql, root.encodePrettily()).isLessThanOrEqualTo(budget);
+            return this;
+        }
+
+        Plan returnsRows(long rows) {
+            assertThat(root.getLong("Actual Rows")).as("rows of %s", sql).isEqualTo(rows);
+            return this;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.user.service.dao;
 
 import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import org.hibernate.MultiIdentifierLoadAccess;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
@@ -12,6 +14,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -19,6 +22,7 @@ import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -63,6 +67,12 @@ class UserDAOTest {
         verify(transaction).rollback();
     }
 
+    @Test
+    void save_shouldReportTheFailureOfANullUser() {
+        assertThatThrownBy(() -> userDAO.save(null))
+                .isInstanceOf(DataAccessException.class)
+                .hasMessage("Failed to save user");
+    }
 
     @Test
     void findById_shouldReturnUserWhenExists() {
@@ -249,4 +259,168 @@ class UserDAOTest {
 
         verify(transaction, never()).rollback();
     }
+
+    @Test
+    void applyPatches_shouldPatchLoadedUsersInOneTransaction() {
+        User user = new User("Old", "old@test.com", 30);
+        user.setId(1L);
+        @SuppressWarnings("unchecked")
+        MultiIdentifierLoadAccess<User> loadAccess = mock(MultiIdentifierLoadAccess.class);
+        when(session.byMultipleIds(User.class)).thenReturn(loadAccess);
+        when(loadAccess.multiLoad(List.of(1L, 2L))).thenReturn(java.util.Arrays.asList(user, null));
+
+        Map<Long, UserPatch> patches = new java.util.LinkedHashMap<>();
+        patches.put(1L, new UserPatch("New", null, 31));
+        patches.put(2L, new UserPatch("Missing", null, null));
+        Map<Long, User> result = userDAO.applyPatches(patches);
+
+        assertThat(result).containsOnlyKeys(1L);
+        assertThat(user.getName()).isEqualTo("New");
+        assertThat(user.getAge()).isEqualTo(31);
+        verify(session).setJdbcBatchSize(2);
+        verify(transaction).commit();
+    }
+
+    @Test
+    void applyPatches_shouldRollbackAndThrowOnException() {
+        when(session.byMultipleIds(User.class)).thenThrow(new RuntimeException("DB error"));
+
+        assertThatThrownBy(() -> userDAO.applyPatches(Map.of(1L, new UserPatch("X", null, null))))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to apply user patches");
+
+        verify(transaction).rollback();
+    }
+
+    @Test
+    void upsertAll_shouldAssignReturnedIdsAndCommit() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        User bob = new User("Bob", "bob@test.com", 40);
+        when(session.doReturningWork(any())).thenReturn(Map.of("alice@test.com", 1L, "bob@test.com", 2L));
+
+        List<User> result = userDAO.upsertAll(List.of(alice, bob));
+
+        assertThat(result).extracting(User::getId).containsExactly(1L, 2L);
+        verify(transaction).commit();
+    }
+
+    @Test
+    void upsertByEmail_shouldRollbackAndThrowOnException() {
+        when(session.doReturningWork(any())).thenThrow(new RuntimeException("DB error"));
+
+        assertThatThrownBy(() -> userDAO.upsertByEmail(new User("Alice", "alice@test.com", 30)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to upsert users");
+
+        verify(transaction).rollback();
+    }
+
+    @Test
+    void findById_shouldRunInTransactionWithQueryTimeoutWhenDeadlineIsSet() {
+        User user = new User("Charlie", "charlie@test.com", 40);
+        when(session.getTransaction()).thenReturn(transaction);
+        when(session.get(User.class, 1L)).thenReturn(user);
+
+        var result = QueryDeadline.callWithin(java.time.Duration.ofMillis(1500), () -> userDAO.findById(1L));
+
+        assertThat(result).containsSame(user);
+        verify(transaction).setTimeout(2);
+        verify(transaction).commit();
+    }
+
+    @Test
+    void save_shouldApplyRemainingDeadlineAsTransactionTimeout() {
+        when(session.getTransaction()).thenReturn(transaction);
+        User user = new User("Alice", "alice@test.com", 30);
+
+        QueryDeadline.callWithin(java.time.Duration.ofSeconds(5), () -> {
+            userDAO.save(user);
+            return null;
+        });
+
+        verify(transaction).setTimeout(5);
+        verify(session).persist(user);
+    }
+
+    @Test
+    void findAll_shouldFailFastWhenDeadlineAlreadyPassed() {
+        assertThatThrownBy(() -> QueryDeadline.callWithin(java.time.Duration.ZERO, () -> userDAO.findAll()))
+                .isInstanceOf(QueryTimeoutException.class);
+
+        verify(session, never()).createQuery("FROM User", User.class);
+    }
+
+    @Test
+    void inTransaction_shouldShareOneSessionAndCommitOnce() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        User bob = new User("Bob", "bob@test.com", 40);
+        bob.setId(2L);
+
+        String result = userDAO.inTransaction(tx -> {
+            tx.save(alice);
+            tx.update(bob);
+            tx.deleteById(3L);
+            return "done";
+        });
+
+        assertThat(result).isEqualTo("done");
+        verify(sessionFactory, times(1)).openSession();
+        verify(session, times(1)).beginTransaction();
+        verify(transaction, times(1)).commit();
+        verify(session, times(1)).close();
+        verify(session).persist(alice);
+        verify(session).merge(bob);
+    }
+
+    @Test
+    void inTransaction_shouldRollbackWholeUnitWhenWorkFails() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        doThrow(new RuntimeException("DB error")).when(session).merge(any());
+
+        assertThatThrownBy(() -> userDAO.inTransaction(tx -> {
+            tx.save(alice);
+            tx.update(alice);
+            return null;
+        })).hasMessage("Failed to update user");
+
+        verify(transaction).rollback();
+        verify(transaction, never()).commit();
+        verify(session).close();
+    }
+
+    @Test
+    void inTransaction_shouldJoinNestedUnitsOfWork() {
+        userDAO.inTransaction(tx -> tx.inTransaction(inner -> inner.findById(1L)));
+
+        verify(sessionFactory, times(1)).openSession();
+        verify(transaction, times(1)).commit();
+    }
+
+    @Test
+    void inTransaction_shouldRejectWritesInsideNestedReadOnlyWork() {
+        User alice = new User("Alice", "alice@test.com", 30);
+
+        userDAO.inTransaction(tx -> {
+            assertThatThrownBy(() -> tx.inReadOnlyTransaction(readOnly -> {
+                readOnly.save(alice);
+                return null;
+            })).hasMessage("Failed to save user")
+                    .hasCauseInstanceOf(IllegalStateException.class);
+            tx.save(alice);
+            return null;
+        });
+
+        verify(session).setDefaultReadOnly(true);
+        verify(session, times(1)).persist(alice);
+        verify(transaction).commit();
+    }
+
+    @Test
+    void inReadOnlyTransaction_shouldDisableFlushing() {
+        userDAO.inReadOnlyTransaction(tx -> tx.findById(1L));
+
+        verify(session).setDefaultReadOnly(true);
+        verify(session).setHibernateFlushMode(org.hibernate.FlushMode.MANUAL);
+        verify(transaction).commit();
+    }
 }
@@ -0,0 +1,176 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+@Testcontainers(disabledWithoutDocker = true)
+class UserOutboxRelayTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static SessionFactory sessionFactory;
+
+    private final List<UserChangeEvent> received = new CopyOnWriteArrayList<>();
+    private UserRepository repository;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        UserOutbox.migrate(sessionFactory);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    @BeforeEach
+    void clean() {
+        sessionFactory.inTransaction(session -> {
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            session.createNativeMutationQuery("DELETE FROM user_outbox").executeUpdate();
+        });
+        repository = new UserDAO(sessionFactory, InvalidationPublisher.NONE, new UserOutbox());
+    }
+
+    @Test
+    void relayBatch_shouldDeliverEveryChangeInCommitOrderWithCommittedState() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        repository.save(alice);
+        alice.setAge(31);
+        repository.update(alice);
+        List<User> upserted = repository.upsertAll(List.of(
+                new User("Alicia", "alice@test.com", 32),
+                new User("Bob", "bob@test.com", 40)));
+        Long bobId = upserted.get(1).getId();
+        repository.applyPatches(Map.of(bobId, new UserPatch(null, null, 41)));
+        repository.deleteById(alice.getId());
+
+        UserOutboxRelay relay = new UserOutboxRelay(sessionFactory, received::addAll, 100, Duration.ofSeconds(1));
+
+        assertThat(relay.relayBatch()).isEqualTo(6);
+        assertThat(received).extracting(UserChangeEvent::type, UserChangeEvent::userId).containsExactly(
+                tuple(UserChangeEvent.Type.CREATED, alice.getId()),
+                tuple(UserChangeEvent.Type.UPDATED, alice.getId()),
+                tuple(UserChangeEvent.Type.CREATED, bobId),
+                tuple(UserChangeEvent.Type.UPDATED, alice.getId()),
+                tuple(UserChangeEvent.Type.UPDATED, bobId),
+                tuple(UserChangeEvent.Type.DELETED, alice.getId()));
+        assertThat(received).extracting(UserChangeEvent::sequence).isSorted();
+        assertThat(received.get(1).user().getAge()).isEqualTo(31);
+        assertThat(received.get(3).user().getName()).isEqualTo("Alicia");
+        assertThat(received.get(4).user().getAge()).isEqualTo(41);
+        assertThat(received.get(5).user()).isNull();
+        assertThat(relay.backlog()).isZero();
+        assertThat(relay.relayBatch()).isZero();
+    }
+
+    @Test
+    void rolledBackTransaction_shouldRecordNothing() {
+        assertThatThrownBy(() -> repository.inTransaction(tx -> {
+            tx.save(new User("Alice", "alice@test.com", 30));
+            throw new IllegalStateException("abort");
+        })).isInstanceOf(IllegalStateException.class);
+
+        UserOutboxRelay relay = new UserOutboxRelay(sessionFactory, received::addAll, 100, Duration.ofSeconds(1));
+
+        assertThat(relay.backlog()).isZero();
+        assertThat(relay.relayBatch()).isZero();
+    }
+
+    @Test
+    void relayBatch_shouldKeepEventsWhenSinkFailsAndDeliverThemAgain() {
+        repository.save(new User("Alice", "alice@test.com", 30));
+        repository.save(new User("Bob", "bob@test.com", 40));
+        AtomicBoolean failing = new AtomicBoolean(true);
+        List<List<UserChangeEvent>> batches = new ArrayList<>();
+        UserOutboxRelay relay = new UserOutboxRelay(sessionFactory, events -> {
+            batches.add(events);
+            if (failing.get()) {
+                throw new IllegalStateException("downstream unavailable");
+            }
+        }, 100, Duration.ofSeconds(1));
+
+        assertThatThrownBy(relay::relayBatch).hasMessage("Failed to relay user change events");
+        failing.set(false);
+
+        assertThat(relay.backlog()).isEqualTo(2);
+        assertThat(relay.relayBatch()).isEqualTo(2);
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(1)).extracting(UserChangeEvent::sequence)
+                .containsExactlyElementsOf(batches.get(0).stream().map(UserChangeEvent::sequence).toList());
+        assertThat(relay.getFailureCount()).isEqualTo(1);
+        assertThat(relay.getDeliveredCount()).isEqualTo(2);
+    }
+
+    @Test
+    void relayBatch_shouldDeliverAtMostBatchSizeEventsPerTransaction() {
+        for (int i = 0; i < 5; i++) {
+            repository.save(new User("U" + i, "u" + i + "@test.com", 20 + i));
+        }
+        UserOutboxRelay relay = new UserOutboxRelay(sessionFactory, received::addAll, 2, Duration.ofSeconds(1));
+
+        assertThat(List.of(relay.relayBatch(), relay.relayBatch(), relay.relayBatch(), relay.relayBatch()))
+                .containsExactly(2, 2, 1, 0);
+        assertThat(received).extracting(event -> event.user().getEmail())
+                .containsExactly("u0@test.com", "u1@test.com", "u2@test.com", "u3@test.com", "u4@test.com");
+    }
+
+    @Test
+    void start_shouldRelayToSubscribersInTheBackground() {
+        UserChangeSubscribers subscribers = new UserChangeSubscribers();
+        subscribers.subscribe(received::add);
+        try (UserOutboxRelay relay = new UserOutboxRelay(sessionFactory, subscribers, 100, Duration.ofMillis(20))) {
+            relay.start();
+
+            User alice = new User("Alice", "alice@test.com", 30);
+            repository.save(alice);
+            repository.deleteById(alice.getId());
+
+            awaitUntil(() -> received.size() == 2);
+            assertThat(received).extracting(UserChangeEvent::type)
+                    .containsExactly(UserChangeEvent.Type.CREATED, UserChangeEvent.Type.DELETED);
+            awaitUntil(() -> relay.backlog() == 0);
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10 s").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
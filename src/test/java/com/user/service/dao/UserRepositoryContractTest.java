@@ -0,0 +1,390 @@
+package com.user.service.dao;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+abstract class UserRepositoryContractTest {
+
+    protected UserRepository repository;
+
+    protected abstract UserRepository createRepository();
+
+    @BeforeEach
+    void setUpRepository() {
+        repository = createRepository();
+    }
+
+    @Test
+    void save_shouldAssignIdAndMakeUserFindable() {
+        User user = new User("Alice", "alice@test.com", 30);
+
+        repository.save(user);
+
+        assertThat(user.getId()).isNotNull();
+        User found = repository.findById(user.getId()).orElseThrow();
+        assertThat(found.getName()).isEqualTo("Alice");
+        assertThat(found.getEmail()).isEqualTo("alice@test.com");
+        assertThat(found.getAge()).isEqualTo(30);
+    }
+
+    @Test
+    void save_shouldAssignDistinctIds() {
+        User first = new User("First", "first@test.com", 20);
+        User second = new User("Second", "second@test.com", 21);
+
+        repository.save(first);
+        repository.save(second);
+
+        assertThat(first.getId()).isNotEqualTo(second.getId());
+    }
+
+    @Test
+    void save_shouldRejectDuplicateEmail() {
+        repository.save(new User("Alice", "dup@test.com", 30));
+
+        assertThatThrownBy(() -> repository.save(new User("Bob", "dup@test.com", 40)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to save user");
+        assertThat(repository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void findById_shouldReturnEmptyForUnknownId() {
+        assertThat(repository.findById(Long.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    void findById_shouldReturnDetachedCopy() {
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+
+        User found = repository.findById(user.getId()).orElseThrow();
+        found.setName("Changed without update");
+
+        assertThat(repository.findById(user.getId()).orElseThrow().getName()).isEqualTo("Alice");
+    }
+
+    @Test
+    void findByEmail_shouldReturnMatchingUser() {
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+
+        assertThat(repository.findByEmail("alice@test.com")).map(User::getId).contains(user.getId());
+        assertThat(repository.findByEmail("nobody@test.com")).isEmpty();
+    }
+
+    @Test
+    void findAll_shouldReturnEveryUser() {
+        repository.save(new User("A", "a@test.com", 20));
+        repository.save(new User("B", "b@test.com", 30));
+
+        assertThat(repository.findAll()).extracting(User::getEmail)
+                .containsExactlyInAnyOrder("a@test.com", "b@test.com");
+    }
+
+    @Test
+    void findByAgeBetween_shouldReturnInclusiveRangeOrderedByAge() {
+        repository.save(new User("A", "a@test.com", 18));
+        repository.save(new User("B", "b@test.com", 40));
+        repository.save(new User("C", "c@test.com", 25));
+        repository.save(new User("D", "d@test.com", 41));
+
+        List<User> users = repository.findByAgeBetween(18, 40);
+
+        assertThat(users).extracting(User::getAge).containsExactly(18, 25, 40);
+    }
+
+    @Test
+    void findByCreatedAtBetween_shouldUseHalfOpenRange() {
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        repository.save(userCreatedAt("old@test.com", base.minusDays(2)));
+        repository.save(userCreatedAt("from@test.com", base.minusDays(1)));
+        repository.save(userCreatedAt("to@test.com", base));
+
+        List<User> users = repository.findByCreatedAtBetween(base.minusDays(1), base);
+
+        assertThat(users).extracting(User::getEmail).containsExactly("from@test.com");
+    }
+
+    @Test
+    void findPage_shouldWalkUsersInIdOrder() {
+        for (int i = 0; i < 5; i++) {
+            repository.save(new User("U" + i, "u" + i + "@test.com", 20 + i));
+        }
+
+        List<User> first = repository.findPage(null, 2);
+        List<User> second = repository.findPage(first.get(1).getId(), 2);
+        List<User> last = repository.findPage(second.get(1).getId(), 2);
+
+        assertThat(first).extracting(User::getEmail).containsExactly("u0@test.com", "u1@test.com");
+        assertThat(second).extracting(User::getEmail).containsExactly("u2@test.com", "u3@test.com");
+        assertThat(last).extracting(User::getEmail).containsExactly("u4@test.com");
+        assertThat(repository.findPage(last.get(0).getId(), 2)).isEmpty();
+    }
+
+    @Test
+    void count_shouldCountExactlyWithFilters() {
+        LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        repository.save(userCreatedAt("old@test.com", base.minusDays(2)));
+        repository.save(userCreatedAt("from@test.com", base.minusDays(1)));
+        repository.save(userCreatedAt("to@test.com", base));
+        repository.save(new User("Young", "young@test.com", 17));
+
+        assertThat(repository.count(CountMode.EXACT, UserFilter.NONE)).isEqualTo(4);
+        assertThat(repository.count(CountMode.EXACT, UserFilter.ageBetween(18, 40))).isEqualTo(3);
+        assertThat(repository.count(CountMode.EXACT, UserFilter.createdBetween(base.minusDays(1), base)))
+                .isEqualTo(1);
+        assertThat(repository.count(CountMode.EXACT, new UserFilter(null, 17, base.minusDays(1), null)))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void update_shouldPersistChangesAndKeepCreatedAt() {
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+        LocalDateTime createdAt = repository.findById(user.getId()).orElseThrow().getCreatedAt();
+
+        User changed = repository.findById(user.getId()).orElseThrow();
+        changed.setName("Alicia");
+        changed.setAge(31);
+        changed.setCreatedAt(createdAt.plusYears(1));
+        repository.update(changed);
+
+        User found = repository.findById(user.getId()).orElseThrow();
+        assertThat(found.getName()).isEqualTo("Alicia");
+        assertThat(found.getAge()).isEqualTo(31);
+        assertThat(found.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(repository.findByAgeBetween(30, 30)).isEmpty();
+    }
+
+    @Test
+    void update_shouldInsertAUserItDoesNotKnow() {
+        User user = new User("Ghost", "ghost@test.com", 30);
+        user.setId(Long.MAX_VALUE);
+
+        repository.update(user);
+
+        // like a merge: the user is stored under a new id, the argument keeps its own
+        assertThat(user.getId()).isEqualTo(Long.MAX_VALUE);
+        assertThat(repository.findById(Long.MAX_VALUE)).isEmpty();
+        User found = repository.findByEmail("ghost@test.com").orElseThrow();
+        assertThat(found.getId()).isNotEqualTo(Long.MAX_VALUE);
+        assertThat(found.getName()).isEqualTo("Ghost");
+    }
+
+    @Test
+    void update_shouldRejectEmailOwnedByAnotherUser() {
+        repository.save(new User("Alice", "alice@test.com", 30));
+        User bob = new User("Bob", "bob@test.com", 40);
+        repository.save(bob);
+
+        User changed = repository.findById(bob.getId()).orElseThrow();
+        changed.setEmail("alice@test.com");
+
+        assertThatThrownBy(() -> repository.update(changed))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to update user");
+        assertThat(repository.findById(bob.getId()).orElseThrow().getEmail()).isEqualTo("bob@test.com");
+    }
+
+    @Test
+    void update_shouldReleaseOldEmail() {
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+
+        User changed = repository.findById(user.getId()).orElseThrow();
+        changed.setEmail("alicia@test.com");
+        repository.update(changed);
+        repository.save(new User("New Alice", "alice@test.com", 20));
+
+        assertThat(repository.findByEmail("alicia@test.com")).map(User::getId).contains(user.getId());
+        assertThat(repository.findAll()).hasSize(2);
+    }
+
+    @Test
+    void applyPatches_shouldUpdateOnlyGivenFieldsAndSkipUnknownIds() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        User bob = new User("Bob", "bob@test.com", 40);
+        repository.save(alice);
+        repository.save(bob);
+
+        Map<Long, UserPatch> patches = new LinkedHashMap<>();
+        patches.put(alice.getId(), new UserPatch("Alicia", null, null));
+        patches.put(bob.getId(), new UserPatch(null, "robert@test.com", 41));
+        patches.put(Long.MAX_VALUE, new UserPatch("Ghost", null, null));
+        Map<Long, User> updated = repository.applyPatches(patches);
+
+        assertThat(updated).containsOnlyKeys(alice.getId(), bob.getId());
+        User foundAlice = repository.findById(alice.getId()).orElseThrow();
+        assertThat(foundAlice.getName()).isEqualTo("Alicia");
+        assertThat(foundAlice.getAge()).isEqualTo(30);
+        User foundBob = repository.findById(bob.getId()).orElseThrow();
+        assertThat(foundBob.getEmail()).isEqualTo("robert@test.com");
+        assertThat(foundBob.getAge()).isEqualTo(41);
+    }
+
+    @Test
+    void applyPatches_shouldApplyNothingWhenOnePatchViolatesConstraints() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        User bob = new User("Bob", "bob@test.com", 40);
+        repository.save(alice);
+        repository.save(bob);
+
+        Map<Long, UserPatch> patches = new LinkedHashMap<>();
+        patches.put(alice.getId(), new UserPatch("Alicia", null, null));
+        patches.put(bob.getId(), new UserPatch(null, "alice@test.com", null));
+
+        assertThatThrownBy(() -> repository.applyPatches(patches))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Failed to apply user patches");
+        assertThat(repository.findById(alice.getId()).orElseThrow().getName()).isEqualTo("Alice");
+    }
+
+    @Test
+    void upsertByEmail_shouldInsertNewUser() {
+        User user = repository.upsertByEmail(new User("Alice", "alice@test.com", 30));
+
+        assertThat(user.getId()).isNotNull();
+        assertThat(repository.findByEmail("alice@test.com")).map(User::getId).contains(user.getId());
+    }
+
+    @Test
+    void upsertByEmail_shouldUpdateExistingUserAndKeepIdAndCreatedAt() {
+        User original = new User("Alice", "alice@test.com", 30);
+        repository.save(original);
+        LocalDateTime createdAt = repository.findById(original.getId()).orElseThrow().getCreatedAt();
+
+        User resent = new User("Alicia", "alice@test.com", 31);
+        resent.setCreatedAt(createdAt.plusDays(1));
+        User result = repository.upsertByEmail(resent);
+
+        assertThat(result.getId()).isEqualTo(original.getId());
+        assertThat(result.getCreatedAt()).isEqualTo(createdAt);
+        User found = repository.findById(original.getId()).orElseThrow();
+        assertThat(found.getName()).isEqualTo("Alicia");
+        assertThat(found.getAge()).isEqualTo(31);
+        assertThat(found.getCreatedAt()).isEqualTo(createdAt);
+        assertThat(repository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void upsertAll_shouldMixInsertsAndUpdatesAndCollapseDuplicateEmails() {
+        User existing = new User("Alice", "alice@test.com", 30);
+        repository.save(existing);
+
+        List<User> result = repository.upsertAll(List.of(
+                new User("Alicia", "alice@test.com", 31),
+                new User("Bob", "bob@test.com", 40),
+                new User("Robert", "bob@test.com", 41)));
+
+        assertThat(result).hasSize(3).allSatisfy(user -> assertThat(user.getId()).isNotNull());
+        assertThat(result.get(0).getId()).isEqualTo(existing.getId());
+        assertThat(result.get(1).getId()).isEqualTo(result.get(2).getId());
+        assertThat(repository.findAll()).hasSize(2);
+        assertThat(repository.findByEmail("bob@test.com").orElseThrow().getName()).isEqualTo("Robert");
+    }
+
+    @Test
+    void deleteById_shouldRemoveUserAndIndexes() {
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+
+        repository.deleteById(user.getId());
+
+        assertThat(repository.findById(user.getId())).isEmpty();
+        assertThat(repository.findByEmail("alice@test.com")).isEmpty();
+        assertThat(repository.findByAgeBetween(0, 200)).isEmpty();
+    }
+
+    @Test
+    void deleteById_shouldIgnoreUnknownId() {
+        repository.save(new User("Alice", "alice@test.com", 30));
+
+        repository.deleteById(Long.MAX_VALUE);
+
+        assertThat(repository.findAll()).hasSize(1);
+    }
+
+    @Test
+    void purgeCreatedBefore_shouldRemoveOnlyUsersCreatedBeforeCutoffMonth() {
+        YearMonth cutoff = YearMonth.now().minusMonths(1);
+        LocalDateTime cutoffStart = cutoff.atDay(1).atStartOfDay();
+        repository.save(userCreatedAt("old@test.com", cutoffStart.minusMonths(13)));
+        repository.save(userCreatedAt("last@test.com", cutoffStart.minusNanos(1000)));
+        User kept = userCreatedAt("kept@test.com", cutoffStart);
+        repository.save(kept);
+
+        repository.purgeCreatedBefore(cutoff);
+
+        assertThat(repository.findAll()).extracting(User::getEmail).containsExactly("kept@test.com");
+        assertThat(repository.findById(kept.getId())).isPresent();
+        repository.save(new User("Reused", "old@test.com", 20));
+        assertThat(repository.findByEmail("old@test.com")).isPresent();
+    }
+
+    @Test
+    void inTransaction_shouldApplyEveryCallAndReturnWorkResult() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        repository.save(alice);
+
+        Long bobId = repository.inTransaction(tx -> {
+            User bob = new User("Bob", "bob@test.com", 40);
+            tx.save(bob);
+            User changed = tx.findById(alice.getId()).orElseThrow();
+            changed.setName("Alicia");
+            tx.update(changed);
+            return bob.getId();
+        });
+
+        assertThat(repository.findById(bobId)).isPresent();
+        assertThat(repository.findById(alice.getId()).orElseThrow().getName()).isEqualTo("Alicia");
+    }
+
+    @Test
+    void inReadOnlyTransaction_shouldSeeCommittedData() {
+        repository.save(new User("Alice", "alice@test.com", 30));
+
+        int count = repository.inReadOnlyTransaction(tx -> tx.findAll().size());
+
+        assertThat(count).isEqualTo(1);
+    }
+
+    @Test
+    void saveIdempotencyRecord_shouldKeepResultAndRejectReusedKey() {
+        User alice = new User("Alice", "alice@test.com", 30);
+        repository.save(alice);
+
+        repository.saveIdempotencyRecord(new IdempotencyRecord("key-1", "a".repeat(64), alice));
+        alice.setName("Changed after the request");
+
+        IdempotencyRecord found = repository.findIdempotencyRecord("key-1").orElseThrow();
+        assertThat(found.fingerprint()).isEqualTo("a".repeat(64));
+        assertThat(found.result().getId()).isEqualTo(alice.getId());
+        assertThat(found.result().getName()).isEqualTo("Alice");
+        assertThat(found.result().getCreatedAt()).isCloseTo(alice.getCreatedAt(), within(1, ChronoUnit.MILLIS));
+        assertThat(repository.findIdempotencyRecord("key-2")).isEmpty();
+        assertThatThrownBy(() -> repository.saveIdempotencyRecord(new IdempotencyRecord("key-1", "b".repeat(64), alice)))
+                .isInstanceOf(DataAccessException.class)
+                .hasMessage("Failed to save idempotency key");
+    }
+
+    private static User userCreatedAt(String email, LocalDateTime createdAt) {
+        User user = new User("User", email, 30);
+        user.setCreatedAt(createdAt);
+        return user;
+    }
+}
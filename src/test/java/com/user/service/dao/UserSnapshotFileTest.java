@@ -0,0 +1,88 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void open_shouldFindEveryRowWrittenInAnyOrder() throws IOException {
+        Path path = dir.resolve("users.snapshot");
+        User alice = user(42L, "Alice", "alice@test.com");
+        User zoe = user(7L, "Zoë", "zoë@пример.рф");
+        User bob = user(1000L, "Bob", "bob@test.com");
+
+        UserSnapshotFile.write(path, List.of(
+                new UserSnapshotFile.Row(alice, 901L),
+                new UserSnapshotFile.Row(zoe, 902L),
+                new UserSnapshotFile.Row(bob, 4_000_000_000L)));
+        UserSnapshotFile snapshot = UserSnapshotFile.open(path);
+
+        assertThat(snapshot.size()).isEqualTo(3);
+        assertThat(snapshot.idAt(0)).isEqualTo(7L);
+        UserSnapshotFile.Row row = snapshot.rowAt(snapshot.indexOf(7L));
+        assertThat(row.user()).usingRecursiveComparison()
+                .comparingOnlyFields("id", "name", "email", "age", "createdAt").isEqualTo(zoe);
+        assertThat(row.xmin()).isEqualTo(902L);
+        assertThat(snapshot.rowAt(snapshot.indexOf(1000L)).xmin()).isEqualTo(4_000_000_000L);
+        assertThat(snapshot.indexOf(43L)).isEqualTo(-1);
+    }
+
+    @Test
+    void write_shouldReplaceExistingSnapshot() throws IOException {
+        Path path = dir.resolve("users.snapshot");
+        UserSnapshotFile.write(path, List.of(new UserSnapshotFile.Row(user(1L, "Old", "old@test.com"), 1L)));
+
+        UserSnapshotFile.write(path, List.of());
+
+        assertThat(UserSnapshotFile.open(path).size()).isZero();
+        try (var files = Files.list(dir)) {
+            assertThat(files).containsExactly(path);
+        }
+    }
+
+    @Test
+    void open_shouldRejectForeignFile() throws IOException {
+        Path path = dir.resolve("users.snapshot");
+        Files.writeString(path, "not a snapshot file");
+
+        assertThatThrownBy(() -> UserSnapshotFile.open(path)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void open_shouldRejectARecordOffsetOutsideTheFile() throws IOException {
+        Path path = dir.resolve("users.snapshot");
+        UserSnapshotFile.write(path, List.of(new UserSnapshotFile.Row(user(1L, "Alice", "alice@test.com"), 7L)));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // the record offset of the first index entry
+            channel.write(ByteBuffer.allocate(8).putLong(0, 1L << 40), 24);
+        }
+
+        assertThatThrownBy(() -> UserSnapshotFile.open(path))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("damaged record");
+    }
+
+    private static User user(Long id, String name, String email) {
+        User user = new User(name, email, 30);
+        user.setId(id);
+        user.setCreatedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_456_000));
+        return user;
+    }
+}
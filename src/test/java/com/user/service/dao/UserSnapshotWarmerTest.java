@@ -0,0 +1,109 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+@Testcontainers(disabledWithoutDocker = true)
+class UserSnapshotWarmerTest {
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    private static SessionFactory sessionFactory;
+
+    @TempDir
+    Path dir;
+
+    private List<User> users;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.create(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (sessionFactory != null && !sessionFactory.isClosed()) {
+            sessionFactory.close();
+        }
+    }
+
+    @BeforeEach
+    void seed() {
+        sessionFactory.inTransaction(session ->
+                session.createMutationQuery("DELETE FROM User").executeUpdate());
+        users = new ArrayList<>();
+        for (int i = 0; i < UserSnapshotWarmer.BLOCK_SIZE + 10; i++) {
+            users.add(new User("User " + i, "user-" + i + "@test.com", 20 + i % 50));
+        }
+        new UserDAO(sessionFactory).upsertAll(users);
+    }
+
+    @Test
+    void restart_shouldServeUnchangedUsersFromSnapshotAndReloadChangedOnes() {
+        Path path = dir.resolve("users.snapshot");
+        UserCache previousCache = new UserCache(1000);
+        CachingUserRepository previousRun = new CachingUserRepository(new UserDAO(sessionFactory), previousCache);
+        users.forEach(user -> previousRun.findById(user.getId()));
+        UserCacheSnapshotter snapshotter = new UserCacheSnapshotter(
+                sessionFactory, previousCache, null, path, Duration.ofHours(1));
+        snapshotter.close();
+
+        User changed = users.get(3);
+        User update = new UserDAO(sessionFactory).findById(changed.getId()).orElseThrow();
+        update.setName("Changed while down");
+        new UserDAO(sessionFactory).update(update);
+
+        UserRepository delegate = spy(new UserDAO(sessionFactory));
+        UserCache cache = new UserCache(1000);
+        UserSnapshotWarmer warmer = UserSnapshotWarmer.open(path, sessionFactory);
+        CachingUserRepository repository = new CachingUserRepository(delegate, cache, warmer);
+
+        User unchanged = users.get(4);
+        assertThat(repository.findById(unchanged.getId()).orElseThrow().getName()).isEqualTo(unchanged.getName());
+        verify(delegate, never()).findById(unchanged.getId());
+        assertThat(repository.findById(changed.getId()).orElseThrow().getName()).isEqualTo("Changed while down");
+        verify(delegate).findById(changed.getId());
+        assertThat(warmer.getValidatedCount()).isEqualTo(UserSnapshotWarmer.BLOCK_SIZE - 1);
+        assertThat(warmer.getStaleCount()).isEqualTo(1);
+        assertThat(warmer.pendingIds()).hasSize(10);
+    }
+
+    @Test
+    void writeSnapshot_shouldKeepIdsNotYetWarmed() {
+        Path path = dir.resolve("users.snapshot");
+        UserCache previousCache = new UserCache(1000);
+        CachingUserRepository previousRun = new CachingUserRepository(new UserDAO(sessionFactory), previousCache);
+        users.forEach(user -> previousRun.findById(user.getId()));
+        new UserCacheSnapshotter(sessionFactory, previousCache, null, path, Duration.ofHours(1)).close();
+
+        UserCache cache = new UserCache(1000);
+        UserSnapshotWarmer warmer = UserSnapshotWarmer.open(path, sessionFactory);
+        new CachingUserRepository(new UserDAO(sessionFactory), cache, warmer).findById(users.get(0).getId());
+        new UserCacheSnapshotter(sessionFactory, cache, warmer, path, Duration.ofHours(1)).close();
+
+        assertThat(UserSnapshotWarmer.open(path, sessionFactory).pendingIds()).hasSize(users.size());
+    }
+}
@@ -0,0 +1,81 @@
+package com.user.service.dao;
+
+import com.user.service.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserUpsertWorkTest {
+
+    private Connection connection;
+    private DatabaseMetaData metaData;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = mock(Connection.class);
+        metaData = mock(DatabaseMetaData.class);
+        statement = mock(PreparedStatement.class);
+        resultSet = mock(ResultSet.class);
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(connection.createArrayOf(anyString(), any())).thenReturn(mock(Array.class));
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getLong(1)).thenReturn(1L, 2L);
+        when(resultSet.getString(2)).thenReturn("a@test.com", "b@test.com");
+        when(resultSet.getTimestamp(anyInt())).thenReturn(Timestamp.valueOf("2024-01-01 00:00:00"));
+    }
+
+    @Test
+    void execute_shouldUseSingleUnnestStatementOnPostgres() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+
+        Map<String, Long> ids = new UserUpsertWork(List.of(
+                new User("A", "a@test.com", 20),
+                new User("B", "b@test.com", 30),
+                new User("B2", "b@test.com", 31))).execute(connection);
+
+        assertThat(ids).containsEntry("a@test.com", 1L).containsEntry("b@test.com", 2L);
+        verify(connection).prepareStatement(contains("ON CONFLICT (email) DO UPDATE"));
+        verify(connection, times(2)).createArrayOf(eq("varchar"), any());
+        verify(statement, times(1)).executeQuery();
+        verify(statement, never()).addBatch();
+    }
+
+    @Test
+    void execute_shouldFallBackToBatchedMergeOnOtherDatabases() throws Exception {
+        when(metaData.getDatabaseProductName()).thenReturn("H2");
+
+        Map<String, Long> ids = new UserUpsertWork(List.of(
+                new User("A", "a@test.com", 20),
+                new User("B", "b@test.com", 30))).execute(connection);
+
+        assertThat(ids).containsEntry("a@test.com", 1L).containsEntry("b@test.com", 2L);
+        verify(connection).prepareStatement(contains("MERGE INTO users"));
+        verify(statement, times(2)).addBatch();
+        verify(statement).executeBatch();
+        verify(connection).prepareStatement("SELECT id, email, created_at FROM users WHERE email IN (?, ?)");
+    }
+}
@@ -0,0 +1,86 @@
+package com.user.service.entities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Retained heap per cached row (printed as rows per GB) and the cost of converting between the
+// two representations. Needs no database:
+//   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+//       -Dexec.args="-cp %classpath org.openjdk.jmh.Main CompactUserMemoryBenchmark -prof gc"
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactUserMemoryBenchmark {
+    private static final int ROWS = 1_000_000;
+
+    private User[] users;
+    private CompactUser[] compactUsers;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        report("User", base, false);
+        report("CompactUser", base, true);
+
+        users = new User[1024];
+        compactUsers = new CompactUser[1024];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = user(i, base);
+            compactUsers[i] = CompactUser.from(users[i]);
+        }
+    }
+
+    @Benchmark
+    public CompactUser compact() {
+        return CompactUser.from(users[round++ & 1023]);
+    }
+
+    @Benchmark
+    public User expand() {
+        return compactUsers[round++ & 1023].toUser();
+    }
+
+    private static void report(String representation, LocalDateTime base, boolean compact) {
+        long before = usedHeap();
+        Object[] rows = new Object[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            User user = user(i, base);
+            rows[i] = compact ? CompactUser.from(user) : user;
+        }
+        // the holding array itself is not part of the row
+        long retained = usedHeap() - before - 16L - 4L * rows.length;
+        System.out.printf("%n%s: ~%d bytes per row, ~%,d rows per GB%n",
+                representation, retained / ROWS, (1L << 30) * ROWS / retained);
+    }
+
+    private static User user(int i, LocalDateTime base) {
+        User user = new User("User " + i, "user-" + i + "@example.com", 18 + i % 60);
+        user.setId(1_000_000L + i);
+        user.setCreatedAt(base.plusSeconds(i).plusNanos(i * 1_000L));
+        return user;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
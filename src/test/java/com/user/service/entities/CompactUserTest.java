@@ -0,0 +1,54 @@
+package com.user.service.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactUserTest {
+
+    @Test
+    void toUser_shouldRoundTripEveryField() {
+        User user = user("Zoë Ångström", "zoe@test.com", LocalDateTime.of(2024, 2, 29, 23, 59, 59, 123_456_789));
+
+        User restored = CompactUser.from(user).toUser();
+
+        assertThat(restored).usingRecursiveComparison().isEqualTo(user);
+    }
+
+    @Test
+    void toUser_shouldRoundTripTextOutsideLatin1() {
+        User user = user("Дмитрий 李 🙂", "dmitry@пример.рф", LocalDateTime.of(1969, 12, 31, 0, 0, 0, 1));
+
+        CompactUser compact = CompactUser.from(user);
+
+        assertThat(compact.getName()).isEqualTo("Дмитрий 李 🙂");
+        assertThat(compact.getEmail()).isEqualTo("dmitry@пример.рф");
+        assertThat(compact.getCreatedAt()).isEqualTo(user.getCreatedAt());
+    }
+
+    @Test
+    void toUser_shouldHandleEmptyName() {
+        User user = user("", "empty@test.com", LocalDateTime.of(2020, 1, 1, 0, 0));
+
+        CompactUser compact = CompactUser.from(user);
+
+        assertThat(compact.getName()).isEmpty();
+        assertThat(compact.getEmail()).isEqualTo("empty@test.com");
+    }
+
+    @Test
+    void from_shouldRejectUnsavedUser() {
+        assertThatThrownBy(() -> CompactUser.from(new User("Alice", "alice@test.com", 30)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static User user(String name, String email, LocalDateTime createdAt) {
+        User user = new User(name, email, 42);
+        user.setId(7L);
+        user.setCreatedAt(createdAt);
+        return user;
+    }
+}
@@ -0,0 +1,53 @@
+package com.user.service.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserAuditEntryTest {
+    private static final LocalDateTime AT = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @Test
+    void of_shouldListOnlyChangedFieldsOfAnUpdate() {
+        User before = user("Alice", "alice@test.com", 30);
+        User after = user("Alice", "alicia@test.com", 31);
+
+        UserAuditEntry entry = UserAuditEntry.of(UserAuditEntry.Action.UPDATE, before, after, AT);
+
+        assertThat(entry.userId()).isEqualTo(7L);
+        assertThat(entry.occurredAt()).isEqualTo(AT);
+        assertThat(entry.changes()).containsExactly(
+                new UserAuditEntry.FieldChange("email", "alice@test.com", "alicia@test.com"),
+                new UserAuditEntry.FieldChange("age", "30", "31"));
+    }
+
+    @Test
+    void of_shouldUseNullForTheMissingSideOfCreateAndDelete() {
+        User user = user("Alice", "alice@test.com", 30);
+
+        UserAuditEntry created = UserAuditEntry.of(UserAuditEntry.Action.CREATE, null, user, AT);
+        UserAuditEntry deleted = UserAuditEntry.of(UserAuditEntry.Action.DELETE, user, null, AT);
+
+        assertThat(created.changes()).extracting(UserAuditEntry.FieldChange::before).containsOnlyNulls();
+        assertThat(created.changes()).extracting(UserAuditEntry.FieldChange::after)
+                .containsExactly("Alice", "alice@test.com", "30");
+        assertThat(deleted.changes()).extracting(UserAuditEntry.FieldChange::after).containsOnlyNulls();
+        assertThat(deleted.userId()).isEqualTo(7L);
+    }
+
+    @Test
+    void of_shouldBeEmptyWhenNothingChanged() {
+        User user = user("Alice", "alice@test.com", 30);
+
+        assertThat(UserAuditEntry.of(UserAuditEntry.Action.UPDATE, user, user(
+                "Alice", "alice@test.com", 30), AT).isEmpty()).isTrue();
+    }
+
+    private static User user(String name, String email, int age) {
+        User user = new User(name, email, age);
+        user.setId(7L);
+        return user;
+    }
+}
@@ -0,0 +1,106 @@
+package com.user.service.entities;
+
+import com.user.service.dao.UserDAO;
+import com.user.service.util.SessionFactoryProviderForTest;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Flush cost and retained memory of a large persistence context. Needs a PostgreSQL database
+// whose users table may be dropped (hbm2ddl create-drop):
+//   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+//       -Dexec.args="-cp %classpath org.openjdk.jmh.Main UserFlushBenchmark -prof gc"
+// Rebuild with -DskipEnhance and run again for the snapshot-comparison baseline.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserFlushBenchmark {
+
+    @Param({"1000", "10000"})
+    int entities;
+
+    private SessionFactory sessionFactory;
+    private Session session;
+    private List<User> loaded;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = SessionFactoryProviderForTest.create(
+                System.getProperty("bench.jdbcUrl", "jdbc:postgresql://localhost:5432/user_bench"),
+                System.getProperty("bench.user", "postgres"),
+                System.getProperty("bench.password", "admin"));
+        List<User> users = new ArrayList<>(entities);
+        for (int i = 0; i < entities; i++) {
+            users.add(new User("Bench " + i, "bench-" + i + "@example.com", 20 + i % 50));
+        }
+        new UserDAO(sessionFactory).upsertAll(users);
+
+        long before = usedHeap();
+        session = sessionFactory.openSession();
+        session.beginTransaction();
+        loaded = session.createQuery("FROM User ORDER BY id", User.class).list();
+        long retained = usedHeap() - before;
+        System.out.printf("%n%s entities: %d managed, ~%d bytes retained per entity%n",
+                SelfDirtinessTracker.class.isAssignableFrom(User.class) ? "Enhanced" : "Plain",
+                loaded.size(), retained / loaded.size());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.getTransaction().rollback();
+        session.close();
+        sessionFactory.close();
+    }
+
+    // pure dirty checking: nothing to write
+    @Benchmark
+    public void flushUnchanged() {
+        session.flush();
+    }
+
+    @Benchmark
+    public void flushOneChanged() {
+        User user = loaded.get(round++ % loaded.size());
+        user.setAge(20 + round % 50);
+        session.flush();
+    }
+
+    // bulk update shape: every tenth entity changes between flushes
+    @Benchmark
+    public void flushTenthChanged() {
+        round++;
+        for (int i = round % 10; i < loaded.size(); i += 10) {
+            loaded.get(i).setAge(20 + round % 50);
+        }
+        session.flush();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
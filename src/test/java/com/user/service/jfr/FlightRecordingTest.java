@@ -0,0 +1,91 @@
+package com.user.service.jfr;
+
+import com.user.service.dao.UserDAO;
+import com.user.service.dao.UserRepository;
+import com.user.service.entities.User;
+import com.user.service.service.UserService;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.hibernate.Session;
+import org.hibernate.SessionBuilder;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FlightRecordingTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recording_shouldCaptureDaoOperationsWithOutcome() throws Exception {
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        SessionBuilder sessionBuilder = mock(SessionBuilder.class, RETURNS_SELF);
+        Session session = mock(Session.class);
+        when(sessionFactory.withOptions()).thenReturn(sessionBuilder);
+        when(sessionBuilder.openSession()).thenReturn(session);
+        when(session.beginTransaction()).thenReturn(mock(Transaction.class));
+        User alice = new User("Alice", "alice@test.com", 30);
+        alice.setId(7L);
+        when(session.get(User.class, 7L)).thenReturn(alice);
+        User bob = new User("Bob", "bob@test.com", 40);
+        doThrow(new RuntimeException("DB error")).when(session).persist(bob);
+        UserDAO userDAO = new UserDAO(sessionFactory);
+        Path file = tempDir.resolve("dao.jfr");
+
+        try (FlightRecording recording = FlightRecording.start(file)) {
+            userDAO.findById(7L);
+            assertThatThrownBy(() -> userDAO.save(bob)).hasMessage("Failed to save user");
+        }
+
+        List<RecordedEvent> events = eventsNamed(file, "com.user.service.UserDaoOperation");
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0).getString("operation")).isEqualTo("findById");
+        assertThat(events.get(0).getLong("entityId")).isEqualTo(7L);
+        assertThat(events.get(0).getInt("rowCount")).isEqualTo(1);
+        assertThat(events.get(0).getString("outcome")).isEqualTo("success");
+        assertThat(events.get(1).getString("operation")).isEqualTo("save");
+        assertThat(events.get(1).getString("outcome")).isEqualTo("failure");
+    }
+
+    @Test
+    void recording_shouldCaptureServiceCallsAsTransactions() throws Exception {
+        UserRepository repository = mock(UserRepository.class);
+        UserService userService = new UserService(repository);
+        doThrow(new RuntimeException("Failed to delete user")).when(repository).deleteById(1L);
+        Path file = tempDir.resolve("service.jfr");
+
+        try (FlightRecording recording = FlightRecording.start(file)) {
+            userService.getAllUsers();
+            assertThatThrownBy(() -> userService.deleteUser(1L)).isInstanceOf(RuntimeException.class);
+        }
+
+        List<RecordedEvent> events = eventsNamed(file, "com.user.service.UserTransaction");
+        assertThat(events).extracting(e -> e.getString("operation")).containsExactly("getAllUsers", "deleteUser");
+        assertThat(events).extracting(e -> e.getString("layer")).containsOnly("service");
+        assertThat(events).extracting(e -> e.getString("outcome")).containsExactly("success", "failure");
+    }
+
+    @Test
+    void events_shouldStayDisabledWithoutRecording() {
+        assertThat(UserDaoOperationEvent.start("findById").isEnabled()).isFalse();
+    }
+
+    private static List<RecordedEvent> eventsNamed(Path file, String name) throws Exception {
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals(name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .toList();
+    }
+}
@@ -0,0 +1,51 @@
+package com.user.service.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyChooserTest {
+
+    @Test
+    void zipfian_shouldConcentrateTrafficOnHotKeys() {
+        KeyChooser chooser = KeyChooser.zipfian(10_000, 0.99);
+        SplittableRandom random = new SplittableRandom(42);
+        int[] counts = new int[10_000];
+
+        for (int i = 0; i < 100_000; i++) {
+            counts[chooser.next(random)]++;
+        }
+
+        int hottestTen = 0;
+        for (int i = 0; i < 10; i++) {
+            hottestTen += counts[i];
+        }
+        assertThat(counts[0]).isGreaterThan(counts[1]).isGreaterThan(counts[100]);
+        // ten keys out of ten thousand take a large share under theta 0.99
+        assertThat(hottestTen).isGreaterThan(25_000);
+    }
+
+    @Test
+    void uniform_shouldStayInRangeAndSpreadEvenly() {
+        KeyChooser chooser = KeyChooser.uniform(10);
+        SplittableRandom random = new SplittableRandom(42);
+        int[] counts = new int[10];
+
+        for (int i = 0; i < 100_000; i++) {
+            counts[chooser.next(random)]++;
+        }
+
+        for (int count : counts) {
+            assertThat(count).isBetween(9_000, 11_000);
+        }
+    }
+
+    @Test
+    void zipfian_shouldRejectInvalidTheta() {
+        assertThatThrownBy(() -> KeyChooser.zipfian(100, 1.0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.user.service.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoadGeneratorConfigTest {
+
+    @Test
+    void parse_shouldReadAllOptions() {
+        LoadGeneratorConfig config = LoadGeneratorConfig.parse(new String[]{
+                "--threads=4", "--duration=5", "--seed=200", "--mix=0:1:0:0",
+                "--distribution=zipfian", "--theta=0.8", "--arrival=open", "--rate=250", "--repository=memory"});
+
+        assertThat(config.threads()).isEqualTo(4);
+        assertThat(config.duration()).isEqualTo(Duration.ofSeconds(5));
+        assertThat(config.seedUsers()).isEqualTo(200);
+        assertThat(config.mix().next(new SplittableRandom(1))).isEqualTo(OperationType.READ);
+        assertThat(config.keyChooser()).isInstanceOf(ZipfianKeyChooser.class);
+        assertThat(config.openLoop()).isTrue();
+        assertThat(config.targetRate()).isEqualTo(250.0);
+        assertThat(config.repository()).isEqualTo("memory");
+    }
+
+    @Test
+    void parse_shouldApplyDefaults() {
+        LoadGeneratorConfig config = LoadGeneratorConfig.parse(new String[0]);
+
+        assertThat(config.openLoop()).isFalse();
+        assertThat(config.distribution()).isEqualTo("uniform");
+        assertThat(config.repository()).isEqualTo("db");
+    }
+
+    @Test
+    void parse_shouldRejectMalformedArguments() {
+        assertThatThrownBy(() -> LoadGeneratorConfig.parse(new String[]{"threads=4"}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadGeneratorConfig.parse(new String[]{"--arrival=sometimes"}))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadGeneratorConfig.parse(new String[]{"--mix=1:2:3"}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void operationMix_shouldFollowWeights() {
+        Map<OperationType, Integer> weights = new EnumMap<>(OperationType.class);
+        weights.put(OperationType.READ, 3);
+        weights.put(OperationType.UPDATE, 1);
+        OperationMix mix = new OperationMix(weights);
+        SplittableRandom random = new SplittableRandom(7);
+        Map<OperationType, Integer> counts = new EnumMap<>(OperationType.class);
+
+        for (int i = 0; i < 40_000; i++) {
+            counts.merge(mix.next(random), 1, Integer::sum);
+        }
+
+        assertThat(counts).containsOnlyKeys(OperationType.READ, OperationType.UPDATE);
+        assertThat(counts.get(OperationType.READ)).isBetween(29_000, 31_000);
+    }
+}
@@ -0,0 +1,62 @@
+package com.user.service.loadtest;
+
+import com.user.service.dao.InMemoryUserRepository;
+import com.user.service.service.UserService;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+class LoadGeneratorTest {
+
+    @Test
+    void run_shouldSeedAndRecordEveryOperationType() throws Exception {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        LoadGeneratorConfig config = LoadGeneratorConfig.parse(new String[]{
+                "--threads=2", "--duration=1", "--seed=1500", "--mix=25:25:25:25", "--distribution=zipfian"});
+
+        LoadReport report = new LoadGenerator(new UserService(repository), config).run();
+
+        for (OperationType type : OperationType.values()) {
+            assertThat(report.getLatencies(type).getTotalCount()).as(type.name()).isPositive();
+            assertThat(report.getErrors(type)).as(type.name()).isZero();
+        }
+        assertThat(repository.findAll().size()).isGreaterThanOrEqualTo(1500);
+    }
+
+    @Test
+    void run_shouldPaceOpenLoopToTargetRate() throws Exception {
+        LoadGeneratorConfig config = LoadGeneratorConfig.parse(new String[]{
+                "--threads=2", "--duration=1", "--seed=10", "--mix=0:1:0:0", "--arrival=open", "--rate=200"});
+
+        LoadReport report = new LoadGenerator(new UserService(new InMemoryUserRepository()), config).run();
+
+        assertThat(report.getTotalCount()).isBetween(150L, 210L);
+    }
+
+    @Test
+    void run_shouldBackFillTheCallsAClosedLoopHeldBackDuringAStall() throws Exception {
+        InMemoryUserRepository repository = spy(new InMemoryUserRepository());
+        AtomicBoolean stalled = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (stalled.compareAndSet(false, true)) {
+                Thread.sleep(50);
+            }
+            return invocation.callRealMethod();
+        }).when(repository).findById(anyLong());
+        LoadGeneratorConfig config = LoadGeneratorConfig.parse(new String[]{
+                "--threads=1", "--duration=1", "--seed=10", "--mix=0:1:0:0", "--rate=1000"});
+
+        LoadReport report = new LoadGenerator(new UserService(repository), config).run();
+
+        // the 50 ms stall held back about 49 calls at one per millisecond
+        Histogram reads = report.getLatencies(OperationType.READ);
+        assertThat(reads.getTotalCount() - report.getCompleted(OperationType.READ)).isGreaterThanOrEqualTo(40);
+        assertThat(report.getTotalCount()).isEqualTo(report.getCompleted(OperationType.READ));
+    }
+}
@@ -0,0 +1,105 @@
+package com.user.service.loadtest;
+
+import com.user.service.dao.InMemoryUserRepository;
+import com.user.service.entities.User;
+import com.user.service.service.UserService;
+import com.user.service.service.WorkloadOperation;
+import com.user.service.service.WorkloadRecord;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WorkloadReplayerTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void run_shouldSeedReferencedUsersAndMapCreatedIds() throws Exception {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        List<WorkloadRecord> records = List.of(
+                record(WorkloadOperation.GET_USER_BY_ID, 1, 0, 500L, null, null, null),
+                record(WorkloadOperation.CREATE_USER, 1, 10, 900L, "Alice", "alice@test.com", 30),
+                record(WorkloadOperation.UPDATE_USER, 1, 20, 900L, "Alicia", null, null),
+                record(WorkloadOperation.UPDATE_USER, 2, 20, 500L, null, null, 41),
+                record(WorkloadOperation.GET_ALL_USERS, 2, 30, null, null, null, null),
+                record(WorkloadOperation.DELETE_USER, 2, 40, 500L, null, null, null));
+        WorkloadReplayer replayer = new WorkloadReplayer(new UserService(repository), records, 1);
+
+        assertThat(replayer.seed()).isEqualTo(1);
+        WorkloadReplayReport report = replayer.run();
+
+        assertThat(report.getTotalCount()).isEqualTo(6);
+        for (WorkloadOperation operation : WorkloadOperation.values()) {
+            assertThat(report.getErrors(operation)).as(operation.name()).isZero();
+        }
+        List<User> users = repository.findAll();
+        assertThat(users).singleElement().satisfies(user -> {
+            assertThat(user.getName()).isEqualTo("Alicia");
+            // replays can run again against the same database
+            assertThat(user.getEmail()).startsWith("alice+").endsWith("@test.com");
+        });
+    }
+
+    @Test
+    void run_shouldKeepRecordedInterArrivalTimesScaledBySpeed() throws Exception {
+        List<WorkloadRecord> records = List.of(
+                record(WorkloadOperation.GET_ALL_USERS, 1, 0, null, null, null, null),
+                record(WorkloadOperation.GET_ALL_USERS, 2, 200, null, null, null, null),
+                record(WorkloadOperation.GET_ALL_USERS, 1, 400, null, null, null, null));
+
+        WorkloadReplayReport report = new WorkloadReplayer(
+                new UserService(new InMemoryUserRepository()), records, 2).run();
+
+        assertThat(report.getElapsed().toMillis()).isBetween(190L, 1000L);
+        assertThat(report.getLatencies(WorkloadOperation.GET_ALL_USERS).getTotalCount()).isEqualTo(3);
+    }
+
+    @Test
+    void save_shouldWriteHistogramsABaselineCanBeLoadedFrom(@TempDir Path directory) throws Exception {
+        List<WorkloadRecord> records = List.of(
+                record(WorkloadOperation.CREATE_USER, 1, 0, 1L, "Bob", "bob@test.com", 40),
+                record(WorkloadOperation.COUNT_USERS, 1, 1, null, null, null, 0));
+        WorkloadReplayReport report = new WorkloadReplayer(
+                new UserService(new InMemoryUserRepository()), records, 1).run();
+        Path saved = directory.resolve("baseline.hlog");
+
+        report.save(saved);
+        Map<WorkloadOperation, Histogram> baseline = WorkloadReplayReport.load(saved);
+
+        assertThat(baseline.get(WorkloadOperation.CREATE_USER).getTotalCount()).isEqualTo(1);
+        assertThat(baseline.get(WorkloadOperation.COUNT_USERS).getTotalCount()).isEqualTo(1);
+        assertThat(baseline.get(WorkloadOperation.DELETE_USER).getTotalCount()).isZero();
+    }
+
+    @Test
+    void recordedLatencies_shouldGroupTheLoggedLatenciesByOperation() {
+        List<WorkloadRecord> records = List.of(
+                record(WorkloadOperation.GET_ALL_USERS, 1, 0, null, null, null, null),
+                record(WorkloadOperation.GET_ALL_USERS, 1, 1, null, null, null, null));
+
+        Map<WorkloadOperation, Histogram> latencies = WorkloadReplayer.recordedLatencies(records);
+
+        assertThat(latencies.get(WorkloadOperation.GET_ALL_USERS).getTotalCount()).isEqualTo(2);
+        assertThat(latencies.get(WorkloadOperation.GET_ALL_USERS).getMaxValue()).isBetween(MILLIS, MILLIS + 1000);
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveSpeed() {
+        assertThatThrownBy(() -> new WorkloadReplayer(new UserService(new InMemoryUserRepository()), List.of(), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // every call took a millisecond in the recording
+    private static WorkloadRecord record(WorkloadOperation operation, long threadId, long startMillis, Long id,
+                                         String name, String email, Integer age) {
+        return new WorkloadRecord(operation, 0, threadId, startMillis * MILLIS, MILLIS, true, id, name, email, age);
+    }
+}
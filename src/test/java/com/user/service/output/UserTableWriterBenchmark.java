@@ -0,0 +1,114 @@
+package com.user.service.output;
+
+import com.user.service.entities.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Rows per second rendered to a sink that discards everything, so only formatting, encoding and
+// the per-call stream overhead are measured. println is the old ApplicationRunner path:
+//   mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+//       -Dexec.args="-cp %classpath org.openjdk.jmh.Main UserTableWriterBenchmark -prof gc"
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserTableWriterBenchmark {
+    private static final int ROWS = 10_000;
+
+    private User[] users;
+    private PrintStream printStream;
+    private UserTableWriter fixed;
+    private UserTableWriter tsv;
+    private UserTableWriter json;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        users = new User[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            User user = new User();
+            user.setId((long) i + 1);
+            user.setName("User number " + i);
+            user.setEmail("user" + i + "@example.com");
+            user.setAge(18 + i % 60);
+            user.setCreatedAt(base.plusSeconds(i * 37L));
+            users[i] = user;
+        }
+        // autoflush like System.out
+        printStream = new PrintStream(OutputStream.nullOutputStream(), true);
+        fixed = new UserTableWriter(new NullChannel(), OutputFormat.FIXED);
+        tsv = new UserTableWriter(new NullChannel(), OutputFormat.TSV);
+        json = new UserTableWriter(new NullChannel(), OutputFormat.JSON);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void println() {
+        for (User user : users) {
+            printStream.println(user);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long fixed() {
+        return render(fixed);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long tsv() {
+        return render(tsv);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long json() {
+        return render(json);
+    }
+
+    private long render(UserTableWriter writer) {
+        writer.begin();
+        for (User user : users) {
+            writer.write(user);
+        }
+        writer.end();
+        return writer.getRowCount();
+    }
+
+    private static final class NullChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer source) {
+            int length = source.remaining();
+            source.position(source.limit());
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.user.service.output;
+
+import com.user.service.entities.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserTableWriterTest {
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 3, 9, 7, 5, 1);
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @Test
+    void fixed_shouldAlignColumnsAndCutLongValues() {
+        UserTableWriter writer = UserTableWriter.to(out, OutputFormat.FIXED);
+
+        writer.begin();
+        writer.write(user(7L, "Alice", "alice@test.com", 30, CREATED_AT));
+        writer.write(user(12345L, "A name far longer than twenty", "b@test.com", 101, CREATED_AT.withNano(120_000_000)));
+        writer.end();
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "        ID NAME                 EMAIL                           AGE CREATED_AT\n"
+                        + "         7 Alice                alice@test.com                   30 2024-03-09T07:05:01\n"
+                        + "     12345 A name far longer t~ b@test.com                      101 2024-03-09T07:05:01.120000\n");
+    }
+
+    @Test
+    void fixed_shouldPadByCharactersNotBytes() {
+        UserTableWriter writer = UserTableWriter.to(out, OutputFormat.FIXED);
+
+        writer.write(user(1L, "Zoë \uD83D\uDE00", "z@test.com", 20, CREATED_AT));
+        writer.end();
+
+        // five code points, one of them outside the BMP, padded to the twenty column width
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .startsWith("         1 Zoë \uD83D\uDE00" + " ".repeat(15) + " z@test.com ");
+    }
+
+    @Test
+    void tsv_shouldEscapeSeparatorsAndNulls() {
+        UserTableWriter writer = UserTableWriter.to(out, OutputFormat.TSV);
+
+        writer.begin();
+        writer.write(user(1L, "Tab\tNew\nline\\", null, 5, CREATED_AT));
+        writer.end();
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("id\tname\temail\tage\tcreated_at\n"
+                + "1\tTab\\tNew\\nline\\\\\t\\N\t5\t2024-03-09T07:05:01\n");
+    }
+
+    @Test
+    void json_shouldWriteOneEscapedObjectPerLine() {
+        UserTableWriter writer = UserTableWriter.to(out, OutputFormat.JSON);
+
+        writer.begin();
+        writer.write(user(1L, "Quote \" and \\ and \u0001", "a@test.com", 30, CREATED_AT));
+        writer.write(user(-2L, "Ünï", "b@test.com", 0, CREATED_AT));
+        writer.end();
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("[\n"
+                + "{\"id\":1,\"name\":\"Quote \\\" and \\\\ and \\u0001\",\"email\":\"a@test.com\",\"age\":30,"
+                + "\"createdAt\":\"2024-03-09T07:05:01\"},\n"
+                + "{\"id\":-2,\"name\":\"Ünï\",\"email\":\"b@test.com\",\"age\":0,"
+                + "\"createdAt\":\"2024-03-09T07:05:01\"}\n"
+                + "]\n");
+    }
+
+    @Test
+    void json_shouldWriteEmptyArrayWithoutRows() {
+        UserTableWriter writer = UserTableWriter.to(out, OutputFormat.JSON);
+
+        writer.begin();
+        writer.end();
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("[]\n");
+    }
+
+    @Test
+    void shouldFlushOnlyFullBuffersUntilEnd() {
+        List<Integer> writes = new ArrayList<>();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        WritableByteChannel channel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) {
+                int length = source.remaining();
+                writes.add(length);
+                sink.write(source.array(), source.arrayOffset() + source.position(), length);
+                source.position(source.limit());
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        UserTableWriter writer = new UserTableWriter(channel, OutputFormat.TSV, 64);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        UserTableWriter reference = UserTableWriter.to(expected, OutputFormat.TSV);
+
+        for (long id = 1; id <= 100; id++) {
+            User user = user(id, "Nämé " + id, "user" + id + "@test.com", (int) id, CREATED_AT);
+            writer.write(user);
+            reference.write(user);
+        }
+        // a buffer goes out once the next date (26 bytes) no longer fits, never row by row
+        assertThat(writes).isNotEmpty().allSatisfy(length -> assertThat(length).isBetween(64 - 26, 64));
+        writer.end();
+        reference.end();
+
+        assertThat(writer.getRowCount()).isEqualTo(100);
+        assertThat(sink.toByteArray()).isEqualTo(expected.toByteArray());
+        assertThat(sink.toString(StandardCharsets.UTF_8)).contains("100\tNämé 100\tuser100@test.com\t100\t");
+    }
+
+    @Test
+    void shouldEncodeLongMultiByteTextAcrossBufferBoundaries() {
+        String name = "€\uD83D\uDE00".repeat(50);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        UserTableWriter writer = new UserTableWriter(Channels.newChannel(sink), OutputFormat.TSV, 64);
+
+        writer.write(user(1L, name, "a@test.com", 1, CREATED_AT));
+        writer.end();
+
+        assertThat(sink.toString(StandardCharsets.UTF_8)).isEqualTo("1\t" + name + "\ta@test.com\t1\t2024-03-09T07:05:01\n");
+    }
+
+    @Test
+    void shouldRejectTinyBuffer() {
+        assertThatThrownBy(() -> new UserTableWriter(Channels.newChannel(out), OutputFormat.TSV, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static User user(Long id, String name, String email, int age, LocalDateTime createdAt) {
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setEmail(email);
+        user.setAge(age);
+        user.setCreatedAt(createdAt);
+        return user;
+    }
+}
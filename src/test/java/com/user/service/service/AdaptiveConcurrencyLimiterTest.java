@@ -0,0 +1,89 @@
+package com.user.service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void acquire_shouldRejectFastOnceQueueWaitExceeded() {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 10, Duration.ofMillis(20));
+        limiter.acquire();
+
+        long start = System.nanoTime();
+        assertThatThrownBy(limiter::acquire)
+                .isInstanceOf(OverloadedException.class)
+                .hasMessageContaining("concurrency limit 1");
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(limiter.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void acquire_shouldWaitForReleasedPermitWithinQueueDeadline() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 10, Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> waiter = CompletableFuture.supplyAsync(limiter::acquire);
+        Thread.sleep(50);
+        assertThat(waiter).isNotDone();
+        first.onIgnore();
+
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void limit_shouldGrowAdditivelyWhileSaturatedAndFast() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10, Duration.ofMillis(10));
+
+        for (int i = 0; i < 3; i++) {
+            AdaptiveConcurrencyLimiter.Permit a = limiter.acquire();
+            AdaptiveConcurrencyLimiter.Permit b = limiter.acquire();
+            a.onSuccess();
+            b.onSuccess();
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(2);
+    }
+
+    @Test
+    void limit_shouldShrinkMultiplicativelyOnDropsButNotBelowMinimum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 4, 10, Duration.ofMillis(10));
+
+        limiter.acquire().onDropped();
+        assertThat(limiter.getLimit()).isEqualTo(5);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire().onDropped();
+        }
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void permit_shouldOnlyReleaseOnce() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10, Duration.ofMillis(10));
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+        limiter.acquire();
+
+        permit.onIgnore();
+        permit.onIgnore();
+
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void constructor_shouldRejectInconsistentLimits() {
+        assertThatThrownBy(() -> limiter(5, 6, 10, Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initial, int min, int max, Duration queueWait) {
+        return new AdaptiveConcurrencyLimiter("test", initial, min, max, 0.5, Duration.ofSeconds(10), queueWait);
+    }
+}
@@ -0,0 +1,57 @@
+package com.user.service.service;
+
+import com.user.service.dao.QueryDeadline;
+import com.user.service.dao.QueryTimeoutException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControllerTest {
+
+    private final AdaptiveConcurrencyLimiter readLimiter =
+            new AdaptiveConcurrencyLimiter("read", 4, 2, 8, 0.5, Duration.ofSeconds(10), Duration.ZERO);
+    private final AdaptiveConcurrencyLimiter writeLimiter =
+            new AdaptiveConcurrencyLimiter("write", 1, 1, 2, 0.5, Duration.ofSeconds(10), Duration.ZERO);
+    private final AdmissionController controller =
+            new AdmissionController(readLimiter, Duration.ofSeconds(3), writeLimiter, Duration.ofSeconds(7));
+
+    @Test
+    void read_shouldPushDeadlineDownToRepositoryCalls() {
+        int timeout = controller.read(QueryDeadline::remainingTimeoutSeconds);
+
+        assertThat(timeout).isEqualTo(3);
+        assertThat(QueryDeadline.isActive()).isFalse();
+    }
+
+    @Test
+    void write_shouldUseSeparateLimiterFromReads() {
+        controller.write(() -> {
+            assertThat(writeLimiter.getInFlight()).isEqualTo(1);
+            assertThat(QueryDeadline.remainingTimeoutSeconds()).isEqualTo(7);
+            assertThatThrownBy(() -> controller.write(() -> { }))
+                    .isInstanceOf(OverloadedException.class);
+            assertThat(controller.read(() -> "still admitted")).isEqualTo("still admitted");
+        });
+
+        assertThat(writeLimiter.getInFlight()).isZero();
+        assertThat(readLimiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void timeouts_shouldShrinkTheLimit() {
+        assertThatThrownBy(() -> controller.read(() -> {
+            throw new QueryTimeoutException("Failed to fetch users", null);
+        })).isInstanceOf(QueryTimeoutException.class);
+
+        assertThat(readLimiter.getLimit()).isEqualTo(2);
+        assertThat(readLimiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void disabled_shouldCallThroughWithoutDeadline() {
+        assertThat(AdmissionController.disabled().read(QueryDeadline::isActive)).isFalse();
+    }
+}
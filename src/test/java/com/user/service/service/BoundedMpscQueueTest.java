@@ -0,0 +1,88 @@
+package com.user.service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedMpscQueueTest {
+
+    @Test
+    void capacity_shouldRoundUpToPowerOfTwo() {
+        assertThat(new BoundedMpscQueue<String>(1).capacity()).isEqualTo(1);
+        assertThat(new BoundedMpscQueue<String>(5).capacity()).isEqualTo(8);
+        assertThat(new BoundedMpscQueue<String>(16).capacity()).isEqualTo(16);
+        assertThatThrownBy(() -> new BoundedMpscQueue<String>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void offer_shouldRejectWhenFullAndAcceptAgainAfterPoll() {
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(queue.offer(i)).isTrue();
+        }
+
+        assertThat(queue.offer(4)).isFalse();
+        assertThat(queue.poll()).isEqualTo(0);
+        assertThat(queue.offer(4)).isTrue();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(queue.drainTo(drained, 10)).isEqualTo(4);
+        assertThat(drained).containsExactly(1, 2, 3, 4);
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.poll()).isNull();
+    }
+
+    @Test
+    void offer_shouldLoseNothingUnderConcurrentProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 50_000;
+        BoundedMpscQueue<Integer> queue = new BoundedMpscQueue<>(1024);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        Set<Integer> seen = new HashSet<>();
+        int[] lastPerProducer = new int[producers];
+        java.util.Arrays.fill(lastPerProducer, -1);
+        while (seen.size() < producers * perProducer) {
+            Integer value = queue.poll();
+            if (value == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertThat(seen.add(value)).isTrue();
+            // each producer's elements come out in the order it offered them
+            int producer = value / perProducer;
+            assertThat(value).isGreaterThan(lastPerProducer[producer]);
+            lastPerProducer[producer] = value;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(queue.poll()).isNull();
+    }
+}
@@ -0,0 +1,43 @@
+package com.user.service.service;
+
+import com.user.service.entities.IdempotencyRecord;
+import com.user.service.entities.User;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void put_shouldEvictTheLeastRecentlyUsedKey() {
+        IdempotencyCache cache = new IdempotencyCache(2);
+        cache.put(record("a", 1L));
+        cache.put(record("b", 2L));
+        cache.get("a");
+
+        cache.put(record("c", 3L));
+
+        assertThat(cache.get("a")).isPresent();
+        assertThat(cache.get("b")).isEmpty();
+        assertThat(cache.get("c")).isPresent();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void get_shouldHandOutAFreshCopyOfTheResult() {
+        IdempotencyCache cache = new IdempotencyCache(10);
+        cache.put(record("a", 1L));
+
+        cache.get("a").orElseThrow().result().setName("Changed by a caller");
+
+        IdempotencyRecord cached = cache.get("a").orElseThrow();
+        assertThat(cached.result().getName()).isEqualTo("User1");
+        assertThat(cached.fingerprint()).isEqualTo("fp-a");
+    }
+
+    private static IdempotencyRecord record(String key, long id) {
+        User user = new User("User" + id, "user" + id + "@test.com", 30);
+        user.setId(id);
+        return new IdempotencyRecord(key, "fp-" + key, user);
+    }
+}
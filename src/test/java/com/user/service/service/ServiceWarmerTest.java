@@ -0,0 +1,89 @@
+package com.user.service.service;
+
+import com.user.service.dao.CountMode;
+import com.user.service.dao.InMemoryUserRepository;
+import com.user.service.dao.UserRepository;
+import com.user.service.entities.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ServiceWarmerTest {
+
+    @Test
+    void warmUp_shouldRunEveryQueryShapeAndLeaveNoUsersBehind() {
+        InMemoryUserRepository repository = spy(new InMemoryUserRepository());
+        ServiceWarmer warmer = new ServiceWarmer(repository, null, 0, 5, 100, Duration.ofMinutes(1));
+
+        ServiceWarmer.Report report = warmer.warmUp();
+
+        verify(repository, times(5)).findByEmail(anyString());
+        verify(repository, times(5)).findByAgeBetween(anyInt(), anyInt());
+        verify(repository, times(5)).count(eq(CountMode.ESTIMATE), any());
+        // the query shapes and the service paths each write in only their first rounds
+        verify(repository, times(ServiceWarmer.WRITE_ROUNDS * 2)).save(any(User.class));
+        verify(repository, times(ServiceWarmer.WRITE_ROUNDS * 2)).deleteById(anyLong());
+        // the service paths read through the same repository, 100 times
+        verify(repository, times(5 + 100)).findPage(anyLong(), anyInt());
+        assertThat(repository.findAll()).isEmpty();
+        assertThat(report.connections()).isZero();
+        assertThat(report.serviceCalls()).isEqualTo(ServiceWarmer.WRITE_ROUNDS * 4 + 100 * 3);
+        assertThat(warmer.isReady()).isTrue();
+    }
+
+    @Test
+    void warmUp_shouldStopTheServiceLoopWhenItsTimeIsUp() {
+        InMemoryUserRepository repository = spy(new InMemoryUserRepository());
+        ServiceWarmer warmer = new ServiceWarmer(repository, null, 0, 0, 1_000_000, Duration.ZERO);
+
+        ServiceWarmer.Report report = warmer.warmUp();
+
+        assertThat(report.serviceCalls()).isEqualTo(ServiceWarmer.WRITE_ROUNDS * 4);
+        verify(repository, never()).findPage(anyLong(), anyInt());
+    }
+
+    @Test
+    void warmUp_shouldRollBackItsWrites() {
+        UserRepository repository = spy(new InMemoryUserRepository());
+        doAnswer(invocation -> {
+            // a repository that only keeps what a unit of work commits
+            Function<UserRepository, Object> work = invocation.getArgument(0);
+            InMemoryUserRepository scratch = new InMemoryUserRepository();
+            return work.apply(scratch);
+        }).when(repository).inTransaction(any());
+        ServiceWarmer warmer = new ServiceWarmer(repository, null, 0, 1, 0);
+
+        warmer.warmUp();
+
+        verify(repository).inTransaction(any());
+        verify(repository, never()).save(any(User.class));
+        assertThat(repository.findAll()).isEmpty();
+    }
+
+    @Test
+    void isReady_shouldBeFalseUntilWarmUpHasRun() {
+        ServiceWarmer warmer = ServiceWarmer.withDefaults(new InMemoryUserRepository(), null);
+
+        assertThat(warmer.isReady()).isFalse();
+    }
+
+    @Test
+    void constructor_shouldRejectNegativeSizes() {
+        assertThatThrownBy(() -> new ServiceWarmer(new InMemoryUserRepository(), null, 0, -1, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,153 @@
+package com.user.service.service;
+
+import com.user.service.dao.UserAuditDAO;
+import com.user.service.entities.User;
+import com.user.service.entities.UserAuditEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class UserAuditorTest {
+
+    private final UserAuditDAO auditDAO = mock(UserAuditDAO.class);
+    private final List<String> writerThreads = new CopyOnWriteArrayList<>();
+    private UserAuditor auditor;
+
+    @AfterEach
+    void tearDown() {
+        if (auditor != null) {
+            auditor.close();
+        }
+    }
+
+    @Test
+    void record_shouldWriteInCallerThreadWhenSync() {
+        recordWriterThreads();
+        auditor = new UserAuditor(auditDAO, AuditDurability.SYNC, 16, 10, Duration.ofMillis(50));
+
+        auditor.record(created(1L));
+
+        verify(auditDAO).insertAll(anyList());
+        assertThat(writerThreads).containsExactly(Thread.currentThread().getName());
+    }
+
+    @Test
+    void record_shouldReturnBeforeWriteWhenAsyncAndBatchWhatQueuedMeanwhile() throws Exception {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.<List<?>>getArgument(0).size());
+            firstWriteStarted.countDown();
+            releaseWriter.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(auditDAO).insertAll(anyList());
+        auditor = new UserAuditor(auditDAO, AuditDurability.ASYNC, 64, 100, Duration.ofMillis(50));
+
+        auditor.record(created(1L));
+        assertThat(firstWriteStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        for (long id = 2; id <= 6; id++) {
+            auditor.record(created(id));
+        }
+        releaseWriter.countDown();
+        auditor.close();
+
+        assertThat(batchSizes).containsExactly(1, 5);
+        assertThat(auditor.getWrittenCount()).isEqualTo(6);
+        assertThat(auditor.getBatchCount()).isEqualTo(2);
+    }
+
+    @Test
+    void record_shouldWaitForCommitAndReportFailureWhenGroupCommit() {
+        recordWriterThreads();
+        auditor = new UserAuditor(auditDAO, AuditDurability.GROUP_COMMIT, 16, 10, Duration.ofMillis(50));
+
+        auditor.record(created(1L));
+        assertThat(auditor.getWrittenCount()).isEqualTo(1);
+        assertThat(writerThreads).containsExactly("user-audit-writer");
+
+        doThrow(new RuntimeException("db down")).when(auditDAO).insertAll(anyList());
+        assertThatThrownBy(() -> auditor.record(created(2L)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Failed to write audit entry")
+                .hasRootCauseMessage("db down");
+        assertThat(auditor.getLostCount()).isEqualTo(1);
+    }
+
+    @Test
+    void record_shouldWriteItselfWhenQueueIsFull() throws Exception {
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writerThreads.add(Thread.currentThread().getName());
+            if (Thread.currentThread().getName().equals("user-audit-writer")) {
+                releaseWriter.await(5, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(auditDAO).insertAll(anyList());
+        auditor = new UserAuditor(auditDAO, AuditDurability.ASYNC, 2, 1, Duration.ofMillis(50));
+
+        auditor.record(created(1L));
+        verify(auditDAO, timeout(5000)).insertAll(anyList());
+        auditor.record(created(2L));
+        auditor.record(created(3L));
+        auditor.record(created(4L));
+
+        assertThat(auditor.getOverflowCount()).isEqualTo(1);
+        assertThat(writerThreads).contains(Thread.currentThread().getName());
+        releaseWriter.countDown();
+        auditor.close();
+        assertThat(auditor.getWrittenCount()).isEqualTo(4);
+    }
+
+    @Test
+    void record_shouldSkipEntriesWithoutChanges() {
+        auditor = new UserAuditor(auditDAO, AuditDurability.SYNC, 16, 10, Duration.ofMillis(50));
+        User user = user(1L, "Alice", 30);
+
+        auditor.record(UserAuditEntry.of(UserAuditEntry.Action.UPDATE, user, user, LocalDateTime.now()));
+
+        verify(auditDAO, never()).insertAll(anyList());
+        assertThat(auditor.getRecordedCount()).isZero();
+    }
+
+    @Test
+    void record_shouldRejectEntriesAfterClose() {
+        auditor = new UserAuditor(auditDAO, AuditDurability.ASYNC, 16, 10, Duration.ofMillis(50));
+        auditor.close();
+
+        assertThatThrownBy(() -> auditor.record(created(1L))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private void recordWriterThreads() {
+        doAnswer(invocation -> {
+            writerThreads.add(Thread.currentThread().getName());
+            return null;
+        }).when(auditDAO).insertAll(anyList());
+    }
+
+    private static UserAuditEntry created(long id) {
+        return UserAuditEntry.of(UserAuditEntry.Action.CREATE, null, user(id, "User" + id, 20), LocalDateTime.now());
+    }
+
+    private static User user(long id, String name, int age) {
+        User user = new User(name, name.toLowerCase() + "@test.com", age);
+        user.setId(id);
+        return user;
+    }
+}
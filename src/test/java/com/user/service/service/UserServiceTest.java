@@ -1,16 +1,24 @@
 package com.user.service.service;
 
+import com.user.service.dao.CountMode;
 import com.user.service.dao.UserDAO;
+import com.user.service.dao.UserFilter;
 import com.user.service.entities.User;
+import com.user.service.entities.UserPatch;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.time.YearMonth;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -96,6 +104,47 @@ class UserServiceTest {
         verify(userDAO).deleteById(1L);
     }
 
+    @Test
+    void purgeUsersCreatedBefore_shouldCallDAO() {
+        userService.purgeUsersCreatedBefore(YearMonth.of(2020, 1));
+        verify(userDAO).purgeCreatedBefore(YearMonth.of(2020, 1));
+    }
+
+    @Test
+    void purgeUsersCreatedBefore_shouldRejectFutureCutoff() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.purgeUsersCreatedBefore(YearMonth.now().plusMonths(1)));
+        verify(userDAO, never()).purgeCreatedBefore(any());
+    }
+
+    @Test
+    void countUsers_shouldDelegateModeWithoutFilter() {
+        when(userDAO.count(CountMode.ESTIMATE, UserFilter.NONE)).thenReturn(1200L);
+
+        assertEquals(1200L, userService.countUsers(CountMode.ESTIMATE));
+    }
+
+    @Test
+    void countUsers_shouldRejectMissingMode() {
+        assertThrows(IllegalArgumentException.class, () -> userService.countUsers(null));
+        verify(userDAO, never()).count(any(), any());
+    }
+
+    @Test
+    void getUsersPage_shouldDelegateToDAO() {
+        User user = new User("Test", "test@test.com", 20);
+        user.setId(11L);
+        when(userDAO.findPage(10L, 5)).thenReturn(List.of(user));
+
+        assertEquals(List.of(user), userService.getUsersPage(10L, 5));
+    }
+
+    @Test
+    void getUsersPage_shouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersPage(null, 0));
+        verify(userDAO, never()).findPage(any(), anyInt());
+    }
+
     @Test
     void getUserById_shouldDelegateToDAO() {
         User user = new User("Test", "test@test.com", 20);
@@ -263,4 +312,296 @@ class UserServiceTest {
         assertEquals("old@test.com", updated.getEmail());
         verify(userDAO).update(updated);
     }
+
+    @Test
+    void updateUserAsync_shouldUpdateSynchronouslyWithoutWriteBehind() {
+        Long id = 1L;
+        User existing = new User("Old", "old@test.com", 30);
+        existing.setId(id);
+        when(userDAO.findById(id)).thenReturn(Optional.of(existing));
+
+        CompletableFuture<User> result = userService.updateUserAsync(id, "New", null, null);
+
+        assertTrue(result.isDone());
+        assertEquals("New", result.join().getName());
+        verify(userDAO).update(existing);
+    }
+
+    @Test
+    void updateUserAsync_shouldSubmitPatchToWriteBehindUpdater() {
+        WriteBehindUserUpdater updater = mock(WriteBehindUserUpdater.class);
+        CompletableFuture<User> pending = new CompletableFuture<>();
+        when(updater.submit(1L, new UserPatch("New", null, 50))).thenReturn(pending);
+        UserService service = new UserService(userDAO, updater);
+
+        CompletableFuture<User> result = service.updateUserAsync(1L, "New", " ", 50);
+
+        assertEquals(pending, result);
+        verify(userDAO, never()).update(any());
+    }
+
+    @Test
+    void updateUserAsync_shouldRejectNegativeAge() {
+        WriteBehindUserUpdater updater = mock(WriteBehindUserUpdater.class);
+        UserService service = new UserService(userDAO, updater);
+
+        CompletableFuture<User> result = service.updateUserAsync(1L, null, null, -1);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(IllegalArgumentException.class, ex.getCause());
+        verifyNoInteractions(updater);
+    }
+
+    @Test
+    void createOrUpdateUser_shouldUpsertByEmail() {
+        when(userDAO.upsertByEmail(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            user.setId(7L);
+            return user;
+        });
+
+        User result = userService.createOrUpdateUser("John", "john@test.com", 30);
+
+        assertEquals(7L, result.getId());
+        assertEquals("john@test.com", result.getEmail());
+    }
+
+    @Test
+    void createOrUpdateUsers_shouldValidateEveryUserBeforeUpserting() {
+        java.util.List<User> users = java.util.List.of(
+                new User("John", "john@test.com", 30),
+                new User("Broken", "no-at-sign", 30));
+
+        assertThrows(IllegalArgumentException.class, () -> userService.createOrUpdateUsers(users));
+        verify(userDAO, never()).upsertAll(any());
+    }
+
+    @Test
+    void getUserById_shouldFailFastWhenReadsAreOverloaded() {
+        AdaptiveConcurrencyLimiter readLimiter = new AdaptiveConcurrencyLimiter(
+                "read", 1, 1, 1, 0.5, java.time.Duration.ofSeconds(1), java.time.Duration.ZERO);
+        readLimiter.acquire();
+        AdmissionController admission = new AdmissionController(readLimiter, java.time.Duration.ofSeconds(1),
+                null, null);
+        UserService service = new UserService(userDAO, null, admission);
+
+        assertThrows(OverloadedException.class, () -> service.getUserById(1L));
+        verifyNoInteractions(userDAO);
+    }
+
+    @Test
+    void inTransaction_shouldRunWorkAgainstServiceBoundToRepositoryTransaction() {
+        when(userDAO.inTransaction(any())).thenAnswer(invocation ->
+                invocation.<java.util.function.Function<com.user.service.dao.UserRepository, Object>>getArgument(0)
+                        .apply(userDAO));
+
+        User created = userService.inTransaction(tx -> {
+            User user = tx.createUser("John", "john@test.com", 30);
+            tx.deleteUser(5L);
+            return user;
+        });
+
+        assertEquals("john@test.com", created.getEmail());
+        verify(userDAO).inTransaction(any());
+        verify(userDAO).save(created);
+        verify(userDAO).deleteById(5L);
+    }
+
+    @Test
+    void inTransaction_shouldValidateInputInsideUnitOfWork() {
+        when(userDAO.inTransaction(any())).thenAnswer(invocation ->
+                invocation.<java.util.function.Function<com.user.service.dao.UserRepository, Object>>getArgument(0)
+                        .apply(userDAO));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.inTransaction(tx -> tx.createUser("", "john@test.com", 30)));
+        verify(userDAO, never()).save(any());
+    }
+
+    @Test
+    void createUpdateAndDeleteUser_shouldRecordAuditEntries() {
+        UserAuditor auditor = mock(UserAuditor.class);
+        UserService service = new UserService(userDAO, null, null, auditor);
+        assignIdsOnSave();
+        User existing = new User("Old", "old@test.com", 40);
+        existing.setId(1L);
+        // the before-images are read by the transaction that writes the change
+        com.user.service.dao.UserRepository tx = mock(com.user.service.dao.UserRepository.class);
+        when(tx.findById(1L)).thenAnswer(invocation -> Optional.of(copy(existing)));
+        when(userDAO.inTransaction(any())).thenAnswer(invocation ->
+                invocation.<java.util.function.Function<com.user.service.dao.UserRepository, Object>>getArgument(0)
+                        .apply(tx));
+
+        service.createUser("John", "john@test.com", 30);
+        service.updateUser(1L, "Old", "old@test.com", 41);
+        service.deleteUser(1L);
+
+        verify(tx).update(any(User.class));
+        verify(tx).deleteById(1L);
+        verify(userDAO, never()).findById(any());
+
+        org.mockito.ArgumentCaptor<com.user.service.entities.UserAuditEntry> entries =
+                org.mockito.ArgumentCaptor.forClass(com.user.service.entities.UserAuditEntry.class);
+        verify(auditor, times(3)).record(entries.capture());
+        assertEquals(List.of(com.user.service.entities.UserAuditEntry.Action.CREATE,
+                        com.user.service.entities.UserAuditEntry.Action.UPDATE,
+                        com.user.service.entities.UserAuditEntry.Action.DELETE),
+                entries.getAllValues().stream().map(com.user.service.entities.UserAuditEntry::action).toList());
+        assertEquals(List.of(new com.user.service.entities.UserAuditEntry.FieldChange("age", "40", "41")),
+                entries.getAllValues().get(1).changes());
+    }
+
+    @Test
+    void createOrUpdateUsers_shouldAuditWhatEachUpsertReplaced() {
+        com.user.service.dao.InMemoryUserRepository repository = new com.user.service.dao.InMemoryUserRepository();
+        repository.save(new User("Old", "old@test.com", 40));
+        UserAuditor auditor = mock(UserAuditor.class);
+        UserService service = new UserService(repository, null, null, auditor);
+
+        service.createOrUpdateUsers(List.of(new User("Old", "old@test.com", 41), new User("New", "new@test.com", 20)));
+        service.createOrUpdateUser("Renamed", "old@test.com", 41);
+
+        org.mockito.ArgumentCaptor<com.user.service.entities.UserAuditEntry> entries =
+                org.mockito.ArgumentCaptor.forClass(com.user.service.entities.UserAuditEntry.class);
+        verify(auditor, times(3)).record(entries.capture());
+        assertEquals(List.of(com.user.service.entities.UserAuditEntry.Action.UPDATE,
+                        com.user.service.entities.UserAuditEntry.Action.CREATE,
+                        com.user.service.entities.UserAuditEntry.Action.UPDATE),
+                entries.getAllValues().stream().map(com.user.service.entities.UserAuditEntry::action).toList());
+        assertEquals(List.of(new com.user.service.entities.UserAuditEntry.FieldChange("age", "40", "41")),
+                entries.getAllValues().get(0).changes());
+        assertEquals(List.of(new com.user.service.entities.UserAuditEntry.FieldChange("name", "Old", "Renamed")),
+                entries.getAllValues().get(2).changes());
+    }
+
+    @Test
+    void inTransaction_shouldAuditOnlyAfterCommit() {
+        UserAuditor auditor = mock(UserAuditor.class);
+        UserService service = new UserService(userDAO, null, null, auditor);
+        assignIdsOnSave();
+        when(userDAO.inTransaction(any())).thenAnswer(invocation -> {
+            Object result = invocation.<java.util.function.Function<com.user.service.dao.UserRepository, Object>>getArgument(0)
+                    .apply(userDAO);
+            verifyNoInteractions(auditor);
+            return result;
+        });
+
+        service.inTransaction(tx -> tx.createUser("John", "john@test.com", 30));
+
+        verify(auditor).record(any());
+    }
+
+    @Test
+    void inTransaction_shouldNotAuditRolledBackWork() {
+        UserAuditor auditor = mock(UserAuditor.class);
+        UserService service = new UserService(userDAO, null, null, auditor);
+        assignIdsOnSave();
+        when(userDAO.inTransaction(any())).thenAnswer(invocation ->
+                invocation.<java.util.function.Function<com.user.service.dao.UserRepository, Object>>getArgument(0)
+                        .apply(userDAO));
+
+        assertThrows(IllegalArgumentException.class, () -> service.inTransaction(tx -> {
+            tx.createUser("John", "john@test.com", 30);
+            return tx.createUser("", "broken@test.com", 30);
+        }));
+        verifyNoInteractions(auditor);
+    }
+
+    @Test
+    void getAuditTrail_shouldFailWhenAuditingIsDisabled() {
+        java.time.LocalDateTime now = java.time.LocalDateTime.now();
+
+        assertThrows(IllegalStateException.class, () -> userService.getAuditTrail(1L, now.minusDays(1), now));
+    }
+
+    @Test
+    void createUser_shouldReturnTheFirstResultForARetryWithTheSameKey() {
+        com.user.service.dao.InMemoryUserRepository repository = spy(new com.user.service.dao.InMemoryUserRepository());
+        UserService service = new UserService(repository);
+
+        User first = service.createUser("John", "john@test.com", 30, "key-1");
+        User retried = service.createUser("John", "JOHN@test.com", 30, "key-1");
+
+        assertEquals(first.getId(), retried.getId());
+        assertEquals("john@test.com", retried.getEmail());
+        verify(repository, times(1)).save(any(User.class));
+        verify(repository, times(1)).saveIdempotencyRecord(any());
+        // answered from the in-process cache
+        verify(repository, times(1)).findIdempotencyRecord("key-1");
+    }
+
+    @Test
+    void createUser_shouldReplayAKeyStoredByAnotherInstance() {
+        com.user.service.dao.InMemoryUserRepository repository = new com.user.service.dao.InMemoryUserRepository();
+        User first = new UserService(repository).createUser("John", "john@test.com", 30, "key-1");
+
+        User retried = new UserService(repository).createUser("John", "john@test.com", 30, "key-1");
+
+        assertEquals(first.getId(), retried.getId());
+        assertEquals(1, repository.findAll().size());
+    }
+
+    @Test
+    void createUser_shouldRejectAKeyReusedForADifferentRequest() {
+        UserService service = new UserService(new com.user.service.dao.InMemoryUserRepository());
+        service.createUser("John", "john@test.com", 30, "key-1");
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> service.createUser("Jane", "jane@test.com", 30, "key-1"));
+        assertTrue(ex.getMessage().contains("different request"));
+    }
+
+    @Test
+    void createUser_shouldReturnTheWinnerWhenAConcurrentRequestWithTheKeyCommittedFirst() {
+        com.user.service.dao.InMemoryUserRepository repository = new com.user.service.dao.InMemoryUserRepository();
+        User winner = new UserService(repository).createUser("John", "john@test.com", 30, "key-1");
+        // the losing request looked the key up before the winner stored it, then failed on the email
+        when(userDAO.findIdempotencyRecord("key-1")).thenReturn(Optional.empty())
+                .thenReturn(repository.findIdempotencyRecord("key-1"));
+        when(userDAO.inTransaction(any())).thenThrow(new com.user.service.dao.DataAccessException(
+                "Failed to save user", new IllegalStateException("Duplicate email: john@test.com")));
+
+        User result = userService.createUser("John", "john@test.com", 30, "key-1");
+
+        assertEquals(winner.getId(), result.getId());
+    }
+
+    @Test
+    void createUser_shouldNotStoreTheKeyWhenTheRequestFails() {
+        com.user.service.dao.InMemoryUserRepository repository = new com.user.service.dao.InMemoryUserRepository();
+        UserService service = new UserService(repository);
+        service.createUser("Taken", "john@test.com", 20);
+
+        assertThrows(com.user.service.dao.DataAccessException.class,
+                () -> service.createUser("John", "john@test.com", 30, "key-1"));
+        assertTrue(repository.findIdempotencyRecord("key-1").isEmpty());
+    }
+
+    @Test
+    void updateUser_shouldApplyARetriedUpdateOnce() {
+        com.user.service.dao.InMemoryUserRepository repository = spy(new com.user.service.dao.InMemoryUserRepository());
+        UserService service = new UserService(repository);
+        User user = service.createUser("John", "john@test.com", 30);
+
+        service.updateUser(user.getId(), null, null, 31, "key-1");
+        User retried = service.updateUser(user.getId(), null, null, 31, "key-1");
+
+        assertEquals(31, retried.getAge());
+        verify(repository, times(1)).update(any(User.class));
+    }
+
+    private void assignIdsOnSave() {
+        java.util.concurrent.atomic.AtomicLong ids = new java.util.concurrent.atomic.AtomicLong(100);
+        doAnswer(invocation -> {
+            invocation.<User>getArgument(0).setId(ids.incrementAndGet());
+            return null;
+        }).when(userDAO).save(any(User.class));
+    }
+
+    private static User copy(User user) {
+        User copy = new User(user.getName(), user.getEmail(), user.getAge());
+        copy.setId(user.getId());
+        copy.setCreatedAt(user.getCreatedAt());
+        return copy;
+    }
 }
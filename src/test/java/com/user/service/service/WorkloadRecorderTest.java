@@ -0,0 +1,148 @@
+package com.user.service.service;
+
+import com.user.service.dao.CountMode;
+import com.user.service.dao.InMemoryUserRepository;
+import com.user.service.entities.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class WorkloadRecorderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_shouldReturnRecordedCallsWithTheirArguments() throws Exception {
+        try (WorkloadRecorder recorder = WorkloadRecorder.open(directory, 1 << 20, 4)) {
+            long start = System.nanoTime();
+            recorder.record(WorkloadOperation.CREATE_USER, 7L, "Zoë", "zoe@test.com", 30, start, 1500, true);
+            recorder.record(WorkloadOperation.GET_ALL_USERS, null, null, null, null, start + 10, 2500, false);
+            recorder.record(WorkloadOperation.UPDATE_USER, 7L, null, "new@test.com", null, start + 20, 900, true);
+        }
+
+        List<WorkloadRecord> records = WorkloadLog.read(directory);
+
+        assertThat(records).hasSize(3);
+        WorkloadRecord create = records.get(0);
+        assertThat(create.operation()).isEqualTo(WorkloadOperation.CREATE_USER);
+        assertThat(create.threadId()).isEqualTo(Thread.currentThread().getId());
+        assertThat(create.latencyNanos()).isEqualTo(1500);
+        assertThat(create.succeeded()).isTrue();
+        assertThat(create.id()).isEqualTo(7L);
+        assertThat(create.name()).isEqualTo("Zoë");
+        assertThat(create.email()).isEqualTo("zoe@test.com");
+        assertThat(create.age()).isEqualTo(30);
+        assertThat(records.get(1)).extracting(WorkloadRecord::succeeded, WorkloadRecord::id, WorkloadRecord::name)
+                .containsExactly(false, null, null);
+        assertThat(records.get(1).startNanos() - create.startNanos()).isEqualTo(10);
+        assertThat(records.get(2)).extracting(WorkloadRecord::name, WorkloadRecord::email, WorkloadRecord::age)
+                .containsExactly(null, "new@test.com", null);
+    }
+
+    @Test
+    void record_shouldRotateFullSegmentsAndKeepOnlyTheNewest() throws Exception {
+        try (WorkloadRecorder recorder = WorkloadRecorder.open(directory, 4096, 2)) {
+            for (int i = 0; i < 300; i++) {
+                recorder.record(WorkloadOperation.GET_USER_BY_ID, (long) i, null, null, null, System.nanoTime(), i, true);
+            }
+        }
+
+        List<Path> segments = WorkloadLog.segments(directory);
+        assertThat(segments).hasSize(2);
+        assertThat(WorkloadLog.sequenceOf(segments.get(1))).isGreaterThan(2);
+        // a closed segment is cut down to its records
+        assertThat(Files.size(segments.get(1))).isLessThan(4096);
+        List<WorkloadRecord> records = WorkloadLog.read(directory);
+        assertThat(records).isNotEmpty().hasSizeLessThan(300);
+        assertThat(records.get(records.size() - 1).id()).isEqualTo(299L);
+    }
+
+    @Test
+    void open_shouldContinueAfterSegmentsOfAnEarlierRun() throws Exception {
+        try (WorkloadRecorder recorder = WorkloadRecorder.open(directory, 4096, 4)) {
+            recorder.record(WorkloadOperation.DELETE_USER, 1L, null, null, null, System.nanoTime(), 1, true);
+        }
+        try (WorkloadRecorder recorder = WorkloadRecorder.open(directory, 4096, 4)) {
+            recorder.record(WorkloadOperation.DELETE_USER, 2L, null, null, null, System.nanoTime(), 1, true);
+        }
+
+        assertThat(WorkloadLog.segments(directory)).hasSize(2);
+        assertThat(WorkloadLog.read(directory)).extracting(WorkloadRecord::id).containsExactly(1L, 2L);
+        // the same thread recorded both, but in different runs
+        assertThat(WorkloadLog.read(directory)).extracting(WorkloadRecord::run).containsExactly(0, 1);
+    }
+
+    @Test
+    void record_shouldDropCallsAfterClose() throws Exception {
+        WorkloadRecorder recorder = WorkloadRecorder.open(directory, 4096, 4);
+        recorder.close();
+
+        recorder.record(WorkloadOperation.GET_ALL_USERS, null, null, null, null, System.nanoTime(), 1, true);
+
+        assertThat(recorder.getRecorded()).isZero();
+        assertThat(recorder.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    void open_shouldRejectSegmentsTooSmallForARecord() {
+        assertThatThrownBy(() -> WorkloadRecorder.open(directory, 100, 4))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void userService_shouldRecordCallsButNotUnitsOfWork() throws Exception {
+        try (WorkloadRecorder recorder = WorkloadRecorder.open(directory, 1 << 20, 4)) {
+            UserService userService = new UserService(new InMemoryUserRepository(), null, null, null, recorder);
+            User user = userService.createUser("Alice", "alice@test.com", 30);
+            userService.getUserById(user.getId());
+            userService.countUsers(CountMode.EXACT);
+            userService.inTransaction(tx -> tx.updateUser(user.getId(), "Alicia", null, null));
+            try {
+                userService.updateUser(-1L, "Nobody", null, null);
+            } catch (RuntimeException expected) {
+                // recorded as failed
+            }
+        }
+
+        List<WorkloadRecord> records = WorkloadLog.read(directory);
+
+        assertThat(records).extracting(WorkloadRecord::operation).containsExactly(
+                WorkloadOperation.CREATE_USER, WorkloadOperation.GET_USER_BY_ID, WorkloadOperation.COUNT_USERS,
+                WorkloadOperation.UPDATE_USER);
+        // a create keeps the id it produced
+        assertThat(records.get(0).id()).isEqualTo(records.get(1).id()).isNotNull();
+        assertThat(records.get(2).age()).isEqualTo(CountMode.EXACT.ordinal());
+        assertThat(records.get(3).succeeded()).isFalse();
+    }
+
+    @Test
+    void userService_shouldRecordWriteBehindUpdatesOnceApplied() throws Exception {
+        InMemoryUserRepository repository = new InMemoryUserRepository();
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+        try (WorkloadRecorder recorder = WorkloadRecorder.open(directory, 1 << 20, 4);
+             WriteBehindUserUpdater updater = WriteBehindUserUpdater.withDefaults(repository)) {
+            UserService userService = new UserService(repository, updater, null, null, recorder);
+            userService.updateUserAsync(user.getId(), "Alicia", null, 31).get();
+            assertThatThrownBy(() -> userService.updateUserAsync(user.getId(), null, null, -1).get())
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+        }
+
+        List<WorkloadRecord> records = WorkloadLog.read(directory);
+
+        assertThat(records).extracting(WorkloadRecord::operation, WorkloadRecord::succeeded).containsExactly(
+                tuple(WorkloadOperation.UPDATE_USER, true), tuple(WorkloadOperation.UPDATE_USER, false));
+        // under the caller's thread, not the flusher's
+        assertThat(records.get(0).threadId()).isEqualTo(Thread.currentThread().getId());
+        assertThat(records.get(0)).extracting(WorkloadRecord::id, WorkloadRecord::name, WorkloadRecord::age)
+                .containsExactly(user.getId(), "Alicia", 31);
+    }
+}
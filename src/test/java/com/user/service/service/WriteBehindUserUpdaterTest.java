@@ -0,0 +1,204 @@
+package com.user.service.service;
+
+import com.user.service.dao.ConnectionFailureException;
+import com.user.service.dao.InMemoryUserRepository;
+import com.user.service.dao.UserRepository;
+import com.user.service.entities.User;
+import com.user.service.entities.UserAuditEntry;
+import com.user.service.entities.UserPatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WriteBehindUserUpdaterTest {
+
+    private WriteBehindUserUpdater updater;
+
+    @AfterEach
+    void tearDown() {
+        if (updater != null) {
+            updater.close();
+        }
+    }
+
+    @Test
+    void submit_shouldCoalesceUpdatesPerUserWithLastWriterWinsPerField() throws Exception {
+        UserRepository repository = spy(new InMemoryUserRepository());
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+        updater = new WriteBehindUserUpdater(repository, 100, 100, Duration.ofMillis(200), Duration.ofSeconds(1));
+
+        CompletableFuture<User> first = updater.submit(user.getId(), new UserPatch("Alicia", null, 31));
+        CompletableFuture<User> second = updater.submit(user.getId(), new UserPatch(null, "alicia@test.com", 32));
+
+        User result = second.get(5, TimeUnit.SECONDS);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(result.getName()).isEqualTo("Alicia");
+        assertThat(result.getEmail()).isEqualTo("alicia@test.com");
+        assertThat(result.getAge()).isEqualTo(32);
+        verify(repository, times(1)).applyPatches(anyMap());
+    }
+
+    @Test
+    void submit_shouldFlushAsSoonAsBatchIsFull() throws Exception {
+        UserRepository repository = new InMemoryUserRepository();
+        User a = new User("A", "a@test.com", 20);
+        User b = new User("B", "b@test.com", 20);
+        repository.save(a);
+        repository.save(b);
+        updater = new WriteBehindUserUpdater(repository, 100, 2, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        CompletableFuture<User> first = updater.submit(a.getId(), new UserPatch(null, null, 21));
+        CompletableFuture<User> second = updater.submit(b.getId(), new UserPatch(null, null, 22));
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getAge()).isEqualTo(21);
+        assertThat(second.get(5, TimeUnit.SECONDS).getAge()).isEqualTo(22);
+    }
+
+    @Test
+    void submit_shouldFailFutureForUnknownUser() {
+        updater = new WriteBehindUserUpdater(new InMemoryUserRepository(), 100, 100,
+                Duration.ofMillis(10), Duration.ofSeconds(1));
+
+        CompletableFuture<User> result = updater.submit(404L, new UserPatch("Ghost", null, null));
+
+        assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("User not found with ID: 404");
+    }
+
+    @Test
+    void submit_shouldFailEveryFutureOfBatchWhenFlushFails() {
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.applyPatches(anyMap())).thenThrow(new RuntimeException("Failed to apply user patches"));
+        updater = new WriteBehindUserUpdater(repository, 100, 2, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        CompletableFuture<User> first = updater.submit(1L, new UserPatch("A", null, null));
+        CompletableFuture<User> second = updater.submit(2L, new UserPatch("B", null, null));
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasMessageContaining("Failed to apply user patches");
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasMessageContaining("Failed to apply user patches");
+    }
+
+    @Test
+    void submit_shouldFailOnlyTheBadPatchWhenABatchFails() throws Exception {
+        UserRepository repository = new InMemoryUserRepository();
+        User a = new User("A", "a@test.com", 20);
+        User b = new User("B", "b@test.com", 20);
+        User c = new User("C", "c@test.com", 20);
+        repository.save(a);
+        repository.save(b);
+        repository.save(c);
+        updater = new WriteBehindUserUpdater(repository, 100, 3, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        CompletableFuture<User> first = updater.submit(a.getId(), new UserPatch(null, null, 21));
+        CompletableFuture<User> taken = updater.submit(b.getId(), new UserPatch(null, "c@test.com", null));
+        CompletableFuture<User> third = updater.submit(c.getId(), new UserPatch(null, null, 23));
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getAge()).isEqualTo(21);
+        assertThat(third.get(5, TimeUnit.SECONDS).getAge()).isEqualTo(23);
+        assertThatThrownBy(() -> taken.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(repository.findById(b.getId()).orElseThrow().getEmail()).isEqualTo("b@test.com");
+    }
+
+    @Test
+    void submit_shouldFailTheWholeBatchOnAnOutage() {
+        UserRepository repository = mock(UserRepository.class);
+        when(repository.applyPatches(anyMap())).thenThrow(new ConnectionFailureException("Failed to apply user patches",
+                new SQLException("Connection refused", "08001")));
+        updater = new WriteBehindUserUpdater(repository, 100, 3, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        CompletableFuture<User> first = updater.submit(1L, new UserPatch(null, null, 21));
+        CompletableFuture<User> second = updater.submit(2L, new UserPatch(null, null, 22));
+        CompletableFuture<User> third = updater.submit(3L, new UserPatch(null, null, 23));
+
+        for (CompletableFuture<User> update : List.of(first, second, third)) {
+            assertThatThrownBy(() -> update.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(ConnectionFailureException.class);
+        }
+        // not retried patch by patch
+        verify(repository, times(1)).applyPatches(anyMap());
+    }
+
+    @Test
+    void submit_shouldAuditEachPatchOnceApplied() throws Exception {
+        UserRepository repository = new InMemoryUserRepository();
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+        UserAuditor auditor = mock(UserAuditor.class);
+        updater = new WriteBehindUserUpdater(repository, auditor, 100, 1, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        updater.submit(user.getId(), new UserPatch(null, null, 31)).get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<UserAuditEntry> entry = ArgumentCaptor.forClass(UserAuditEntry.class);
+        verify(auditor).record(entry.capture());
+        assertThat(entry.getValue().action()).isEqualTo(UserAuditEntry.Action.UPDATE);
+        assertThat(entry.getValue().changes()).containsExactly(new UserAuditEntry.FieldChange("age", "30", "31"));
+    }
+
+    @Test
+    void submit_shouldRejectWhenQueueStaysFull() throws Exception {
+        UserRepository repository = mock(UserRepository.class);
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            flushStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of();
+        }).when(repository).applyPatches(anyMap());
+        updater = new WriteBehindUserUpdater(repository, 1, 1, Duration.ofMinutes(1), Duration.ofMillis(50));
+
+        updater.submit(1L, new UserPatch("A", null, null));
+        assertThat(flushStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        updater.submit(2L, new UserPatch("B", null, null));
+
+        assertThatThrownBy(() -> updater.submit(3L, new UserPatch("C", null, null)))
+                .isInstanceOf(RejectedExecutionException.class)
+                .hasMessageContaining("queue is full");
+        release.countDown();
+    }
+
+    @Test
+    void close_shouldDrainPendingUpdates() throws Exception {
+        UserRepository repository = new InMemoryUserRepository();
+        User user = new User("Alice", "alice@test.com", 30);
+        repository.save(user);
+        updater = new WriteBehindUserUpdater(repository, 100, 100, Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+        CompletableFuture<User> result = updater.submit(user.getId(), new UserPatch(null, null, 99));
+        updater.close();
+
+        assertThat(result).isDone();
+        assertThat(result.get().getAge()).isEqualTo(99);
+        assertThat(repository.findById(user.getId()).orElseThrow().getAge()).isEqualTo(99);
+    }
+
+    @Test
+    void submit_shouldRejectAfterClose() {
+        updater = WriteBehindUserUpdater.withDefaults(new InMemoryUserRepository());
+        updater.close();
+
+        assertThatThrownBy(() -> updater.submit(1L, new UserPatch("A", null, null)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -2,15 +2,56 @@ package com.user.service.util;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
 
 public class SessionFactoryProviderForTest {
 
     public static SessionFactory create(String jdbcUrl, String username, String password) {
+        return create(jdbcUrl, username, password, null);
+    }
+
+    // the inspector sees every SQL statement Hibernate generates, before it is prepared
+    public static SessionFactory create(String jdbcUrl, String username, String password,
+                                        StatementInspector inspector) {
         Configuration config = new Configuration();
         config.configure("hibernate-test.cfg.xml");
         config.setProperty("hibernate.connection.url", jdbcUrl);
         config.setProperty("hibernate.connection.username", username);
         config.setProperty("hibernate.connection.password", password);
+        if (inspector != null) {
+            config.setStatementInspector(inspector);
+        }
         return config.buildSessionFactory();
     }
+
+    // an empty database next to the one jdbcUrl points at, for tests that need several; returns its URL
+    public static String createDatabase(String jdbcUrl, String username, String password, String name) {
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + name);
+            statement.execute("CREATE DATABASE " + name);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to create database " + name, e);
+        }
+        return jdbcUrl.replaceFirst("/[^/?]+(\\?|$)", "/" + name + "$1");
+    }
+
+    public static Mutiny.SessionFactory createReactive(String jdbcUrl, String username, String password,
+                                                       boolean manageSchema) {
+        Configuration config = new Configuration();
+        config.configure("hibernate-test.cfg.xml");
+        config.setProperty("hibernate.connection.url", jdbcUrl);
+        config.setProperty("hibernate.connection.username", username);
+        config.setProperty("hibernate.connection.password", password);
+        if (!manageSchema) {
+            config.setProperty("hibernate.hbm2ddl.auto", "none");
+        }
+        return ReactiveSessionFactoryProvider.build(config);
+    }
 }
\ No newline at end of file
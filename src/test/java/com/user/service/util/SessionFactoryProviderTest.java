@@ -125,4 +125,16 @@ class SessionFactoryProviderTest {
             throw new RuntimeException("Failed to read instance after shutdown", e);
         }
     }
+
+    @Test
+    void shutdown_shouldRunRegisteredHooksBeforeClosing() {
+        SessionFactory sf = SessionFactoryProvider.getInstance();
+        java.util.List<Boolean> factoryOpenWhenHookRan = new java.util.ArrayList<>();
+        SessionFactoryProvider.registerShutdownHook(() -> factoryOpenWhenHookRan.add(!sf.isClosed()));
+
+        SessionFactoryProvider.shutdown();
+        SessionFactoryProvider.shutdown();
+
+        assertThat(factoryOpenWhenHookRan).containsExactly(true);
+    }
 }